@@ -0,0 +1,55 @@
+package com.example.clickhouse.approx;
+
+/**
+ * 统计查询的精度模式
+ *
+ * - AUTO：原有行为，经查询路由执行（原始表 uniqExact，或预聚合表 uniq）
+ * - EXACT：强制原始表 uniqExact，精确但内存占用随去重基数线性增长
+ * - COMBINED：uniqCombined（HyperLogLog 2^17 个桶，基数小时退化为精确集合），相对标准误差约 0.3%，状态最大约 96KB
+ * - HLL12：uniqHLL12（2^12 个桶），相对标准误差约 1.6%，状态约 2.5KB，最快但误差最大
+ * - SAMPLED：在按 user_id 哈希抽样的表上 SAMPLE 执行，计数和去重人数按抽样系数放大，
+ *   误差随抽样到的用户数变化，逐行返回 relative_error
+ * 热门页面在 COMBINED / HLL12 下先用 topK 选出候选页面，再只对候选页面精确计数。
+ */
+public enum Accuracy {
+
+    AUTO(null, null),
+    EXACT("uniqExact", 0.0),
+    COMBINED("uniqCombined", 0.003),
+    HLL12("uniqHLL12", 0.016),
+    SAMPLED("uniqCombined", null);
+
+    private final String uniqFunction;
+    private final Double uniqError;
+
+    Accuracy(String uniqFunction, Double uniqError) {
+        this.uniqFunction = uniqFunction;
+        this.uniqError = uniqError;
+    }
+
+    /**
+     * 去重函数，AUTO 由查询路由决定
+     */
+    public String getUniqFunction() {
+        return uniqFunction;
+    }
+
+    /**
+     * 去重人数的相对标准误差，AUTO / SAMPLED 不固定
+     */
+    public Double getUniqError() {
+        return uniqError;
+    }
+
+    public static Accuracy of(String value) {
+        if (value == null || value.isBlank()) {
+            return AUTO;
+        }
+        for (Accuracy accuracy : values()) {
+            if (accuracy.name().equalsIgnoreCase(value)) {
+                return accuracy;
+            }
+        }
+        throw new IllegalArgumentException("不支持的精度: " + value + "（auto / exact / combined / hll12 / sampled）");
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.clickhouse.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 分析查询结果缓存（按分区区分可变性）
+ *
+ * 缓存键为查询名 + 截断到秒的起止时间 + 其余参数，与 SQL 实际使用的参数一致，
+ * 毫秒不同但落在同一秒的请求命中同一条目。
+ *
+ * user_behavior_log 按月分区（toYYYYMM(event_time)），当前月是仍在写入的分区：
+ * - 范围结束时间早于当前月的条目视为不可变，不设过期时间，只会被容量淘汰或写入失效
+ * - 范围触及当前月的条目过期时间为 open-ttl-millis（默认 5 秒）
+ * - 写入路径（批量插入、RowBinary、缓冲写入、预聚合补数）写入成功后按本批 event_time 范围失效与之重叠的条目，
+ *   补写到历史分区的迟到数据同样会失效对应的"不可变"条目
+ * - 查询执行期间发生了重叠写入时，结果不放入缓存，避免写入前的结果覆盖失效
+ * 容量按条目数和估算内存双重限制，超出时淘汰最久未访问的条目；结果行数超过 max-result-rows 的查询不缓存。
+ * 缓存结果在多个请求间共享，调用方不能修改返回的列表和 Map。
+ * 表 TTL 删除过期数据不会使缓存失效，不可变条目的范围应在原始表保留期内。
+ */
+@Slf4j
+@Component
+public class QueryResultCache {
+
+    @Value("${clickhouse.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${clickhouse.cache.open-ttl-millis:5000}")
+    private long openTtlMillis;
+
+    @Value("${clickhouse.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${clickhouse.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${clickhouse.cache.max-result-rows:10000}")
+    private int maxResultRows;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Load> loads = ConcurrentHashMap.newKeySet();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder invalidatedEntries = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+    private final LongAdder oversizedResults = new LongAdder();
+    private final Map<String, LongAdder[]> queryHits = new ConcurrentHashMap<>();
+
+    private record Key(String query, LocalDateTime from, LocalDateTime to, List<Object> params) {
+    }
+
+    private static final class Entry {
+        final List<Map<String, Object>> value;
+        final LocalDateTime from;
+        final LocalDateTime to;
+        final long expiresAtMillis;
+        final long bytes;
+        volatile long lastAccessNanos;
+
+        Entry(List<Map<String, Object>> value, LocalDateTime from, LocalDateTime to, long expiresAtMillis, long bytes) {
+            this.value = value;
+            this.from = from;
+            this.to = to;
+            this.expiresAtMillis = expiresAtMillis;
+            this.bytes = bytes;
+            this.lastAccessNanos = System.nanoTime();
+        }
+
+        boolean open() {
+            return expiresAtMillis > 0;
+        }
+    }
+
+    /**
+     * 正在执行的查询，执行期间有重叠写入时标记为过期
+     */
+    private static final class Load {
+        final LocalDateTime from;
+        final LocalDateTime to;
+        volatile boolean stale;
+
+        Load(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * 命中则返回缓存结果，否则执行 loader 并按范围决定是否可缓存及过期时间
+     * @param query 查询名（如 stats/event-type）
+     * @param startTime 查询起始时间（含）
+     * @param endTime 查询结束时间（含）
+     * @param params 时间范围以外影响结果的参数
+     */
+    public List<Map<String, Object>> get(String query, LocalDateTime startTime, LocalDateTime endTime,
+                                         List<Object> params, Supplier<List<Map<String, Object>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        LocalDateTime from = startTime.truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime to = endTime.truncatedTo(ChronoUnit.SECONDS);
+        Key key = new Key(query, from, to, List.copyOf(params));
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.open() && System.currentTimeMillis() >= entry.expiresAtMillis) {
+                if (entries.remove(key, entry)) {
+                    totalBytes.addAndGet(-entry.bytes);
+                    expirations.increment();
+                }
+            } else {
+                entry.lastAccessNanos = System.nanoTime();
+                hits.increment();
+                counters(query)[0].increment();
+                return entry.value;
+            }
+        }
+        misses.increment();
+        counters(query)[1].increment();
+
+        Load load = new Load(from, to);
+        loads.add(load);
+        List<Map<String, Object>> value;
+        try {
+            value = loader.get();
+        } finally {
+            loads.remove(load);
+        }
+        if (load.stale) {
+            discardedLoads.increment();
+            return value;
+        }
+        if (value.size() > maxResultRows) {
+            oversizedResults.increment();
+            return value;
+        }
+
+        List<Map<String, Object>> cached = Collections.unmodifiableList(value);
+        boolean open = !to.isBefore(openPartitionStart());
+        Entry created = new Entry(cached, from, to,
+                open ? System.currentTimeMillis() + openTtlMillis : 0, estimateBytes(cached));
+        Entry previous = entries.put(key, created);
+        totalBytes.addAndGet(created.bytes - (previous != null ? previous.bytes : 0));
+        puts.increment();
+        // 放入后再检查一次：与 invalidate 先标记 load 再扫描条目配合，保证写入后不会残留旧结果
+        if (load.stale && entries.remove(key, created)) {
+            totalBytes.addAndGet(-created.bytes);
+            discardedLoads.increment();
+        }
+        evictIfNeeded();
+        return cached;
+    }
+
+    /**
+     * 写入成功后调用：失效与 [minTime, maxTime] 重叠的条目和正在执行的查询
+     */
+    public void invalidate(LocalDateTime minTime, LocalDateTime maxTime) {
+        if (!enabled || minTime == null || maxTime == null) {
+            return;
+        }
+        // 表中 DateTime 精度为秒，写入的毫秒部分被截断
+        LocalDateTime min = minTime.truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime max = maxTime.truncatedTo(ChronoUnit.SECONDS);
+        invalidations.increment();
+        for (Load load : loads) {
+            if (overlaps(load.from, load.to, min, max)) {
+                load.stale = true;
+            }
+        }
+        int removed = 0;
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (overlaps(entry.from, entry.to, min, max) && entries.remove(e.getKey(), entry)) {
+                totalBytes.addAndGet(-entry.bytes);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            invalidatedEntries.add(removed);
+            log.debug("查询结果缓存失效: 写入范围={} ~ {}, 条目数={}", min, max, removed);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        totalBytes.set(0);
+        log.info("查询结果缓存已清空");
+    }
+
+    /**
+     * 命中率、条目数（可变 / 不可变）、估算内存等指标
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("enabled", enabled);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount));
+        long openEntries = entries.values().stream().filter(Entry::open).count();
+        stats.put("entries", entries.size());
+        stats.put("openEntries", openEntries);
+        stats.put("closedEntries", entries.size() - openEntries);
+        stats.put("maxEntries", maxEntries);
+        stats.put("estimatedBytes", totalBytes.get());
+        stats.put("estimatedMB", totalBytes.get() / 1024.0 / 1024.0);
+        stats.put("maxBytes", maxBytes);
+        stats.put("puts", puts.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("invalidatedEntries", invalidatedEntries.sum());
+        stats.put("discardedLoads", discardedLoads.sum());
+        stats.put("oversizedResults", oversizedResults.sum());
+        Map<String, Object> byQuery = new LinkedHashMap<>();
+        queryHits.forEach((query, counters) -> {
+            long queryHitCount = counters[0].sum();
+            long queryMissCount = counters[1].sum();
+            Map<String, Object> queryStats = new LinkedHashMap<>();
+            queryStats.put("hits", queryHitCount);
+            queryStats.put("misses", queryMissCount);
+            queryStats.put("hitRate", queryHitCount + queryMissCount == 0 ? 0
+                    : (double) queryHitCount / (queryHitCount + queryMissCount));
+            byQuery.put(query, queryStats);
+        });
+        stats.put("queries", byQuery);
+        stats.put("openPartitionStart", openPartitionStart().toString());
+        return stats;
+    }
+
+    private LongAdder[] counters(String query) {
+        return queryHits.computeIfAbsent(query, q -> new LongAdder[]{new LongAdder(), new LongAdder()});
+    }
+
+    /**
+     * 仍在写入的分区（当前月）的起始时间
+     */
+    private LocalDateTime openPartitionStart() {
+        return YearMonth.now().atDay(1).atStartOfDay();
+    }
+
+    private static boolean overlaps(LocalDateTime from, LocalDateTime to, LocalDateTime minTime, LocalDateTime maxTime) {
+        return !from.isAfter(maxTime) && !to.isBefore(minTime);
+    }
+
+    /**
+     * 超出条目数或内存上限时，先清理已过期条目，再按最久未访问淘汰到上限的 90%
+     */
+    private void evictIfNeeded() {
+        if (entries.size() <= maxEntries && totalBytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (evictionLock) {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.open() && now >= entry.expiresAtMillis && entries.remove(e.getKey(), entry)) {
+                    totalBytes.addAndGet(-entry.bytes);
+                    expirations.increment();
+                }
+            }
+            if (entries.size() <= maxEntries && totalBytes.get() <= maxBytes) {
+                return;
+            }
+            List<Map.Entry<Key, Entry>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccessNanos));
+            long targetEntries = maxEntries * 9L / 10;
+            long targetBytes = maxBytes * 9 / 10;
+            for (Map.Entry<Key, Entry> e : candidates) {
+                if (entries.size() <= targetEntries && totalBytes.get() <= targetBytes) {
+                    break;
+                }
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    totalBytes.addAndGet(-e.getValue().bytes);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 估算结果占用的堆内存（64 位 JVM、压缩指针下的对象头与字段大小，列名字符串为驱动共享，不计入）
+     */
+    private static long estimateBytes(List<Map<String, Object>> rows) {
+        long bytes = 16 + 4L * rows.size();
+        for (Map<String, Object> row : rows) {
+            // LinkedCaseInsensitiveMap：外层对象 + LinkedHashMap（表 + 每个节点）+ 大小写映射 HashMap
+            bytes += 48 + 56 + 16 + 8L * row.size() * 2 + 2 * 40L * row.size();
+            for (Object value : row.values()) {
+                bytes += estimateValue(value);
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String s) {
+            return 24 + 16 + s.length();
+        }
+        if (value instanceof BigInteger || value instanceof BigDecimal) {
+            return 56;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 16;
+        }
+        if (value instanceof LocalDateTime) {
+            return 24 + 24 + 24;
+        }
+        if (value instanceof Collection<?> collection) {
+            long bytes = 24 + 16 + 4L * collection.size();
+            for (Object item : collection) {
+                bytes += estimateValue(item);
+            }
+            return bytes;
+        }
+        if (value instanceof double[] array) {
+            return 16 + 8L * array.length;
+        }
+        if (value instanceof Object[] array) {
+            long bytes = 16 + 4L * array.length;
+            for (Object item : array) {
+                bytes += estimateValue(item);
+            }
+            return bytes;
+        }
+        return 32;
+    }
+}
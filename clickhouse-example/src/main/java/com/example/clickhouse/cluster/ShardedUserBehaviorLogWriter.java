@@ -0,0 +1,273 @@
+package com.example.clickhouse.cluster;
+
+import com.example.clickhouse.model.UserBehaviorLog;
+import com.example.clickhouse.profiling.QueryTag;
+import com.example.clickhouse.service.ClickHouseDataService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * 客户端分片直写
+ *
+ * 写入 Distributed 表时，接收节点先把数据落盘到本地队列（或同步模式下在本节点切分），再转发到各分片：
+ * 数据经过两次网络传输，非本地分片的数据还要多写一次磁盘，接收节点成为瓶颈。
+ * 这里在客户端按与 Distributed 表相同的分片键计算分片，直接并行写各分片的本地表：
+ * - 分片键 CRC32(user_id)，与 java.util.zip.CRC32 结果一致；分片序号 = 键 % 分片数，
+ *   shard-urls 的顺序必须与集群配置 remote_servers 中的分片顺序一致（各分片权重为 1）
+ * - 同一用户的数据始终在同一分片，用户路径等查询可在分片内完成
+ * - 每个分片一个连接池和一个写线程，一批数据拆分后各分片并行写入，全部完成后返回
+ * - 单个分片失败时按指数退避重试；ReplicatedMergeTree 对相同数据块的重复插入自动去重，重试不会产生重复数据
+ * - 重试耗尽的分片在结果中标注错误，调用方只需重新提交失败分片的行（failedRows）
+ */
+@Slf4j
+@Component
+public class ShardedUserBehaviorLogWriter {
+
+    @Value("${clickhouse.cluster.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 各分片一个副本的 JDBC URL，逗号分隔，顺序与 remote_servers 中的分片顺序一致
+     */
+    @Value("${clickhouse.cluster.shard-urls:}")
+    private String shardUrls;
+
+    @Value("${clickhouse.cluster.local-table:user_behavior_log_local}")
+    private String localTable;
+
+    @Value("${clickhouse.username:default}")
+    private String username;
+
+    @Value("${clickhouse.password:}")
+    private String password;
+
+    @Value("${clickhouse.cluster.pool-size:4}")
+    private int poolSize;
+
+    @Value("${clickhouse.cluster.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${clickhouse.cluster.retry-backoff-millis:200}")
+    private long retryBackoffMillis;
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    private final List<HikariDataSource> shards = new ArrayList<>();
+    private ExecutorService writers;
+
+    private LongAdder[] shardRows;
+    private LongAdder[] shardNanos;
+    private LongAdder[] shardRetries;
+    private LongAdder[] shardFailures;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        String[] urls = Arrays.stream(shardUrls.split(",")).map(String::trim).filter(url -> !url.isEmpty())
+                .toArray(String[]::new);
+        if (urls.length == 0) {
+            throw new IllegalStateException("clickhouse.cluster.enabled=true 时必须配置 clickhouse.cluster.shard-urls");
+        }
+        for (int i = 0; i < urls.length; i++) {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(urls[i]);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setPoolName("clickhouse-shard-" + (i + 1));
+            config.setMaximumPoolSize(poolSize);
+            config.setMinimumIdle(1);
+            config.setConnectionTimeout(60000);
+            shards.add(new HikariDataSource(config));
+        }
+        shardRows = newCounters(urls.length);
+        shardNanos = newCounters(urls.length);
+        shardRetries = newCounters(urls.length);
+        shardFailures = newCounters(urls.length);
+        AtomicInteger threadIndex = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(urls.length, r -> {
+            Thread thread = new Thread(r, "clickhouse-shard-writer-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("ClickHouse分片直写初始化完成: shards={}, table={}", urls.length, localTable);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (writers != null) {
+            writers.shutdown();
+        }
+        shards.forEach(HikariDataSource::close);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * 用户所在分片（从 0 开始），与 Distributed 表分片键 CRC32(user_id) 一致
+     */
+    public int shardOf(String userId) {
+        CRC32 crc = new CRC32();
+        crc.update((userId != null ? userId : "").getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shards.size());
+    }
+
+    /**
+     * 按分片拆分后并行写入各分片本地表，全部分片结束后返回
+     * @return 总行数、耗时及各分片的行数、耗时、重试次数和错误；有分片失败时 failedRows 为这些分片的行
+     */
+    public Map<String, Object> write(List<UserBehaviorLog> logs) {
+        if (!enabled) {
+            throw new IllegalStateException("分片直写未开启（clickhouse.cluster.enabled）");
+        }
+        List<List<UserBehaviorLog>> partitions = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (UserBehaviorLog row : logs) {
+            partitions.get(shardOf(row.getUserId())).add(row);
+        }
+
+        long start = System.nanoTime();
+        String tag = QueryTag.current();
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(writers.submit(() -> {
+                QueryTag.set(tag);
+                try {
+                    return writeShard(shard, partitions.get(shard));
+                } finally {
+                    QueryTag.clear();
+                }
+            }));
+        }
+
+        List<Map<String, Object>> shardResults = new ArrayList<>();
+        List<UserBehaviorLog> failedRows = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Map<String, Object> shardResult;
+            try {
+                shardResult = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待分片写入被中断", e);
+            } catch (Exception e) {
+                shardResult = new LinkedHashMap<>();
+                shardResult.put("shard", i + 1);
+                shardResult.put("error", String.valueOf(e.getMessage()));
+            }
+            if (shardResult.containsKey("error")) {
+                failedRows.addAll(partitions.get(i));
+            }
+            shardResults.add(shardResult);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", logs.size());
+        result.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+        result.put("shards", shardResults);
+        result.put("failedRows", failedRows);
+        return result;
+    }
+
+    private Map<String, Object> writeShard(int shard, List<UserBehaviorLog> rows) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shard", shard + 1);
+        result.put("rows", rows.size());
+        if (rows.isEmpty()) {
+            return result;
+        }
+        long start = System.nanoTime();
+        int attempt = 0;
+        while (true) {
+            try {
+                dataService.insertRowBinary(shards.get(shard), localTable, null, rows);
+                break;
+            } catch (Exception e) {
+                if (attempt >= maxRetries) {
+                    shardFailures[shard].increment();
+                    log.error("分片{}写入失败，已重试{}次: 行数={}", shard + 1, attempt, rows.size(), e);
+                    result.put("error", String.valueOf(e.getMessage()));
+                    break;
+                }
+                long backoff = retryBackoffMillis << attempt;
+                attempt++;
+                shardRetries[shard].increment();
+                log.warn("分片{}写入失败，{}ms后第{}次重试: {}", shard + 1, backoff, attempt, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    result.put("error", "重试等待被中断");
+                    break;
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (!result.containsKey("error")) {
+            shardRows[shard].add(rows.size());
+        }
+        shardNanos[shard].add(nanos);
+        result.put("elapsedMillis", nanos / 1_000_000);
+        result.put("retries", attempt);
+        return result;
+    }
+
+    /**
+     * 各分片累计写入行数、写入耗时、重试和失败次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("localTable", localTable);
+        List<Map<String, Object>> shardStats = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            Map<String, Object> shard = new LinkedHashMap<>();
+            shard.put("shard", i + 1);
+            shard.put("url", shards.get(i).getJdbcUrl());
+            shard.put("rows", shardRows[i].sum());
+            shard.put("writeMillis", shardNanos[i].sum() / 1_000_000);
+            shard.put("retries", shardRetries[i].sum());
+            shard.put("failures", shardFailures[i].sum());
+            shardStats.add(shard);
+        }
+        stats.put("shards", shardStats);
+        return stats;
+    }
+
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.clickhouse.config;
 
+import com.example.clickhouse.profiling.QueryTaggingJdbcTemplate;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
@@ -70,9 +71,11 @@ public class ClickHouseConfig {
 
     /**
      * JdbcTemplate Bean
+     * 
+     * 每条语句带上发起请求的接口标签（log_comment），用于按接口统计system.query_log
      */
     @Bean
     public JdbcTemplate clickHouseJdbcTemplate(DataSource clickHouseDataSource) {
-        return new JdbcTemplate(clickHouseDataSource);
+        return new QueryTaggingJdbcTemplate(clickHouseDataSource);
     }
 }
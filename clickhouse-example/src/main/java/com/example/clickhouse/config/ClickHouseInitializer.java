@@ -3,6 +3,7 @@ package com.example.clickhouse.config;
 import com.example.clickhouse.service.ClickHouseTableService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -17,6 +18,12 @@ public class ClickHouseInitializer implements CommandLineRunner {
     @Autowired
     private ClickHouseTableService tableService;
 
+    @Value("${clickhouse.rollup.auto-create:true}")
+    private boolean autoCreateRollups;
+
+    @Value("${clickhouse.approx.sampled-table.auto-create:false}")
+    private boolean autoCreateSampledTable;
+
     @Override
     public void run(String... args) {
         try {
@@ -29,6 +36,19 @@ public class ClickHouseInitializer implements CommandLineRunner {
                 log.info("user_behavior_log 表已存在，跳过创建");
             }
 
+            // 创建多粒度预聚合表（IF NOT EXISTS，可重复执行）
+            // 物化视图只处理之后写入的数据，越早创建覆盖越完整
+            if (autoCreateRollups) {
+                tableService.createRollupTables();
+                log.info("预聚合表检查完成");
+            }
+
+            // 抽样表存储约为原表一倍，默认不创建；SAMPLED精度查询需要
+            if (autoCreateSampledTable) {
+                tableService.createSampledTable();
+                log.info("抽样表检查完成");
+            }
+
             // 创建物化视图（可选）
             // 注意：物化视图如果已存在会报错，这里不自动创建
             // 用户可以通过API手动创建：POST /clickhouse/tables/materialized-view
@@ -0,0 +1,18 @@
+package com.example.clickhouse.config;
+
+import com.example.clickhouse.profiling.QueryTagInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web配置：为ClickHouse接口的查询打上接口标签（写入query_log的log_comment）
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryTagInterceptor()).addPathPatterns("/clickhouse/**");
+    }
+}
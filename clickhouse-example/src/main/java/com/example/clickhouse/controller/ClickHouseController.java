@@ -1,11 +1,34 @@
 package com.example.clickhouse.controller;
 
+import com.example.clickhouse.approx.Accuracy;
+import com.example.clickhouse.cache.QueryResultCache;
+import com.example.clickhouse.cluster.ShardedUserBehaviorLogWriter;
+import com.example.clickhouse.export.ExportFormat;
+import com.example.clickhouse.export.UserBehaviorLogExporter;
+import com.example.clickhouse.ingest.UserBehaviorLogBuffer;
 import com.example.clickhouse.model.UserBehaviorLog;
+import com.example.clickhouse.parallel.SlicedQueryExecutor;
+import com.example.clickhouse.profiling.QueryTag;
+import com.example.clickhouse.rollup.QueryPlan;
+import com.example.clickhouse.rollup.RollupResolution;
+import com.example.clickhouse.rollup.StatsQuery;
+import com.example.clickhouse.schema.IndexCandidate;
 import com.example.clickhouse.service.ClickHouseDataService;
 import com.example.clickhouse.service.ClickHouseTableService;
+import com.example.clickhouse.service.ClusterInsertBenchmarkService;
+import com.example.clickhouse.service.ExportBenchmarkService;
+import com.example.clickhouse.service.IndexAdvisorService;
+import com.example.clickhouse.service.IngestionBenchmarkService;
+import com.example.clickhouse.service.InsertFormatBenchmarkService;
+import com.example.clickhouse.service.PaginationBenchmarkService;
+import com.example.clickhouse.service.RouterBenchmarkService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -32,6 +55,39 @@ public class ClickHouseController {
     @Autowired
     private ClickHouseDataService dataService;
 
+    @Autowired
+    private UserBehaviorLogBuffer ingestionBuffer;
+
+    @Autowired
+    private QueryResultCache resultCache;
+
+    @Autowired
+    private IngestionBenchmarkService ingestionBenchmarkService;
+
+    @Autowired
+    private InsertFormatBenchmarkService insertFormatBenchmarkService;
+
+    @Autowired
+    private ExportBenchmarkService exportBenchmarkService;
+
+    @Autowired
+    private RouterBenchmarkService routerBenchmarkService;
+
+    @Autowired
+    private IndexAdvisorService indexAdvisorService;
+
+    @Autowired
+    private ClusterInsertBenchmarkService clusterInsertBenchmarkService;
+
+    @Autowired
+    private ShardedUserBehaviorLogWriter shardedWriter;
+
+    @Autowired
+    private PaginationBenchmarkService paginationBenchmarkService;
+
+    @Autowired
+    private SlicedQueryExecutor slicedQueryExecutor;
+
     // ========== 表管理接口 ==========
 
     /**
@@ -76,6 +132,117 @@ public class ClickHouseController {
         }
     }
 
+    /**
+     * 创建多粒度预聚合表（AggregatingMergeTree，分钟 / 小时 / 天）
+     * POST /clickhouse/tables/rollups
+     */
+    @PostMapping("/tables/rollups")
+    public Map<String, Object> createRollupTables() {
+        try {
+            tableService.createRollupTables();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "预聚合表创建成功");
+            return response;
+        } catch (Exception e) {
+            log.error("创建预聚合表失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "创建预聚合表失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 用原始表数据补齐预聚合表（只补物化视图创建之前的数据）
+     * POST /clickhouse/tables/rollups/backfill?startTime=2024-01-01T00:00:00&endTime=2024-02-01T00:00:00
+     */
+    @PostMapping("/tables/rollups/backfill")
+    public Map<String, Object> backfillRollups(
+            @RequestParam String startTime,
+            @RequestParam String endTime) {
+        try {
+            long rows = dataService.backfillRollups(LocalDateTime.parse(startTime), LocalDateTime.parse(endTime));
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("minuteRows", rows);
+            response.put("message", "预聚合表补数成功");
+            return response;
+        } catch (Exception e) {
+            log.error("预聚合表补数失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "预聚合表补数失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 创建按用户抽样的副本表（accuracy=sampled使用）
+     * POST /clickhouse/tables/sampled
+     */
+    @PostMapping("/tables/sampled")
+    public Map<String, Object> createSampledTable() {
+        try {
+            tableService.createSampledTable();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "抽样表创建成功");
+            return response;
+        } catch (Exception e) {
+            log.error("创建抽样表失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "创建抽样表失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 用原始表数据补齐抽样表（只补物化视图创建之前的数据）
+     * POST /clickhouse/tables/sampled/backfill?startTime=2024-01-01T00:00:00&endTime=2024-02-01T00:00:00
+     */
+    @PostMapping("/tables/sampled/backfill")
+    public Map<String, Object> backfillSampledTable(
+            @RequestParam String startTime,
+            @RequestParam String endTime) {
+        try {
+            long rows = tableService.backfillSampledTable(LocalDateTime.parse(startTime), LocalDateTime.parse(endTime));
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("rows", rows);
+            response.put("message", "抽样表补数成功");
+            return response;
+        } catch (Exception e) {
+            log.error("抽样表补数失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "抽样表补数失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 创建分片本地表和分布式表（需集群环境，见 cluster/docker-compose.yml）
+     * POST /clickhouse/tables/distributed
+     */
+    @PostMapping("/tables/distributed")
+    public Map<String, Object> createDistributedTable() {
+        try {
+            tableService.createDistributedTable();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "分布式表创建成功");
+            return response;
+        } catch (Exception e) {
+            log.error("创建分布式表失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "创建分布式表失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     /**
      * 获取表信息
      * GET /clickhouse/tables/{tableName}/info
@@ -96,6 +263,123 @@ public class ClickHouseController {
         }
     }
 
+    /**
+     * 查看user_behavior_log的跳数索引、投影及未完成的mutation
+     * GET /clickhouse/tables/user-behavior-log/indexes
+     */
+    @GetMapping("/tables/user-behavior-log/indexes")
+    public Map<String, Object> listIndexes() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", tableService.listIndexes());
+            return response;
+        } catch (Exception e) {
+            log.error("查询索引失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "查询索引失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 添加跳数索引或投影（name见IndexCandidate，如idx_user_id、proj_by_user）
+     * POST /clickhouse/tables/user-behavior-log/indexes/idx_user_id?materialize=true
+     */
+    @PostMapping("/tables/user-behavior-log/indexes/{name}")
+    public Map<String, Object> addIndex(
+            @PathVariable String name,
+            @RequestParam(defaultValue = "true") Boolean materialize) {
+        try {
+            IndexCandidate candidate = IndexCandidate.of(name);
+            tableService.addIndexCandidate(candidate, materialize);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", materialize
+                    ? candidate.getName() + " 已添加，已有数据的物化在后台执行"
+                    : candidate.getName() + " 已添加，只对新写入的数据生效");
+            return response;
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "添加失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 删除跳数索引或投影
+     * POST /clickhouse/tables/user-behavior-log/indexes/idx_user_id/drop
+     */
+    @PostMapping("/tables/user-behavior-log/indexes/{name}/drop")
+    public Map<String, Object> dropIndex(@PathVariable String name) {
+        try {
+            IndexCandidate candidate = IndexCandidate.of(name);
+            tableService.dropIndexCandidate(candidate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", candidate.getName() + " 已删除");
+            return response;
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "删除失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 根据system.query_log给出索引 / 投影建议，measure=true时对已添加的做前后读取量对比
+     * GET /clickhouse/tables/user-behavior-log/index-advice?hours=24&measure=true&startTime=2024-01-01T00:00:00&endTime=2024-01-08T00:00:00
+     */
+    @GetMapping("/tables/user-behavior-log/index-advice")
+    public Map<String, Object> indexAdvice(
+            @RequestParam(defaultValue = "24") Integer hours,
+            @RequestParam(defaultValue = "false") Boolean measure,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String endTime) {
+        try {
+            LocalDateTime end = endTime != null ? LocalDateTime.parse(endTime) : LocalDateTime.now();
+            LocalDateTime start = startTime != null ? LocalDateTime.parse(startTime) : end.minusDays(7);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", indexAdvisorService.analyze(hours, measure, start, end));
+            return response;
+        } catch (Exception e) {
+            log.error("索引建议分析失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "索引建议分析失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 单个索引 / 投影的前后读取量对比
+     * GET /clickhouse/tables/user-behavior-log/indexes/idx_user_id/measure?startTime=2024-01-01T00:00:00&endTime=2024-01-08T00:00:00
+     */
+    @GetMapping("/tables/user-behavior-log/indexes/{name}/measure")
+    public Map<String, Object> measureIndex(
+            @PathVariable String name,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String endTime) {
+        try {
+            LocalDateTime end = endTime != null ? LocalDateTime.parse(endTime) : LocalDateTime.now();
+            LocalDateTime start = startTime != null ? LocalDateTime.parse(startTime) : end.minusDays(7);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", indexAdvisorService.measure(IndexCandidate.of(name), start, end));
+            return response;
+        } catch (Exception e) {
+            log.error("索引对比测试失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "索引对比测试失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     // ========== 数据导入接口 ==========
 
     /**
@@ -142,6 +426,141 @@ public class ClickHouseController {
         }
     }
 
+    /**
+     * 批量插入（RowBinary格式流式写入）
+     * POST /clickhouse/data/batch-insert-rowbinary
+     */
+    @PostMapping("/data/batch-insert-rowbinary")
+    public Map<String, Object> batchInsertRowBinary(@RequestBody List<UserBehaviorLog> logs) {
+        try {
+            long count = dataService.insertRowBinary(logs);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("insertedCount", count);
+            response.put("message", "RowBinary格式批量插入成功");
+            return response;
+        } catch (Exception e) {
+            log.error("批量插入失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "批量插入失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 按分片键拆分后并行直写各分片本地表
+     * POST /clickhouse/data/sharded-insert
+     */
+    @PostMapping("/data/sharded-insert")
+    public Map<String, Object> shardedInsert(@RequestBody List<UserBehaviorLog> logs) {
+        try {
+            Map<String, Object> result = shardedWriter.write(logs);
+            List<?> failedRows = (List<?>) result.remove("failedRows");
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", failedRows.isEmpty());
+            response.put("result", result);
+            response.put("failedCount", failedRows.size());
+            response.put("message", failedRows.isEmpty() ? "分片写入成功" : "部分分片写入失败，需重新提交失败分片的数据");
+            return response;
+        } catch (Exception e) {
+            log.error("分片写入失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "分片写入失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 三种插入方式的吞吐与分配量对比
+     * POST /clickhouse/data/insert-format-benchmark?rows=200000&batchSize=10000
+     */
+    @PostMapping("/data/insert-format-benchmark")
+    public Map<String, Object> insertFormatBenchmark(
+            @RequestParam(defaultValue = "200000") Integer rows,
+            @RequestParam(defaultValue = "10000") Integer batchSize) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", insertFormatBenchmarkService.compare(rows, batchSize));
+            return response;
+        } catch (Exception e) {
+            log.error("插入方式对比测试失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "插入方式对比测试失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 分布式表写入与客户端分片直写的吞吐对比
+     * POST /clickhouse/data/cluster-insert-benchmark?rows=200000&batchSize=10000
+     */
+    @PostMapping("/data/cluster-insert-benchmark")
+    public Map<String, Object> clusterInsertBenchmark(
+            @RequestParam(defaultValue = "200000") Integer rows,
+            @RequestParam(defaultValue = "10000") Integer batchSize) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", clusterInsertBenchmarkService.compare(rows, batchSize));
+            return response;
+        } catch (Exception e) {
+            log.error("集群写入对比测试失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "集群写入对比测试失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 异步缓冲写入（合并成大批次后由后台线程写入）
+     * POST /clickhouse/data/buffered-insert
+     */
+    @PostMapping("/data/buffered-insert")
+    public Map<String, Object> bufferedInsert(@RequestBody List<UserBehaviorLog> logs) {
+        try {
+            boolean accepted = ingestionBuffer.offerAll(logs);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", accepted);
+            response.put("acceptedCount", accepted ? logs.size() : 0);
+            response.put("message", accepted ? "已写入缓冲" : "写入缓冲已满，请稍后重试");
+            return response;
+        } catch (Exception e) {
+            log.error("缓冲写入失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "缓冲写入失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 逐请求写入与缓冲写入的吞吐对比
+     * POST /clickhouse/data/ingestion-benchmark?rows=200000&requestSize=100&producers=8
+     */
+    @PostMapping("/data/ingestion-benchmark")
+    public Map<String, Object> ingestionBenchmark(
+            @RequestParam(defaultValue = "200000") Integer rows,
+            @RequestParam(defaultValue = "100") Integer requestSize,
+            @RequestParam(defaultValue = "8") Integer producers) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", ingestionBenchmarkService.compare(rows, requestSize, producers));
+            return response;
+        } catch (Exception e) {
+            log.error("写入对比测试失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "写入对比测试失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     // ========== 查询接口 ==========
 
     /**
@@ -171,21 +590,77 @@ public class ClickHouseController {
         }
     }
 
+    /**
+     * 分页查询用户行为日志（键集分页，按event_time倒序）
+     * 第一页：GET /clickhouse/query/logs/page?startTime=2024-01-01T00:00:00&endTime=2024-01-02T00:00:00&limit=100
+     * 后续页：GET /clickhouse/query/logs/page?cursor={上一页的nextCursor}&limit=100
+     */
+    @GetMapping("/query/logs/page")
+    public Map<String, Object> queryLogsPage(
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String endTime,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") Integer limit) {
+        try {
+            LocalDateTime start = startTime != null ? LocalDateTime.parse(startTime) : null;
+            LocalDateTime end = endTime != null ? LocalDateTime.parse(endTime) : null;
+            Map<String, Object> response = new HashMap<>(dataService.queryUserBehaviorLogsPage(start, end, cursor, limit));
+            response.put("success", true);
+            return response;
+        } catch (Exception e) {
+            log.error("分页查询日志失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "查询失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * OFFSET分页与键集分页的延迟对比（第1页 vs 第page页）
+     * GET /clickhouse/query/pagination-benchmark?startTime=2024-01-01T00:00:00&endTime=2024-02-01T00:00:00&pageSize=100&page=10000
+     */
+    @GetMapping("/query/pagination-benchmark")
+    public Map<String, Object> paginationBenchmark(
+            @RequestParam String startTime,
+            @RequestParam String endTime,
+            @RequestParam(defaultValue = "100") Integer pageSize,
+            @RequestParam(defaultValue = "10000") Integer page,
+            @RequestParam(defaultValue = "5") Integer iterations) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", paginationBenchmarkService.compare(LocalDateTime.parse(startTime),
+                    LocalDateTime.parse(endTime), pageSize, page, iterations));
+            return response;
+        } catch (Exception e) {
+            log.error("分页对比测试失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "分页对比测试失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     /**
      * 按事件类型统计
      * GET /clickhouse/query/stats/event-type?startTime=2024-01-01T00:00:00&endTime=2024-01-02T00:00:00
+     * 可选accuracy：auto（默认）/ exact / combined / hll12 / sampled，响应中estimatedError标注误差
      */
     @GetMapping("/query/stats/event-type")
     public Map<String, Object> countByEventType(
             @RequestParam String startTime,
-            @RequestParam String endTime) {
+            @RequestParam String endTime,
+            @RequestParam(required = false) String accuracy) {
         try {
             LocalDateTime start = LocalDateTime.parse(startTime);
             LocalDateTime end = LocalDateTime.parse(endTime);
-            List<Map<String, Object>> stats = dataService.countByEventType(start, end);
+            Accuracy mode = Accuracy.of(accuracy);
+            List<Map<String, Object>> stats = dataService.countByEventType(start, end, mode);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("stats", stats);
+            response.put("estimatedError", dataService.estimatedError(StatsQuery.EVENT_TYPE, start, end, mode));
             return response;
         } catch (Exception e) {
             log.error("统计失败", e);
@@ -203,14 +678,17 @@ public class ClickHouseController {
     @GetMapping("/query/stats/hourly")
     public Map<String, Object> countByHour(
             @RequestParam String startTime,
-            @RequestParam String endTime) {
+            @RequestParam String endTime,
+            @RequestParam(required = false) String accuracy) {
         try {
             LocalDateTime start = LocalDateTime.parse(startTime);
             LocalDateTime end = LocalDateTime.parse(endTime);
-            List<Map<String, Object>> stats = dataService.countByHour(start, end);
+            Accuracy mode = Accuracy.of(accuracy);
+            List<Map<String, Object>> stats = dataService.countByHour(start, end, mode);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("stats", stats);
+            response.put("estimatedError", dataService.estimatedError(StatsQuery.HOURLY, start, end, mode));
             return response;
         } catch (Exception e) {
             log.error("按小时统计失败", e);
@@ -228,14 +706,17 @@ public class ClickHouseController {
     @GetMapping("/query/stats/device")
     public Map<String, Object> countByDeviceType(
             @RequestParam String startTime,
-            @RequestParam String endTime) {
+            @RequestParam String endTime,
+            @RequestParam(required = false) String accuracy) {
         try {
             LocalDateTime start = LocalDateTime.parse(startTime);
             LocalDateTime end = LocalDateTime.parse(endTime);
-            List<Map<String, Object>> stats = dataService.countByDeviceType(start, end);
+            Accuracy mode = Accuracy.of(accuracy);
+            List<Map<String, Object>> stats = dataService.countByDeviceType(start, end, mode);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("stats", stats);
+            response.put("estimatedError", dataService.estimatedError(StatsQuery.DEVICE_TYPE, start, end, mode));
             return response;
         } catch (Exception e) {
             log.error("按设备类型统计失败", e);
@@ -249,19 +730,23 @@ public class ClickHouseController {
     /**
      * 获取热门页面
      * GET /clickhouse/query/top-pages?startTime=2024-01-01T00:00:00&endTime=2024-01-02T00:00:00&topN=10
+     * 可选accuracy：auto（默认，与exact相同）/ exact / combined / hll12 / sampled
      */
     @GetMapping("/query/top-pages")
     public Map<String, Object> getTopPages(
             @RequestParam String startTime,
             @RequestParam String endTime,
-            @RequestParam(defaultValue = "10") Integer topN) {
+            @RequestParam(defaultValue = "10") Integer topN,
+            @RequestParam(required = false) String accuracy) {
         try {
             LocalDateTime start = LocalDateTime.parse(startTime);
             LocalDateTime end = LocalDateTime.parse(endTime);
-            List<Map<String, Object>> pages = dataService.getTopPages(start, end, topN);
+            Accuracy mode = Accuracy.of(accuracy);
+            List<Map<String, Object>> pages = dataService.getTopPages(start, end, topN, mode);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("pages", pages);
+            response.put("estimatedError", dataService.estimatedError(null, start, end, mode));
             return response;
         } catch (Exception e) {
             log.error("获取热门页面失败", e);
@@ -326,6 +811,166 @@ public class ClickHouseController {
         }
     }
 
+    /**
+     * 从预聚合表查询
+     * GET /clickhouse/query/rollup?resolution=hour&startTime=2024-01-01T00:00:00&endTime=2024-01-31T23:00:00&timeBucket=day&dimension=event_type
+     */
+    @GetMapping("/query/rollup")
+    public Map<String, Object> queryRollup(
+            @RequestParam(defaultValue = "hour") String resolution,
+            @RequestParam String startTime,
+            @RequestParam String endTime,
+            @RequestParam(required = false) String timeBucket,
+            @RequestParam(required = false) String dimension) {
+        try {
+            RollupResolution table = RollupResolution.of(resolution);
+            List<Map<String, Object>> data = dataService.queryRollup(table,
+                    LocalDateTime.parse(startTime), LocalDateTime.parse(endTime),
+                    timeBucket != null ? RollupResolution.of(timeBucket) : null, dimension);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("table", table.getTable());
+            response.put("data", data);
+            return response;
+        } catch (Exception e) {
+            log.error("从预聚合表查询失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "查询失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 查看统计查询的路由计划（不执行查询）
+     * GET /clickhouse/query/plan?query=hourly&startTime=2024-01-01T10:30:00&endTime=2024-01-31T18:20:00
+     */
+    @GetMapping("/query/plan")
+    public Map<String, Object> planStats(
+            @RequestParam String query,
+            @RequestParam String startTime,
+            @RequestParam String endTime) {
+        try {
+            QueryPlan plan = dataService.planStats(StatsQuery.of(query),
+                    LocalDateTime.parse(startTime), LocalDateTime.parse(endTime));
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("plan", plan.toMap());
+            return response;
+        } catch (Exception e) {
+            log.error("生成查询计划失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "生成查询计划失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 查询路由延迟对比测试（原始表 vs 路由，多种范围）
+     * GET /clickhouse/query/router-benchmark?endTime=2024-03-31T18:20:00&iterations=5
+     */
+    @GetMapping("/query/router-benchmark")
+    public Map<String, Object> routerBenchmark(
+            @RequestParam(required = false) String endTime,
+            @RequestParam(defaultValue = "5") Integer iterations) {
+        try {
+            LocalDateTime end = endTime != null ? LocalDateTime.parse(endTime) : LocalDateTime.now();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", routerBenchmarkService.compare(end, Math.max(iterations, 1)));
+            return response;
+        } catch (Exception e) {
+            log.error("查询路由测试失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "查询路由测试失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    // ========== 流式导出接口 ==========
+
+    /**
+     * 流式导出用户行为日志（NDJSON / CSV，内存占用与行数无关）
+     * GET /clickhouse/export/logs?startTime=2024-01-01T00:00:00&endTime=2024-01-02T00:00:00&format=ndjson
+     */
+    @GetMapping("/export/logs")
+    public ResponseEntity<StreamingResponseBody> exportLogs(
+            @RequestParam String startTime,
+            @RequestParam String endTime,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Integer limit) {
+        LocalDateTime start = LocalDateTime.parse(startTime);
+        LocalDateTime end = LocalDateTime.parse(endTime);
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return streaming(exportFormat, "user_behavior_log", out -> {
+            UserBehaviorLogExporter exporter = new UserBehaviorLogExporter(exportFormat, out);
+            long rows = dataService.streamUserBehaviorLogs(start, end, limit, exporter::write);
+            exporter.finish();
+            log.info("流式导出用户行为日志完成: 行数={}", rows);
+        });
+    }
+
+    /**
+     * 流式导出用户行为路径
+     * GET /clickhouse/export/user-path?userId=user1&startTime=2024-01-01T00:00:00&endTime=2024-01-02T00:00:00&format=csv
+     */
+    @GetMapping("/export/user-path")
+    public ResponseEntity<StreamingResponseBody> exportUserPath(
+            @RequestParam String userId,
+            @RequestParam String startTime,
+            @RequestParam String endTime,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        LocalDateTime start = LocalDateTime.parse(startTime);
+        LocalDateTime end = LocalDateTime.parse(endTime);
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return streaming(exportFormat, "user_path", out -> {
+            UserBehaviorLogExporter exporter = new UserBehaviorLogExporter(exportFormat, out);
+            dataService.streamUserPath(userId, start, end, exporter::write);
+            exporter.finish();
+        });
+    }
+
+    /**
+     * 大结果集流式导出内存测试（模拟数据，不依赖表数据）
+     * GET /clickhouse/export/benchmark?rows=10000000&format=ndjson
+     */
+    @GetMapping("/export/benchmark")
+    public Map<String, Object> exportBenchmark(
+            @RequestParam(defaultValue = "10000000") Long rows,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", exportBenchmarkService.exportSynthetic(rows, ExportFormat.of(format)));
+            return response;
+        } catch (Exception e) {
+            log.error("流式导出测试失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "流式导出测试失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streaming(ExportFormat format, String fileName, StreamingResponseBody body) {
+        // 导出在异步线程执行，沿用请求线程的查询标签
+        String tag = QueryTag.current();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + "." + format.getExtension() + "\"")
+                .body(out -> {
+                    QueryTag.set(tag);
+                    try {
+                        body.writeTo(out);
+                    } finally {
+                        QueryTag.clear();
+                    }
+                });
+    }
+
     // ========== 监控和管理接口 ==========
 
     /**
@@ -371,6 +1016,100 @@ public class ClickHouseController {
         }
     }
 
+    /**
+     * 写入缓冲指标（缓冲深度、刷写大小、写入延迟）
+     * GET /clickhouse/monitor/ingestion
+     */
+    @GetMapping("/monitor/ingestion")
+    public Map<String, Object> getIngestionStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", ingestionBuffer.stats());
+        return response;
+    }
+
+    /**
+     * 查询结果缓存指标（命中率、条目数、估算内存）
+     * GET /clickhouse/monitor/query-cache
+     */
+    @GetMapping("/monitor/query-cache")
+    public Map<String, Object> getQueryCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", resultCache.stats());
+        return response;
+    }
+
+    /**
+     * 清空查询结果缓存
+     * POST /clickhouse/monitor/query-cache/clear
+     */
+    @PostMapping("/monitor/query-cache/clear")
+    public Map<String, Object> clearQueryCache() {
+        resultCache.clear();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "查询结果缓存已清空");
+        return response;
+    }
+
+    /**
+     * 集群写入指标（各分片数据行数、分片直写累计行数、耗时、重试和失败次数）
+     * GET /clickhouse/monitor/cluster
+     */
+    @GetMapping("/monitor/cluster")
+    public Map<String, Object> getClusterStats() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("shardRows", tableService.shardRowCounts());
+            response.put("writer", shardedWriter.stats());
+            return response;
+        } catch (Exception e) {
+            log.error("获取集群指标失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取集群指标失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 分片并行查询指标（执行次数、部分数、失败、超时、取消的语句数）
+     * GET /clickhouse/monitor/parallel-query
+     */
+    @GetMapping("/monitor/parallel-query")
+    public Map<String, Object> getParallelQueryStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("stats", slicedQueryExecutor.stats());
+        return response;
+    }
+
+    /**
+     * 按接口统计查询开销（p50 / p99 耗时、读取行数和字节数、内存），按读取字节数降序
+     * GET /clickhouse/monitor/query-profile?hours=24&flush=true
+     */
+    @GetMapping("/monitor/query-profile")
+    public Map<String, Object> getQueryProfile(
+            @RequestParam(defaultValue = "24") Integer hours,
+            @RequestParam(defaultValue = "false") Boolean flush) {
+        try {
+            List<Map<String, Object>> endpoints = dataService.getQueryProfile(hours, flush);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("hours", hours);
+            response.put("endpoints", endpoints);
+            return response;
+        } catch (Exception e) {
+            log.error("获取查询开销统计失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取查询开销统计失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     /**
      * 健康检查
      * GET /clickhouse/health
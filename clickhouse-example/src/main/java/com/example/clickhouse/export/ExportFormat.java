@@ -0,0 +1,42 @@
+package com.example.clickhouse.export;
+
+/**
+ * 流式导出格式
+ */
+public enum ExportFormat {
+
+    /**
+     * 每行一个 JSON 对象，以换行分隔
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /**
+     * 带表头的 CSV（RFC 4180 转义）
+     */
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat of(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value) || format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的导出格式: " + value);
+    }
+}
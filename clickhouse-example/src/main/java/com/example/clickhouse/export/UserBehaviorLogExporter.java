@@ -0,0 +1,145 @@
+package com.example.clickhouse.export;
+
+import com.example.clickhouse.model.UserBehaviorLog;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 用户行为日志流式导出
+ *
+ * 每收到一行立即编码写入输出流，不保留已写出的行，内存占用只有一个固定大小的写缓冲区：
+ * - NDJSON 用 Jackson 流式 JsonGenerator 逐字段写出，不经过 Map 或对象序列化
+ * - CSV 第一行为表头，含逗号、引号、换行的字段加双引号并转义
+ * 每 FLUSH_EVERY 行主动 flush 一次，客户端可以边下载边处理。
+ * 单个实例只在一个线程中使用。
+ */
+public class UserBehaviorLogExporter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String CSV_HEADER = "event_time,user_id,event_type,page_url,duration,device_type,ip_address";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FLUSH_EVERY = 10000;
+
+    private final ExportFormat format;
+    private final Writer writer;
+    private final JsonGenerator json;
+    private long rows;
+
+    public UserBehaviorLogExporter(ExportFormat format, OutputStream out) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == ExportFormat.NDJSON) {
+            this.json = JSON_FACTORY.createGenerator(writer);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // 顶层对象之间默认以空格分隔，改为每个对象后自行写换行
+            this.json.setRootValueSeparator(null);
+        } else {
+            this.json = null;
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * 写出一行（可直接作为流式查询的回调）
+     */
+    public void write(UserBehaviorLog row) {
+        try {
+            if (format == ExportFormat.NDJSON) {
+                writeJson(row);
+            } else {
+                writeCsv(row);
+            }
+            if (++rows % FLUSH_EVERY == 0) {
+                flush();
+            }
+        } catch (IOException e) {
+            // 客户端断开等写出失败时中止查询
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 写完后调用，刷出缓冲区中剩余的数据（不关闭底层输出流）
+     */
+    public void finish() throws IOException {
+        flush();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private void writeJson(UserBehaviorLog row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("event_time", row.getEventTime() != null ? DATE_TIME_FORMATTER.format(row.getEventTime()) : null);
+        json.writeStringField("user_id", row.getUserId());
+        json.writeStringField("event_type", row.getEventType());
+        json.writeStringField("page_url", row.getPageUrl());
+        json.writeNumberField("duration", row.getDuration() != null ? row.getDuration() : 0);
+        json.writeStringField("device_type", row.getDeviceType());
+        json.writeStringField("ip_address", row.getIpAddress());
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private void writeCsv(UserBehaviorLog row) throws IOException {
+        if (row.getEventTime() != null) {
+            DATE_TIME_FORMATTER.formatTo(row.getEventTime(), writer);
+        }
+        writer.write(',');
+        writeCsvField(row.getUserId());
+        writer.write(',');
+        writeCsvField(row.getEventType());
+        writer.write(',');
+        writeCsvField(row.getPageUrl());
+        writer.write(',');
+        writer.write(Integer.toString(row.getDuration() != null ? row.getDuration() : 0));
+        writer.write(',');
+        writeCsvField(row.getDeviceType());
+        writer.write(',');
+        writeCsvField(row.getIpAddress());
+        writer.write('\n');
+    }
+
+    private void writeCsvField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private void flush() throws IOException {
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.clickhouse.ingest;
+
+import com.example.clickhouse.model.UserBehaviorLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.zone.ZoneRules;
+import java.util.List;
+
+/**
+ * 用户行为日志 RowBinary 编码器
+ *
+ * 按表列顺序逐行编码：DateTime 为 UInt32 小端秒数，String 为变长长度 + UTF-8 字节，Int32 为小端。
+ * - 字段直接编码进可复用的 64KB 缓冲区，写满后整块写出，不生成中间字符串或字节数组
+ * - 每个线程一个实例（ThreadLocal），缓冲区在该线程的多次写入间复用
+ * - 字符串 null 写为空串、duration 为 null 写 0，与 JDBC 批量插入一致
+ */
+public final class RowBinaryEncoder {
+
+    /**
+     * 与编码顺序一致的列清单
+     */
+    public static final String COLUMNS = "(event_time, user_id, event_type, page_url, duration, device_type, ip_address)";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<RowBinaryEncoder> LOCAL = ThreadLocal.withInitial(RowBinaryEncoder::new);
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private OutputStream out;
+
+    private RowBinaryEncoder() {
+    }
+
+    /**
+     * 把 logs 编码为 RowBinary 写入 out
+     * @param serverZone 服务端时区，DateTime 按该时区换算为时间戳（与文本插入时由服务端解析的结果一致）
+     */
+    public static void write(OutputStream out, List<UserBehaviorLog> logs, ZoneRules serverZone) throws IOException {
+        RowBinaryEncoder encoder = LOCAL.get();
+        encoder.out = out;
+        encoder.position = 0;
+        try {
+            for (UserBehaviorLog row : logs) {
+                encoder.writeRow(row, serverZone);
+            }
+            encoder.flush();
+        } finally {
+            encoder.out = null;
+        }
+    }
+
+    private void writeRow(UserBehaviorLog row, ZoneRules serverZone) throws IOException {
+        LocalDateTime eventTime = row.getEventTime();
+        if (eventTime == null) {
+            throw new IllegalArgumentException("eventTime 不能为空: userId=" + row.getUserId());
+        }
+        writeUInt32(eventTime.toEpochSecond(serverZone.getOffset(eventTime)));
+        writeString(row.getUserId());
+        writeString(row.getEventType());
+        writeString(row.getPageUrl());
+        writeInt32(row.getDuration() != null ? row.getDuration() : 0);
+        writeString(row.getDeviceType());
+        writeString(row.getIpAddress());
+    }
+
+    private void writeUInt32(long value) throws IOException {
+        if (value < 0 || value > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("DateTime 超出范围: " + value);
+        }
+        writeInt32((int) value);
+    }
+
+    private void writeInt32(int value) throws IOException {
+        ensure(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+
+    /**
+     * 先按 UTF-8 计算字节长度写出 LEB128 长度，再逐字符编码；非法代理对按 '?' 编码（与 String.getBytes 一致）
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            ensure(1);
+            buffer[position++] = 0;
+            return;
+        }
+        int length = value.length();
+        long utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+
+        ensure(10);
+        long remaining = utf8Length;
+        do {
+            byte b = (byte) (remaining & 0x7F);
+            remaining >>>= 7;
+            buffer[position++] = remaining != 0 ? (byte) (b | 0x80) : b;
+        } while (remaining != 0);
+
+        for (int i = 0; i < length; i++) {
+            ensure(4);
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.clickhouse.ingest;
+
+import com.example.clickhouse.model.UserBehaviorLog;
+import com.example.clickhouse.service.ClickHouseDataService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户行为日志写入缓冲
+ *
+ * 生产环境要点：
+ * - 每次 INSERT 至少生成一个 part，按请求直接写入时小批量会产生大量小 part，后台合并跟不上时报 too many parts
+ * - 多个生产者的日志先进入内存缓冲，满足任一条件时封批：行数达到 max-rows、估算字节数达到 max-bytes、最早一行等待超过 max-age-millis
+ * - 封好的批次交给 writer-threads 个写线程并行 INSERT（insert-method 为 row-binary 或 jdbc），失败按指数退避重试 max-retries 次
+ * - 缓冲总行数（含写入中的批次）上限为 capacity-rows，超过后生产者最多阻塞 offer-timeout-millis，仍无空间则拒绝（背压）
+ * - 重试是至少一次语义：超时的 INSERT 可能已经写入，重试会产生重复行
+ * - 应用关闭时封存并写完剩余数据
+ */
+@Slf4j
+@Component
+public class UserBehaviorLogBuffer {
+
+    public static final String TRIGGER_ROWS = "rows";
+    public static final String TRIGGER_BYTES = "bytes";
+    public static final String TRIGGER_AGE = "age";
+    public static final String TRIGGER_MANUAL = "manual";
+    public static final String TRIGGER_SHUTDOWN = "shutdown";
+
+    @Value("${clickhouse.ingest.max-rows:100000}")
+    private int maxRows;
+
+    @Value("${clickhouse.ingest.max-bytes:33554432}")
+    private long maxBytes;
+
+    @Value("${clickhouse.ingest.max-age-millis:1000}")
+    private long maxAgeMillis;
+
+    @Value("${clickhouse.ingest.writer-threads:2}")
+    private int writerThreads;
+
+    @Value("${clickhouse.ingest.capacity-rows:1000000}")
+    private int capacityRows;
+
+    @Value("${clickhouse.ingest.offer-timeout-millis:5000}")
+    private long offerTimeoutMillis;
+
+    @Value("${clickhouse.ingest.insert-method:row-binary}")
+    private String insertMethod;
+
+    @Value("${clickhouse.ingest.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${clickhouse.ingest.retry-backoff-millis:200}")
+    private long retryBackoffMillis;
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    private final Object lock = new Object();
+    private List<UserBehaviorLog> current = new ArrayList<>();
+    private long currentBytes;
+    private long currentStartNanos;
+
+    private Semaphore permits;
+    private ThreadPoolExecutor writers;
+    private ScheduledExecutorService ager;
+    /**
+     * 只在 lock 内修改；追加、封批和提交也都在 lock 内完成，关闭时最后一次封批之后不会再有行进入缓冲
+     */
+    private volatile boolean running;
+
+    private final LongAdder acceptedRows = new LongAdder();
+    private final LongAdder rejectedRows = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushedBytes = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder insertNanos = new LongAdder();
+    private final LongAccumulator maxInsertNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxFlushRows = new LongAccumulator(Math::max, 0);
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final Map<String, LongAdder> triggers = new ConcurrentHashMap<>();
+
+    private record Batch(List<UserBehaviorLog> rows, long bytes, long createdNanos, long sealedNanos) {
+    }
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(capacityRows);
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 总行数已由 permits 限制，批次队列不再设上限
+        writers = new ThreadPoolExecutor(writerThreads, writerThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "clickhouse-ingest-writer-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ager = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "clickhouse-ingest-ager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = Math.max(maxAgeMillis / 4, 10);
+        ager.scheduleWithFixedDelay(this::sealIfExpired, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("ClickHouse写入缓冲初始化完成: maxRows={}, maxBytes={}, maxAge={}ms, writers={}, capacity={}, method={}",
+                maxRows, maxBytes, maxAgeMillis, writerThreads, capacityRows, insertMethod);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ager.shutdownNow();
+        synchronized (lock) {
+            running = false;
+            if (!current.isEmpty()) {
+                submit(sealLocked(TRIGGER_SHUTDOWN));
+            }
+        }
+        writers.shutdown();
+        try {
+            if (!writers.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("ClickHouse写入缓冲关闭超时，剩余行数={}", bufferedRows());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("ClickHouse写入缓冲已关闭");
+    }
+
+    /**
+     * 写入一条日志
+     * @return false 表示缓冲已满且等待超时，调用方应降速或稍后重试
+     */
+    public boolean offer(UserBehaviorLog log) {
+        return offerAll(List.of(log));
+    }
+
+    /**
+     * 批量写入日志，要么全部接收，要么全部拒绝
+     * @return false 表示缓冲已满且等待超时
+     */
+    public boolean offerAll(List<UserBehaviorLog> logs) {
+        if (!running) {
+            throw new IllegalStateException("ClickHouse写入缓冲已关闭");
+        }
+        if (logs == null || logs.isEmpty()) {
+            return true;
+        }
+        if (logs.size() > capacityRows) {
+            throw new IllegalArgumentException("单次写入行数超过缓冲容量: " + logs.size() + " > " + capacityRows);
+        }
+        try {
+            if (!permits.tryAcquire(logs.size(), offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejectedRows.add(logs.size());
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedRows.add(logs.size());
+            return false;
+        }
+
+        synchronized (lock) {
+            // 等待许可期间缓冲可能已关闭
+            if (!running) {
+                permits.release(logs.size());
+                throw new IllegalStateException("ClickHouse写入缓冲已关闭");
+            }
+            for (UserBehaviorLog row : logs) {
+                if (current.isEmpty()) {
+                    currentStartNanos = System.nanoTime();
+                }
+                current.add(row);
+                currentBytes += estimateBytes(row);
+                if (current.size() >= maxRows) {
+                    submit(sealLocked(TRIGGER_ROWS));
+                } else if (currentBytes >= maxBytes) {
+                    submit(sealLocked(TRIGGER_BYTES));
+                }
+            }
+        }
+        acceptedRows.add(logs.size());
+        return true;
+    }
+
+    /**
+     * 立即封存当前批次并等待缓冲写空
+     * @return 是否在超时前写完
+     */
+    public boolean flush(long timeoutMillis) {
+        seal(TRIGGER_MANUAL);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (bufferedRows() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 缓冲中的行数（含写入中、等待重试的批次）
+     */
+    public long bufferedRows() {
+        return capacityRows - permits.availablePermits();
+    }
+
+    private void sealIfExpired() {
+        synchronized (lock) {
+            if (!current.isEmpty()
+                    && System.nanoTime() - currentStartNanos >= TimeUnit.MILLISECONDS.toNanos(maxAgeMillis)) {
+                submit(sealLocked(TRIGGER_AGE));
+            }
+        }
+    }
+
+    private void seal(String trigger) {
+        synchronized (lock) {
+            if (!current.isEmpty()) {
+                submit(sealLocked(trigger));
+            }
+        }
+    }
+
+    private Batch sealLocked(String trigger) {
+        Batch batch = new Batch(current, currentBytes, currentStartNanos, System.nanoTime());
+        current = new ArrayList<>(Math.min(maxRows, 16384));
+        currentBytes = 0;
+        triggers.computeIfAbsent(trigger, k -> new LongAdder()).increment();
+        return batch;
+    }
+
+    /**
+     * 在 lock 内调用：写线程队列无界，提交不会阻塞；destroy 在同一把锁内最后一次提交后才关闭写线程池
+     */
+    private void submit(Batch batch) {
+        writers.execute(() -> write(batch));
+    }
+
+    /**
+     * 写入一个批次，失败按指数退避重试，最终失败的行计入 failedRows
+     */
+    private void write(Batch batch) {
+        int rows = batch.rows().size();
+        queueWaitNanos.add(System.nanoTime() - batch.sealedNanos());
+        try {
+            for (int attempt = 0; ; attempt++) {
+                long start = System.nanoTime();
+                try {
+                    if ("jdbc".equalsIgnoreCase(insertMethod)) {
+                        dataService.batchInsertUserBehaviorLogs(batch.rows());
+                    } else {
+                        dataService.insertRowBinary(batch.rows());
+                    }
+                    long nanos = System.nanoTime() - start;
+                    insertNanos.add(nanos);
+                    maxInsertNanos.accumulate(nanos);
+                    flushes.increment();
+                    flushedRows.add(rows);
+                    flushedBytes.add(batch.bytes());
+                    maxFlushRows.accumulate(rows);
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= maxRetries) {
+                        failedRows.add(rows);
+                        log.error("缓冲批次写入失败，已重试 {} 次，丢弃 {} 行", maxRetries, rows, e);
+                        return;
+                    }
+                    retries.increment();
+                    long backoff = retryBackoffMillis << attempt;
+                    log.warn("缓冲批次写入失败，{}ms 后第 {} 次重试: {}", backoff, attempt + 1, e.getMessage());
+                    Thread.sleep(backoff);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedRows.add(rows);
+            log.error("缓冲批次写入被中断，丢弃 {} 行", rows);
+        } finally {
+            permits.release(rows);
+        }
+    }
+
+    /**
+     * 估算一行的字节数（字符串按字符数，时间和整数按定长）
+     */
+    private static long estimateBytes(UserBehaviorLog row) {
+        return 4 + 4
+                + length(row.getUserId())
+                + length(row.getEventType())
+                + length(row.getPageUrl())
+                + length(row.getDeviceType())
+                + length(row.getIpAddress());
+    }
+
+    private static int length(String value) {
+        return value == null ? 1 : value.length() + 1;
+    }
+
+    /**
+     * 缓冲深度、刷写大小、写入延迟等指标
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long flushCount = flushes.sum();
+        synchronized (lock) {
+            stats.put("currentBatchRows", current.size());
+            stats.put("currentBatchBytes", currentBytes);
+        }
+        stats.put("bufferedRows", bufferedRows());
+        stats.put("capacityRows", capacityRows);
+        stats.put("pendingBatches", writers.getQueue().size());
+        stats.put("activeWriters", writers.getActiveCount());
+        stats.put("acceptedRows", acceptedRows.sum());
+        stats.put("rejectedRows", rejectedRows.sum());
+        stats.put("flushes", flushCount);
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("failedRows", failedRows.sum());
+        stats.put("retries", retries.sum());
+        Map<String, Long> triggerCounts = new LinkedHashMap<>();
+        triggers.forEach((trigger, count) -> triggerCounts.put(trigger, count.sum()));
+        stats.put("flushTriggers", triggerCounts);
+        stats.put("avgFlushRows", flushCount == 0 ? 0 : flushedRows.sum() / flushCount);
+        stats.put("maxFlushRows", maxFlushRows.get());
+        stats.put("avgFlushBytes", flushCount == 0 ? 0 : flushedBytes.sum() / flushCount);
+        stats.put("avgInsertMillis", flushCount == 0 ? 0 : insertNanos.sum() / flushCount / 1_000_000);
+        stats.put("maxInsertMillis", maxInsertNanos.get() / 1_000_000);
+        stats.put("avgQueueWaitMillis", flushCount == 0 ? 0 : queueWaitNanos.sum() / flushCount / 1_000_000);
+        return stats;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.clickhouse.paging;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 日志分页游标（按 event_time DESC, user_id DESC 的键集分页）
+ *
+ * 记录上一页最后一行的排序键 (eventTime, userId)，下一页从该位置继续读：
+ * WHERE event_time <= t AND (event_time < t OR user_id <= u)，配合与排序键同序的 ORDER BY，
+ * ClickHouse 按主键顺序读取并在取够 LIMIT 行后停止，深翻页的代价与第一页相同。
+ * 同一秒内同一用户可能有多行，排序键相同的行再按其余列排序，
+ * skip 记录上一页末尾已返回的同键行数，下一页跳过这些行（只在同键行内偏移，代价可忽略）。
+ * startTime 为查询范围的起点，随游标传递，后续页不需要再传时间范围。
+ * 对外编码为 URL 安全的 Base64 字符串，客户端不应解析其内容。
+ */
+public record LogCursor(LocalDateTime startTime, LocalDateTime eventTime, String userId, int skip) {
+
+    private static final String VERSION = "v1";
+
+    public String encode() {
+        String raw = String.join("|", VERSION, startTime.toString(), eventTime.toString(),
+                String.valueOf(skip), userId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LogCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // user_id 放在最后，可以包含分隔符
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("游标版本不支持");
+            }
+            return new LogCursor(LocalDateTime.parse(parts[1]), LocalDateTime.parse(parts[2]), parts[4],
+                    Integer.parseInt(parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.clickhouse.parallel;
+
+import com.example.clickhouse.profiling.QueryTag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * 分片并行查询执行器
+ *
+ * 生产环境要点：
+ * - 单条查询只能用到一台服务器上 max_threads 个线程，并受单条查询超时限制；
+ *   宽范围查询拆成多个互不重叠的部分（按月时间片或按用户哈希分桶），经连接池并发执行，在客户端合并部分结果
+ * - 并发有两层上限：全局 threads 个查询线程（应小于连接池大小，给其他请求留连接），
+ *   单个请求同时最多 parallelism 个部分在执行，其余排队，完成一个再提交一个
+ * - 任一部分失败、超过 timeout-millis、或等待结果的请求线程被中断（异步请求超时、应用关闭）时，
+ *   取消尚未开始的部分，并对正在执行的语句调用 Statement.cancel()（驱动发送 KILL QUERY），尽早释放服务端资源
+ * - 各部分沿用请求线程的查询标签（log_comment），在 query_log 中仍归属原接口
+ */
+@Slf4j
+@Component
+public class SlicedQueryExecutor {
+
+    @Value("${clickhouse.parallel.enabled:true}")
+    private boolean enabled;
+
+    @Value("${clickhouse.parallel.threads:8}")
+    private int threads;
+
+    @Value("${clickhouse.parallel.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 范围至少跨几个月才拆分
+     */
+    @Value("${clickhouse.parallel.min-slices:2}")
+    private int minSlices;
+
+    @Value("${clickhouse.parallel.timeout-millis:120000}")
+    private long timeoutMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ThreadPoolExecutor pool;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder parts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder cancelledStatements = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "clickhouse-slice-query-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("分片并行查询初始化完成: enabled={}, threads={}, parallelism={}, minSlices={}, timeout={}ms",
+                enabled, threads, parallelism, minSlices, timeoutMillis);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 范围是否足够宽，值得按月拆分并行执行
+     */
+    public boolean shouldSlice(LocalDateTime startTime, LocalDateTime endTime) {
+        return enabled && TimeSlice.monthly(startTime, endTime).size() >= minSlices;
+    }
+
+    /**
+     * 单个请求同时执行的部分数，也用作按用户哈希分桶的桶数
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 并发执行各部分，按 parts 的顺序返回结果；任一部分失败或超时时取消其余部分并抛出异常
+     *
+     * @param name 查询名称（日志用）
+     * @param task 执行一个部分，查询须经 SliceContext 执行才能被取消
+     */
+    public <P, T> List<T> execute(String name, List<P> parts, BiFunction<P, SliceContext, T> task) {
+        executions.increment();
+        this.parts.add(parts.size());
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        String tag = QueryTag.current();
+        SliceContext context = new SliceContext();
+        CompletionService<Object[]> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Object[]>> futures = new ArrayList<>();
+        Object[] results = new Object[parts.size()];
+
+        int submitted = 0;
+        try {
+            for (; submitted < Math.min(parallelism, parts.size()); submitted++) {
+                futures.add(submit(completion, context, tag, submitted, parts.get(submitted), task));
+            }
+            for (int done = 0; done < parts.size(); done++) {
+                Future<Object[]> future = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new TimeoutException();
+                }
+                Object[] result = future.get();
+                results[(int) result[0]] = result[1];
+                if (submitted < parts.size()) {
+                    futures.add(submit(completion, context, tag, submitted, parts.get(submitted), task));
+                    submitted++;
+                }
+            }
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            cancel(name, context, futures);
+            throw new IllegalStateException(name + " 分片查询超时（" + timeoutMillis + "ms）");
+        } catch (InterruptedException e) {
+            cancel(name, context, futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " 分片查询被中断", e);
+        } catch (ExecutionException e) {
+            failures.increment();
+            cancel(name, context, futures);
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+        }
+
+        log.info("分片并行查询完成: {}, 部分数={}, 耗时={}ms", name, parts.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    private <P, T> Future<Object[]> submit(CompletionService<Object[]> completion, SliceContext context, String tag,
+                                           int index, P part, BiFunction<P, SliceContext, T> task) {
+        return completion.submit(() -> {
+            QueryTag.set(tag);
+            try {
+                return new Object[]{index, task.apply(part, context)};
+            } finally {
+                QueryTag.clear();
+            }
+        });
+    }
+
+    private void cancel(String name, SliceContext context, List<Future<Object[]>> futures) {
+        context.cancelled = true;
+        futures.forEach(future -> future.cancel(true));
+        int running = 0;
+        for (Statement statement : context.running) {
+            try {
+                statement.cancel();
+                running++;
+            } catch (Exception e) {
+                log.warn("取消分片查询失败: {}", e.getMessage());
+            }
+        }
+        cancelledStatements.add(running);
+        log.warn("分片并行查询已取消: {}, 取消执行中的语句{}个", name, running);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("threads", threads);
+        stats.put("parallelism", parallelism);
+        stats.put("activeThreads", pool.getActiveCount());
+        stats.put("queuedParts", pool.getQueue().size());
+        stats.put("executions", executions.sum());
+        stats.put("parts", parts.sum());
+        stats.put("failures", failures.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("cancelledStatements", cancelledStatements.sum());
+        return stats;
+    }
+
+    /**
+     * 一次并行执行的上下文：记录执行中的语句，取消时逐个 cancel
+     */
+    public class SliceContext {
+
+        private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+
+        public List<Map<String, Object>> queryForList(String sql, Object... args) {
+            if (cancelled) {
+                throw new CancellationException("分片查询已取消");
+            }
+            PreparedStatement[] holder = new PreparedStatement[1];
+            try {
+                return jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql);
+                    for (int i = 0; i < args.length; i++) {
+                        ps.setObject(i + 1, args[i]);
+                    }
+                    holder[0] = ps;
+                    running.add(ps);
+                    // 登记前已取消时，cancel 遍历不到这条语句，这里不再执行
+                    if (cancelled) {
+                        throw new CancellationException("分片查询已取消");
+                    }
+                    return ps;
+                }, new ColumnMapRowMapper());
+            } finally {
+                if (holder[0] != null) {
+                    running.remove(holder[0]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.clickhouse.parallel;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 查询时间片 [from, to)
+ *
+ * 按月切分，与 user_behavior_log 的分区键 toYYYYMM(event_time) 对齐：每个时间片只读一个分区，
+ * 各时间片读取的数据互不重叠。小时等更细的时间桶不会跨时间片，按时间分组的结果可直接拼接。
+ */
+public record TimeSlice(LocalDateTime from, LocalDateTime to) {
+
+    /**
+     * 把 [startTime, endTime]（含结束时间，秒级）按自然月切分
+     */
+    public static List<TimeSlice> monthly(LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime end = endTime.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        List<TimeSlice> slices = new ArrayList<>();
+        LocalDateTime from = startTime;
+        while (from.isBefore(end)) {
+            LocalDateTime nextMonth = from.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+            LocalDateTime to = nextMonth.isBefore(end) ? nextMonth : end;
+            slices.add(new TimeSlice(from, to));
+            from = to;
+        }
+        return slices;
+    }
+}
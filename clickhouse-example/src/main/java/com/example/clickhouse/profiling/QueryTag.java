@@ -0,0 +1,65 @@
+package com.example.clickhouse.profiling;
+
+import com.clickhouse.jdbc.ClickHouseStatement;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 查询标签：把发起查询的接口写入 ClickHouse 的 log_comment
+ *
+ * - 请求线程由 QueryTagInterceptor 设置为 "请求方法 路径模板"（如 GET /clickhouse/query/stats/hourly），
+ *   该请求内经 JdbcTemplate 执行的所有 SQL 都带上 log_comment = "clickhouse-example:<标签>"
+ * - 没有标签的线程（写入缓冲、分片写线程、启动初始化等）使用 "thread:<线程名去掉序号>"
+ * - 在其他线程执行请求内的查询（流式导出、并行查询）时，需先取 current() 再在目标线程 set()
+ * system.query_log 按 log_comment 聚合即可得到各接口的读取量、耗时和内存。
+ * SQL 中显式写 SETTINGS log_comment 的查询（如索引对比测试）以 SQL 中的为准。
+ */
+public final class QueryTag {
+
+    public static final String PREFIX = "clickhouse-example:";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private QueryTag() {
+    }
+
+    public static void set(String tag) {
+        if (tag == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(tag);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 当前线程的标签，未设置时为 null
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前线程执行的查询写入 query_log 的 log_comment
+     */
+    public static String comment() {
+        String tag = CURRENT.get();
+        if (tag == null) {
+            tag = "thread:" + Thread.currentThread().getName().replaceAll("-?\\d+$", "");
+        }
+        return PREFIX + tag;
+    }
+
+    /**
+     * 为 ClickHouse 语句设置 log_comment（非 ClickHouse 语句忽略）
+     */
+    public static void apply(Statement statement) throws SQLException {
+        if (statement.isWrapperFor(ClickHouseStatement.class)) {
+            statement.unwrap(ClickHouseStatement.class).getRequest().set("log_comment", comment());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.clickhouse.profiling;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 为每条语句设置 log_comment 的 JdbcTemplate（见 QueryTag）
+ */
+public class QueryTaggingJdbcTemplate extends JdbcTemplate {
+
+    public QueryTaggingJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        QueryTag.apply(stmt);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.clickhouse.rollup;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 统计查询的执行计划：把查询时间范围 [from, to) 切分为若干段，每段由一张预聚合表或原始表回答
+ *
+ * 切分从最粗粒度开始：范围内对齐到该粒度桶边界、且在该表覆盖范围内的整桶部分用该表，
+ * 两端不足一个桶的部分递归交给下一级更细的表，最细一级之下用原始表。
+ * 例如 01-01 10:30:15 ~ 01-31 18:20:00 按事件类型统计：
+ * 原始表 10:30:15~10:31、分钟表 10:31~11:00、小时表 11:00~01-02 00:00、天表 01-02~01-31、
+ * 小时表 01-31 00:00~18:00、分钟表 18:00~18:20。
+ */
+public final class QueryPlan {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * RAW：只扫原始表；ROLLUP：只读预聚合表；COMBINED：整桶读预聚合表、边缘不完整的桶扫原始表
+     */
+    public enum Strategy {
+        RAW, ROLLUP, COMBINED
+    }
+
+    /**
+     * 计划中的一段，resolution 为 null 表示原始表
+     */
+    public record Segment(RollupResolution resolution, LocalDateTime from, LocalDateTime to) {
+
+        public boolean isRaw() {
+            return resolution == null;
+        }
+
+        public String source() {
+            return resolution == null ? "user_behavior_log" : resolution.getTable();
+        }
+
+        @Override
+        public String toString() {
+            return source() + "[" + FORMATTER.format(from) + " ~ " + FORMATTER.format(to) + ")";
+        }
+    }
+
+    private final StatsQuery query;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final List<Segment> segments;
+    private final Strategy strategy;
+    private final String reason;
+
+    private QueryPlan(StatsQuery query, LocalDateTime from, LocalDateTime to, List<Segment> segments, String reason) {
+        this.query = query;
+        this.from = from;
+        this.to = to;
+        this.segments = Collections.unmodifiableList(segments);
+        this.reason = reason;
+        boolean anyRaw = segments.stream().anyMatch(Segment::isRaw);
+        boolean allRaw = segments.stream().allMatch(Segment::isRaw);
+        this.strategy = allRaw ? Strategy.RAW : anyRaw ? Strategy.COMBINED : Strategy.ROLLUP;
+    }
+
+    /**
+     * 整个范围扫原始表
+     */
+    public static QueryPlan raw(StatsQuery query, LocalDateTime from, LocalDateTime to, String reason) {
+        List<Segment> segments = new ArrayList<>();
+        if (from.isBefore(to)) {
+            segments.add(new Segment(null, from, to));
+        }
+        return new QueryPlan(query, from, to, segments, reason);
+    }
+
+    /**
+     * 按预聚合表覆盖范围切分
+     * @param coveredFrom 各粒度预聚合表数据完整的起始时间，缺失的粒度不参与切分
+     */
+    public static QueryPlan plan(StatsQuery query, LocalDateTime from, LocalDateTime to,
+                                 Map<RollupResolution, LocalDateTime> coveredFrom) {
+        List<Segment> segments = new ArrayList<>();
+        split(from, to, query.getCoarsest(), coveredFrom, segments);
+        return new QueryPlan(query, from, to, segments, null);
+    }
+
+    private static void split(LocalDateTime from, LocalDateTime to, RollupResolution resolution,
+                              Map<RollupResolution, LocalDateTime> coveredFrom, List<Segment> segments) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (resolution == null) {
+            add(segments, new Segment(null, from, to));
+            return;
+        }
+        LocalDateTime covered = coveredFrom.get(resolution);
+        if (covered == null) {
+            split(from, to, resolution.finer(), coveredFrom, segments);
+            return;
+        }
+        LocalDateTime start = resolution.ceil(from.isAfter(covered) ? from : covered);
+        LocalDateTime end = resolution.truncate(to);
+        if (!start.isBefore(end)) {
+            split(from, to, resolution.finer(), coveredFrom, segments);
+            return;
+        }
+        split(from, start, resolution.finer(), coveredFrom, segments);
+        add(segments, new Segment(resolution, start, end));
+        split(end, to, resolution.finer(), coveredFrom, segments);
+    }
+
+    /**
+     * 与前一段来源相同且首尾相接时合并为一段
+     */
+    private static void add(List<Segment> segments, Segment segment) {
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            if (last.resolution() == segment.resolution() && last.to().equals(segment.from())) {
+                segments.set(segments.size() - 1, new Segment(last.resolution(), last.from(), segment.to()));
+                return;
+            }
+        }
+        segments.add(segment);
+    }
+
+    public StatsQuery getQuery() {
+        return query;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * 强制走原始表的原因（按覆盖范围切分得到的计划为 null）
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("query", query.getName());
+        map.put("from", FORMATTER.format(from));
+        map.put("to", FORMATTER.format(to));
+        map.put("strategy", strategy.name());
+        if (reason != null) {
+            map.put("reason", reason);
+        }
+        map.put("segments", segments.stream().map(Segment::toString).toList());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", strategy + " [", "]");
+        segments.forEach(segment -> joiner.add(segment.toString()));
+        return reason != null ? joiner + " (" + reason + ")" : joiner.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.clickhouse.rollup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 预聚合表的时间粒度
+ *
+ * 每个粒度一张 AggregatingMergeTree 表，保留时间逐级变长：
+ * - MINUTE：由原始表的物化视图写入，保留 14 天
+ * - HOUR：由分钟表的物化视图级联写入，保留 400 天
+ * - DAY：由小时表的物化视图级联写入，保留 5 年
+ */
+public enum RollupResolution {
+
+    MINUTE("user_behavior_rollup_1m", "toStartOfMinute", Duration.ofMinutes(1), 14, ChronoUnit.MINUTES),
+    HOUR("user_behavior_rollup_1h", "toStartOfHour", Duration.ofHours(1), 400, ChronoUnit.HOURS),
+    DAY("user_behavior_rollup_1d", "toStartOfDay", Duration.ofDays(1), 1825, ChronoUnit.DAYS);
+
+    private final String table;
+    private final String startOfFunction;
+    private final Duration bucket;
+    private final int retentionDays;
+    private final ChronoUnit unit;
+
+    RollupResolution(String table, String startOfFunction, Duration bucket, int retentionDays, ChronoUnit unit) {
+        this.table = table;
+        this.startOfFunction = startOfFunction;
+        this.bucket = bucket;
+        this.retentionDays = retentionDays;
+        this.unit = unit;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * 写入该表的物化视图名
+     */
+    public String getViewName() {
+        return table + "_mv";
+    }
+
+    /**
+     * 把时间截断到桶起始的 ClickHouse 函数名
+     */
+    public String getStartOfFunction() {
+        return startOfFunction;
+    }
+
+    public Duration getBucket() {
+        return bucket;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    /**
+     * 截断到桶起始（与 ClickHouse 的 toStartOf* 在服务端时区下一致，应用与服务端时区需相同）
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * 向上取整到桶边界（已在边界上时不变）
+     */
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime start = truncate(time);
+        return start.equals(time) ? start : start.plus(bucket);
+    }
+
+    /**
+     * 数据源：分钟表来自原始表，其余各级来自上一级
+     */
+    public RollupResolution finer() {
+        return this == MINUTE ? null : values()[ordinal() - 1];
+    }
+
+    public static RollupResolution of(String value) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.name().equalsIgnoreCase(value)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("不支持的粒度: " + value + "（minute / hour / day）");
+    }
+}
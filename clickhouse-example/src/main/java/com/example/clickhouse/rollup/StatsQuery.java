@@ -0,0 +1,89 @@
+package com.example.clickhouse.rollup;
+
+/**
+ * 可由查询路由改写到预聚合表的统计查询
+ *
+ * 每种查询给出分组键在原始表和预聚合表上的表达式，以及能回答它的最粗粒度：
+ * 按小时统计最粗只能用小时表，按事件类型 / 设备类型统计不按时间分组，可以用天表。
+ */
+public enum StatsQuery {
+
+    HOURLY("hourly", "hour_time", RollupResolution.HOUR,
+            "toStartOfHour(event_time)", "toStartOfHour(bucket_time)", false),
+    EVENT_TYPE("event-type", "event_type", RollupResolution.DAY,
+            "event_type", "CAST(event_type AS String)", true),
+    DEVICE_TYPE("device", "device_type", RollupResolution.DAY,
+            "device_type", "CAST(device_type AS String)", false);
+
+    private final String name;
+    private final String keyColumn;
+    private final RollupResolution coarsest;
+    private final String rawKey;
+    private final String rollupKey;
+    private final boolean totalDuration;
+
+    StatsQuery(String name, String keyColumn, RollupResolution coarsest,
+               String rawKey, String rollupKey, boolean totalDuration) {
+        this.name = name;
+        this.keyColumn = keyColumn;
+        this.coarsest = coarsest;
+        this.rawKey = rawKey;
+        this.rollupKey = rollupKey;
+        this.totalDuration = totalDuration;
+    }
+
+    /**
+     * 与 /clickhouse/query/stats/{name} 一致的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 结果中分组键的列名
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public RollupResolution getCoarsest() {
+        return coarsest;
+    }
+
+    /**
+     * 原始表上的分组键表达式
+     */
+    public String getRawKey() {
+        return rawKey;
+    }
+
+    /**
+     * 预聚合表上的分组键表达式（LowCardinality 转为 String，与原始表 UNION ALL 时类型一致）
+     */
+    public String getRollupKey() {
+        return rollupKey;
+    }
+
+    /**
+     * 结果是否包含 total_duration 列（与原始表查询的列保持一致）
+     */
+    public boolean hasTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * 按时间分组的查询按时间排序，其余按事件数倒序
+     */
+    public boolean isTimeSeries() {
+        return this == HOURLY;
+    }
+
+    public static StatsQuery of(String value) {
+        for (StatsQuery query : values()) {
+            if (query.name.equalsIgnoreCase(value) || query.name().equalsIgnoreCase(value)) {
+                return query;
+            }
+        }
+        throw new IllegalArgumentException("不支持的统计查询: " + value + "（hourly / event-type / device）");
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.clickhouse.schema;
+
+import java.util.regex.Pattern;
+
+/**
+ * user_behavior_log 可添加的数据跳数索引和投影
+ *
+ * 主键只有 (event_time, user_id)，按其他列过滤时会读取时间范围内的全部 granule：
+ * - 跳数索引为每 GRANULARITY 个 granule 记录一份摘要（布隆过滤器、取值集合、最小最大值），
+ *   摘要判定不含目标值的 granule 直接跳过；体积小，效果取决于目标值在数据中的分散程度
+ * - 投影是按另一排序键存储的一份数据副本，按该列过滤时只读命中的少量行；效果稳定，但额外占用存储、写入变慢
+ * filterPattern 匹配 normalizeQuery 后的 SQL（字面量已替换为 ?），用于从 system.query_log 找出能受益的查询。
+ */
+public enum IndexCandidate {
+
+    IDX_USER_ID(Kind.SKIP_INDEX, "user_id", "user_id TYPE bloom_filter(0.01) GRANULARITY 4",
+            "\\buser_id\\s*(=|in\\b)",
+            "布隆过滤器，用户访问路径等按 user_id 等值过滤的查询"),
+    IDX_PAGE_URL(Kind.SKIP_INDEX, "page_url", "page_url TYPE bloom_filter(0.01) GRANULARITY 4",
+            "\\bpage_url\\s*(=|in\\b)",
+            "布隆过滤器，按 page_url 等值过滤（不支持 LIKE '%x%'）"),
+    IDX_EVENT_TYPE(Kind.SKIP_INDEX, "event_type", "event_type TYPE set(16) GRANULARITY 4",
+            "\\bevent_type\\s*(=|in\\b)",
+            "取值集合，只有该类型集中出现在部分 granule 时才能跳过（均匀分布时无效）"),
+    IDX_DURATION(Kind.SKIP_INDEX, "duration", "duration TYPE minmax GRANULARITY 1",
+            "\\bduration\\s*(>|<|between\\b)",
+            "最小最大值，按 duration 范围过滤（如慢页面排查）"),
+    PROJ_BY_USER(Kind.PROJECTION, "user_id", "(SELECT * ORDER BY (user_id, event_time))",
+            "\\buser_id\\s*(=|in\\b)",
+            "按 (user_id, event_time) 排序的全列副本，用户路径查询只读该用户的行，存储约翻倍"),
+    PROJ_BY_PAGE(Kind.PROJECTION, "page_url",
+            "(SELECT event_time, user_id, event_type, page_url, duration ORDER BY (page_url, event_time))",
+            "\\bpage_url\\s*(=|in\\b)",
+            "按 (page_url, event_time) 排序的副本（不含 device_type、ip_address），单页面统计只读该页面的行");
+
+    /**
+     * SKIP_INDEX：数据跳数索引；PROJECTION：投影
+     */
+    public enum Kind {
+        SKIP_INDEX("INDEX", "use_skip_indexes"),
+        PROJECTION("PROJECTION", "optimize_use_projections");
+
+        private final String keyword;
+        private final String setting;
+
+        Kind(String keyword, String setting) {
+            this.keyword = keyword;
+            this.setting = setting;
+        }
+
+        /**
+         * ALTER TABLE ... ADD / MATERIALIZE / DROP 后的关键字
+         */
+        public String getKeyword() {
+            return keyword;
+        }
+
+        /**
+         * 查询级开关，设为 0 时不使用该类加速结构（用于前后对比）
+         */
+        public String getSetting() {
+            return setting;
+        }
+    }
+
+    private final Kind kind;
+    private final String column;
+    private final String definition;
+    private final Pattern filterPattern;
+    private final String description;
+
+    IndexCandidate(Kind kind, String column, String definition, String filterPattern, String description) {
+        this.kind = kind;
+        this.column = column;
+        this.definition = definition;
+        this.filterPattern = Pattern.compile(filterPattern, Pattern.CASE_INSENSITIVE);
+        this.description = description;
+    }
+
+    /**
+     * 索引 / 投影在表中的名称
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * 加速的过滤列
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * ADD INDEX / ADD PROJECTION 中名称之后的定义
+     */
+    public String getDefinition() {
+        return definition;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * normalizeQuery 后的 SQL 是否按该列过滤
+     */
+    public boolean matches(String normalizedQuery) {
+        return filterPattern.matcher(normalizedQuery).find();
+    }
+
+    public static IndexCandidate of(String value) {
+        for (IndexCandidate candidate : values()) {
+            if (candidate.name().equalsIgnoreCase(value)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("不支持的索引 / 投影: " + value);
+    }
+}
@@ -1,18 +1,54 @@
 package com.example.clickhouse.service;
 
+import com.clickhouse.client.ClickHouseResponse;
+import com.clickhouse.data.ClickHouseFormat;
+import com.clickhouse.jdbc.ClickHouseConnection;
+import com.clickhouse.jdbc.ClickHouseStatement;
+import com.example.clickhouse.approx.Accuracy;
+import com.example.clickhouse.cache.QueryResultCache;
+import com.example.clickhouse.ingest.RowBinaryEncoder;
 import com.example.clickhouse.model.UserBehaviorLog;
+import com.example.clickhouse.paging.LogCursor;
+import com.example.clickhouse.parallel.SlicedQueryExecutor;
+import com.example.clickhouse.parallel.TimeSlice;
+import com.example.clickhouse.profiling.QueryTag;
+import com.example.clickhouse.rollup.QueryPlan;
+import com.example.clickhouse.rollup.RollupResolution;
+import com.example.clickhouse.rollup.StatsQuery;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * ClickHouse数据操作服务
@@ -30,9 +66,75 @@ public class ClickHouseDataService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private QueryResultCache resultCache;
+
+    @Autowired
+    private SlicedQueryExecutor slicedQueryExecutor;
+
+    /**
+     * 并行查询热门页面时每个时间片返回的页面数上限（超出部分只参与前N名的确定性校验）
+     */
+    @Value("${clickhouse.parallel.top-pages-slice-limit:10000}")
+    private int topPagesSliceLimit;
+
+    /**
+     * 流式查询每次从结果流中读取的行数
+     */
+    @Value("${clickhouse.query.fetch-size:10000}")
+    private int fetchSize;
+
+    /**
+     * SAMPLED精度的抽样比例
+     */
+    @Value("${clickhouse.approx.sample-rate:0.1}")
+    private double sampleRate;
+
+    /**
+     * 预聚合表uniq的相对误差（用于结果标注）
+     */
+    private static final double ROLLUP_UNIQ_ERROR = 0.01;
+
+    /**
+     * 统计查询路由开关，关闭后countByHour / countByEventType / countByDeviceType始终扫原始表
+     */
+    @Value("${clickhouse.router.enabled:true}")
+    private boolean routerEnabled;
+
+    /**
+     * 短于该时长的范围直接扫原始表（扫描量小，且uniqExact精确）
+     */
+    @Value("${clickhouse.router.min-rollup-range-minutes:60}")
+    private long minRollupRangeMinutes;
+
+    /**
+     * 预聚合表数据完整的起始时间（ISO格式，如2024-01-01T00:00:00），为空时按物化视图创建时间自动检测
+     */
+    @Value("${clickhouse.router.rollup-covered-from:}")
+    private String rollupCoveredFromConfig;
+
+    private static final long COVERAGE_RETRY_MILLIS = 60_000;
+
+    private volatile LocalDateTime rollupCoveredFrom;
+    private volatile long coverageCheckedAt;
+
     private static final DateTimeFormatter DATE_TIME_FORMATTER = 
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private static final String LOG_COLUMNS =
+            "event_time, user_id, event_type, page_url, duration, device_type, ip_address";
+
+    /**
+     * 分页排序：前缀与排序键(event_time, user_id)一致（倒序），其余列保证同键行顺序稳定
+     */
+    private static final String LOG_PAGE_ORDER =
+            "event_time DESC, user_id DESC, event_type, page_url, duration, device_type, ip_address";
+
+    /**
+     * 预聚合表支持的分组维度
+     */
+    private static final Set<String> ROLLUP_DIMENSIONS = Set.of("event_type", "device_type");
+
     /**
      * 批量插入用户行为日志
      * 
@@ -73,6 +175,7 @@ public class ClickHouseDataService {
 
         int totalInserted = results.length;
         log.info("批量插入用户行为日志成功: 数量={}", totalInserted);
+        invalidateCache(logs);
         return totalInserted;
     }
 
@@ -112,6 +215,7 @@ public class ClickHouseDataService {
         try {
             int count = jdbcTemplate.update(sql.toString());
             log.info("VALUES格式批量插入成功: 数量={}", count);
+            invalidateCache(logs);
             return count;
         } catch (Exception e) {
             log.error("批量插入失败", e);
@@ -119,6 +223,53 @@ public class ClickHouseDataService {
         }
     }
 
+    /**
+     * 使用RowBinary格式流式插入
+     * 
+     * 生产环境推荐方式（大批量、高频写入）：
+     * - 通过现有HTTP驱动直接把二进制行写入请求体，服务端无需解析文本
+     * - 字段编码进可复用缓冲区，不拼接SQL、不生成中间字符串，字符串中的引号等字符无需转义
+     * - DateTime按服务端时区换算，结果与文本插入一致
+     */
+    public long insertRowBinary(List<UserBehaviorLog> logs) {
+        long count = insertRowBinary(jdbcTemplate.getDataSource(), "user_behavior_log", null, logs);
+        invalidateCache(logs);
+        return count;
+    }
+
+    /**
+     * 以RowBinary格式写入指定数据源上的表（分片直写、分布式表写入共用）
+     * 
+     * @param table 与user_behavior_log列相同的表
+     * @param settings INSERT级设置（如"insert_distributed_sync = 1"），为null时不设置
+     * @return 服务端确认写入的行数
+     */
+    public long insertRowBinary(DataSource dataSource, String table, String settings, List<UserBehaviorLog> logs) {
+        if (logs == null || logs.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "INSERT INTO " + table + " " + RowBinaryEncoder.COLUMNS
+                + (settings != null ? " SETTINGS " + settings : "");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            QueryTag.apply(statement);
+            ZoneRules serverZone = connection.unwrap(ClickHouseConnection.class).getServerTimeZone().toZoneId().getRules();
+            try (ClickHouseResponse response = statement.unwrap(ClickHouseStatement.class).write()
+                    .query(sql)
+                    .format(ClickHouseFormat.RowBinary)
+                    .data(output -> RowBinaryEncoder.write(output, logs, serverZone))
+                    .executeAndWait()) {
+                long count = response.getSummary().getWrittenRows();
+                log.info("RowBinary格式插入成功: table={}, 数量={}", table, count);
+                return count;
+            }
+        } catch (Exception e) {
+            log.error("RowBinary格式插入失败: table={}", table, e);
+            throw new RuntimeException("RowBinary格式插入失败", e);
+        }
+    }
+
     /**
      * 查询用户行为日志（基础查询）
      */
@@ -146,50 +297,615 @@ public class ClickHouseDataService {
     }
 
     /**
-     * 按事件类型统计（聚合查询）
+     * 分页查询用户行为日志（键集分页）
      * 
-     * 生产环境典型场景：
-     * - 统计各事件类型的数量
-     * - 分析用户行为分布
+     * 生产环境要点：
+     * - LIMIT n OFFSET m 翻到第m/n页时，服务端要读取并排序前m+n行再丢弃m行，越往后越慢
+     * - 按排序键(event_time, user_id)倒序定位：游标记录上一页最后一行的键，
+     *   下一页只读该位置之后的行，配合与排序键同序的ORDER BY（optimize_read_in_order），读够LIMIT行即停止
+     * - 排序键相同的行再按其余列排序保证翻页稳定，游标中的skip跳过上一页已返回的同键行
+     * - 多取一行判断是否还有下一页；期间写入的新数据若早于游标位置会出现在后续页，晚于游标位置的不会出现
+     * 
+     * @param cursor 上一页返回的nextCursor，为空时返回第一页（此时startTime、endTime必填）
+     * @return logs、count、hasMore，以及有下一页时的nextCursor
      */
-    public List<Map<String, Object>> countByEventType(LocalDateTime startTime, LocalDateTime endTime) {
+    public Map<String, Object> queryUserBehaviorLogsPage(LocalDateTime startTime, LocalDateTime endTime,
+                                                         String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit必须大于0: " + limit);
+        }
+        List<Map<String, Object>> rows;
+        LogCursor position = null;
+        if (cursor == null || cursor.isBlank()) {
+            if (startTime == null || endTime == null) {
+                throw new IllegalArgumentException("第一页需要startTime和endTime");
+            }
+            String sql = """
+                SELECT %s
+                FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                ORDER BY %s
+                LIMIT ?
+                """.formatted(LOG_COLUMNS, LOG_PAGE_ORDER);
+            rows = jdbcTemplate.queryForList(sql,
+                    startTime.format(DATE_TIME_FORMATTER),
+                    endTime.format(DATE_TIME_FORMATTER),
+                    limit + 1);
+        } else {
+            position = LogCursor.decode(cursor);
+            String time = position.eventTime().format(DATE_TIME_FORMATTER);
+            String sql = """
+                SELECT %s
+                FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                AND (event_time < ? OR user_id <= ?)
+                ORDER BY %s
+                LIMIT ? OFFSET ?
+                """.formatted(LOG_COLUMNS, LOG_PAGE_ORDER);
+            rows = jdbcTemplate.queryForList(sql,
+                    position.startTime().format(DATE_TIME_FORMATTER),
+                    time, time, position.userId(),
+                    limit + 1, position.skip());
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<Map<String, Object>> logs = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("logs", logs);
+        result.put("count", logs.size());
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            LocalDateTime rangeStart = position != null ? position.startTime() : startTime;
+            result.put("nextCursor", nextCursor(rangeStart, position, logs).encode());
+        }
+        return result;
+    }
+
+    /**
+     * 以本页最后一行的键生成下一页游标，skip为本页末尾同键的行数（整页同键且与上一游标同键时累加）
+     */
+    private LogCursor nextCursor(LocalDateTime startTime, LogCursor previous, List<Map<String, Object>> logs) {
+        Map<String, Object> last = logs.get(logs.size() - 1);
+        LocalDateTime eventTime = toLocalDateTime(last.get("event_time"));
+        String userId = String.valueOf(last.get("user_id"));
+        int sameKey = 0;
+        for (int i = logs.size() - 1; i >= 0; i--) {
+            Map<String, Object> row = logs.get(i);
+            if (!userId.equals(String.valueOf(row.get("user_id")))
+                    || !eventTime.equals(toLocalDateTime(row.get("event_time")))) {
+                break;
+            }
+            sameKey++;
+        }
+        if (sameKey == logs.size() && previous != null
+                && previous.eventTime().equals(eventTime) && previous.userId().equals(userId)) {
+            sameKey += previous.skip();
+        }
+        return new LogCursor(startTime, eventTime, userId, sameKey);
+    }
+
+    /**
+     * 按OFFSET分页（与键集分页同序，用于对比测试和结果校验）
+     */
+    List<Map<String, Object>> queryUserBehaviorLogsByOffset(LocalDateTime startTime, LocalDateTime endTime,
+                                                            long offset, int limit) {
+        String sql = """
+            SELECT %s
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time <= ?
+            ORDER BY %s
+            LIMIT ? OFFSET ?
+            """.formatted(LOG_COLUMNS, LOG_PAGE_ORDER);
+        return jdbcTemplate.queryForList(sql,
+                startTime.format(DATE_TIME_FORMATTER),
+                endTime.format(DATE_TIME_FORMATTER),
+                limit, offset);
+    }
+
+    /**
+     * 前offset行之后的游标（跳转到指定页，用于对比测试），范围内不足offset行时返回null
+     */
+    LogCursor cursorAtOffset(LocalDateTime startTime, LocalDateTime endTime, long offset) {
+        String start = startTime.format(DATE_TIME_FORMATTER);
+        String end = endTime.format(DATE_TIME_FORMATTER);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+            SELECT event_time, user_id
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time <= ?
+            ORDER BY %s
+            LIMIT 1 OFFSET ?
+            """.formatted(LOG_PAGE_ORDER), start, end, offset - 1);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        LocalDateTime eventTime = toLocalDateTime(rows.get(0).get("event_time"));
+        String userId = String.valueOf(rows.get(0).get("user_id"));
+        String time = eventTime.format(DATE_TIME_FORMATTER);
+        Long before = jdbcTemplate.queryForObject("""
+            SELECT count()
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time <= ?
+            AND (event_time > ? OR (event_time = ? AND user_id > ?))
+            """, Long.class, start, end, time, time, userId);
+        return new LogCursor(startTime, eventTime, userId, (int) (offset - (before != null ? before : 0)));
+    }
+
+    /**
+     * 流式查询用户行为日志
+     * 
+     * 生产环境导出场景：
+     * - 逐行读取HTTP响应流并映射为UserBehaviorLog，立即交给consumer处理，不在内存中保留整个结果集
+     * - 内存占用与结果行数无关，适合导出百万、千万级数据
+     * - consumer抛出异常时中止查询
+     * 
+     * @param limit 为null时不限制行数
+     * @return 处理的行数
+     */
+    public long streamUserBehaviorLogs(LocalDateTime startTime, LocalDateTime endTime, Integer limit,
+                                       Consumer<UserBehaviorLog> consumer) {
         String sql = """
             SELECT 
+                event_time,
+                user_id,
                 event_type,
-                count() AS event_count,
-                uniqExact(user_id) AS unique_users,
-                avg(duration) AS avg_duration,
-                sum(duration) AS total_duration
+                page_url,
+                duration,
+                device_type,
+                ip_address
             FROM user_behavior_log
             WHERE event_time >= ? AND event_time <= ?
-            GROUP BY event_type
-            ORDER BY event_count DESC
+            ORDER BY event_time
+            """ + (limit != null ? "LIMIT " + limit : "");
+
+        return stream(sql, consumer,
+                startTime.format(DATE_TIME_FORMATTER),
+                endTime.format(DATE_TIME_FORMATTER));
+    }
+
+    /**
+     * 流式查询用户行为路径
+     */
+    public long streamUserPath(String userId, LocalDateTime startTime, LocalDateTime endTime,
+                               Consumer<UserBehaviorLog> consumer) {
+        String sql = """
+            SELECT 
+                event_time,
+                user_id,
+                event_type,
+                page_url,
+                duration,
+                device_type,
+                ip_address
+            FROM user_behavior_log
+            WHERE user_id = ?
+            AND event_time >= ? AND event_time <= ?
+            ORDER BY event_time ASC
             """;
 
-        return jdbcTemplate.queryForList(sql,
+        return stream(sql, consumer,
+                userId,
                 startTime.format(DATE_TIME_FORMATTER),
                 endTime.format(DATE_TIME_FORMATTER));
     }
 
+    /**
+     * 流式读取由numbers()生成的模拟日志（不依赖表中数据，用于验证大结果集导出的内存占用）
+     */
+    public long streamSyntheticLogs(long rows, Consumer<UserBehaviorLog> consumer) {
+        String sql = """
+            SELECT 
+                toDateTime('2024-01-01 00:00:00') + number % 2592000 AS event_time,
+                concat('user_', toString(number % 100000)) AS user_id,
+                ['page_view', 'click', 'purchase', 'search'][number % 4 + 1] AS event_type,
+                concat('/page/', toString(number % 1000), '?ref=search') AS page_url,
+                toInt32(number % 300) AS duration,
+                ['mobile', 'desktop', 'tablet'][number % 3 + 1] AS device_type,
+                IPv4NumToString(toUInt32(number)) AS ip_address
+            FROM numbers(?)
+            """;
+
+        return stream(sql, consumer, rows);
+    }
+
+    private long stream(String sql, Consumer<UserBehaviorLog> consumer, Object... args) {
+        AtomicLong count = new AtomicLong();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, rs -> {
+            consumer.accept(new UserBehaviorLog(
+                    rs.getObject(1, LocalDateTime.class),
+                    rs.getString(2),
+                    rs.getString(3),
+                    rs.getString(4),
+                    rs.getInt(5),
+                    rs.getString(6),
+                    rs.getString(7)));
+            count.incrementAndGet();
+        });
+        return count.get();
+    }
+
+    /**
+     * 按事件类型统计（聚合查询）
+     * 
+     * 生产环境典型场景：
+     * - 统计各事件类型的数量
+     * - 分析用户行为分布
+     * 
+     * 经结果缓存和查询路由执行，长时间范围读预聚合表（见routeStats）
+     */
+    public List<Map<String, Object>> countByEventType(LocalDateTime startTime, LocalDateTime endTime) {
+        return countByEventType(startTime, endTime, Accuracy.AUTO);
+    }
+
+    /**
+     * 按事件类型统计（指定精度，见Accuracy）
+     */
+    public List<Map<String, Object>> countByEventType(LocalDateTime startTime, LocalDateTime endTime, Accuracy accuracy) {
+        return cachedStats(StatsQuery.EVENT_TYPE, startTime, endTime, accuracy);
+    }
+
     /**
      * 按时间维度统计（小时级别）
      * 
      * 生产环境典型场景：
      * - 分析用户行为的时间分布
      * - 识别高峰时段
+     * 
+     * 经结果缓存和查询路由执行，长时间范围读预聚合表（见routeStats）
      */
     public List<Map<String, Object>> countByHour(LocalDateTime startTime, LocalDateTime endTime) {
+        return countByHour(startTime, endTime, Accuracy.AUTO);
+    }
+
+    /**
+     * 按小时统计（指定精度，见Accuracy）
+     */
+    public List<Map<String, Object>> countByHour(LocalDateTime startTime, LocalDateTime endTime, Accuracy accuracy) {
+        return cachedStats(StatsQuery.HOURLY, startTime, endTime, accuracy);
+    }
+
+    /**
+     * 按设备类型统计
+     * 
+     * 经结果缓存和查询路由执行，长时间范围读预聚合表（见routeStats）
+     */
+    public List<Map<String, Object>> countByDeviceType(LocalDateTime startTime, LocalDateTime endTime) {
+        return countByDeviceType(startTime, endTime, Accuracy.AUTO);
+    }
+
+    /**
+     * 按设备类型统计（指定精度，见Accuracy）
+     */
+    public List<Map<String, Object>> countByDeviceType(LocalDateTime startTime, LocalDateTime endTime, Accuracy accuracy) {
+        return cachedStats(StatsQuery.DEVICE_TYPE, startTime, endTime, accuracy);
+    }
+
+    /**
+     * 经结果缓存执行统计查询（缓存规则见QueryResultCache），未命中时：
+     * AUTO经查询路由执行，EXACT扫原始表，其余按近似模式执行（approxStats）
+     */
+    private List<Map<String, Object>> cachedStats(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime,
+                                                  Accuracy accuracy) {
+        return switch (accuracy) {
+            case AUTO -> resultCache.get("stats/" + query.getName(), startTime, endTime, List.of(),
+                    () -> routeStats(query, startTime, endTime, false));
+            case EXACT -> resultCache.get("stats/" + query.getName(), startTime, endTime, List.of(accuracy.name()),
+                    () -> rawStats(query, startTime, endTime));
+            case SAMPLED -> resultCache.get("stats/" + query.getName(), startTime, endTime,
+                    List.of(accuracy.name(), sampleRate), () -> approxStats(query, startTime, endTime, accuracy));
+            default -> resultCache.get("stats/" + query.getName(), startTime, endTime, List.of(accuracy.name()),
+                    () -> approxStats(query, startTime, endTime, accuracy));
+        };
+    }
+
+    /**
+     * 近似统计查询
+     * 
+     * 生产环境要点：
+     * - COMBINED / HLL12：仍扫原始表，event_count、avg_duration精确，只有unique_users换成近似去重函数。
+     *   uniqExact要在内存中保存全部去重值，宽时间范围下占用数GB并且慢；近似函数的状态大小固定
+     * - SAMPLED：读user_behavior_log_sampled（按cityHash64(user_id)抽样），SAMPLE r只读约r比例的行。
+     *   抽样单位是用户，一个用户的事件要么全部读到、要么全部跳过：计数按_sample_factor放大，
+     *   去重人数为样本去重数乘以1/r，avg_duration不需放大。
+     *   relative_error近似为sqrt((1 - r) / 样本用户数)（一个标准误差），分组越小误差越大
+     */
+    private List<Map<String, Object>> approxStats(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime,
+                                                  Accuracy accuracy) {
+        String key = query.getKeyColumn();
+        String keySelect = query.getRawKey().equals(key) ? key : query.getRawKey() + " AS " + key;
+        String sql;
+        if (accuracy == Accuracy.SAMPLED) {
+            String rate = sampleRateLiteral();
+            sql = """
+                SELECT
+                    %s,
+                    round(sum(_sample_factor)) AS event_count,
+                    round(uniqCombined(user_id) * any(_sample_factor)) AS unique_users,
+                    avg(duration) AS avg_duration,%s
+                    sqrt((1 - %s) / greatest(uniqCombined(user_id), 1)) AS relative_error
+                FROM user_behavior_log_sampled SAMPLE %s
+                WHERE event_time >= ? AND event_time <= ?
+                GROUP BY %s
+                ORDER BY %s
+                """.formatted(keySelect,
+                    query.hasTotalDuration() ? "\n    round(sum(duration * _sample_factor)) AS total_duration," : "",
+                    rate, rate, key, query.isTimeSeries() ? key : "event_count DESC");
+        } else {
+            sql = """
+                SELECT
+                    %s,
+                    count() AS event_count,
+                    %s(user_id) AS unique_users,
+                    avg(duration) AS avg_duration%s
+                FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                GROUP BY %s
+                ORDER BY %s
+                """.formatted(keySelect, accuracy.getUniqFunction(),
+                    query.hasTotalDuration() ? ",\n    sum(duration) AS total_duration" : "",
+                    key, query.isTimeSeries() ? key : "event_count DESC");
+        }
+
+        return jdbcTemplate.queryForList(sql,
+                startTime.format(DATE_TIME_FORMATTER),
+                endTime.format(DATE_TIME_FORMATTER));
+    }
+
+    /**
+     * 结果的误差标注
+     * 
+     * - countError / uniqueError：计数、去重人数的相对标准误差（0为精确），SAMPLED时为null，见perRowErrorColumn
+     * - AUTO按当前路由计划判断：只扫原始表时精确，经预聚合表时去重人数为uniq近似值
+     * 
+     * @param query 统计查询，热门页面传null
+     */
+    public Map<String, Object> estimatedError(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime,
+                                              Accuracy accuracy) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("accuracy", accuracy.name());
+        switch (accuracy) {
+            case AUTO -> {
+                boolean raw = query == null
+                        || planStats(query, startTime, endTime).getStrategy() == QueryPlan.Strategy.RAW;
+                error.put("countError", 0.0);
+                error.put("uniqueError", raw ? 0.0 : ROLLUP_UNIQ_ERROR);
+                error.put("description", raw ? "原始表精确统计" : "经预聚合表，去重人数为uniq近似值");
+            }
+            case SAMPLED -> {
+                error.put("countError", null);
+                error.put("uniqueError", null);
+                error.put("perRowErrorColumn", "relative_error");
+                error.put("sampleRate", sampleRate);
+                error.put("description", "按用户抽样" + sampleRate + "，计数与去重人数按抽样系数放大");
+            }
+            default -> {
+                error.put("countError", 0.0);
+                error.put("uniqueError", accuracy.getUniqError());
+                error.put("description", accuracy == Accuracy.EXACT ? "原始表精确统计"
+                        : "计数精确，去重人数为" + accuracy.getUniqFunction() + "近似值"
+                        + (query == null ? "；候选页面由topK选出，排名靠后的页面可能遗漏" : ""));
+            }
+        }
+        return error;
+    }
+
+    private String sampleRateLiteral() {
+        if (!(sampleRate > 0 && sampleRate <= 1)) {
+            throw new IllegalStateException("clickhouse.approx.sample-rate 须在 (0, 1] 之间: " + sampleRate);
+        }
+        return BigDecimal.valueOf(sampleRate).toPlainString();
+    }
+
+    /**
+     * 统计查询路由：按计划读原始表、预聚合表或两者组合
+     * 
+     * 生产环境要点：
+     * - 计划为RAW时执行原始表查询（uniqExact精确去重），结果与不经路由完全一致
+     * - ROLLUP / COMBINED时各段分别产出聚合状态（预聚合表直接读状态列，原始表段用uniqState / sumState现算），
+     *   UNION ALL后统一-Merge，跨段去重人数仍然正确，不是各段人数相加；此时unique_users为uniq近似值
+     * - 每次路由决策以INFO日志输出（查询、范围、策略、各段来源）
+     * 
+     * @param forceRaw 强制走原始表（对比测试用）
+     */
+    List<Map<String, Object>> routeStats(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime,
+                                         boolean forceRaw) {
+        QueryPlan plan = planStats(query, startTime, endTime, forceRaw);
+        log.info("统计查询路由: query={}, range={} ~ {}, plan={}", query.getName(), startTime, endTime, plan);
+        if (plan.getStrategy() == QueryPlan.Strategy.RAW) {
+            return rawStats(query, startTime, endTime);
+        }
+        return executePlan(plan);
+    }
+
+    /**
+     * 生成统计查询的执行计划（不执行）
+     */
+    public QueryPlan planStats(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime) {
+        return planStats(query, startTime, endTime, false);
+    }
+
+    /**
+     * 原始表按秒存储，查询条件 event_time <= endTime 等价于 [startTime, endTime + 1秒)
+     * 
+     * 以下情况整个范围扫原始表：路由关闭或强制原始表、范围短于clickhouse.router.min-rollup-range-minutes、
+     * 预聚合表覆盖起点未知（物化视图不存在）。否则按各粒度的覆盖范围切分，见QueryPlan.plan。
+     * 覆盖范围：起点为物化视图创建时间（或配置的clickhouse.router.rollup-covered-from），
+     * 且不早于各表TTL（保留天数减1天余量）。
+     */
+    private QueryPlan planStats(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime, boolean forceRaw) {
+        LocalDateTime from = startTime.truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime to = endTime.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        if (forceRaw) {
+            return QueryPlan.raw(query, from, to, "强制原始表");
+        }
+        if (!routerEnabled) {
+            return QueryPlan.raw(query, from, to, "查询路由未开启");
+        }
+        if (Duration.between(from, to).compareTo(Duration.ofMinutes(minRollupRangeMinutes)) < 0) {
+            return QueryPlan.raw(query, from, to, "范围短于" + minRollupRangeMinutes + "分钟");
+        }
+        LocalDateTime covered = rollupCoveredFrom();
+        if (covered == null) {
+            return QueryPlan.raw(query, from, to, "预聚合表覆盖范围未知");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<RollupResolution, LocalDateTime> coverage = new EnumMap<>(RollupResolution.class);
+        for (RollupResolution resolution : RollupResolution.values()) {
+            LocalDateTime retained = now.minusDays(resolution.getRetentionDays() - 1L);
+            coverage.put(resolution, covered.isAfter(retained) ? covered : retained);
+        }
+        return QueryPlan.plan(query, from, to, coverage);
+    }
+
+    /**
+     * 预聚合表数据完整的起始时间
+     * 
+     * 未配置时取三个物化视图中最晚的创建时间（system.tables.metadata_modification_time）向上取整到分钟：
+     * 物化视图只处理创建之后的写入，更早的数据需补数（backfillRollups会相应前移覆盖起点，重启后需改为配置）。
+     * 物化视图不存在时返回null，之后每分钟最多重新检测一次。
+     */
+    private LocalDateTime rollupCoveredFrom() {
+        if (!rollupCoveredFromConfig.isBlank()) {
+            return LocalDateTime.parse(rollupCoveredFromConfig);
+        }
+        LocalDateTime covered = rollupCoveredFrom;
+        long now = System.currentTimeMillis();
+        if (covered != null || now - coverageCheckedAt < COVERAGE_RETRY_MILLIS) {
+            return covered;
+        }
+        coverageCheckedAt = now;
         String sql = """
-            SELECT 
-                toStartOfHour(event_time) AS hour_time,
-                count() AS event_count,
-                uniqExact(user_id) AS unique_users,
-                avg(duration) AS avg_duration
-            FROM user_behavior_log
-            WHERE event_time >= ? AND event_time <= ?
-            GROUP BY hour_time
-            ORDER BY hour_time
+            SELECT count() AS views, max(metadata_modification_time) AS created
+            FROM system.tables
+            WHERE database = currentDatabase() AND name IN (?, ?, ?)
             """;
+        try {
+            Map<String, Object> row = jdbcTemplate.queryForMap(sql,
+                    RollupResolution.MINUTE.getViewName(),
+                    RollupResolution.HOUR.getViewName(),
+                    RollupResolution.DAY.getViewName());
+            if (((Number) row.get("views")).intValue() < RollupResolution.values().length) {
+                log.info("预聚合物化视图不完整，统计查询走原始表");
+                return null;
+            }
+            LocalDateTime created = toLocalDateTime(row.get("created"));
+            rollupCoveredFrom = RollupResolution.MINUTE.ceil(created.truncatedTo(ChronoUnit.SECONDS));
+            log.info("预聚合表覆盖起点: {}", rollupCoveredFrom);
+            return rollupCoveredFrom;
+        } catch (Exception e) {
+            log.warn("检测预聚合表覆盖范围失败，统计查询走原始表: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime time) {
+            return time;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        if (value instanceof OffsetDateTime time) {
+            return time.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+        return LocalDateTime.parse(String.valueOf(value), DATE_TIME_FORMATTER);
+    }
+
+    /**
+     * 按计划执行：各段产出(k, e, u, ds)，UNION ALL后按分组键合并
+     */
+    private List<Map<String, Object>> executePlan(QueryPlan plan) {
+        StatsQuery query = plan.getQuery();
+        StringJoiner union = new StringJoiner("\n    UNION ALL\n");
+        List<Object> args = new ArrayList<>();
+        for (QueryPlan.Segment segment : plan.getSegments()) {
+            if (segment.isRaw()) {
+                union.add("""
+                        SELECT %s AS k, count() AS e, uniqState(user_id) AS u, sumState(duration) AS ds
+                        FROM user_behavior_log
+                        WHERE event_time >= ? AND event_time < ?
+                        GROUP BY k""".formatted(query.getRawKey()));
+            } else {
+                union.add("""
+                        SELECT %s AS k, toUInt64(events) AS e, users AS u, duration_sum AS ds
+                        FROM %s
+                        WHERE bucket_time >= ? AND bucket_time < ?""".formatted(
+                        query.getRollupKey(), segment.resolution().getTable()));
+            }
+            args.add(segment.from().format(DATE_TIME_FORMATTER));
+            args.add(segment.to().format(DATE_TIME_FORMATTER));
+        }
+
+        String key = query.getKeyColumn();
+        String sql = """
+            SELECT
+                k AS %s,
+                sum(e) AS event_count,
+                uniqMerge(u) AS unique_users,
+                if(event_count = 0, 0, sumMerge(ds) / event_count) AS avg_duration%s
+            FROM (
+            %s
+            )
+            GROUP BY %s
+            ORDER BY %s
+            """.formatted(key,
+                query.hasTotalDuration() ? ",\n    sumMerge(ds) AS total_duration" : "",
+                union,
+                key,
+                query.isTimeSeries() ? key : "event_count DESC");
+
+        return jdbcTemplate.queryForList(sql, args.toArray());
+    }
+
+    /**
+     * 原始表统计查询
+     */
+    private List<Map<String, Object>> rawStats(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime) {
+        if (query == StatsQuery.HOURLY && slicedQueryExecutor.shouldSlice(startTime, endTime)) {
+            return countByHourSliced(startTime, endTime);
+        }
+        String sql = switch (query) {
+            case EVENT_TYPE -> """
+                SELECT 
+                    event_type,
+                    count() AS event_count,
+                    uniqExact(user_id) AS unique_users,
+                    avg(duration) AS avg_duration,
+                    sum(duration) AS total_duration
+                FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                GROUP BY event_type
+                ORDER BY event_count DESC
+                """;
+            case HOURLY -> """
+                SELECT 
+                    toStartOfHour(event_time) AS hour_time,
+                    count() AS event_count,
+                    uniqExact(user_id) AS unique_users,
+                    avg(duration) AS avg_duration
+                FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                GROUP BY hour_time
+                ORDER BY hour_time
+                """;
+            case DEVICE_TYPE -> """
+                SELECT 
+                    device_type,
+                    count() AS event_count,
+                    uniqExact(user_id) AS unique_users,
+                    avg(duration) AS avg_duration
+                FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                GROUP BY device_type
+                ORDER BY event_count DESC
+                """;
+        };
 
         return jdbcTemplate.queryForList(sql,
                 startTime.format(DATE_TIME_FORMATTER),
@@ -197,24 +913,30 @@ public class ClickHouseDataService {
     }
 
     /**
-     * 按设备类型统计
+     * 按月时间片并行统计每小时事件数
+     * 
+     * 小时桶不会跨月，各时间片的结果互不重叠（含uniqExact），按时间片顺序拼接即为完整结果。
+     * 按事件类型、设备类型分组时去重人数不能跨时间片相加，这两个查询不拆分（宽范围时通常已路由到预聚合表）。
      */
-    public List<Map<String, Object>> countByDeviceType(LocalDateTime startTime, LocalDateTime endTime) {
+    private List<Map<String, Object>> countByHourSliced(LocalDateTime startTime, LocalDateTime endTime) {
         String sql = """
             SELECT 
-                device_type,
+                toStartOfHour(event_time) AS hour_time,
                 count() AS event_count,
                 uniqExact(user_id) AS unique_users,
                 avg(duration) AS avg_duration
             FROM user_behavior_log
-            WHERE event_time >= ? AND event_time <= ?
-            GROUP BY device_type
-            ORDER BY event_count DESC
+            WHERE event_time >= ? AND event_time < ?
+            GROUP BY hour_time
+            ORDER BY hour_time
             """;
-
-        return jdbcTemplate.queryForList(sql,
-                startTime.format(DATE_TIME_FORMATTER),
-                endTime.format(DATE_TIME_FORMATTER));
+        List<List<Map<String, Object>>> parts = slicedQueryExecutor.execute("hourly",
+                TimeSlice.monthly(startTime, endTime),
+                (slice, context) -> context.queryForList(sql,
+                        slice.from().format(DATE_TIME_FORMATTER), slice.to().format(DATE_TIME_FORMATTER)));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        parts.forEach(rows::addAll);
+        return rows;
     }
 
     /**
@@ -223,9 +945,88 @@ public class ClickHouseDataService {
      * 生产环境典型场景：
      * - 分析最受欢迎的页面
      * - 优化页面性能
+     * 
+     * 经结果缓存执行（缓存键含topN）
      */
     public List<Map<String, Object>> getTopPages(
             LocalDateTime startTime, LocalDateTime endTime, int topN) {
+        return getTopPages(startTime, endTime, topN, Accuracy.AUTO);
+    }
+
+    /**
+     * 查询热门页面（指定精度，AUTO与EXACT相同）
+     * 
+     * - COMBINED / HLL12：先用topK在固定大小的状态中选出2倍topN个候选页面，再只对候选页面计数和近似去重，
+     *   不需要为每个页面保存去重集合；view_count精确，排名靠后的页面可能因topK近似而遗漏
+     * - SAMPLED：在抽样表上GROUP BY，计数和去重人数按抽样系数放大，逐行返回relative_error
+     */
+    public List<Map<String, Object>> getTopPages(
+            LocalDateTime startTime, LocalDateTime endTime, int topN, Accuracy accuracy) {
+        return switch (accuracy) {
+            case AUTO, EXACT -> resultCache.get("top-pages", startTime, endTime, List.of(topN),
+                    () -> queryTopPages(startTime, endTime, topN));
+            case SAMPLED -> resultCache.get("top-pages", startTime, endTime, List.of(topN, accuracy.name(), sampleRate),
+                    () -> queryTopPagesApprox(startTime, endTime, topN, accuracy));
+            default -> resultCache.get("top-pages", startTime, endTime, List.of(topN, accuracy.name()),
+                    () -> queryTopPagesApprox(startTime, endTime, topN, accuracy));
+        };
+    }
+
+    private List<Map<String, Object>> queryTopPagesApprox(LocalDateTime startTime, LocalDateTime endTime, int topN,
+                                                          Accuracy accuracy) {
+        if (topN <= 0) {
+            throw new IllegalArgumentException("topN 须大于0: " + topN);
+        }
+        String start = startTime.format(DATE_TIME_FORMATTER);
+        String end = endTime.format(DATE_TIME_FORMATTER);
+        if (accuracy == Accuracy.SAMPLED) {
+            String rate = sampleRateLiteral();
+            String sql = """
+                SELECT
+                    page_url,
+                    round(sum(_sample_factor)) AS view_count,
+                    round(uniqCombined(user_id) * any(_sample_factor)) AS unique_visitors,
+                    avg(duration) AS avg_duration,
+                    sqrt((1 - %s) / greatest(uniqCombined(user_id), 1)) AS relative_error
+                FROM user_behavior_log_sampled SAMPLE %s
+                WHERE event_time >= ? AND event_time <= ?
+                AND event_type = 'page_view'
+                GROUP BY page_url
+                ORDER BY view_count DESC
+                LIMIT ?
+                """.formatted(rate, rate);
+            return jdbcTemplate.queryForList(sql, start, end, topN);
+        }
+
+        String sql = """
+            SELECT
+                page_url,
+                count() AS view_count,
+                %s(user_id) AS unique_visitors,
+                avg(duration) AS avg_duration
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time <= ?
+            AND event_type = 'page_view'
+            AND page_url IN (
+                SELECT arrayJoin(topK(%d)(page_url))
+                FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                AND event_type = 'page_view'
+            )
+            GROUP BY page_url
+            ORDER BY view_count DESC
+            LIMIT ?
+            """.formatted(accuracy.getUniqFunction(), topN * 2);
+        return jdbcTemplate.queryForList(sql, start, end, start, end, topN);
+    }
+
+    private List<Map<String, Object>> queryTopPages(LocalDateTime startTime, LocalDateTime endTime, int topN) {
+        if (slicedQueryExecutor.shouldSlice(startTime, endTime)) {
+            List<Map<String, Object>> rows = queryTopPagesSliced(startTime, endTime, topN);
+            if (rows != null) {
+                return rows;
+            }
+        }
         String sql = """
             SELECT 
                 page_url,
@@ -246,6 +1047,119 @@ public class ClickHouseDataService {
                 topN);
     }
 
+    /**
+     * 并行查询热门页面（精确结果）
+     * 
+     * 各时间片的前N名合并后不一定是全局前N名（某页面可能在每个月都排第N+1），分两步执行：
+     * 1. 按月时间片并行取各页面浏览数，每片最多top-pages-slice-limit个页面。
+     *    被截断的时间片中未返回的页面浏览数不超过第一个被截掉的页面（阈值），
+     *    每个页面的浏览数下界为已返回的合计，上界再加上未返回它的时间片的阈值；
+     *    按下界取前N名，其余页面（含从未返回的）上界都不超过第N名的下界时，前N名确定，否则返回null走单条查询
+     * 2. 只对这N个页面按cityHash64(user_id)分桶并行计算浏览数、去重人数和总停留时长：
+     *    各桶用户互不重叠，去重人数可以直接相加。每个桶都要扫描整个时间范围（按页面过滤），
+     *    用重复读取换取多线程并行，服务器并发富余时更快
+     */
+    private List<Map<String, Object>> queryTopPagesSliced(LocalDateTime startTime, LocalDateTime endTime, int topN) {
+        int sliceLimit = Math.max(topPagesSliceLimit, topN);
+        String countSql = """
+            SELECT page_url, count() AS views
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time < ?
+            AND event_type = 'page_view'
+            GROUP BY page_url
+            ORDER BY views DESC
+            LIMIT ?
+            """;
+        List<List<Map<String, Object>>> slices = slicedQueryExecutor.execute("top-pages-candidates",
+                TimeSlice.monthly(startTime, endTime),
+                (slice, context) -> context.queryForList(countSql,
+                        slice.from().format(DATE_TIME_FORMATTER), slice.to().format(DATE_TIME_FORMATTER),
+                        sliceLimit + 1));
+
+        Map<String, Long> lower = new HashMap<>();
+        Map<String, Long> seenThreshold = new HashMap<>();
+        long totalThreshold = 0;
+        for (List<Map<String, Object>> rows : slices) {
+            long threshold = rows.size() > sliceLimit ? ((Number) rows.get(sliceLimit).get("views")).longValue() : 0;
+            totalThreshold += threshold;
+            for (Map<String, Object> row : rows.subList(0, Math.min(rows.size(), sliceLimit))) {
+                String page = String.valueOf(row.get("page_url"));
+                lower.merge(page, ((Number) row.get("views")).longValue(), Long::sum);
+                seenThreshold.merge(page, threshold, Long::sum);
+            }
+        }
+
+        List<String> ranked = new ArrayList<>(lower.keySet());
+        ranked.sort(Comparator.comparing((String page) -> -lower.get(page)).thenComparing(page -> page));
+        List<String> top = ranked.subList(0, Math.min(topN, ranked.size()));
+        long kth = top.size() < topN ? 0 : lower.get(top.get(top.size() - 1));
+        boolean exact = totalThreshold <= kth;
+        for (String page : ranked.subList(top.size(), ranked.size())) {
+            if (lower.get(page) + totalThreshold - seenThreshold.get(page) > kth) {
+                exact = false;
+                break;
+            }
+        }
+        if (!exact) {
+            log.warn("热门页面时间片截断后无法确定前{}名（阈值合计={}, 第N名下界={}），改用单条查询", topN, totalThreshold, kth);
+            return null;
+        }
+        if (top.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String detailSql = """
+            SELECT
+                page_url,
+                count() AS views,
+                uniqExact(user_id) AS visitors,
+                sum(duration) AS total_duration
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time <= ?
+            AND event_type = 'page_view'
+            AND page_url IN (%s)
+            AND cityHash64(user_id) %% ? = ?
+            GROUP BY page_url
+            """.formatted(String.join(", ", Collections.nCopies(top.size(), "?")));
+        int buckets = slicedQueryExecutor.getParallelism();
+        List<Integer> bucketIds = new ArrayList<>();
+        for (int i = 0; i < buckets; i++) {
+            bucketIds.add(i);
+        }
+        List<List<Map<String, Object>>> parts = slicedQueryExecutor.execute("top-pages-detail", bucketIds,
+                (bucket, context) -> {
+                    List<Object> args = new ArrayList<>();
+                    args.add(startTime.format(DATE_TIME_FORMATTER));
+                    args.add(endTime.format(DATE_TIME_FORMATTER));
+                    args.addAll(top);
+                    args.add(buckets);
+                    args.add(bucket);
+                    return context.queryForList(detailSql, args.toArray());
+                });
+
+        Map<String, long[]> totals = new HashMap<>();
+        for (List<Map<String, Object>> rows : parts) {
+            for (Map<String, Object> row : rows) {
+                long[] total = totals.computeIfAbsent(String.valueOf(row.get("page_url")), page -> new long[3]);
+                total[0] += ((Number) row.get("views")).longValue();
+                total[1] += ((Number) row.get("visitors")).longValue();
+                total[2] += ((Number) row.get("total_duration")).longValue();
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String page : top) {
+            long[] total = totals.getOrDefault(page, new long[3]);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("page_url", page);
+            row.put("view_count", total[0]);
+            row.put("unique_visitors", total[1]);
+            row.put("avg_duration", total[0] == 0 ? 0.0 : (double) total[2] / total[0]);
+            result.add(row);
+        }
+        result.sort(Comparator.comparing((Map<String, Object> row) -> -(long) row.get("view_count")));
+        return result;
+    }
+
     /**
      * 用户行为路径分析
      * 
@@ -278,6 +1192,8 @@ public class ClickHouseDataService {
      * 生产环境优化策略：
      * - 物化视图已预聚合，查询速度更快
      * - 适合实时报表场景
+     * 
+     * 注意：SummingMergeTree合并时会把各部分的uniqExact结果相加，total_users偏大；需要去重人数时使用queryRollup
      */
     public List<Map<String, Object>> queryFromMaterializedView(
             LocalDateTime startTime, LocalDateTime endTime) {
@@ -300,6 +1216,141 @@ public class ClickHouseDataService {
                 endTime.format(DATE_TIME_FORMATTER));
     }
 
+    /**
+     * 从预聚合表查询（-Merge合并聚合状态）
+     * 
+     * 生产环境要点：
+     * - 各列保存的是聚合中间状态，必须用对应的-Merge函数读取：uniqMerge、sumMerge、quantilesMerge
+     * - 同一时间桶、维度可能存在多行尚未合并的状态，查询时GROUP BY再合并，结果与后台合并是否完成无关
+     * - 按桶起始时间过滤：bucket_time在[startTime, endTime]内的桶整桶计入，起止时间应与桶边界对齐
+     * - unique_users为uniq近似值（误差约1%），原始表查询使用uniqExact
+     * 
+     * @param resolution 读取的预聚合表
+     * @param timeBucket 结果的时间分组粒度（不能细于resolution），为null时不按时间分组
+     * @param dimension 分组维度（event_type / device_type），为null时不按维度分组
+     */
+    public List<Map<String, Object>> queryRollup(RollupResolution resolution, LocalDateTime startTime,
+                                                 LocalDateTime endTime, RollupResolution timeBucket, String dimension) {
+        if (timeBucket != null && timeBucket.compareTo(resolution) < 0) {
+            throw new IllegalArgumentException("时间分组粒度不能细于预聚合表粒度: " + timeBucket + " < " + resolution);
+        }
+        if (dimension != null && !ROLLUP_DIMENSIONS.contains(dimension)) {
+            throw new IllegalArgumentException("不支持的分组维度: " + dimension);
+        }
+
+        List<String> keys = new ArrayList<>();
+        StringBuilder select = new StringBuilder("SELECT ");
+        if (timeBucket != null) {
+            select.append(timeBucket == resolution ? "bucket_time" : timeBucket.getStartOfFunction() + "(bucket_time)")
+                    .append(" AS bucket_start, ");
+            keys.add("bucket_start");
+        }
+        if (dimension != null) {
+            select.append(dimension).append(", ");
+            keys.add(dimension);
+        }
+        select.append("""
+                sum(events) AS event_count,
+                uniqMerge(users) AS unique_users,
+                sumMerge(duration_sum) AS total_duration,
+                if(event_count = 0, 0, total_duration / event_count) AS avg_duration,
+                quantilesMerge(0.5, 0.9, 0.99)(duration_quantiles) AS duration_percentiles
+            FROM %s
+            WHERE bucket_time >= ? AND bucket_time <= ?
+            """.formatted(resolution.getTable()));
+        if (!keys.isEmpty()) {
+            String groupBy = String.join(", ", keys);
+            select.append("GROUP BY ").append(groupBy).append('\n');
+            select.append(timeBucket != null ? "ORDER BY " + groupBy : "ORDER BY event_count DESC");
+        }
+
+        return jdbcTemplate.queryForList(select.toString(),
+                startTime.format(DATE_TIME_FORMATTER),
+                endTime.format(DATE_TIME_FORMATTER));
+    }
+
+    /**
+     * 用原始表数据补齐预聚合表
+     * 
+     * 写入分钟表后由物化视图级联写入小时表和天表。
+     * 只能补物化视图创建之前的数据：结束时间超过覆盖起点时截断到覆盖起点（之后的数据物化视图已写入），
+     * 起始时间不早于覆盖起点时拒绝。重复补同一时间段会使计数翻倍（补数前可先DROP对应分区）。
+     * 
+     * @return 写入分钟表的行数
+     */
+    public long backfillRollups(LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime covered = rollupCoveredFrom();
+        if (covered != null) {
+            if (!startTime.isBefore(covered)) {
+                throw new IllegalArgumentException("补数区间已由物化视图覆盖（覆盖起点 " + covered + "）");
+            }
+            if (endTime.isAfter(covered)) {
+                log.info("补数结束时间截断到预聚合表覆盖起点: {} -> {}", endTime, covered);
+                endTime = covered;
+            }
+        }
+        String sql = """
+            INSERT INTO %s
+            SELECT
+                toStartOfMinute(event_time) AS bucket_time,
+                event_type,
+                device_type,
+                count() AS events,
+                uniqState(user_id) AS users,
+                sumState(duration) AS duration_sum,
+                quantilesState(0.5, 0.9, 0.99)(duration) AS duration_quantiles
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time < ?
+            GROUP BY bucket_time, event_type, device_type
+            """.formatted(RollupResolution.MINUTE.getTable());
+
+        try {
+            int rows = jdbcTemplate.update(sql,
+                    startTime.format(DATE_TIME_FORMATTER),
+                    endTime.format(DATE_TIME_FORMATTER));
+            log.info("预聚合表补数成功: {} ~ {}, 分钟表行数={}", startTime, endTime, rows);
+            extendRollupCoverage(startTime, endTime);
+            resultCache.invalidate(startTime, endTime);
+            return rows;
+        } catch (Exception e) {
+            log.error("预聚合表补数失败", e);
+            throw new RuntimeException("预聚合表补数失败", e);
+        }
+    }
+
+    /**
+     * 写入成功后按本批event_time范围失效查询结果缓存
+     */
+    private void invalidateCache(List<UserBehaviorLog> logs) {
+        LocalDateTime min = null;
+        LocalDateTime max = null;
+        for (UserBehaviorLog row : logs) {
+            LocalDateTime time = row.getEventTime();
+            if (time == null) {
+                continue;
+            }
+            if (min == null || time.isBefore(min)) {
+                min = time;
+            }
+            if (max == null || time.isAfter(max)) {
+                max = time;
+            }
+        }
+        resultCache.invalidate(min, max);
+    }
+
+    /**
+     * 补数区间与当前覆盖起点相接时，把覆盖起点前移到补数起点
+     */
+    private void extendRollupCoverage(LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime covered = rollupCoveredFrom;
+        if (covered != null && rollupCoveredFromConfig.isBlank()
+                && startTime.isBefore(covered) && !endTime.isBefore(covered)) {
+            rollupCoveredFrom = RollupResolution.MINUTE.ceil(startTime.truncatedTo(ChronoUnit.SECONDS));
+            log.info("预聚合表覆盖起点前移: {} -> {}", covered, rollupCoveredFrom);
+        }
+    }
+
     /**
      * 获取表统计信息
      */
@@ -348,4 +1399,46 @@ public class ClickHouseDataService {
 
         return jdbcTemplate.queryForList(sql);
     }
+
+    /**
+     * 按接口统计查询开销（system.query_log）
+     * 
+     * 生产环境监控要点：
+     * - 每条查询的log_comment为发起请求的接口（见QueryTag），按接口聚合找出读取量最大、最慢、最耗内存的接口
+     * - 耗时取p50 / p99，读取量取总量和单次均值，内存取单次均值和最大值
+     * - topQuery为该接口读取字节数最多的一次查询（已规范化，字面量替换为?）
+     * - query_log默认每7.5秒刷盘一次，flush=true时先SYSTEM FLUSH LOGS再统计
+     * 
+     * @param hours 统计最近多少小时
+     */
+    public List<Map<String, Object>> getQueryProfile(int hours, boolean flush) {
+        if (flush) {
+            jdbcTemplate.execute("SYSTEM FLUSH LOGS");
+        }
+        String sql = """
+            SELECT
+                substring(log_comment, length(?) + 1) AS endpoint,
+                count() AS queries,
+                countIf(type != 'QueryFinish') AS failed,
+                round(quantile(0.5)(query_duration_ms), 1) AS p50_ms,
+                round(quantile(0.99)(query_duration_ms), 1) AS p99_ms,
+                sum(read_rows) AS total_read_rows,
+                sum(read_bytes) AS total_read_bytes,
+                formatReadableSize(sum(read_bytes)) AS read_size,
+                round(avg(read_rows)) AS avg_read_rows,
+                sum(written_rows) AS total_written_rows,
+                formatReadableSize(avg(memory_usage)) AS avg_memory,
+                formatReadableSize(max(memory_usage)) AS max_memory,
+                max(memory_usage) AS max_memory_bytes,
+                substring(argMax(normalizeQuery(query), read_bytes), 1, 500) AS top_query
+            FROM system.query_log
+            WHERE event_time >= now() - INTERVAL ? HOUR
+            AND type IN ('QueryFinish', 'ExceptionWhileProcessing')
+            AND startsWith(log_comment, ?)
+            GROUP BY endpoint
+            ORDER BY total_read_bytes DESC
+            """;
+
+        return jdbcTemplate.queryForList(sql, QueryTag.PREFIX, hours, QueryTag.PREFIX);
+    }
 }
@@ -1,10 +1,24 @@
 package com.example.clickhouse.service;
 
+import com.example.clickhouse.cache.QueryResultCache;
+import com.example.clickhouse.rollup.RollupResolution;
+import com.example.clickhouse.schema.IndexCandidate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * ClickHouse表管理服务
  * 
@@ -22,6 +36,17 @@ public class ClickHouseTableService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private QueryResultCache resultCache;
+
+    @Value("${clickhouse.cluster.name:example_cluster}")
+    private String clusterName;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final Pattern INDEX_DEFINITION = Pattern.compile("\\b(INDEX|PROJECTION)\\s+`?(\\w+)`?");
+
     /**
      * 创建用户行为日志表
      * 
@@ -64,6 +89,9 @@ public class ClickHouseTableService {
      * - 物化视图用于预聚合常用查询
      * - 减少实时计算压力
      * - 提高查询性能
+     * 
+     * 注意：SummingMergeTree在后台合并时会把uniqExact的结果直接相加，
+     * 合并后的unique_users偏大，去重人数请使用createRollupTables创建的AggregatingMergeTree预聚合表
      */
     public void createMaterializedView() {
         // 按小时统计用户行为
@@ -92,14 +120,303 @@ public class ClickHouseTableService {
         }
     }
 
+    /**
+     * 创建多粒度预聚合表（分钟 / 小时 / 天）
+     * 
+     * 生产环境要点：
+     * - ENGINE: AggregatingMergeTree，列中保存聚合函数的中间状态，后台合并时按状态合并，结果始终正确
+     * - 去重人数用uniqState（近似去重，误差约1%，状态大小固定），时长用sumState，分位数用quantilesState
+     * - 事件数用SimpleAggregateFunction(sum)，不需要保存状态
+     * - 分钟表由原始表的物化视图写入，小时表、天表分别由上一级的物化视图级联写入，每级只处理上一级的少量行
+     * - 物化视图只处理创建之后写入的数据，已有数据使用backfillRollups补数
+     */
+    public void createRollupTables() {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            String table = """
+                CREATE TABLE IF NOT EXISTS %s (
+                    bucket_time DateTime,
+                    event_type LowCardinality(String),
+                    device_type LowCardinality(String),
+                    events SimpleAggregateFunction(sum, UInt64),
+                    users AggregateFunction(uniq, String),
+                    duration_sum AggregateFunction(sum, Int32),
+                    duration_quantiles AggregateFunction(quantiles(0.5, 0.9, 0.99), Int32)
+                ) ENGINE = AggregatingMergeTree()
+                PARTITION BY toYYYYMM(bucket_time)
+                ORDER BY (bucket_time, event_type, device_type)
+                TTL bucket_time + INTERVAL %d DAY
+                """.formatted(resolution.getTable(), resolution.getRetentionDays());
+            try {
+                jdbcTemplate.execute(table);
+                jdbcTemplate.execute(rollupViewSql(resolution));
+                log.info("预聚合表创建成功: {}", resolution.getTable());
+            } catch (Exception e) {
+                log.error("创建预聚合表失败: {}", resolution.getTable(), e);
+                throw new RuntimeException("创建预聚合表失败", e);
+            }
+        }
+    }
+
+    /**
+     * 预聚合表的物化视图
+     * 级联的视图先在子查询中给源列改名，避免结果别名与源列同名（bucket_time、events等）造成循环别名
+     */
+    private String rollupViewSql(RollupResolution resolution) {
+        RollupResolution source = resolution.finer();
+        if (source == null) {
+            return """
+                CREATE MATERIALIZED VIEW IF NOT EXISTS %s TO %s AS
+                SELECT
+                    %s(event_time) AS bucket_time,
+                    event_type,
+                    device_type,
+                    count() AS events,
+                    uniqState(user_id) AS users,
+                    sumState(duration) AS duration_sum,
+                    quantilesState(0.5, 0.9, 0.99)(duration) AS duration_quantiles
+                FROM user_behavior_log
+                GROUP BY bucket_time, event_type, device_type
+                """.formatted(resolution.getViewName(), resolution.getTable(), resolution.getStartOfFunction());
+        }
+        return """
+            CREATE MATERIALIZED VIEW IF NOT EXISTS %s TO %s AS
+            SELECT
+                %s(src_time) AS bucket_time,
+                event_type,
+                device_type,
+                sum(src_events) AS events,
+                uniqMergeState(src_users) AS users,
+                sumMergeState(src_duration_sum) AS duration_sum,
+                quantilesMergeState(0.5, 0.9, 0.99)(src_duration_quantiles) AS duration_quantiles
+            FROM (
+                SELECT
+                    bucket_time AS src_time,
+                    event_type,
+                    device_type,
+                    events AS src_events,
+                    users AS src_users,
+                    duration_sum AS src_duration_sum,
+                    duration_quantiles AS src_duration_quantiles
+                FROM %s
+            )
+            GROUP BY bucket_time, event_type, device_type
+            """.formatted(resolution.getViewName(), resolution.getTable(), resolution.getStartOfFunction(),
+                source.getTable());
+    }
+
+    /**
+     * 创建按用户抽样的副本表（SAMPLED精度使用）
+     * 
+     * 生产环境要点：
+     * - SAMPLE BY表达式必须是主键的一部分且为无符号整数；原表主键(event_time, user_id)无法修改，因此另建副本表
+     * - ORDER BY (toStartOfHour(event_time), cityHash64(user_id), event_time)：每个小时内按用户哈希排序，
+     *   SAMPLE 0.1只读每个小时前10%哈希区间的granule；若抽样键排在秒级event_time之后则几乎跳不过数据
+     * - 抽样单位为用户，同一用户的事件同进同出，去重人数可按比例放大
+     * - 由物化视图同步写入，存储约为原表一倍；TTL与原表一致
+     * - 物化视图只处理创建之后的写入，已有数据用backfillSampledTable补数
+     */
+    public void createSampledTable() {
+        String tableSql = """
+            CREATE TABLE IF NOT EXISTS user_behavior_log_sampled (
+                event_time DateTime,
+                user_id String,
+                event_type String,
+                page_url String,
+                duration Int32,
+                device_type String,
+                ip_address String
+            ) ENGINE = MergeTree()
+            PARTITION BY toYYYYMM(event_time)
+            ORDER BY (toStartOfHour(event_time), cityHash64(user_id), event_time)
+            SAMPLE BY cityHash64(user_id)
+            TTL event_time + INTERVAL 90 DAY
+            SETTINGS index_granularity = 8192
+            """;
+        String viewSql = """
+            CREATE MATERIALIZED VIEW IF NOT EXISTS user_behavior_log_sampled_mv TO user_behavior_log_sampled AS
+            SELECT event_time, user_id, event_type, page_url, duration, device_type, ip_address
+            FROM user_behavior_log
+            """;
+
+        try {
+            jdbcTemplate.execute(tableSql);
+            jdbcTemplate.execute(viewSql);
+            log.info("抽样表创建成功");
+        } catch (Exception e) {
+            log.error("创建抽样表失败", e);
+            throw new RuntimeException("创建抽样表失败", e);
+        }
+    }
+
+    /**
+     * 用原始表数据补齐抽样表（只补物化视图创建之前的数据，重复补数会产生重复行）
+     * 
+     * @return 写入行数
+     */
+    public long backfillSampledTable(LocalDateTime startTime, LocalDateTime endTime) {
+        String sql = """
+            INSERT INTO user_behavior_log_sampled
+            SELECT event_time, user_id, event_type, page_url, duration, device_type, ip_address
+            FROM user_behavior_log
+            WHERE event_time >= ? AND event_time < ?
+            """;
+        try {
+            int rows = jdbcTemplate.update(sql,
+                    startTime.format(DATE_TIME_FORMATTER),
+                    endTime.format(DATE_TIME_FORMATTER));
+            log.info("抽样表补数成功: {} ~ {}, 行数={}", startTime, endTime, rows);
+            resultCache.invalidate(startTime, endTime);
+            return rows;
+        } catch (Exception e) {
+            log.error("抽样表补数失败", e);
+            throw new RuntimeException("抽样表补数失败", e);
+        }
+    }
+
+    /**
+     * 为user_behavior_log添加跳数索引或投影
+     * 
+     * 生产环境要点：
+     * - ADD只修改表结构，之后写入的分区片段才会生成索引 / 投影；已有数据需MATERIALIZE（后台mutation，按分区重写，耗IO）
+     * - MATERIALIZE进度见system.mutations（listIndexes返回未完成的mutation），完成前查询对旧片段仍读全量
+     * - 投影额外占用存储并降低写入速度，只为高频且扫描量大的查询添加
+     * 
+     * @param materialize 是否立即对已有数据生成
+     */
+    public void addIndexCandidate(IndexCandidate candidate, boolean materialize) {
+        String keyword = candidate.getKind().getKeyword();
+        String sql = "ALTER TABLE user_behavior_log ADD " + keyword + " IF NOT EXISTS "
+                + candidate.getName() + " " + candidate.getDefinition();
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("添加{}成功: {}", keyword, candidate.getName());
+            if (materialize) {
+                jdbcTemplate.execute("ALTER TABLE user_behavior_log MATERIALIZE " + keyword + " " + candidate.getName());
+                log.info("已提交{}物化mutation: {}", keyword, candidate.getName());
+            }
+        } catch (Exception e) {
+            log.error("添加{}失败: {}", keyword, candidate.getName(), e);
+            throw new RuntimeException("添加" + keyword + "失败", e);
+        }
+    }
+
+    /**
+     * 删除跳数索引或投影
+     */
+    public void dropIndexCandidate(IndexCandidate candidate) {
+        String keyword = candidate.getKind().getKeyword();
+        String sql = "ALTER TABLE user_behavior_log DROP " + keyword + " IF EXISTS " + candidate.getName();
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("删除{}成功: {}", keyword, candidate.getName());
+        } catch (Exception e) {
+            log.error("删除{}失败: {}", keyword, candidate.getName(), e);
+            throw new RuntimeException("删除" + keyword + "失败", e);
+        }
+    }
+
+    /**
+     * user_behavior_log上已定义的跳数索引和投影名称（解析建表语句）
+     */
+    public Set<String> definedIndexes() {
+        String sql = """
+            SELECT create_table_query
+            FROM system.tables
+            WHERE database = currentDatabase() AND name = 'user_behavior_log'
+            """;
+        Set<String> names = new HashSet<>();
+        for (String ddl : jdbcTemplate.queryForList(sql, String.class)) {
+            Matcher matcher = INDEX_DEFINITION.matcher(ddl);
+            while (matcher.find()) {
+                names.add(matcher.group(2));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 跳数索引、投影及相关mutation的状态
+     * 
+     * - indexes：system.data_skipping_indices（类型、表达式、粒度、压缩后大小）
+     * - projections：system.projection_parts中活跃片段的行数和大小，尚未物化的投影没有片段
+     * - pendingMutations：未完成的MATERIALIZE等mutation
+     */
+    public Map<String, Object> listIndexes() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("defined", definedIndexes());
+        result.put("indexes", jdbcTemplate.queryForList("""
+            SELECT name, type, expr, granularity, data_compressed_bytes
+            FROM system.data_skipping_indices
+            WHERE database = currentDatabase() AND table = 'user_behavior_log'
+            """));
+        result.put("projections", jdbcTemplate.queryForList("""
+            SELECT name, count() AS parts, sum(rows) AS total_rows, sum(data_compressed_bytes) AS compressed_bytes
+            FROM system.projection_parts
+            WHERE database = currentDatabase() AND table = 'user_behavior_log' AND active
+            GROUP BY name
+            """));
+        result.put("pendingMutations", jdbcTemplate.queryForList("""
+            SELECT mutation_id, command, create_time, parts_to_do, latest_fail_reason
+            FROM system.mutations
+            WHERE database = currentDatabase() AND table = 'user_behavior_log' AND NOT is_done
+            """));
+        return result;
+    }
+
     /**
      * 创建分布式表（集群环境）
      * 
-     * 注意：单机环境不需要，这里仅作演示
+     * 生产环境要点：
+     * - 每个节点一张本地表 user_behavior_log_local（ReplicatedMergeTree），结构、分区、排序键、TTL 与单机表一致；
+     *   ZooKeeper 路径按 {shard} 区分分片，同一分片内的副本以 {replica} 区分，宏在各节点 config.d 中配置
+     * - user_behavior_log_dist（Distributed）只是路由层，不存数据：查询并行下发到各分片再汇总
+     * - 分片键 CRC32(user_id)：同一用户的数据落在同一分片，客户端可用 java.util.zip.CRC32 算出相同分片，
+     *   从而绕过 Distributed 表直接写各分片本地表（见 ShardedUserBehaviorLogWriter）
+     * - ON CLUSTER 依赖 clickhouse-keeper / ZooKeeper 的分布式 DDL 队列，需在集群任一节点执行
+     * - 单机环境（未配置 remote_servers）执行会失败
      */
     public void createDistributedTable() {
-        // 分布式表需要集群环境，这里仅作示例
-        log.info("分布式表需要集群环境，单机环境跳过");
+        String localSql = """
+            CREATE TABLE IF NOT EXISTS user_behavior_log_local ON CLUSTER %s (
+                event_time DateTime,
+                user_id String,
+                event_type String,
+                page_url String,
+                duration Int32,
+                device_type String,
+                ip_address String
+            ) ENGINE = ReplicatedMergeTree('/clickhouse/tables/{shard}/{database}/user_behavior_log_local', '{replica}')
+            PARTITION BY toYYYYMM(event_time)
+            ORDER BY (event_time, user_id)
+            TTL event_time + INTERVAL 90 DAY
+            SETTINGS index_granularity = 8192
+            """.formatted(clusterName);
+        String distSql = """
+            CREATE TABLE IF NOT EXISTS user_behavior_log_dist ON CLUSTER %s
+            AS user_behavior_log_local
+            ENGINE = Distributed(%s, currentDatabase(), user_behavior_log_local, CRC32(user_id))
+            """.formatted(clusterName, clusterName);
+
+        try {
+            jdbcTemplate.execute(localSql);
+            jdbcTemplate.execute(distSql);
+            log.info("分布式表创建成功: cluster={}", clusterName);
+        } catch (Exception e) {
+            log.error("创建分布式表失败: cluster={}", clusterName, e);
+            throw new RuntimeException("创建分布式表失败", e);
+        }
+    }
+
+    /**
+     * 各分片的数据行数（通过 Distributed 表的虚拟列 _shard_num，从 1 开始）
+     */
+    public List<Map<String, Object>> shardRowCounts() {
+        return jdbcTemplate.queryForList("""
+            SELECT _shard_num AS shard, count() AS rows
+            FROM user_behavior_log_dist
+            GROUP BY shard
+            ORDER BY shard
+            """);
     }
 
     /**
@@ -0,0 +1,105 @@
+package com.example.clickhouse.service;
+
+import com.example.clickhouse.cluster.ShardedUserBehaviorLogWriter;
+import com.example.clickhouse.model.UserBehaviorLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * 集群写入对比测试
+ *
+ * 预先生成 rows 条日志，按 batchSize 一批依次用两种方式写入集群：
+ * - distributed：RowBinary 写 user_behavior_log_dist，insert_distributed_sync = 1，
+ *   由接收节点切分后同步转发到各分片，全部分片写完才返回（与直写的确认语义一致）
+ * - sharded：ShardedUserBehaviorLogWriter 在客户端按 CRC32(user_id) 拆分，并行直写各分片本地表
+ * 统计两种方式的 rows/s。测试数据的 user_id 以 bench_ 开头，测试后可按前缀清理。
+ */
+@Slf4j
+@Service
+public class ClusterInsertBenchmarkService {
+
+    private static final String[] EVENT_TYPES = {"page_view", "click", "purchase", "search"};
+    private static final String[] DEVICE_TYPES = {"mobile", "desktop", "tablet"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    @Autowired
+    private ShardedUserBehaviorLogWriter shardedWriter;
+
+    public Map<String, Object> compare(int rows, int batchSize) {
+        if (rows <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("rows和batchSize必须大于0: rows=" + rows + ", batchSize=" + batchSize);
+        }
+        List<List<UserBehaviorLog>> batches = new ArrayList<>();
+        for (int i = 0; i < rows; i += batchSize) {
+            batches.add(generate(Math.min(batchSize, rows - i)));
+        }
+        List<UserBehaviorLog> warmup = generate(Math.min(batchSize, 1000));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);
+        result.put("batchSize", batchSize);
+        result.put("shards", shardedWriter.shardCount());
+        Map<String, Object> distributed = run(batches, warmup, batch -> dataService.insertRowBinary(
+                jdbcTemplate.getDataSource(), "user_behavior_log_dist", "insert_distributed_sync = 1", batch));
+        Map<String, Object> sharded = run(batches, warmup, batch -> {
+            Map<String, Object> written = shardedWriter.write(batch);
+            if (!((List<?>) written.get("failedRows")).isEmpty()) {
+                throw new IllegalStateException("分片写入失败: " + written.get("shards"));
+            }
+        });
+        result.put("distributed", distributed);
+        result.put("sharded", sharded);
+        result.put("speedup", (double) ((Long) sharded.get("rowsPerSecond"))
+                / Math.max((Long) distributed.get("rowsPerSecond"), 1));
+        log.info("集群写入对比: rows={}, batchSize={}, distributed={}, sharded={}", rows, batchSize, distributed, sharded);
+        return result;
+    }
+
+    private Map<String, Object> run(List<List<UserBehaviorLog>> batches, List<UserBehaviorLog> warmup,
+                                    Consumer<List<UserBehaviorLog>> insert) {
+        insert.accept(warmup);
+        long rows = batches.stream().mapToLong(List::size).sum();
+        long start = System.nanoTime();
+        for (List<UserBehaviorLog> batch : batches) {
+            insert.accept(batch);
+        }
+        long nanos = System.nanoTime() - start;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("elapsedMillis", nanos / 1_000_000);
+        result.put("rowsPerSecond", rows * 1_000_000_000L / Math.max(nanos, 1));
+        return result;
+    }
+
+    private List<UserBehaviorLog> generate(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime hour = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+        List<UserBehaviorLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            logs.add(new UserBehaviorLog(
+                    hour.plusSeconds(random.nextInt(3600)),
+                    "bench_" + random.nextInt(100_000),
+                    EVENT_TYPES[random.nextInt(EVENT_TYPES.length)],
+                    "/page/" + random.nextInt(1000),
+                    random.nextInt(300),
+                    DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)],
+                    "10.0." + random.nextInt(256) + "." + random.nextInt(256)));
+        }
+        return logs;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.clickhouse.service;
+
+import com.example.clickhouse.export.ExportFormat;
+import com.example.clickhouse.export.UserBehaviorLogExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式导出内存测试
+ *
+ * 用 numbers() 生成 rows 行模拟日志（默认 1000 万），经流式查询 + 导出器写入一个只计字节数的输出流，
+ * 导出期间每 200ms 采样一次堆使用量。流式导出时堆使用量在 GC 间小幅起伏，
+ * 峰值不随行数增长；用 queryForList 物化同样的行数时每行一个 HashMap，1000 万行需要数 GB 堆。
+ * 返回行数、输出字节数、rows/s、堆使用量采样（起始 / 最小 / 最大 / 结束及按时间分段的最大值）和 GC 次数。
+ */
+@Slf4j
+@Service
+public class ExportBenchmarkService {
+
+    private static final long SAMPLE_MILLIS = 200;
+    private static final int PROFILE_SEGMENTS = 10;
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    public Map<String, Object> exportSynthetic(long rows, ExportFormat format) throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<Long> samples = new ArrayList<>();
+        long gcBefore = gcCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "clickhouse-export-heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            synchronized (samples) {
+                samples.add(memory.getHeapMemoryUsage().getUsed());
+            }
+        }, 0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        CountingOutputStream out = new CountingOutputStream();
+        long start = System.nanoTime();
+        long exported;
+        try {
+            UserBehaviorLogExporter exporter = new UserBehaviorLogExporter(format, out);
+            exported = dataService.streamSyntheticLogs(rows, exporter::write);
+            exporter.finish();
+        } finally {
+            sampler.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("format", format.name());
+        result.put("rows", exported);
+        result.put("outputMB", out.count / 1024 / 1024);
+        result.put("elapsedMillis", nanos / 1_000_000);
+        result.put("rowsPerSecond", exported * 1_000_000_000L / Math.max(nanos, 1));
+        result.put("gcCount", gcCount() - gcBefore);
+        result.put("maxHeapMB", memory.getHeapMemoryUsage().getMax() / 1024 / 1024);
+        synchronized (samples) {
+            result.put("heapUsedMB", heapProfile(heapBefore, samples));
+        }
+        return result;
+    }
+
+    /**
+     * 把采样按时间均分为若干段，输出每段的最大值；导出前后段的峰值接近即说明内存不随行数增长
+     */
+    private Map<String, Object> heapProfile(long heapBefore, List<Long> samples) {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("start", heapBefore / 1024 / 1024);
+        if (samples.isEmpty()) {
+            return profile;
+        }
+        profile.put("min", samples.stream().mapToLong(Long::longValue).min().orElse(0) / 1024 / 1024);
+        profile.put("max", samples.stream().mapToLong(Long::longValue).max().orElse(0) / 1024 / 1024);
+        profile.put("end", samples.get(samples.size() - 1) / 1024 / 1024);
+        List<Long> segmentMax = new ArrayList<>();
+        int segments = Math.min(PROFILE_SEGMENTS, samples.size());
+        for (int i = 0; i < segments; i++) {
+            int from = i * samples.size() / segments;
+            int to = (i + 1) * samples.size() / segments;
+            segmentMax.add(samples.subList(from, to).stream().mapToLong(Long::longValue).max().orElse(0) / 1024 / 1024);
+        }
+        profile.put("segmentMax", segmentMax);
+        profile.put("samples", samples.size());
+        return profile;
+    }
+
+    private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    /**
+     * 丢弃数据、只统计字节数的输出流
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.clickhouse.service;
+
+import com.example.clickhouse.schema.IndexCandidate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 跳数索引 / 投影建议
+ *
+ * 1. 从 system.query_log 取最近 hours 小时内读取 user_behavior_log 的 SELECT，按 normalized_query_hash 归并为查询形态，
+ *    统计执行次数和读取行数（本服务自身的测量查询以 log_comment 排除）
+ * 2. 对每个候选索引 / 投影，找出按其过滤列过滤的查询形态，按累计读取行数排序；
+ *    尚未定义且有匹配查询的标记为建议添加
+ * 3. 已定义的候选可做前后对比：用时间范围内的真实取值构造同形态的查询，
+ *    分别关闭（use_skip_indexes / optimize_use_projections = 0）和开启执行，
+ *    从 system.query_log 读取两次的 read_rows、read_bytes、耗时及实际使用的投影
+ * 需要 query_log 已开启（默认开启）。对比前 MATERIALIZE 需已完成，否则旧片段仍读全量。
+ */
+@Slf4j
+@Service
+public class IndexAdvisorService {
+
+    private static final String PROBE_COMMENT_PREFIX = "index-advisor:";
+    private static final int SHAPE_LIMIT = 100;
+    private static final int SAMPLE_QUERIES = 3;
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClickHouseTableService tableService;
+
+    /**
+     * @param hours 分析最近多少小时的查询日志
+     * @param measure 是否对已定义的候选做前后对比（用 startTime ~ endTime 的数据）
+     */
+    public Map<String, Object> analyze(int hours, boolean measure, LocalDateTime startTime, LocalDateTime endTime) {
+        String sql = """
+            SELECT
+                normalized_query_hash AS shape,
+                any(normalizeQuery(query)) AS sample,
+                count() AS executions,
+                sum(read_rows) AS total_read_rows,
+                avg(read_rows) AS avg_read_rows,
+                avg(query_duration_ms) AS avg_duration_ms
+            FROM system.query_log
+            WHERE type = 'QueryFinish'
+            AND query_kind = 'Select'
+            AND event_time >= now() - INTERVAL ? HOUR
+            AND has(tables, currentDatabase() || '.user_behavior_log')
+            AND NOT startsWith(log_comment, ?)
+            GROUP BY shape
+            ORDER BY total_read_rows DESC
+            LIMIT ?
+            """;
+        List<Map<String, Object>> shapes = jdbcTemplate.queryForList(sql, hours, PROBE_COMMENT_PREFIX, SHAPE_LIMIT);
+        Set<String> defined = tableService.definedIndexes();
+
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (IndexCandidate candidate : IndexCandidate.values()) {
+            long executions = 0;
+            long readRows = 0;
+            List<String> samples = new ArrayList<>();
+            for (Map<String, Object> shape : shapes) {
+                String query = String.valueOf(shape.get("sample"));
+                if (!candidate.matches(query)) {
+                    continue;
+                }
+                executions += ((Number) shape.get("executions")).longValue();
+                readRows += ((Number) shape.get("total_read_rows")).longValue();
+                if (samples.size() < SAMPLE_QUERIES) {
+                    samples.add(query);
+                }
+            }
+
+            boolean exists = defined.contains(candidate.getName());
+            Map<String, Object> suggestion = new LinkedHashMap<>();
+            suggestion.put("name", candidate.getName());
+            suggestion.put("kind", candidate.getKind().name());
+            suggestion.put("column", candidate.getColumn());
+            suggestion.put("description", candidate.getDescription());
+            suggestion.put("ddl", "ALTER TABLE user_behavior_log ADD " + candidate.getKind().getKeyword()
+                    + " " + candidate.getName() + " " + candidate.getDefinition());
+            suggestion.put("matchingExecutions", executions);
+            suggestion.put("matchingReadRows", readRows);
+            suggestion.put("sampleQueries", samples);
+            suggestion.put("defined", exists);
+            suggestion.put("suggested", !exists && executions > 0);
+            if (measure && exists) {
+                try {
+                    suggestion.put("measurement", measure(candidate, startTime, endTime));
+                } catch (Exception e) {
+                    log.warn("索引对比测试失败: {}", candidate.getName(), e);
+                    suggestion.put("measurement", Map.of("error", String.valueOf(e.getMessage())));
+                }
+            }
+            suggestions.add(suggestion);
+        }
+        suggestions.sort(Comparator.comparingLong(s -> -((Number) s.get("matchingReadRows")).longValue()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hours", hours);
+        result.put("shapes", shapes);
+        result.put("suggestions", suggestions);
+        return result;
+    }
+
+    /**
+     * 对已定义的索引 / 投影做关闭与开启时的读取量对比
+     */
+    public Map<String, Object> measure(IndexCandidate candidate, LocalDateTime startTime, LocalDateTime endTime) {
+        if (!tableService.definedIndexes().contains(candidate.getName())) {
+            throw new IllegalStateException(candidate.getName() + " 尚未添加，先调用添加接口");
+        }
+        String start = startTime.format(DATE_TIME_FORMATTER);
+        String end = endTime.format(DATE_TIME_FORMATTER);
+        Object value = probeValue(candidate.getColumn(), start, end);
+        if (value == null) {
+            throw new IllegalStateException("时间范围内没有数据: " + start + " ~ " + end);
+        }
+        String probe = probeQuery(candidate.getColumn());
+
+        String token = PROBE_COMMENT_PREFIX + UUID.randomUUID();
+        String setting = candidate.getKind().getSetting();
+        jdbcTemplate.queryForList(probe + "\nSETTINGS " + setting + " = 0, log_comment = '" + token + ":before'",
+                value, start, end);
+        jdbcTemplate.queryForList(probe + "\nSETTINGS " + setting + " = 1, log_comment = '" + token + ":after'",
+                value, start, end);
+
+        // query_log 默认每 7.5 秒刷盘一次，主动刷新后再读
+        jdbcTemplate.execute("SYSTEM FLUSH LOGS");
+        Map<String, Map<String, Object>> runs = new LinkedHashMap<>();
+        jdbcTemplate.queryForList("""
+            SELECT log_comment AS run, read_rows, read_bytes, query_duration_ms, projections
+            FROM system.query_log
+            WHERE type = 'QueryFinish' AND log_comment IN (?, ?)
+            """, token + ":before", token + ":after")
+                .forEach(row -> runs.put(String.valueOf(row.remove("run")), row));
+
+        Map<String, Object> before = runs.get(token + ":before");
+        Map<String, Object> after = runs.get(token + ":after");
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("probe", probe);
+        result.put("value", value);
+        result.put("before", before);
+        result.put("after", after);
+        if (before != null && after != null) {
+            long beforeRows = ((Number) before.get("read_rows")).longValue();
+            long afterRows = ((Number) after.get("read_rows")).longValue();
+            result.put("readRowsReduction", beforeRows == 0 ? 0 : 1 - (double) afterRows / beforeRows);
+        }
+        log.info("索引对比测试: {}, value={}, before={}, after={}", candidate.getName(), value, before, after);
+        return result;
+    }
+
+    /**
+     * 与服务中对应查询同形态的测量查询，参数依次为过滤值、起止时间
+     */
+    private String probeQuery(String column) {
+        return switch (column) {
+            case "user_id" -> """
+                SELECT event_time, page_url, event_type, duration
+                FROM user_behavior_log
+                WHERE user_id = ?
+                AND event_time >= ? AND event_time <= ?
+                ORDER BY event_time ASC""";
+            case "page_url" -> """
+                SELECT count() AS view_count, uniqExact(user_id) AS unique_visitors, avg(duration) AS avg_duration
+                FROM user_behavior_log
+                WHERE page_url = ?
+                AND event_time >= ? AND event_time <= ?""";
+            case "event_type" -> """
+                SELECT count() AS event_count, uniqExact(user_id) AS unique_users
+                FROM user_behavior_log
+                WHERE event_type = ?
+                AND event_time >= ? AND event_time <= ?""";
+            case "duration" -> """
+                SELECT page_url, duration
+                FROM user_behavior_log
+                WHERE duration >= ?
+                AND event_time >= ? AND event_time <= ?""";
+            default -> throw new IllegalArgumentException("不支持的列: " + column);
+        };
+    }
+
+    /**
+     * 取时间范围内的一个真实过滤值：user_id、page_url任取一个；event_type取最少见的类型；duration取P99.9
+     */
+    private Object probeValue(String column, String start, String end) {
+        String sql = switch (column) {
+            case "user_id", "page_url" -> """
+                SELECT %s FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                LIMIT 1""".formatted(column);
+            case "event_type" -> """
+                SELECT event_type FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                GROUP BY event_type
+                ORDER BY count() ASC
+                LIMIT 1""";
+            case "duration" -> """
+                SELECT toInt32(quantile(0.999)(duration)) FROM user_behavior_log
+                WHERE event_time >= ? AND event_time <= ?
+                HAVING count() > 0""";
+            default -> throw new IllegalArgumentException("不支持的列: " + column);
+        };
+        List<Object> values = jdbcTemplate.queryForList(sql, Object.class, start, end);
+        return values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.clickhouse.service;
+
+import com.example.clickhouse.ingest.UserBehaviorLogBuffer;
+import com.example.clickhouse.model.UserBehaviorLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 写入方式对比测试
+ *
+ * producers 个线程各自按 requestSize 条一批写入 rows 条日志：
+ * - perRequest：每批直接调用 batchInsertUserBehaviorLogs（与现有 /data/batch-insert 接口相同），一批一次 INSERT
+ * - buffered：每批交给 UserBehaviorLogBuffer，由缓冲合并成大批次写入，计时到缓冲写空为止
+ * 返回两种方式的 rows/s 和 INSERT 次数（每次 INSERT 至少产生一个 part）。
+ * 测试数据写入 user_behavior_log，user_id 以 bench_ 开头，事件时间落在当前小时内。
+ */
+@Slf4j
+@Service
+public class IngestionBenchmarkService {
+
+    private static final String[] EVENT_TYPES = {"page_view", "click", "purchase", "search"};
+    private static final String[] DEVICE_TYPES = {"mobile", "desktop", "tablet"};
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    @Autowired
+    private UserBehaviorLogBuffer buffer;
+
+    public Map<String, Object> compare(int rows, int requestSize, int producers) {
+        if (rows <= 0 || requestSize <= 0 || producers <= 0) {
+            throw new IllegalArgumentException("rows、requestSize和producers必须大于0: rows=" + rows
+                    + ", requestSize=" + requestSize + ", producers=" + producers);
+        }
+        if (rows < producers) {
+            throw new IllegalArgumentException("rows不能小于producers: rows=" + rows + ", producers=" + producers);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);
+        result.put("requestSize", requestSize);
+        result.put("producers", producers);
+        result.put("perRequest", run(rows, requestSize, producers, false));
+        result.put("buffered", run(rows, requestSize, producers, true));
+        result.put("bufferStats", buffer.stats());
+        return result;
+    }
+
+    private Map<String, Object> run(int rows, int requestSize, int producers, boolean buffered) {
+        long flushesBefore = (long) buffer.stats().get("flushes");
+        AtomicLong inserts = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        int perProducer = rows / producers;
+
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                futures.add(pool.submit(() -> {
+                    for (int sent = 0; sent < perProducer; sent += requestSize) {
+                        List<UserBehaviorLog> request = generate(Math.min(requestSize, perProducer - sent));
+                        if (!buffered) {
+                            dataService.batchInsertUserBehaviorLogs(request);
+                            inserts.incrementAndGet();
+                        } else if (!buffer.offerAll(request)) {
+                            rejected.addAndGet(request.size());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            if (buffered) {
+                buffer.flush(120_000);
+                inserts.set((long) buffer.stats().get("flushes") - flushesBefore);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("写入测试被中断", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("写入测试失败: " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+
+        long written = (long) perProducer * producers - rejected.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rowsWritten", written);
+        result.put("rejectedRows", rejected.get());
+        result.put("inserts", inserts.get());
+        result.put("elapsedMillis", nanos / 1_000_000);
+        result.put("rowsPerSecond", written * 1_000_000_000L / Math.max(nanos, 1));
+        return result;
+    }
+
+    private List<UserBehaviorLog> generate(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime hour = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+        List<UserBehaviorLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            logs.add(new UserBehaviorLog(
+                    hour.plusSeconds(random.nextInt(3600)),
+                    "bench_" + random.nextInt(100_000),
+                    EVENT_TYPES[random.nextInt(EVENT_TYPES.length)],
+                    "/page/" + random.nextInt(1000),
+                    random.nextInt(300),
+                    DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)],
+                    "10.0." + random.nextInt(256) + "." + random.nextInt(256)));
+        }
+        return logs;
+    }
+}
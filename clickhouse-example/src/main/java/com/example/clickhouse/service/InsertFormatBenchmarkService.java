@@ -0,0 +1,111 @@
+package com.example.clickhouse.service;
+
+import com.example.clickhouse.model.UserBehaviorLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * 插入方式对比测试
+ *
+ * 预先生成 rows 条日志，按 batchSize 一批依次用三种方式写入 user_behavior_log：
+ * - jdbc：batchInsertUserBehaviorLogs（PreparedStatement 批量）
+ * - values：batchInsertWithValues（拼接 VALUES SQL）
+ * - rowBinary：insertRowBinary（RowBinary 流式写入）
+ * 统计 rows/s 与每行分配字节数。分配量取测试前后 JVM 全部线程已分配字节之差（含驱动内部线程），
+ * 测试期间其他请求也会计入，应在空闲实例上执行。先各预热一批再计时。
+ * 测试数据的 user_id 以 bench_ 开头，page_url 不含引号（values 方式无法处理引号）。
+ */
+@Slf4j
+@Service
+public class InsertFormatBenchmarkService {
+
+    private static final String[] EVENT_TYPES = {"page_view", "click", "purchase", "search"};
+    private static final String[] DEVICE_TYPES = {"mobile", "desktop", "tablet"};
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    public Map<String, Object> compare(int rows, int batchSize) {
+        if (rows <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("rows和batchSize必须大于0: rows=" + rows + ", batchSize=" + batchSize);
+        }
+        List<List<UserBehaviorLog>> batches = new ArrayList<>();
+        for (int i = 0; i < rows; i += batchSize) {
+            batches.add(generate(Math.min(batchSize, rows - i)));
+        }
+        List<UserBehaviorLog> warmup = generate(Math.min(batchSize, 1000));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);
+        result.put("batchSize", batchSize);
+        result.put("jdbc", run(batches, warmup, dataService::batchInsertUserBehaviorLogs));
+        result.put("values", run(batches, warmup, dataService::batchInsertWithValues));
+        result.put("rowBinary", run(batches, warmup, dataService::insertRowBinary));
+        return result;
+    }
+
+    private Map<String, Object> run(List<List<UserBehaviorLog>> batches, List<UserBehaviorLog> warmup,
+                                    Consumer<List<UserBehaviorLog>> insert) {
+        insert.accept(warmup);
+        long rows = batches.stream().mapToLong(List::size).sum();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (List<UserBehaviorLog> batch : batches) {
+            insert.accept(batch);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("elapsedMillis", nanos / 1_000_000);
+        result.put("rowsPerSecond", rows * 1_000_000_000L / Math.max(nanos, 1));
+        result.put("allocatedMB", allocated / 1024 / 1024);
+        result.put("allocatedBytesPerRow", rows == 0 ? 0 : allocated / rows);
+        result.put("allocationRateMBPerSecond", allocated * 1000L / 1024 / 1024 / Math.max(nanos / 1_000_000, 1));
+        return result;
+    }
+
+    /**
+     * JVM 全部存活线程的累计分配字节数（HotSpot 扩展接口，不支持时返回 0）
+     */
+    private long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private List<UserBehaviorLog> generate(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime hour = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+        List<UserBehaviorLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            logs.add(new UserBehaviorLog(
+                    hour.plusSeconds(random.nextInt(3600)),
+                    "bench_" + random.nextInt(100_000),
+                    EVENT_TYPES[random.nextInt(EVENT_TYPES.length)],
+                    "/page/" + random.nextInt(1000) + "?ref=search&q=item" + random.nextInt(100),
+                    random.nextInt(300),
+                    DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)],
+                    "10.0." + random.nextInt(256) + "." + random.nextInt(256)));
+        }
+        return logs;
+    }
+}
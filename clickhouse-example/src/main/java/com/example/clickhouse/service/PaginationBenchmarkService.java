@@ -0,0 +1,82 @@
+package com.example.clickhouse.service;
+
+import com.example.clickhouse.paging.LogCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 分页延迟对比测试
+ *
+ * 在 startTime ~ endTime 内分别取第 1 页和第 page 页（每页 pageSize 行），
+ * 对 OFFSET 分页和键集分页各先预热一次再执行 iterations 次，取中位数延迟。
+ * 第 page 页的游标由 cursorAtOffset 一次定位得到（正常翻页时来自上一页的 nextCursor），
+ * 并校验两种方式返回的行一致。范围内数据不足 page 页时返回错误。
+ */
+@Slf4j
+@Service
+public class PaginationBenchmarkService {
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    public Map<String, Object> compare(LocalDateTime startTime, LocalDateTime endTime, int pageSize, int page,
+                                       int iterations) {
+        if (page < 2) {
+            throw new IllegalArgumentException("page必须大于1");
+        }
+        long offset = (long) (page - 1) * pageSize;
+        LogCursor cursor = dataService.cursorAtOffset(startTime, endTime, offset);
+        if (cursor == null) {
+            throw new IllegalStateException("时间范围内不足" + offset + "行，无法测试第" + page + "页");
+        }
+        String encoded = cursor.encode();
+
+        Map<String, Object> firstPage = new LinkedHashMap<>();
+        firstPage.put("offsetMillis", median(iterations,
+                () -> dataService.queryUserBehaviorLogsByOffset(startTime, endTime, 0, pageSize)));
+        firstPage.put("keysetMillis", median(iterations,
+                () -> dataService.queryUserBehaviorLogsPage(startTime, endTime, null, pageSize)));
+
+        Map<String, Object> deepPage = new LinkedHashMap<>();
+        deepPage.put("offsetMillis", median(iterations,
+                () -> dataService.queryUserBehaviorLogsByOffset(startTime, endTime, offset, pageSize)));
+        deepPage.put("keysetMillis", median(iterations,
+                () -> dataService.queryUserBehaviorLogsPage(null, null, encoded, pageSize)));
+        deepPage.put("speedup", (double) deepPage.get("offsetMillis")
+                / Math.max((double) deepPage.get("keysetMillis"), 0.001));
+
+        List<Map<String, Object>> offsetRows = dataService.queryUserBehaviorLogsByOffset(startTime, endTime,
+                offset, pageSize);
+        Object keysetRows = dataService.queryUserBehaviorLogsPage(null, null, encoded, pageSize).get("logs");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pageSize", pageSize);
+        result.put("page", page);
+        result.put("iterations", iterations);
+        result.put("firstPage", firstPage);
+        result.put("deepPage", deepPage);
+        result.put("rowsMatch", offsetRows.equals(keysetRows));
+        log.info("分页对比: page={}, pageSize={}, firstPage={}, deepPage={}", page, pageSize, firstPage, deepPage);
+        return result;
+    }
+
+    private double median(int iterations, Supplier<?> query) {
+        query.get();
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            query.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos.length == 0 ? 0 : nanos[nanos.length / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.clickhouse.service;
+
+import com.example.clickhouse.rollup.QueryPlan;
+import com.example.clickhouse.rollup.StatsQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询路由延迟对比测试
+ *
+ * 以 endTime 为结束时间，依次取 1 小时、6 小时、1 天、7 天、30 天、90 天的范围，
+ * 对三种统计查询分别强制原始表执行和经路由执行，各先预热一次再执行 iterations 次，取中位数延迟。
+ * 同时返回路由计划（策略、段数）和两种方式的总事件数：预聚合表覆盖整个范围时两者应相等，
+ * 不等说明覆盖起点之前的数据未补数，或原始表已按 TTL 删除而预聚合表仍保留。
+ */
+@Slf4j
+@Service
+public class RouterBenchmarkService {
+
+    private static final Duration[] RANGES = {
+            Duration.ofHours(1), Duration.ofHours(6), Duration.ofDays(1),
+            Duration.ofDays(7), Duration.ofDays(30), Duration.ofDays(90)
+    };
+
+    @Autowired
+    private ClickHouseDataService dataService;
+
+    public Map<String, Object> compare(LocalDateTime endTime, int iterations) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("endTime", endTime.toString());
+        result.put("iterations", iterations);
+        List<Map<String, Object>> ranges = new ArrayList<>();
+        for (Duration range : RANGES) {
+            LocalDateTime startTime = endTime.minus(range);
+            Map<String, Object> rangeResult = new LinkedHashMap<>();
+            rangeResult.put("range", range.toString());
+            for (StatsQuery query : StatsQuery.values()) {
+                rangeResult.put(query.getName(), run(query, startTime, endTime, iterations));
+            }
+            ranges.add(rangeResult);
+        }
+        result.put("ranges", ranges);
+        return result;
+    }
+
+    private Map<String, Object> run(StatsQuery query, LocalDateTime startTime, LocalDateTime endTime, int iterations) {
+        QueryPlan plan = dataService.planStats(query, startTime, endTime);
+        long[] raw = new long[iterations];
+        long[] routed = new long[iterations];
+        long rawEvents = events(dataService.routeStats(query, startTime, endTime, true));
+        long routedEvents = events(dataService.routeStats(query, startTime, endTime, false));
+        for (int i = 0; i < iterations; i++) {
+            raw[i] = time(() -> dataService.routeStats(query, startTime, endTime, true));
+            routed[i] = time(() -> dataService.routeStats(query, startTime, endTime, false));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("strategy", plan.getStrategy().name());
+        result.put("segments", plan.getSegments().size());
+        result.put("rawMillis", median(raw) / 1_000_000.0);
+        result.put("routedMillis", median(routed) / 1_000_000.0);
+        result.put("speedup", median(routed) == 0 ? 0 : (double) median(raw) / median(routed));
+        result.put("rawEvents", rawEvents);
+        result.put("routedEvents", routedEvents);
+        return result;
+    }
+
+    private long time(Runnable query) {
+        long start = System.nanoTime();
+        query.run();
+        return System.nanoTime() - start;
+    }
+
+    private long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+    }
+
+    private long events(List<Map<String, Object>> rows) {
+        long total = 0;
+        for (Map<String, Object> row : rows) {
+            total += ((Number) row.get("event_count")).longValue();
+        }
+        return total;
+    }
+}
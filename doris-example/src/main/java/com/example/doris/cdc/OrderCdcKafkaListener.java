@@ -0,0 +1,85 @@
+package com.example.doris.cdc;
+
+import com.example.doris.model.OrderChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kafka 订单变更消费者
+ *
+ * 消息 key 为 order_id，value 为 OrderChangeEvent 的 JSON。一次拉取的消息按分区拆分后交给 OrderCdcSink，
+ * 分区分配时从 Doris 中保存的位点之后开始消费（而不是 Kafka 提交的位点），保证写入与位点一致。
+ * 其他消息队列（如 RocketMQ）按相同方式接入：队列对应分区、队列位点对应 offset。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "doris.cdc.enabled", havingValue = "true")
+public class OrderCdcKafkaListener implements ConsumerSeekAware {
+
+    @Autowired
+    private OrderCdcSink sink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @KafkaListener(topics = "${doris.cdc.topic:order-changes}", groupId = "${doris.cdc.group-id:doris-orders-cdc}",
+                   containerFactory = "orderCdcKafkaListenerContainerFactory")
+    public void consume(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer) {
+        // 一次拉取的消息按分区连续排列，按分区首次出现的顺序处理
+        Map<TopicPartition, List<OrderChangeRecord>> byPartition = new LinkedHashMap<>();
+        Map<TopicPartition, ConsumerRecord<String, String>> firstRecords = new HashMap<>();
+        for (ConsumerRecord<String, String> record : records) {
+            TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+            firstRecords.putIfAbsent(tp, record);
+            List<OrderChangeRecord> changes = byPartition.computeIfAbsent(tp, k -> new ArrayList<>());
+            try {
+                OrderChangeEvent event = objectMapper.readValue(record.value(), OrderChangeEvent.class);
+                if (event.getOrderId() == null || !(OrderChangeEvent.UPSERT.equals(event.getOp())
+                        || OrderChangeEvent.DELETE.equals(event.getOp()))) {
+                    throw new IllegalArgumentException("缺少orderId或op不是UPSERT/DELETE");
+                }
+                changes.add(new OrderChangeRecord(record.offset(), record.timestamp(), event));
+            } catch (Exception e) {
+                sink.recordInvalid(record.topic(), record.partition(), record.offset(), e.getMessage());
+            }
+        }
+        for (Map.Entry<TopicPartition, List<OrderChangeRecord>> entry : byPartition.entrySet()) {
+            TopicPartition tp = entry.getKey();
+            try {
+                sink.apply(tp.topic(), tp.partition(), entry.getValue());
+            } catch (Exception e) {
+                // 指明失败分区的第一条消息：之前已写入的分区正常提交，只重试该消息及之后的消息，
+                // 重试耗尽后只把这一条转入死信表，其他分区的消息不会被当作失败处理
+                throw new BatchListenerFailedException("订单变更写入失败: partition=" + tp, e, firstRecords.get(tp));
+            }
+            consumer.currentLag(tp).ifPresent(lag -> sink.recordLag(tp.topic(), tp.partition(), lag));
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        for (TopicPartition tp : assignments.keySet()) {
+            Long committed = sink.committedOffset(tp.topic(), tp.partition());
+            if (committed != null) {
+                callback.seek(tp.topic(), tp.partition(), committed + 1);
+            }
+            log.info("CDC分区分配: partition={}, 从位点{}继续消费", tp,
+                    committed != null ? committed + 1 : "（Kafka已提交位点）");
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.example.doris.cdc;
+
+import com.example.doris.model.OrderChangeEvent;
+import com.example.doris.service.DorisTableService;
+import com.example.doris.streamload.StreamLoadClient;
+import com.example.doris.streamload.StreamLoadTable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单变更 CDC 写入 Doris（orders 表，Unique 模型 Merge-On-Write）
+ *
+ * 逐条 UPDATE / DELETE 在 Unique 表上都是一次独立的导入作业，订单状态变更多时会排队堆积。
+ * 这里把一个消费窗口（一次拉取）内的变更按 order_id 合并，只保留每个订单的最终状态，
+ * 再以 Stream Load 批量写入：
+ * - 只更新部分字段的订单：按更新的列集合分组，每组一次部分列更新（partial_columns），未携带的列保持原值
+ * - 删除的订单：__DORIS_DELETE_SIGN__ = 1 的整行导入，与窗口内先删除后重建的订单（整行覆盖）合并为一次导入
+ * - orders 按 order_time 分区，每行（包括删除和部分列更新）都必须带 order_time 才能路由到原订单所在分区；
+ *   orders 为 Colocation 表时 Key 为 (order_id, user_id)，部分列更新和删除还必须带 user_id：
+ *   事件未携带时从 orders 表查出；订单不存在时删除直接忽略，更新无法确定分区，转入死信表 cdc_dead_letters
+ *
+ * 生产环境要点（精确一次）：
+ * - 每个分区已写入的位点保存在 Doris 的 cdc_offsets 表中，分配到分区时从该位点之后继续消费，
+ *   位点早于已保存位点的重复消息直接跳过
+ * - 同一分区按顺序处理：一个窗口写入成功并保存位点后才处理下一个窗口
+ * - 写入的都是字段的最终值（而不是增量），写入成功但位点未保存时重放这一窗口，结果与只写一次相同
+ * - 每组导入的 label 由 来源_分区_起止位点_组号 组成，导入重试和相同窗口的重放不会重复导入
+ * - 要求同一订单的变更进入同一分区（以 order_id 作为消息 key），否则无法保证变更顺序
+ * - 重试耗尽的批次由消费端逐条转入死信表并推进位点（deadLetter），不会无限重试阻塞分区
+ */
+@Slf4j
+@Component
+public class OrderCdcSink {
+
+    private static final String DELETE_SIGN = "__DORIS_DELETE_SIGN__";
+    private static final String ORDER_TIME = "order_time";
+    private static final String USER_ID = "user_id";
+    private static final int LOOKUP_BATCH = 1000;
+    private static final List<String> ORDER_COLUMNS = List.of("user_id", "product_name", "amount", "status",
+            "order_time", "update_time");
+
+    @Value("${doris.cdc.group-id:doris-orders-cdc}")
+    private String groupId;
+
+    @Value("${doris.cdc.label-prefix:cdc_orders}")
+    private String labelPrefix;
+
+    @Autowired
+    private StreamLoadClient streamLoadClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DorisTableService tableService;
+
+    /**
+     * orders 是否为 Colocation 表（Key 含 user_id），首次写入时检测；CDC 开启时不允许在线迁移，运行期间不会变化
+     */
+    private volatile Boolean userIdInKey;
+
+    private final Map<String, PartitionState> partitions = new ConcurrentHashMap<>();
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder skippedEvents = new LongAdder();
+    private final LongAdder invalidEvents = new LongAdder();
+    private final LongAdder deadLetters = new LongAdder();
+    private final LongAdder missingDeletes = new LongAdder();
+    private final LongAdder orderLookups = new LongAdder();
+    private final LongAdder upsertRows = new LongAdder();
+    private final LongAdder deleteRows = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder windows = new LongAdder();
+    private final LongAdder applyNanos = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (streamLoadClient.isGroupCommit()) {
+            log.warn("Stream Load开启了group commit，CDC写入依赖label去重，需要关闭group commit");
+        }
+    }
+
+    /**
+     * 读取分区已写入的位点（从 cdc_offsets 表重新加载），没有记录时返回 null
+     */
+    public Long committedOffset(String source, int partition) {
+        List<Long> offsets = jdbcTemplate.queryForList("""
+                SELECT committed_offset FROM cdc_offsets
+                WHERE consumer_group = ? AND source = ? AND partition_id = ?
+                """, Long.class, groupId, source, partition);
+        Long committed = offsets.isEmpty() ? null : offsets.get(0);
+        PartitionState state = state(source, partition);
+        state.committedOffset = committed;
+        state.loaded = true;
+        return committed;
+    }
+
+    /**
+     * 写入一个分区的一个消费窗口（records 按位点升序），成功后保存位点
+     */
+    public void apply(String source, int partition, List<OrderChangeRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        PartitionState state = state(source, partition);
+        if (!state.loaded) {
+            committedOffset(source, partition);
+        }
+        List<OrderChangeRecord> fresh = new ArrayList<>(records.size());
+        for (OrderChangeRecord record : records) {
+            if (state.committedOffset == null || record.offset() > state.committedOffset) {
+                fresh.add(record);
+            }
+        }
+        skippedEvents.add(records.size() - fresh.size());
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long fromOffset = fresh.get(0).offset();
+        long toOffset = fresh.get(fresh.size() - 1).offset();
+        List<String> routingColumns = routingColumns();
+        Map<Long, Change> changes = collapse(fresh, routingColumns);
+        resolveRoutingColumns(source, partition, fresh, changes, routingColumns);
+        List<List<Change>> groups = group(changes);
+        String labelBase = labelPrefix + "_" + sanitize(source) + "_" + partition + "_" + fromOffset + "_" + toOffset;
+        for (List<Change> group : groups) {
+            load(group, labelBase + "_" + groupKey(group.get(0)));
+        }
+        saveOffset(source, partition, toOffset);
+
+        long nanos = System.nanoTime() - start;
+        state.committedOffset = toOffset;
+        state.lastEventTimestamp = fresh.get(fresh.size() - 1).timestamp();
+        state.lastApplyMillis = System.currentTimeMillis();
+        events.add(fresh.size());
+        windows.increment();
+        applyNanos.add(nanos);
+        log.debug("CDC窗口写入完成: source={}, partition={}, offsets={}~{}, events={}, rows={}, loads={}",
+                source, partition, fromOffset, toOffset, fresh.size(), changes.size(), groups.size());
+    }
+
+    /**
+     * 记录分区积压的消息数（由消费端从客户端位点信息中获取）
+     */
+    public void recordLag(String source, int partition, long lag) {
+        state(source, partition).recordsLag = lag;
+    }
+
+    /**
+     * 记录无法解析而跳过的消息
+     */
+    public void recordInvalid(String source, int partition, long offset, String error) {
+        invalidEvents.increment();
+        log.error("订单变更消息无法解析，已跳过: source={}, partition={}, offset={}, error={}",
+                source, partition, offset, error);
+    }
+
+    /**
+     * 把重试耗尽仍无法写入的消息转入死信表，并把分区位点推进到该消息
+     * 
+     * 由消费端的错误处理在重试耗尽后对批次内每条消息调用；位点不晚于已保存位点的消息已经写入，直接跳过
+     */
+    public void deadLetter(String source, int partition, long offset, String payload, String error) {
+        PartitionState state = state(source, partition);
+        if (!state.loaded) {
+            committedOffset(source, partition);
+        }
+        if (state.committedOffset != null && offset <= state.committedOffset) {
+            return;
+        }
+        saveDeadLetter(source, partition, offset, payload, error);
+        saveOffset(source, partition, offset);
+        state.committedOffset = offset;
+    }
+
+    private void saveDeadLetter(String source, int partition, long offset, String payload, String error) {
+        jdbcTemplate.update("""
+                INSERT INTO cdc_dead_letters
+                    (consumer_group, source, partition_id, message_offset, payload, error, create_time)
+                VALUES (?, ?, ?, ?, ?, ?, NOW())
+                """, groupId, source, partition, offset, payload, error);
+        deadLetters.increment();
+        log.error("订单变更转入死信表: source={}, partition={}, offset={}, error={}", source, partition, offset, error);
+    }
+
+    /**
+     * 每行都必须携带的列：分区列 order_time，以及 Colocation 表 Key 中的 user_id
+     */
+    private List<String> routingColumns() {
+        Boolean inKey = userIdInKey;
+        if (inKey == null) {
+            inKey = tableService.getColocateGroup("orders") != null;
+            userIdInKey = inKey;
+            log.info("CDC写入orders: Key包含user_id={}", inKey);
+        }
+        return inKey ? List.of(ORDER_TIME, USER_ID) : List.of(ORDER_TIME);
+    }
+
+    /**
+     * 补齐未携带 order_time（分区列，缺失时 Doris 无法路由该行）或 user_id（Colocation 表的 Key 列）的变更
+     * 
+     * 订单不存在时：删除无需执行；更新无法确定分区和 Key，该订单在窗口内的消息转入死信表
+     */
+    private void resolveRoutingColumns(String source, int partition, List<OrderChangeRecord> records,
+                                       Map<Long, Change> changes, List<String> routingColumns) {
+        List<Long> missing = changes.values().stream()
+                .filter(change -> !change.values.keySet().containsAll(routingColumns))
+                .map(change -> change.orderId)
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, Object>> existing = lookupOrders(missing);
+        orderLookups.add(missing.size());
+        for (Long orderId : missing) {
+            Map<String, Object> row = existing.get(orderId);
+            Change change = changes.get(orderId);
+            if (row != null && row.get(ORDER_TIME) != null) {
+                for (String column : routingColumns) {
+                    change.values.putIfAbsent(column, row.get(column));
+                }
+                continue;
+            }
+            changes.remove(orderId);
+            if (change.delete) {
+                missingDeletes.increment();
+                continue;
+            }
+            for (OrderChangeRecord record : records) {
+                if (orderId.equals(record.event().getOrderId())) {
+                    saveDeadLetter(source, partition, record.offset(), payload(record.event()),
+                            "订单不存在且事件未携带" + String.join("/", routingColumns) + "，无法确定分区和Key");
+                }
+            }
+        }
+    }
+
+    private Map<Long, Map<String, Object>> lookupOrders(List<Long> orderIds) {
+        Map<Long, Map<String, Object>> orders = new HashMap<>();
+        for (int start = 0; start < orderIds.size(); start += LOOKUP_BATCH) {
+            List<Long> batch = orderIds.subList(start, Math.min(start + LOOKUP_BATCH, orderIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            jdbcTemplate.query("SELECT order_id, order_time, user_id FROM orders WHERE order_id IN ("
+                            + placeholders + ")",
+                    rs -> {
+                        Timestamp orderTime = rs.getTimestamp(ORDER_TIME);
+                        Map<String, Object> row = new HashMap<>();
+                        row.put(ORDER_TIME, orderTime != null ? orderTime.toLocalDateTime() : null);
+                        row.put(USER_ID, rs.getObject(USER_ID) != null ? rs.getLong(USER_ID) : null);
+                        orders.put(rs.getLong("order_id"), row);
+                    }, batch.toArray());
+        }
+        return orders;
+    }
+
+    private String payload(OrderChangeEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (Exception e) {
+            return String.valueOf(event);
+        }
+    }
+
+    /**
+     * 按 order_id 合并窗口内的变更，只保留每个订单的最终状态
+     */
+    private Map<Long, Change> collapse(List<OrderChangeRecord> records, List<String> routingColumns) {
+        Map<Long, Change> changes = new LinkedHashMap<>();
+        for (OrderChangeRecord record : records) {
+            OrderChangeEvent event = record.event();
+            Change change = changes.get(event.getOrderId());
+            if (OrderChangeEvent.DELETE.equals(event.getOp())) {
+                changes.put(event.getOrderId(), Change.delete(event).inherit(change, routingColumns));
+            } else if (change == null) {
+                changes.put(event.getOrderId(), Change.upsert(event, false));
+            } else if (change.delete) {
+                // 先删除后重建：整行写入，未携带的列为 NULL，不能与删除前的旧值合并（分区列和 Key 列除外）
+                changes.put(event.getOrderId(), Change.upsert(event, true).inherit(change, routingColumns));
+            } else {
+                change.merge(event);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 分组：删除和整行写入为一组（含删除标记列），部分列更新按列集合分组
+     */
+    private List<List<Change>> group(Map<Long, Change> changes) {
+        List<Change> fullRows = new ArrayList<>();
+        Map<List<String>, List<Change>> partial = new LinkedHashMap<>();
+        for (Change change : changes.values()) {
+            if (change.delete || change.fullRow) {
+                fullRows.add(change);
+            } else if (!change.values.isEmpty()) {
+                partial.computeIfAbsent(change.columns(), k -> new ArrayList<>()).add(change);
+            }
+        }
+        List<List<Change>> groups = new ArrayList<>();
+        if (!fullRows.isEmpty()) {
+            groups.add(fullRows);
+        }
+        groups.addAll(partial.values());
+        return groups;
+    }
+
+    /**
+     * label 后缀由分组内容决定（整行组或部分列组的列集合），而不是分组在列表中的位置：
+     * 重试时重新查询 orders 可能增减分组，按位置编号会让同一 label 对应不同的列集合，
+     * 已完成的 label 会跳过一次从未执行过的导入
+     */
+    private static String groupKey(Change first) {
+        if (first.delete || first.fullRow) {
+            return "full";
+        }
+        List<String> columns = new ArrayList<>(first.columns());
+        Collections.sort(columns);
+        return "partial_" + Integer.toHexString(String.join(",", columns).hashCode());
+    }
+
+    private void load(List<Change> group, String label) {
+        Change first = group.get(0);
+        List<String> columns = new ArrayList<>();
+        columns.add("order_id");
+        Map<String, String> headers;
+        if (first.delete || first.fullRow) {
+            columns.addAll(ORDER_COLUMNS);
+            columns.add(DELETE_SIGN);
+            headers = Map.of();
+        } else {
+            columns.addAll(first.columns());
+            headers = Map.of("partial_columns", "true");
+        }
+        StreamLoadTable<Change> table = StreamLoadTable.of("orders", columns, change -> {
+            Object[] values = new Object[columns.size()];
+            values[0] = change.orderId;
+            for (int i = 1; i < columns.size(); i++) {
+                String column = columns.get(i);
+                values[i] = DELETE_SIGN.equals(column) ? (change.delete ? 1 : 0) : change.values.get(column);
+            }
+            return values;
+        });
+        streamLoadClient.load(table, group, label, headers);
+        loads.increment();
+        for (Change change : group) {
+            (change.delete ? deleteRows : upsertRows).increment();
+        }
+    }
+
+    private void saveOffset(String source, int partition, long offset) {
+        jdbcTemplate.update("""
+                INSERT INTO cdc_offsets (consumer_group, source, partition_id, committed_offset, update_time)
+                VALUES (?, ?, ?, ?, NOW())
+                """, groupId, source, partition, offset);
+    }
+
+    private PartitionState state(String source, int partition) {
+        return partitions.computeIfAbsent(source + "-" + partition, k -> new PartitionState(source, partition));
+    }
+
+    private static String sanitize(String value) {
+        return value.replaceAll("[^A-Za-z0-9_\\-]", "_");
+    }
+
+    /**
+     * 累计事件数、合并后的写入行数、导入次数，以及各分区的位点和延迟
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long eventCount = events.sum();
+        long rows = upsertRows.sum() + deleteRows.sum();
+        stats.put("groupId", groupId);
+        stats.put("events", eventCount);
+        stats.put("skippedEvents", skippedEvents.sum());
+        stats.put("invalidEvents", invalidEvents.sum());
+        stats.put("deadLetters", deadLetters.sum());
+        stats.put("missingDeletes", missingDeletes.sum());
+        stats.put("orderLookups", orderLookups.sum());
+        stats.put("userIdInKey", userIdInKey);
+        stats.put("upsertRows", upsertRows.sum());
+        stats.put("deleteRows", deleteRows.sum());
+        stats.put("collapseRatio", rows == 0 ? 0 : (double) eventCount / rows);
+        stats.put("windows", windows.sum());
+        stats.put("loads", loads.sum());
+        stats.put("applyMillis", applyNanos.sum() / 1_000_000);
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> partitionStats = new ArrayList<>();
+        for (PartitionState state : partitions.values()) {
+            Map<String, Object> partition = new LinkedHashMap<>();
+            partition.put("source", state.source);
+            partition.put("partition", state.partition);
+            partition.put("committedOffset", state.committedOffset);
+            partition.put("recordsLag", state.recordsLag);
+            // 最近写入的消息从产生到写入 Doris 的延迟
+            partition.put("eventLagMillis", state.lastEventTimestamp > 0
+                    ? state.lastApplyMillis - state.lastEventTimestamp : null);
+            partition.put("sinceLastApplyMillis", state.lastApplyMillis > 0 ? now - state.lastApplyMillis : null);
+            partitionStats.add(partition);
+        }
+        stats.put("partitions", partitionStats);
+        return stats;
+    }
+
+    private static final class PartitionState {
+
+        private final String source;
+        private final int partition;
+        private volatile boolean loaded;
+        private volatile Long committedOffset;
+        private volatile long recordsLag = -1;
+        private volatile long lastEventTimestamp;
+        private volatile long lastApplyMillis;
+
+        PartitionState(String source, int partition) {
+            this.source = source;
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * 一个订单在窗口内合并后的变更
+     */
+    private static final class Change {
+
+        private final long orderId;
+        private final boolean delete;
+        private final boolean fullRow;
+        private final Map<String, Object> values = new LinkedHashMap<>();
+
+        private Change(long orderId, boolean delete, boolean fullRow) {
+            this.orderId = orderId;
+            this.delete = delete;
+            this.fullRow = fullRow;
+        }
+
+        /**
+         * 删除行只需要 Key 和分区列，其余列为 NULL
+         */
+        static Change delete(OrderChangeEvent event) {
+            Change change = new Change(event.getOrderId(), true, false);
+            change.put(ORDER_TIME, event.getOrderTime());
+            change.put(USER_ID, event.getUserId());
+            return change;
+        }
+
+        static Change upsert(OrderChangeEvent event, boolean fullRow) {
+            Change change = new Change(event.getOrderId(), false, fullRow);
+            change.merge(event);
+            return change;
+        }
+
+        /**
+         * 本次事件未携带的分区列、Key 列沿用窗口内前一次变更的值
+         */
+        Change inherit(Change previous, List<String> columns) {
+            if (previous != null) {
+                for (String column : columns) {
+                    if (!values.containsKey(column) && previous.values.containsKey(column)) {
+                        values.put(column, previous.values.get(column));
+                    }
+                }
+            }
+            return this;
+        }
+
+        void merge(OrderChangeEvent event) {
+            put(USER_ID, event.getUserId());
+            put("product_name", event.getProductName());
+            put("amount", event.getAmount());
+            put("status", event.getStatus());
+            put(ORDER_TIME, event.getOrderTime());
+            put("update_time", event.getUpdateTime());
+        }
+
+        private void put(String column, Object value) {
+            if (value != null) {
+                values.put(column, value);
+            }
+        }
+
+        /**
+         * 携带的列，按 ORDER_COLUMNS 的顺序排列，作为部分列更新的分组键
+         */
+        List<String> columns() {
+            return ORDER_COLUMNS.stream().filter(values::containsKey).toList();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.doris.cdc;
+
+import com.example.doris.model.OrderChangeEvent;
+
+/**
+ * 带消息位点的订单变更：offset 为分区（Kafka partition / RocketMQ queue）内的消费位点，
+ * timestamp 为消息时间（毫秒），用于计算事件延迟
+ */
+public record OrderChangeRecord(long offset, long timestamp, OrderChangeEvent event) {
+}
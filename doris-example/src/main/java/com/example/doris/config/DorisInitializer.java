@@ -3,6 +3,7 @@ package com.example.doris.config;
 import com.example.doris.service.DorisTableService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -17,6 +18,12 @@ public class DorisInitializer implements CommandLineRunner {
     @Autowired
     private DorisTableService tableService;
 
+    /**
+     * 已有表（早期按固定分区创建）是否自动开启动态分区
+     */
+    @Value("${doris.partition.migrate-existing:true}")
+    private boolean migrateExisting;
+
     @Override
     public void run(String... args) {
         try {
@@ -27,6 +34,7 @@ public class DorisInitializer implements CommandLineRunner {
                 log.info("users 表创建成功");
             } else {
                 log.info("users 表已存在，跳过创建");
+                migrateToDynamicPartition("users");
             }
 
             // 创建订单表
@@ -36,6 +44,25 @@ public class DorisInitializer implements CommandLineRunner {
                 log.info("orders 表创建成功");
             } else {
                 log.info("orders 表已存在，跳过创建");
+                migrateToDynamicPartition("orders");
+            }
+
+            // 创建CDC位点表
+            if (!tableService.tableExists("cdc_offsets")) {
+                log.info("检测到 cdc_offsets 表不存在，开始创建...");
+                tableService.createCdcOffsetTable();
+                log.info("cdc_offsets 表创建成功");
+            } else {
+                log.info("cdc_offsets 表已存在，跳过创建");
+            }
+
+            // 创建CDC死信表
+            if (!tableService.tableExists("cdc_dead_letters")) {
+                log.info("检测到 cdc_dead_letters 表不存在，开始创建...");
+                tableService.createCdcDeadLetterTable();
+                log.info("cdc_dead_letters 表创建成功");
+            } else {
+                log.info("cdc_dead_letters 表已存在，跳过创建");
             }
 
             // 创建订单汇总表（可选）
@@ -52,4 +79,15 @@ public class DorisInitializer implements CommandLineRunner {
             // 用户可以通过API手动创建表
         }
     }
+
+    /**
+     * 为固定分区的已有表开启动态分区，写入超出原分区范围的数据不再失败
+     */
+    private void migrateToDynamicPartition(String tableName) {
+        if (!migrateExisting || tableService.isDynamicPartitionEnabled(tableName)) {
+            return;
+        }
+        log.info("{} 表未开启动态分区，开始开启...", tableName);
+        tableService.enableDynamicPartition(tableName);
+    }
 }
@@ -0,0 +1,97 @@
+package com.example.doris.config;
+
+import com.example.doris.cdc.OrderCdcSink;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 订单变更 CDC 消费配置（doris.cdc.enabled=true 时生效）
+ * 
+ * 生产环境要点：
+ * 1. 批量消费：一次拉取即一个合并窗口，窗口大小由 max-poll-records、fetch-min-bytes、window-millis 共同决定
+ * 2. 位点以 Doris 中的 cdc_offsets 为准，Kafka 位点只在批次处理完后提交，供监控工具查看积压
+ * 3. 只读取已提交事务的消息（read_committed）
+ * 4. 写入失败时整批重试 max-retries 次（导入本身已对网络错误重试，这里主要应对 Doris 短时不可用），
+ *    仍失败的批次逐条转入死信表 cdc_dead_letters 并推进位点，避免一条坏数据永久阻塞分区
+ */
+@Configuration
+@ConditionalOnProperty(name = "doris.cdc.enabled", havingValue = "true")
+public class OrderCdcKafkaConfig {
+
+    @Value("${doris.cdc.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${doris.cdc.group-id:doris-orders-cdc}")
+    private String groupId;
+
+    @Value("${doris.cdc.max-poll-records:5000}")
+    private int maxPollRecords;
+
+    @Value("${doris.cdc.fetch-min-bytes:1048576}")
+    private int fetchMinBytes;
+
+    @Value("${doris.cdc.window-millis:1000}")
+    private int windowMillis;
+
+    @Value("${doris.cdc.concurrency:3}")
+    private int concurrency;
+
+    @Value("${doris.cdc.retry-backoff-millis:5000}")
+    private long retryBackoffMillis;
+
+    @Value("${doris.cdc.max-retries:12}")
+    private long maxRetries;
+
+    @Autowired
+    private OrderCdcSink sink;
+
+    @Bean
+    public ConsumerFactory<String, String> orderCdcConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        // 合并窗口：攒够 fetch-min-bytes 或等待 window-millis 后返回，单次最多 max-poll-records 条
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, windowMillis);
+        props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, 600000);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> orderCdcKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(orderCdcConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        // 每个线程负责若干分区，分区内按顺序处理
+        factory.setConcurrency(concurrency);
+        // 消费端抛出 BatchListenerFailedException 指明失败分区的第一条消息：之前的消息提交，
+        // 从该消息起重新投递（写入是幂等的），重试耗尽后只把这一条转入死信表
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+                (record, exception) -> sink.deadLetter(record.topic(), record.partition(), record.offset(),
+                        String.valueOf(record.value()), String.valueOf(exception.getMessage())),
+                new FixedBackOff(retryBackoffMillis, maxRetries)));
+        return factory;
+    }
+}
@@ -1,9 +1,18 @@
 package com.example.doris.controller;
 
+import com.example.doris.cdc.OrderCdcSink;
 import com.example.doris.model.Order;
 import com.example.doris.model.User;
+import com.example.doris.mv.AsyncMaterializedViewManager;
+import com.example.doris.mv.MvRewriteChecker;
+import com.example.doris.partition.PartitionSizeMonitor;
+import com.example.doris.service.ColocateJoinBenchmarkService;
 import com.example.doris.service.DorisDataService;
 import com.example.doris.service.DorisTableService;
+import com.example.doris.service.StreamLoadBenchmarkService;
+import com.example.doris.streamload.StreamLoadBatcher;
+import com.example.doris.streamload.StreamLoadClient;
+import com.example.doris.streamload.StreamLoadResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -33,6 +42,30 @@ public class DorisController {
     @Autowired
     private DorisDataService dataService;
 
+    @Autowired
+    private StreamLoadBenchmarkService streamLoadBenchmarkService;
+
+    @Autowired
+    private StreamLoadClient streamLoadClient;
+
+    @Autowired
+    private StreamLoadBatcher streamLoadBatcher;
+
+    @Autowired
+    private OrderCdcSink orderCdcSink;
+
+    @Autowired
+    private PartitionSizeMonitor partitionSizeMonitor;
+
+    @Autowired
+    private AsyncMaterializedViewManager viewManager;
+
+    @Autowired
+    private MvRewriteChecker mvRewriteChecker;
+
+    @Autowired
+    private ColocateJoinBenchmarkService colocateJoinBenchmarkService;
+
     // ========== 表管理接口 ==========
 
     /**
@@ -119,6 +152,137 @@ public class DorisController {
         }
     }
 
+    /**
+     * 创建多表异步物化视图（分区增量刷新，支持透明改写）
+     * POST /doris/tables/async-materialized-views
+     */
+    @PostMapping("/tables/async-materialized-views")
+    public Map<String, Object> createAsyncMaterializedViews() {
+        try {
+            viewManager.createAll();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("views", viewManager.names());
+            response.put("message", "异步物化视图创建成功");
+            return response;
+        } catch (Exception e) {
+            log.error("创建异步物化视图失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "创建异步物化视图失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 刷新异步物化视图（默认只刷新基表有变化的分区）
+     * POST /doris/tables/async-materialized-views/mv_user_order_daily/refresh?partitions=p_20240101000000_20240201000000&complete=false
+     */
+    @PostMapping("/tables/async-materialized-views/{name}/refresh")
+    public Map<String, Object> refreshAsyncMaterializedView(
+            @PathVariable String name,
+            @RequestParam(required = false) List<String> partitions,
+            @RequestParam(defaultValue = "false") boolean complete) {
+        try {
+            viewManager.refresh(name, partitions, complete);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "刷新任务已提交");
+            return response;
+        } catch (Exception e) {
+            log.error("刷新异步物化视图失败: name={}", name, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "刷新异步物化视图失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 删除异步物化视图
+     * DELETE /doris/tables/async-materialized-views/mv_user_order_daily
+     */
+    @DeleteMapping("/tables/async-materialized-views/{name}")
+    public Map<String, Object> dropAsyncMaterializedView(@PathVariable String name) {
+        try {
+            viewManager.drop(name);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "物化视图删除成功");
+            return response;
+        } catch (Exception e) {
+            log.error("删除异步物化视图失败: name={}", name, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "删除异步物化视图失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 为已有表开启动态分区（自动创建未来分区、删除过期分区）
+     * POST /doris/tables/orders/dynamic-partition
+     */
+    @PostMapping("/tables/{tableName}/dynamic-partition")
+    public Map<String, Object> enableDynamicPartition(@PathVariable String tableName) {
+        try {
+            tableService.enableDynamicPartition(tableName);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "动态分区开启成功");
+            return response;
+        } catch (Exception e) {
+            log.error("开启动态分区失败: table={}", tableName, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "开启动态分区失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 按已有分区的数据量调整新分区的分桶数
+     * POST /doris/tables/orders/buckets/adjust
+     */
+    @PostMapping("/tables/{tableName}/buckets/adjust")
+    public Map<String, Object> adjustBuckets(@PathVariable String tableName) {
+        try {
+            Map<String, Object> result = partitionSizeMonitor.adjustBuckets(tableName);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result);
+            response.put("message", "分桶数调整成功（只影响之后创建的分区）");
+            return response;
+        } catch (Exception e) {
+            log.error("调整分桶数失败: table={}", tableName, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "调整分桶数失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 把已有的 users/orders 重建为按 user_id 分桶的 Colocation 表（需在停写窗口执行）
+     * POST /doris/tables/colocation/migrate
+     */
+    @PostMapping("/tables/colocation/migrate")
+    public Map<String, Object> migrateToColocated() {
+        try {
+            Map<String, Object> result = tableService.migrateToColocated();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result);
+            return response;
+        } catch (Exception e) {
+            log.error("迁移Colocation表失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "迁移Colocation表失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     // ========== 数据导入接口 ==========
 
     /**
@@ -165,6 +329,165 @@ public class DorisController {
         }
     }
 
+    /**
+     * Stream Load 导入用户
+     * POST /doris/data/users/stream-load?label=users_20240101_001
+     */
+    @PostMapping("/data/users/stream-load")
+    public Map<String, Object> streamLoadUsers(
+            @RequestBody List<User> users,
+            @RequestParam(required = false) String label) {
+        try {
+            StreamLoadResult result = dataService.streamLoadUsers(users, label);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result.toMap());
+            response.put("message", result.duplicate() ? "该label已导入，未重复写入" : "Stream Load导入用户成功");
+            return response;
+        } catch (Exception e) {
+            log.error("Stream Load导入用户失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Stream Load导入用户失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * Stream Load 导入订单
+     * POST /doris/data/orders/stream-load?label=orders_20240101_001
+     */
+    @PostMapping("/data/orders/stream-load")
+    public Map<String, Object> streamLoadOrders(
+            @RequestBody List<Order> orders,
+            @RequestParam(required = false) String label) {
+        try {
+            StreamLoadResult result = dataService.streamLoadOrders(orders, label);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result.toMap());
+            response.put("message", result.duplicate() ? "该label已导入，未重复写入" : "Stream Load导入订单成功");
+            return response;
+        } catch (Exception e) {
+            log.error("Stream Load导入订单失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Stream Load导入订单失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 写入用户到攒批缓冲区（满 batch-size 或超过 linger-millis 后由后台 Stream Load 导入）
+     * POST /doris/data/users/buffered
+     */
+    @PostMapping("/data/users/buffered")
+    public Map<String, Object> bufferUsers(@RequestBody List<User> users) {
+        try {
+            int pending = streamLoadBatcher.addUsers(users);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("acceptedCount", users.size());
+            response.put("pendingRows", pending);
+            return response;
+        } catch (Exception e) {
+            log.error("写入用户缓冲区失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "写入用户缓冲区失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 写入订单到攒批缓冲区（满 batch-size 或超过 linger-millis 后由后台 Stream Load 导入）
+     * POST /doris/data/orders/buffered
+     */
+    @PostMapping("/data/orders/buffered")
+    public Map<String, Object> bufferOrders(@RequestBody List<Order> orders) {
+        try {
+            int pending = streamLoadBatcher.addOrders(orders);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("acceptedCount", orders.size());
+            response.put("pendingRows", pending);
+            return response;
+        } catch (Exception e) {
+            log.error("写入订单缓冲区失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "写入订单缓冲区失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * JDBC 批量插入与 Stream Load 导入速度对比
+     * POST /doris/data/stream-load-benchmark?rows=200000&batchSize=20000
+     */
+    @PostMapping("/data/stream-load-benchmark")
+    public Map<String, Object> streamLoadBenchmark(
+            @RequestParam(defaultValue = "200000") int rows,
+            @RequestParam(defaultValue = "20000") int batchSize) {
+        try {
+            Map<String, Object> result = streamLoadBenchmarkService.compare(rows, batchSize);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result);
+            return response;
+        } catch (Exception e) {
+            log.error("导入方式对比失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "导入方式对比失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 生成 Colocate Join 对比测试数据（基准表与 Colocation 表各一份）
+     * POST /doris/data/colocate-benchmark/prepare?users=1000000&orders=10000000
+     */
+    @PostMapping("/data/colocate-benchmark/prepare")
+    public Map<String, Object> prepareColocateBenchmark(
+            @RequestParam(defaultValue = "1000000") long users,
+            @RequestParam(defaultValue = "10000000") long orders) {
+        try {
+            Map<String, Object> result = colocateJoinBenchmarkService.prepare(users, orders);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result);
+            return response;
+        } catch (Exception e) {
+            log.error("生成Colocate Join测试数据失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "生成测试数据失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 删除 Colocate Join 对比测试表
+     * DELETE /doris/data/colocate-benchmark
+     */
+    @DeleteMapping("/data/colocate-benchmark")
+    public Map<String, Object> cleanupColocateBenchmark() {
+        try {
+            colocateJoinBenchmarkService.cleanup();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "测试表已删除");
+            return response;
+        } catch (Exception e) {
+            log.error("删除Colocate Join测试表失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "删除测试表失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     // ========== 实时更新接口（Doris核心优势）==========
 
     /**
@@ -364,6 +687,27 @@ public class DorisController {
         }
     }
 
+    /**
+     * 普通分桶与 Colocation 分桶的 Join 分布方式（EXPLAIN）和查询延迟对比
+     * GET /doris/query/colocate-benchmark?iterations=5
+     */
+    @GetMapping("/query/colocate-benchmark")
+    public Map<String, Object> colocateBenchmark(@RequestParam(defaultValue = "5") int iterations) {
+        try {
+            Map<String, Object> result = colocateJoinBenchmarkService.compare(iterations);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result);
+            return response;
+        } catch (Exception e) {
+            log.error("Colocate Join对比失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Colocate Join对比失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     // ========== 物化视图查询 ==========
 
     /**
@@ -392,6 +736,55 @@ public class DorisController {
         }
     }
 
+    /**
+     * 检查分析查询是否被改写到异步物化视图（EXPLAIN）
+     * GET /doris/query/mv-rewrite-check?startTime=2024-01-01T00:00:00&endTime=2024-03-31T23:59:59
+     */
+    @GetMapping("/query/mv-rewrite-check")
+    public Map<String, Object> checkMvRewrite(
+            @RequestParam(defaultValue = "2024-01-01T00:00:00") String startTime,
+            @RequestParam(defaultValue = "2024-03-31T23:59:59") String endTime) {
+        try {
+            List<Map<String, Object>> result = mvRewriteChecker.check(
+                    LocalDateTime.parse(startTime), LocalDateTime.parse(endTime));
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result);
+            return response;
+        } catch (Exception e) {
+            log.error("物化视图改写检查失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "物化视图改写检查失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 开启/关闭物化视图改写的查询延迟对比
+     * GET /doris/query/mv-benchmark?startTime=2024-01-01T00:00:00&endTime=2024-03-31T23:59:59&iterations=5
+     */
+    @GetMapping("/query/mv-benchmark")
+    public Map<String, Object> mvBenchmark(
+            @RequestParam(defaultValue = "2024-01-01T00:00:00") String startTime,
+            @RequestParam(defaultValue = "2024-03-31T23:59:59") String endTime,
+            @RequestParam(defaultValue = "5") int iterations) {
+        try {
+            Map<String, Object> result = mvRewriteChecker.compareLatency(
+                    LocalDateTime.parse(startTime), LocalDateTime.parse(endTime), iterations);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("result", result);
+            return response;
+        } catch (Exception e) {
+            log.error("物化视图延迟对比失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "物化视图延迟对比失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     // ========== 统计接口 ==========
 
     /**
@@ -465,6 +858,111 @@ public class DorisController {
         }
     }
 
+    /**
+     * Stream Load 导入统计（客户端累计导入、重试、重复 label 以及攒批缓冲区状态）
+     * GET /doris/stats/stream-load
+     */
+    @GetMapping("/stats/stream-load")
+    public Map<String, Object> getStreamLoadStats() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("client", streamLoadClient.stats());
+            response.put("batcher", streamLoadBatcher.stats());
+            return response;
+        } catch (Exception e) {
+            log.error("获取Stream Load统计失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取统计失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 订单变更CDC同步统计（事件数、合并比例、各分区位点和延迟）
+     * GET /doris/stats/cdc
+     */
+    @GetMapping("/stats/cdc")
+    public Map<String, Object> getCdcStats() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("stats", orderCdcSink.stats());
+            return response;
+        } catch (Exception e) {
+            log.error("获取CDC统计失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取统计失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 分区与Tablet大小巡检报告（默认返回后台任务最近一次结果）
+     * GET /doris/stats/partitions?refresh=true
+     */
+    @GetMapping("/stats/partitions")
+    public Map<String, Object> getPartitionStats(@RequestParam(defaultValue = "false") boolean refresh) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("report", partitionSizeMonitor.report(refresh));
+            return response;
+        } catch (Exception e) {
+            log.error("获取分区统计失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取统计失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 异步物化视图状态（是否可用于改写、刷新状态、最近的刷新任务）
+     * GET /doris/stats/materialized-views
+     */
+    @GetMapping("/stats/materialized-views")
+    public Map<String, Object> getMaterializedViewStats() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("views", viewManager.status());
+            return response;
+        } catch (Exception e) {
+            log.error("获取物化视图状态失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取物化视图状态失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * Colocation Group 状态（组内表、分桶数、是否稳定）及 users/orders 所属的组
+     * GET /doris/stats/colocation
+     */
+    @GetMapping("/stats/colocation")
+    public Map<String, Object> getColocationStats() {
+        try {
+            Map<String, Object> tables = new HashMap<>();
+            tables.put("users", tableService.getColocateGroup("users"));
+            tables.put("orders", tableService.getColocateGroup("orders"));
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("groups", tableService.getColocationGroups());
+            response.put("tables", tables);
+            return response;
+        } catch (Exception e) {
+            log.error("获取Colocation状态失败", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "获取Colocation状态失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     /**
      * 健康检查
      * GET /doris/health
@@ -0,0 +1,32 @@
+package com.example.doris.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单变更事件（CDC）
+ * 
+ * UPSERT 只携带发生变化的字段，为 null 的字段表示不变（部分列更新）；
+ * DELETE 只需要 orderId；orderTime 是 orders 的分区列，建议每个事件都携带（未携带时需按 order_id 回查）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderChangeEvent {
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    private Long orderId;
+    private String op;  // UPSERT, DELETE
+    private Long userId;
+    private String productName;
+    private BigDecimal amount;
+    private String status;
+    private LocalDateTime orderTime;
+    private LocalDateTime updateTime;
+}
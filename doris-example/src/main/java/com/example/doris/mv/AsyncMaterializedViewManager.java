@@ -0,0 +1,197 @@
+package com.example.doris.mv;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 异步物化视图（多表）管理
+ *
+ * 同步物化视图只能基于单表，无法覆盖 users JOIN orders 的分析查询。异步物化视图可以包含多表 JOIN，
+ * 由后台任务按计划刷新，查询时优化器自动判断能否改写到物化视图（透明改写）。
+ *
+ * 生产环境要点：
+ * - 物化视图按 date_trunc(order_day, 'month') 分区，与 orders 的月分区对应（分区追踪），
+ *   REFRESH AUTO 只刷新基表数据发生变化的分区（分区增量刷新），而不是每次全量重算
+ * - partition_sync_limit 限制物化视图只保留最近若干个月的分区，与基表动态分区的保留期对应
+ * - 聚合到天 + 用户 + 状态，count(distinct order_id) 通过 bitmap_union 上卷；
+ *   按整天过滤的时间范围、按状态过滤都可以在物化视图上补偿
+ * - 城市维度单独建一个更小的物化视图，城市统计查询由优化器选择代价更低的那个
+ * - 透明改写需要 Doris 2.1 及以上（enable_materialized_view_rewrite），可用 MvRewriteChecker 检查是否生效
+ * - users 不是分区追踪的基表，users 变化会触发全量刷新；用户属性很少变化且可以接受延迟时，
+ *   可以配置 excluded_trigger_tables = 'users'
+ */
+@Slf4j
+@Component
+public class AsyncMaterializedViewManager {
+
+    public static final String USER_ORDER_DAILY = "mv_user_order_daily";
+    public static final String CITY_ORDER_DAILY = "mv_city_order_daily";
+
+    @Value("${doris.database:demo}")
+    private String database;
+
+    @Value("${doris.mv.refresh-interval:1 HOUR}")
+    private String refreshInterval;
+
+    @Value("${doris.mv.partition-sync-limit:36}")
+    private int partitionSyncLimit;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 物化视图名称 -> 查询定义
+     */
+    private static final Map<String, String> DEFINITIONS = new LinkedHashMap<>();
+
+    static {
+        DEFINITIONS.put(USER_ORDER_DAILY, """
+            SELECT
+                u.user_id,
+                u.username,
+                u.city,
+                o.status,
+                date_trunc(o.order_time, 'day') AS order_day,
+                COUNT(o.order_id) AS order_count,
+                SUM(o.amount) AS total_amount,
+                MAX(o.order_time) AS last_order_time,
+                bitmap_union(to_bitmap(o.order_id)) AS order_ids
+            FROM orders o
+            INNER JOIN users u ON u.user_id = o.user_id
+            GROUP BY u.user_id, u.username, u.city, o.status, date_trunc(o.order_time, 'day')
+            """);
+        DEFINITIONS.put(CITY_ORDER_DAILY, """
+            SELECT
+                u.city,
+                o.status,
+                date_trunc(o.order_time, 'day') AS order_day,
+                COUNT(o.order_id) AS order_count,
+                SUM(o.amount) AS total_amount,
+                bitmap_union(to_bitmap(u.user_id)) AS user_ids
+            FROM orders o
+            INNER JOIN users u ON u.user_id = o.user_id
+            GROUP BY u.city, o.status, date_trunc(o.order_time, 'day')
+            """);
+    }
+
+    public List<String> names() {
+        return List.copyOf(DEFINITIONS.keySet());
+    }
+
+    /**
+     * 创建全部异步物化视图（已存在的跳过）
+     */
+    public void createAll() {
+        for (Map.Entry<String, String> entry : DEFINITIONS.entrySet()) {
+            create(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void create(String name, String query) {
+        String distributionKey = USER_ORDER_DAILY.equals(name) ? "user_id" : "city";
+        String sql = """
+            CREATE MATERIALIZED VIEW IF NOT EXISTS %s
+            BUILD IMMEDIATE REFRESH AUTO ON SCHEDULE EVERY %s
+            PARTITION BY (date_trunc(order_day, 'month'))
+            DISTRIBUTED BY HASH(%s) BUCKETS 10
+            PROPERTIES (
+                "replication_num" = "1",
+                "partition_sync_limit" = "%d",
+                "partition_sync_time_unit" = "MONTH"
+            )
+            AS
+            %s""".formatted(name, refreshInterval, distributionKey, partitionSyncLimit, query);
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("异步物化视图创建成功: name={}, refresh=EVERY {}", name, refreshInterval);
+        } catch (Exception e) {
+            log.error("创建异步物化视图失败: name={}", name, e);
+            throw new RuntimeException("创建异步物化视图失败: " + name, e);
+        }
+    }
+
+    /**
+     * 刷新物化视图
+     * @param partitions 指定刷新的分区（如 p_20240101000000_20240201000000），为空时 AUTO（只刷新有变化的分区）
+     * @param complete 为 true 时全量刷新
+     */
+    public void refresh(String name, List<String> partitions, boolean complete) {
+        checkName(name);
+        String sql;
+        if (complete) {
+            sql = "REFRESH MATERIALIZED VIEW " + name + " COMPLETE";
+        } else if (partitions != null && !partitions.isEmpty()) {
+            for (String partition : partitions) {
+                if (!partition.matches("[A-Za-z0-9_]+")) {
+                    throw new IllegalArgumentException("非法的分区名: " + partition);
+                }
+            }
+            sql = "REFRESH MATERIALIZED VIEW " + name + " PARTITIONS(" + String.join(", ", partitions) + ")";
+        } else {
+            sql = "REFRESH MATERIALIZED VIEW " + name + " AUTO";
+        }
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("物化视图刷新任务已提交: {}", sql);
+        } catch (Exception e) {
+            log.error("刷新物化视图失败: name={}", name, e);
+            throw new RuntimeException("刷新物化视图失败: " + name, e);
+        }
+    }
+
+    public void drop(String name) {
+        checkName(name);
+        try {
+            jdbcTemplate.execute("DROP MATERIALIZED VIEW IF EXISTS " + name);
+            log.info("物化视图删除成功: name={}", name);
+        } catch (Exception e) {
+            log.error("删除物化视图失败: name={}", name, e);
+            throw new RuntimeException("删除物化视图失败: " + name, e);
+        }
+    }
+
+    /**
+     * 物化视图状态（是否可用于改写、刷新状态）和最近的刷新任务
+     */
+    public List<Map<String, Object>> status() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String name : DEFINITIONS.keySet()) {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("name", name);
+            try {
+                // 表值函数的参数只能是常量，名称来自 DEFINITIONS，直接拼接
+                List<Map<String, Object>> info = jdbcTemplate.queryForList("""
+                        SELECT State, RefreshState, SyncWithBaseTables, RefreshInfo
+                        FROM mv_infos('database' = '%s') WHERE Name = '%s'
+                        """.formatted(database, name));
+                view.put("exists", !info.isEmpty());
+                if (!info.isEmpty()) {
+                    view.putAll(info.get(0));
+                    view.put("recentTasks", jdbcTemplate.queryForList("""
+                            SELECT TaskId, Status, RefreshMode, CreateTime, FinishTime, DurationMs, ErrorMsg
+                            FROM tasks('type' = 'mv') WHERE MvDatabaseName = '%s' AND MvName = '%s'
+                            ORDER BY CreateTime DESC LIMIT 5
+                            """.formatted(database, name)));
+                }
+            } catch (Exception e) {
+                view.put("error", e.getMessage());
+            }
+            result.add(view);
+        }
+        return result;
+    }
+
+    private static void checkName(String name) {
+        if (!DEFINITIONS.containsKey(name)) {
+            throw new IllegalArgumentException("未知的物化视图: " + name + "，可选: " + DEFINITIONS.keySet());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.doris.mv;
+
+import com.example.doris.service.DorisDataService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 物化视图透明改写检查
+ *
+ * 查询是否改写到物化视图由优化器决定，SQL 写法、过滤条件、聚合函数任何一处不匹配都会退回扫描基表，
+ * 且不会有任何报错。这里对 DorisDataService 中的分析查询执行 EXPLAIN，从执行计划中判断：
+ * - MaterializedViewRewriteSuccessAndChose：改写成功并被选中的物化视图
+ * - MaterializedViewRewriteSuccessButNotChose：可以改写但代价更高、未被选中
+ * - MaterializedViewRewriteFail：改写失败的物化视图及原因
+ * - 扫描节点（TABLE:）实际读取的表
+ * 并在同一连接上分别开启和关闭 enable_materialized_view_rewrite 执行查询，对比延迟。
+ */
+@Slf4j
+@Component
+public class MvRewriteChecker {
+
+    private static final String REWRITE_VARIABLE = "enable_materialized_view_rewrite";
+    private static final Pattern SCAN_TABLE = Pattern.compile("TABLE:\\s*(\\S+)");
+    private static final Pattern PLAN_SECTION = Pattern.compile("^\\s*(MaterializedViewRewrite\\w+):\\s*(.*)$");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DorisDataService dataService;
+
+    @Autowired
+    private AsyncMaterializedViewManager viewManager;
+
+    /**
+     * 检查每个查询是否被改写到物化视图
+     */
+    public List<Map<String, Object>> check(LocalDateTime startTime, LocalDateTime endTime) {
+        return withRewrite(true, connection -> {
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (NamedQuery query : dataService.materializedViewCandidateQueries(startTime, endTime)) {
+                results.add(explain(connection, query));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * 开启和关闭物化视图改写分别执行各查询（先预热一次，再执行 iterations 次取中位数）
+     */
+    public Map<String, Object> compareLatency(LocalDateTime startTime, LocalDateTime endTime, int iterations) {
+        List<NamedQuery> queries = dataService.materializedViewCandidateQueries(startTime, endTime);
+        Map<String, Double> withMv = withRewrite(true, connection -> medians(connection, queries, iterations));
+        Map<String, Double> withoutMv = withRewrite(false, connection -> medians(connection, queries, iterations));
+
+        List<Map<String, Object>> comparisons = new ArrayList<>();
+        for (NamedQuery query : queries) {
+            Map<String, Object> comparison = new LinkedHashMap<>();
+            double on = withMv.get(query.name());
+            double off = withoutMv.get(query.name());
+            comparison.put("query", query.name());
+            comparison.put("withMvMillis", on);
+            comparison.put("withoutMvMillis", off);
+            comparison.put("speedup", off / Math.max(on, 0.001));
+            comparisons.add(comparison);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("iterations", iterations);
+        result.put("rewrite", check(startTime, endTime));
+        result.put("latency", comparisons);
+        log.info("物化视图延迟对比: {}", comparisons);
+        return result;
+    }
+
+    private Map<String, Object> explain(Connection connection, NamedQuery query) throws SQLException {
+        List<String> lines = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + inline(query))) {
+            while (rs.next()) {
+                lines.add(rs.getString(1));
+            }
+        }
+
+        Map<String, List<String>> sections = new LinkedHashMap<>();
+        Set<String> scannedTables = new LinkedHashSet<>();
+        String section = null;
+        for (String line : lines) {
+            Matcher sectionMatcher = PLAN_SECTION.matcher(line);
+            if (sectionMatcher.matches()) {
+                section = sectionMatcher.group(1);
+                sections.computeIfAbsent(section, k -> new ArrayList<>());
+                addIfPresent(sections.get(section), sectionMatcher.group(2));
+                continue;
+            }
+            if (section != null && line.startsWith("  ")) {
+                addIfPresent(sections.get(section), line);
+            } else {
+                section = null;
+            }
+            Matcher tableMatcher = SCAN_TABLE.matcher(line);
+            while (tableMatcher.find()) {
+                scannedTables.add(tableMatcher.group(1));
+            }
+        }
+
+        List<String> chosen = mvNames(sections.get("MaterializedViewRewriteSuccessAndChose"));
+        for (String table : scannedTables) {
+            for (String name : viewManager.names()) {
+                if (table.contains(name) && !chosen.contains(name)) {
+                    chosen.add(name);
+                }
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("query", query.name());
+        result.put("rewritten", !chosen.isEmpty());
+        result.put("chosen", chosen);
+        result.put("successButNotChosen", mvNames(sections.get("MaterializedViewRewriteSuccessButNotChose")));
+        result.put("failures", sections.getOrDefault("MaterializedViewRewriteFail", List.of()));
+        result.put("scannedTables", scannedTables);
+        return result;
+    }
+
+    /**
+     * 从计划片段中提取物化视图名称（计划中为 internal#demo#mv_xxx 或 internal.demo.mv_xxx 形式）
+     */
+    private List<String> mvNames(List<String> lines) {
+        List<String> names = new ArrayList<>();
+        if (lines == null) {
+            return names;
+        }
+        for (String line : lines) {
+            for (String name : viewManager.names()) {
+                if (line.contains(name) && !names.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private Map<String, Double> medians(Connection connection, List<NamedQuery> queries, int iterations)
+            throws SQLException {
+        Map<String, Double> medians = new LinkedHashMap<>();
+        for (NamedQuery query : queries) {
+            String sql = inline(query);
+            execute(connection, sql);
+            long[] nanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                execute(connection, sql);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            medians.put(query.name(), nanos.length == 0 ? 0 : nanos[nanos.length / 2] / 1_000_000.0);
+        }
+        return medians;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                // 读完结果集，计入完整的查询耗时
+            }
+        }
+    }
+
+    /**
+     * 在同一连接上设置改写开关后执行，结束后恢复原值（连接会归还到连接池）
+     */
+    private <T> T withRewrite(boolean enabled, ConnectionCallback<T> action) {
+        return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+            String original = null;
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SHOW VARIABLES LIKE '" + REWRITE_VARIABLE + "'")) {
+                if (rs.next()) {
+                    original = rs.getString(2);
+                }
+            }
+            if (original == null) {
+                throw new IllegalStateException("当前Doris版本不支持异步物化视图透明改写（需要2.1及以上）");
+            }
+            setRewrite(connection, String.valueOf(enabled));
+            try {
+                return action.doInConnection(connection);
+            } finally {
+                setRewrite(connection, original);
+            }
+        });
+    }
+
+    private static void setRewrite(Connection connection, String value) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET " + REWRITE_VARIABLE + " = " + value);
+        }
+    }
+
+    /**
+     * 参数替换为字面量（参数只有格式化后的时间字符串），EXPLAIN 和改写检查都基于完整 SQL
+     */
+    private static String inline(NamedQuery query) {
+        StringBuilder sql = new StringBuilder();
+        int arg = 0;
+        for (char c : query.sql().toCharArray()) {
+            if (c == '?' && arg < query.args().length) {
+                Object value = query.args()[arg++];
+                sql.append(value instanceof Number ? value.toString()
+                        : "'" + String.valueOf(value).replace("\\", "\\\\").replace("'", "''") + "'");
+            } else {
+                sql.append(c);
+            }
+        }
+        return sql.toString();
+    }
+
+    private static void addIfPresent(List<String> lines, String line) {
+        if (line != null && !line.isBlank()) {
+            lines.add(line.trim());
+        }
+    }
+}
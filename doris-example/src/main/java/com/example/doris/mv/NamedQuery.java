@@ -0,0 +1,7 @@
+package com.example.doris.mv;
+
+/**
+ * 带名称的查询：SQL 与参数，用于 EXPLAIN 改写检查和延迟对比
+ */
+public record NamedQuery(String name, String sql, Object[] args) {
+}
@@ -0,0 +1,269 @@
+package com.example.doris.partition;
+
+import com.example.doris.service.DorisTableService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分区与 Tablet 大小巡检
+ *
+ * Doris 建议单个 Tablet 在 1GB ~ 10GB 之间：过小则 Tablet 数量多、元数据和调度开销大，小文件多；
+ * 过大则单个 Tablet 的 compaction、副本修复和迁移耗时长。分桶数在建分区时确定、之后不能修改，
+ * 因此按已有分区的数据量估算新分区的分桶数，调整动态分区的 buckets 属性，只影响之后创建的分区。
+ *
+ * 生产环境要点：
+ * - 后台定时采集各表分区的数据量（SHOW PARTITIONS）和动态分区调度状态（SHOW DYNAMIC PARTITION TABLES）
+ * - Tablet 平均大小 = 分区数据量 / 分桶数，超出 min-tablet-mb ~ max-tablet-mb 的分区标记并告警
+ * - 建议分桶数 = 最近几个非空分区的最大数据量 / target-tablet-mb（向上取整，不超过 max-buckets）
+ * - auto-adjust-buckets 开启时自动把建议值写入动态分区属性，否则只在报告中给出建议
+ * - 动态分区调度失败（如创建分区报错）时在报告中带出错误信息
+ */
+@Slf4j
+@Component
+public class PartitionSizeMonitor {
+
+    private static final long MB = 1024L * 1024;
+    private static final int RECENT_PARTITIONS = 3;
+
+    @Value("${doris.partition.monitor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${doris.partition.monitor.interval-minutes:30}")
+    private long intervalMinutes;
+
+    @Value("${doris.partition.monitor.tables:users,orders}")
+    private String tables;
+
+    @Value("${doris.partition.monitor.min-tablet-mb:1024}")
+    private long minTabletMb;
+
+    @Value("${doris.partition.monitor.max-tablet-mb:10240}")
+    private long maxTabletMb;
+
+    @Value("${doris.partition.monitor.target-tablet-mb:4096}")
+    private long targetTabletMb;
+
+    @Value("${doris.partition.monitor.max-buckets:128}")
+    private int maxBuckets;
+
+    @Value("${doris.partition.monitor.auto-adjust-buckets:false}")
+    private boolean autoAdjustBuckets;
+
+    @Autowired
+    private DorisTableService tableService;
+
+    private ScheduledExecutorService scheduler;
+    private volatile Map<String, Object> lastReport;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "doris-partition-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.error("分区巡检失败", e);
+            }
+        }, 1, intervalMinutes, TimeUnit.MINUTES);
+        log.info("分区巡检初始化完成: tables={}, intervalMinutes={}, tabletRange={}~{}MB, autoAdjustBuckets={}",
+                tables, intervalMinutes, minTabletMb, maxTabletMb, autoAdjustBuckets);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 最近一次巡检报告，还没有报告时立即巡检一次
+     */
+    public Map<String, Object> report(boolean refresh) {
+        Map<String, Object> report = lastReport;
+        return refresh || report == null ? refresh() : report;
+    }
+
+    /**
+     * 巡检所有表并生成报告
+     */
+    public synchronized Map<String, Object> refresh() {
+        Map<String, Map<String, Object>> dynamicPartitions = new LinkedHashMap<>();
+        for (Map<String, Object> row : tableService.getDynamicPartitionTables()) {
+            dynamicPartitions.put(String.valueOf(row.get("TableName")), row);
+        }
+        List<Map<String, Object>> tableReports = new ArrayList<>();
+        for (String table : tableNames()) {
+            if (!tableService.tableExists(table)) {
+                continue;
+            }
+            Map<String, Object> tableReport = inspect(table, dynamicPartitions.get(table));
+            // Colocation 表的分桶数由组决定，只给出建议不自动调整
+            if (autoAdjustBuckets && tableReport.get("recommendedBuckets") != null
+                    && !tableReport.get("recommendedBuckets").equals(tableReport.get("dynamicPartitionBuckets"))
+                    && tableService.getColocateGroup(table) == null) {
+                tableService.setDynamicPartitionBuckets(table, (Integer) tableReport.get("recommendedBuckets"));
+                tableReport.put("bucketsAdjusted", true);
+            }
+            tableReports.add(tableReport);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", LocalDateTime.now().toString());
+        report.put("tabletRangeMb", List.of(minTabletMb, maxTabletMb));
+        report.put("targetTabletMb", targetTabletMb);
+        report.put("tables", tableReports);
+        lastReport = report;
+        return report;
+    }
+
+    /**
+     * 把建议分桶数写入动态分区属性（只影响之后创建的分区）
+     */
+    public Map<String, Object> adjustBuckets(String table) {
+        Map<String, Object> tableReport = inspect(table, tableService.getDynamicPartitionTables().stream()
+                .filter(row -> table.equals(row.get("TableName"))).findFirst().orElse(null));
+        Object recommended = tableReport.get("recommendedBuckets");
+        if (recommended == null) {
+            throw new IllegalStateException("表 " + table + " 还没有数据，无法估算分桶数");
+        }
+        if (tableReport.get("dynamicPartitionBuckets") == null) {
+            throw new IllegalStateException("表 " + table + " 未开启动态分区");
+        }
+        tableService.setDynamicPartitionBuckets(table, (Integer) recommended);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("table", table);
+        result.put("previousBuckets", tableReport.get("dynamicPartitionBuckets"));
+        result.put("buckets", recommended);
+        return result;
+    }
+
+    private Map<String, Object> inspect(String table, Map<String, Object> dynamicPartition) {
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        long totalBytes = 0;
+        long totalTablets = 0;
+        int undersized = 0;
+        int oversized = 0;
+        List<Long> nonEmptySizes = new ArrayList<>();
+        for (Map<String, Object> row : tableService.getPartitions(table)) {
+            long bytes = parseDataSize(String.valueOf(row.get("DataSize")));
+            Integer partitionBuckets = toInteger(row.get("Buckets"));
+            int buckets = partitionBuckets != null ? partitionBuckets : 1;
+            long avgTabletBytes = bytes / Math.max(buckets, 1);
+            String status;
+            if (bytes == 0) {
+                status = "EMPTY";
+            } else if (avgTabletBytes > maxTabletMb * MB) {
+                status = "OVERSIZED";
+                oversized++;
+            } else if (avgTabletBytes < minTabletMb * MB && buckets > 1) {
+                // 只有 1 个分桶时已无法再减少，不算过小
+                status = "UNDERSIZED";
+                undersized++;
+            } else {
+                status = "OK";
+            }
+            if (bytes > 0) {
+                nonEmptySizes.add(bytes);
+            }
+            totalBytes += bytes;
+            totalTablets += buckets;
+
+            Map<String, Object> partition = new LinkedHashMap<>();
+            partition.put("name", row.get("PartitionName"));
+            partition.put("range", row.get("Range"));
+            partition.put("buckets", buckets);
+            partition.put("storageMedium", row.get("StorageMedium"));
+            partition.put("dataSizeMb", bytes / (double) MB);
+            partition.put("avgTabletMb", avgTabletBytes / (double) MB);
+            partition.put("status", status);
+            partitions.add(partition);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("table", table);
+        report.put("partitionCount", partitions.size());
+        report.put("tabletCount", totalTablets);
+        report.put("dataSizeMb", totalBytes / (double) MB);
+        report.put("undersizedPartitions", undersized);
+        report.put("oversizedPartitions", oversized);
+        if (dynamicPartition != null) {
+            report.put("dynamicPartitionEnabled", "true".equalsIgnoreCase(String.valueOf(dynamicPartition.get("Enable"))));
+            report.put("dynamicPartitionBuckets", toInteger(dynamicPartition.get("Buckets")));
+            report.put("lastSchedulerTime", dynamicPartition.get("LastSchedulerTime"));
+            report.put("schedulerState", dynamicPartition.get("State"));
+            report.put("lastCreatePartitionMsg", dynamicPartition.get("LastCreatePartitionMsg"));
+            report.put("lastDropPartitionMsg", dynamicPartition.get("LastDropPartitionMsg"));
+        } else {
+            report.put("dynamicPartitionEnabled", false);
+        }
+        // 按分区顺序（时间升序）取最近几个非空分区估算新分区的数据量
+        List<Long> recent = nonEmptySizes.subList(Math.max(0, nonEmptySizes.size() - RECENT_PARTITIONS),
+                nonEmptySizes.size());
+        if (!recent.isEmpty()) {
+            long expectedBytes = recent.stream().mapToLong(Long::longValue).max().orElse(0);
+            long targetBytes = targetTabletMb * MB;
+            int recommended = (int) Math.min(maxBuckets, Math.max(1, (expectedBytes + targetBytes - 1) / targetBytes));
+            report.put("recommendedBuckets", recommended);
+        }
+        if (undersized > 0 || oversized > 0) {
+            log.warn("分区Tablet大小超出建议范围: table={}, undersized={}, oversized={}, recommendedBuckets={}",
+                    table, undersized, oversized, report.get("recommendedBuckets"));
+        }
+        report.put("partitions", partitions);
+        return report;
+    }
+
+    private List<String> tableNames() {
+        return Arrays.stream(tables.split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList();
+    }
+
+    private static Integer toInteger(Object value) {
+        try {
+            return value != null ? Integer.valueOf(String.valueOf(value).trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析 SHOW PARTITIONS 的 DataSize（如 "1.234 GB"、"512.000 KB"、"0.000 "）为字节数
+     */
+    static long parseDataSize(String value) {
+        String[] parts = value.trim().split("\\s+");
+        if (parts.length == 0 || parts[0].isEmpty()) {
+            return 0;
+        }
+        double number = Double.parseDouble(parts[0]);
+        String unit = parts.length > 1 ? parts[1].toUpperCase() : "";
+        long multiplier = switch (unit) {
+            case "KB" -> 1024L;
+            case "MB" -> MB;
+            case "GB" -> MB * 1024;
+            case "TB" -> MB * 1024 * 1024;
+            case "PB" -> MB * 1024 * 1024 * 1024;
+            default -> 1L;
+        };
+        return (long) (number * multiplier);
+    }
+}
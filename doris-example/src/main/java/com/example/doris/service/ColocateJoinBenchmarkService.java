@@ -0,0 +1,203 @@
+package com.example.doris.service;
+
+import com.example.doris.mv.NamedQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Colocate Join 对比测试
+ *
+ * 用 numbers() 表函数在服务端生成 users 条用户、orders 条订单，同样的数据写入两组表：
+ * - 基准：users_bench 按 user_id 分桶，orders_bench 按 order_id 分桶（与默认 orders 表一致），
+ *   Join 时至少一侧要经过网络 Shuffle（BUCKET_SHUFFLE / PARTITIONED / BROADCAST）
+ * - Colocation：users_bench_colocated / orders_bench_colocated 都按 user_id 分桶、分桶数相同，
+ *   并加入同一 Colocation Group，相同 user_id 的数据在同一节点，Join 在本地完成（COLOCATE）
+ * 对 users/orders 的 Join 查询分别 EXPLAIN 出 Join 的分布方式，再各执行 iterations 次取中位数延迟。
+ * 用户注册时间和订单时间落在最近 30 天（动态分区保留期内），测试后调用 cleanup 删除四张表。
+ */
+@Slf4j
+@Service
+public class ColocateJoinBenchmarkService {
+
+    private static final String BASELINE_USERS = "users_bench";
+    private static final String BASELINE_ORDERS = "orders_bench";
+    private static final String COLOCATED_USERS = "users_bench_colocated";
+    private static final String COLOCATED_ORDERS = "orders_bench_colocated";
+    private static final String BENCH_GROUP = "user_orders_bench";
+
+    private static final int RANGE_DAYS = 30;
+    private static final int RANGE_SECONDS = RANGE_DAYS * 24 * 3600;
+    private static final DateTimeFormatter DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * EXPLAIN 中的 Join 节点，如 join op: INNER JOIN(COLOCATE[])、join op: LEFT OUTER JOIN(BUCKET_SHUFFLE)
+     */
+    private static final Pattern JOIN_OP = Pattern.compile("join op:\\s*([A-Z ]+?JOIN)\\((\\w+)");
+
+    @Value("${doris.colocation.buckets:16}")
+    private int buckets;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DorisTableService tableService;
+
+    @Autowired
+    private DorisDataService dataService;
+
+    /**
+     * 重建四张测试表并生成数据（已有测试表会被删除）
+     */
+    public Map<String, Object> prepare(long users, long orders) {
+        cleanup();
+        tableService.createUserTable(BASELINE_USERS, buckets, null);
+        tableService.createOrderTable(BASELINE_ORDERS, buckets, null);
+        tableService.createUserTable(COLOCATED_USERS, buckets, BENCH_GROUP);
+        tableService.createOrderTable(COLOCATED_ORDERS, buckets, BENCH_GROUP);
+
+        String rangeStart = rangeStart().format(DATETIME);
+        long start = System.nanoTime();
+        jdbcTemplate.update("""
+            INSERT INTO %s
+            SELECT
+                number + 1,
+                concat('bench_user_', number),
+                concat('bench_user_', number, '@example.com'),
+                CASE number %% 5 WHEN 0 THEN 'Beijing' WHEN 1 THEN 'Shanghai' WHEN 2 THEN 'Guangzhou'
+                    WHEN 3 THEN 'Shenzhen' ELSE 'Hangzhou' END,
+                'China',
+                seconds_add('%s', number %% %d),
+                18 + number %% 50,
+                CASE number %% 2 WHEN 0 THEN 'male' ELSE 'female' END
+            FROM numbers("number" = "%d")
+            """.formatted(BASELINE_USERS, rangeStart, RANGE_SECONDS, users));
+        jdbcTemplate.update("""
+            INSERT INTO %s
+            SELECT
+                number + 1,
+                number * 7919 %% %d + 1,
+                concat('bench_product_', number %% 1000),
+                CAST(number %% 100000 / 100 + 1 AS DECIMAL(10, 2)),
+                CASE number %% 5 WHEN 0 THEN 'pending' WHEN 1 THEN 'paid' WHEN 2 THEN 'shipped'
+                    WHEN 3 THEN 'completed' ELSE 'cancelled' END,
+                seconds_add('%s', number %% %d),
+                now()
+            FROM numbers("number" = "%d")
+            """.formatted(BASELINE_ORDERS, users, rangeStart, RANGE_SECONDS, orders));
+        jdbcTemplate.update("INSERT INTO " + COLOCATED_USERS + " SELECT * FROM " + BASELINE_USERS);
+        jdbcTemplate.update("INSERT INTO " + COLOCATED_ORDERS + " SELECT * FROM " + BASELINE_ORDERS);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("orders", orders);
+        result.put("buckets", buckets);
+        result.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+        log.info("Colocate Join测试数据生成完成: {}", result);
+        return result;
+    }
+
+    public Map<String, Object> compare(int iterations) {
+        if (!tableService.tableExists(COLOCATED_ORDERS)) {
+            throw new IllegalStateException("测试表不存在，请先生成测试数据");
+        }
+        LocalDateTime rangeStart = rangeStart();
+        LocalDateTime rangeEnd = rangeStart.plusSeconds(RANGE_SECONDS - 1);
+        List<NamedQuery> queries = List.of(
+                dataService.orderStatsByCityQuery(rangeStart, rangeEnd),
+                dataService.userOrderSummaryQuery(rangeStart, rangeEnd),
+                dataService.complexJoinQuery());
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (NamedQuery query : queries) {
+            NamedQuery baseline = onTables(query, BASELINE_USERS, BASELINE_ORDERS);
+            NamedQuery colocated = onTables(query, COLOCATED_USERS, COLOCATED_ORDERS);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("query", query.name());
+            result.put("baselineJoins", joinDistributions(baseline));
+            result.put("colocatedJoins", joinDistributions(colocated));
+            double baselineMillis = median(iterations, baseline);
+            double colocatedMillis = median(iterations, colocated);
+            result.put("baselineMillis", baselineMillis);
+            result.put("colocatedMillis", colocatedMillis);
+            result.put("speedup", baselineMillis / Math.max(colocatedMillis, 0.001));
+            results.add(result);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("iterations", iterations);
+        result.put("groupStable", isGroupStable());
+        result.put("queries", results);
+        log.info("Colocate Join对比: {}", results);
+        return result;
+    }
+
+    public void cleanup() {
+        for (String table : List.of(BASELINE_USERS, BASELINE_ORDERS, COLOCATED_USERS, COLOCATED_ORDERS)) {
+            tableService.dropTable(table);
+        }
+    }
+
+    /**
+     * 相对当前时间生成，保证数据始终落在动态分区保留期内（固定日期会随时间滑出保留期）
+     */
+    private static LocalDateTime rangeStart() {
+        return LocalDate.now().minusDays(RANGE_DAYS).atStartOfDay();
+    }
+
+    private static NamedQuery onTables(NamedQuery query, String users, String orders) {
+        String sql = query.sql()
+                .replace("FROM users u", "FROM " + users + " u")
+                .replace("JOIN orders o", "JOIN " + orders + " o");
+        return new NamedQuery(query.name(), sql, query.args());
+    }
+
+    /**
+     * 查询计划中各 Join 的类型和分布方式，如 INNER JOIN(COLOCATE)
+     */
+    private List<String> joinDistributions(NamedQuery query) {
+        List<String> joins = new ArrayList<>();
+        for (String line : jdbcTemplate.queryForList("EXPLAIN " + query.sql(), String.class, query.args())) {
+            Matcher matcher = JOIN_OP.matcher(line);
+            if (matcher.find()) {
+                joins.add(matcher.group(1).trim() + "(" + matcher.group(2) + ")");
+            }
+        }
+        return joins;
+    }
+
+    /**
+     * 副本修复或均衡期间组不稳定，Colocate Join 会退化为普通 Join
+     */
+    private boolean isGroupStable() {
+        return tableService.getColocationGroups().stream()
+                .filter(row -> String.valueOf(row.get("GroupName")).endsWith("_" + BENCH_GROUP))
+                .anyMatch(row -> "true".equalsIgnoreCase(String.valueOf(row.get("IsStable"))));
+    }
+
+    private double median(int iterations, NamedQuery query) {
+        jdbcTemplate.queryForList(query.sql(), query.args());
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            jdbcTemplate.queryForList(query.sql(), query.args());
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos.length == 0 ? 0 : nanos[nanos.length / 2] / 1_000_000.0;
+    }
+}
@@ -2,6 +2,10 @@ package com.example.doris.service;
 
 import com.example.doris.model.Order;
 import com.example.doris.model.User;
+import com.example.doris.mv.NamedQuery;
+import com.example.doris.streamload.StreamLoadClient;
+import com.example.doris.streamload.StreamLoadResult;
+import com.example.doris.streamload.StreamLoadTable;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
@@ -13,6 +17,7 @@ import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +30,7 @@ import java.util.Map;
  * 2. 实时更新（Doris核心优势）
  * 3. 多表JOIN查询（CBO优化）
  * 4. 物化视图查询重写
+ * 5. Stream Load 大批量导入
  */
 @Slf4j
 @Service
@@ -33,6 +39,9 @@ public class DorisDataService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private StreamLoadClient streamLoadClient;
+
     private static final DateTimeFormatter DATE_TIME_FORMATTER = 
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
@@ -163,6 +172,8 @@ public class DorisDataService {
      * 
      * Doris核心优势：支持实时UPDATE操作
      * ClickHouse主要支持追加，更新需要重建表或使用FINAL（性能差）
+     * 
+     * 每次 UPDATE 都是一次独立的导入作业，高频状态变更应通过订单变更CDC（OrderCdcSink）合并后批量写入
      */
     @Transactional
     public int updateOrderStatus(Long orderId, String newStatus) {
@@ -199,6 +210,30 @@ public class DorisDataService {
         }
     }
 
+    // ========== Stream Load 导入 ==========
+
+    /**
+     * 通过 Stream Load 导入用户（HTTP 直接推送到 BE，不经过 SQL 解析）
+     * @param label 批次 label，重试同一批数据时传相同的值可避免重复导入；为空时自动生成
+     */
+    public StreamLoadResult streamLoadUsers(List<User> users, String label) {
+        StreamLoadResult result = streamLoadClient.load(StreamLoadTable.USERS, users, label);
+        log.info("Stream Load导入用户完成: 数量={}, label={}, duplicate={}", result.loadedRows(),
+                result.label(), result.duplicate());
+        return result;
+    }
+
+    /**
+     * 通过 Stream Load 导入订单（Unique 模型，按 order_id 覆盖已有订单）
+     * @param label 批次 label，重试同一批数据时传相同的值可避免重复导入；为空时自动生成
+     */
+    public StreamLoadResult streamLoadOrders(List<Order> orders, String label) {
+        StreamLoadResult result = streamLoadClient.load(StreamLoadTable.ORDERS, orders, label);
+        log.info("Stream Load导入订单完成: 数量={}, label={}, duplicate={}", result.loadedRows(),
+                result.label(), result.duplicate());
+        return result;
+    }
+
     // ========== 多表JOIN查询（Doris核心优势）==========
 
     /**
@@ -236,6 +271,11 @@ public class DorisDataService {
      */
     public List<Map<String, Object>> getOrderStatsByCity(
             LocalDateTime startTime, LocalDateTime endTime) {
+        NamedQuery query = orderStatsByCityQuery(startTime, endTime);
+        return jdbcTemplate.queryForList(query.sql(), query.args());
+    }
+
+    NamedQuery orderStatsByCityQuery(LocalDateTime startTime, LocalDateTime endTime) {
         String sql = """
             SELECT 
                 u.city,
@@ -245,14 +285,12 @@ public class DorisDataService {
                 AVG(o.amount) AS avg_amount
             FROM users u
             LEFT JOIN orders o ON u.user_id = o.user_id
-            WHERE o.order_time >= ? AND o.order_time <= ?
+            WHERE %s
             GROUP BY u.city
             ORDER BY total_amount DESC
-            """;
+            """.formatted(orderTimeFilter(startTime, endTime));
 
-        return jdbcTemplate.queryForList(sql,
-                startTime.format(DATE_TIME_FORMATTER),
-                endTime.format(DATE_TIME_FORMATTER));
+        return new NamedQuery("getOrderStatsByCity", sql, orderTimeArgs(startTime, endTime));
     }
 
     /**
@@ -260,6 +298,11 @@ public class DorisDataService {
      */
     public List<Map<String, Object>> getUserOrderSummary(
             LocalDateTime startTime, LocalDateTime endTime) {
+        NamedQuery query = userOrderSummaryQuery(startTime, endTime);
+        return jdbcTemplate.queryForList(query.sql(), query.args());
+    }
+
+    NamedQuery userOrderSummaryQuery(LocalDateTime startTime, LocalDateTime endTime) {
         String sql = """
             SELECT 
                 u.user_id,
@@ -271,16 +314,14 @@ public class DorisDataService {
                 MAX(o.order_time) AS last_order_time
             FROM users u
             LEFT JOIN orders o ON u.user_id = o.user_id
-            WHERE o.order_time >= ? AND o.order_time <= ?
+            WHERE %s
             GROUP BY u.user_id, u.username, u.city
             HAVING order_count > 0
             ORDER BY total_amount DESC
             LIMIT 100
-            """;
+            """.formatted(orderTimeFilter(startTime, endTime));
 
-        return jdbcTemplate.queryForList(sql,
-                startTime.format(DATE_TIME_FORMATTER),
-                endTime.format(DATE_TIME_FORMATTER));
+        return new NamedQuery("getUserOrderSummary", sql, orderTimeArgs(startTime, endTime));
     }
 
     /**
@@ -289,6 +330,11 @@ public class DorisDataService {
      * 假设有产品表，演示三表JOIN
      */
     public List<Map<String, Object>> getComplexJoinQuery() {
+        NamedQuery query = complexJoinQuery();
+        return jdbcTemplate.queryForList(query.sql(), query.args());
+    }
+
+    NamedQuery complexJoinQuery() {
         // 这里演示多表JOIN的能力
         // 实际场景可能包括：用户 -> 订单 -> 订单详情 -> 产品
         String sql = """
@@ -306,7 +352,40 @@ public class DorisDataService {
             LIMIT 50
             """;
 
-        return jdbcTemplate.queryForList(sql);
+        return new NamedQuery("getComplexJoinQuery", sql, new Object[0]);
+    }
+
+    /**
+     * 可由异步物化视图改写的查询（用于 EXPLAIN 改写检查和延迟对比）
+     */
+    public List<NamedQuery> materializedViewCandidateQueries(LocalDateTime startTime, LocalDateTime endTime) {
+        return List.of(
+                orderStatsByCityQuery(startTime, endTime),
+                userOrderSummaryQuery(startTime, endTime),
+                complexJoinQuery());
+    }
+
+    /**
+     * 订单时间过滤条件
+     * 
+     * 时间范围为整天（00:00:00 ~ 23:59:59）时按天过滤，与 date_trunc(order_time, 'day') 是等价条件，
+     * 这样的查询可以由按天聚合的异步物化视图改写；其他范围只能查询明细
+     */
+    private static String orderTimeFilter(LocalDateTime startTime, LocalDateTime endTime) {
+        if (isWholeDays(startTime, endTime)) {
+            return "date_trunc(o.order_time, 'day') >= ? AND date_trunc(o.order_time, 'day') <= ?";
+        }
+        return "o.order_time >= ? AND o.order_time <= ?";
+    }
+
+    private static Object[] orderTimeArgs(LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime end = isWholeDays(startTime, endTime) ? endTime.toLocalDate().atStartOfDay() : endTime;
+        return new Object[]{startTime.format(DATE_TIME_FORMATTER), end.format(DATE_TIME_FORMATTER)};
+    }
+
+    private static boolean isWholeDays(LocalDateTime startTime, LocalDateTime endTime) {
+        return startTime.toLocalTime().equals(LocalTime.MIDNIGHT)
+                && endTime.toLocalTime().equals(LocalTime.of(23, 59, 59));
     }
 
     // ========== 物化视图查询 ==========
@@ -2,15 +2,27 @@ package com.example.doris.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * Doris表管理服务
  * 
  * 生产环境要点：
  * 1. 表模型选择（Unique/Duplicate/Aggregate）
- * 2. 分区和分桶策略
+ * 2. 分区和分桶策略（动态分区：自动创建未来分区、删除过期分区、冷热分层；维度表 users 不删除历史分区）
+ *    users/orders 按 user_id 分桶并加入同一 Colocation Group，两表 Join 在本地完成（Colocate Join）
  * 3. 物化视图设计
  * 4. 索引优化
  */
@@ -18,9 +30,72 @@ import org.springframework.stereotype.Service;
 @Service
 public class DorisTableService {
 
+    /**
+     * 维度表：按时间分区只为裁剪，历史数据一直有效，不删除也不降冷过期分区
+     */
+    private static final Set<String> DIMENSION_TABLES = Set.of("users");
+
+    /**
+     * 维度表中早于当前周期的数据统一写入该分区
+     */
+    private static final String HISTORY_PARTITION = "p_history";
+
+    private static final Pattern COLOCATE_WITH = Pattern.compile("\"colocate_with\"\\s*=\\s*\"([^\"]+)\"");
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * 分区粒度：DAY / WEEK / MONTH
+     */
+    @Value("${doris.partition.time-unit:MONTH}")
+    private String partitionTimeUnit;
+
+    /**
+     * 事实表保留的历史分区数，更早的分区由 Doris 自动删除；建表时同时补建这些历史分区（维度表 users 不删除）
+     */
+    @Value("${doris.partition.retention-partitions:36}")
+    private int retentionPartitions;
+
+    /**
+     * 提前创建的未来分区数
+     */
+    @Value("${doris.partition.future-partitions:3}")
+    private int futurePartitions;
+
+    /**
+     * 新分区的分桶数（可根据 PartitionSizeMonitor 的建议调整）
+     */
+    @Value("${doris.partition.buckets:10}")
+    private int partitionBuckets;
+
+    /**
+     * 热分区数：最近的 N 个分区存放在 SSD，更早的分区到期后自动迁移到 HDD（0 表示不分层）
+     */
+    @Value("${doris.partition.hot-partitions:0}")
+    private int hotPartitions;
+
+    /**
+     * 建表时 users/orders 按 user_id 分桶并加入 Colocation Group
+     */
+    @Value("${doris.colocation.enabled:false}")
+    private boolean colocationEnabled;
+
+    @Value("${doris.colocation.group:user_orders}")
+    private String colocationGroup;
+
+    /**
+     * Colocation Group 的分桶数，组内所有表（包括动态分区新建的分区）必须一致
+     */
+    @Value("${doris.colocation.buckets:16}")
+    private int colocationBuckets;
+
+    /**
+     * CDC 写入 orders 时按启动时的表结构决定是否携带 user_id，运行期间不允许迁移
+     */
+    @Value("${doris.cdc.enabled:false}")
+    private boolean cdcEnabled;
+
     /**
      * 创建用户表（Duplicate模型）
      * 
@@ -30,8 +105,21 @@ public class DorisTableService {
      * - 保留所有数据
      */
     public void createUserTable() {
+        if (colocationEnabled) {
+            createUserTable("users", colocationBuckets, colocationGroup);
+        } else {
+            createUserTable("users", partitionBuckets, null);
+        }
+    }
+
+    /**
+     * 用户表是维度表，按注册时间分区但不过期：早于当前周期的用户写入固定分区 p_history（MIN ~ 当前周期），
+     * 之后的分区由动态分区提前创建，历史分区不会被删除
+     * @param colocateGroup 非空时加入该 Colocation Group（用户表本身按 user_id 分桶）
+     */
+    public void createUserTable(String tableName, int buckets, String colocateGroup) {
         String sql = """
-            CREATE TABLE IF NOT EXISTS users (
+            CREATE TABLE IF NOT EXISTS %s (
                 user_id BIGINT NOT NULL,
                 username VARCHAR(50),
                 email VARCHAR(100),
@@ -43,22 +131,22 @@ public class DorisTableService {
             ) ENGINE=OLAP
             DUPLICATE KEY(user_id)
             PARTITION BY RANGE(register_time) (
-                PARTITION p202401 VALUES [("2024-01-01"), ("2024-02-01")),
-                PARTITION p202402 VALUES [("2024-02-01"), ("2024-03-01")),
-                PARTITION p202403 VALUES [("2024-03-01"), ("2024-04-01"))
+                PARTITION %s VALUES LESS THAN ("%s")
             )
-            DISTRIBUTED BY HASH(user_id) BUCKETS 10
+            DISTRIBUTED BY HASH(user_id) BUCKETS %d
             PROPERTIES (
                 "replication_num" = "1",
-                "storage_medium" = "SSD"
+                "storage_medium" = "SSD",%s
+            %s
             )
-            """;
+            """.formatted(tableName, HISTORY_PARTITION, currentPeriodStart(), buckets,
+                colocateProperty(colocateGroup), dynamicPartitionProperties(false, false, buckets));
         
         try {
             jdbcTemplate.execute(sql);
-            log.info("用户表创建成功（Duplicate模型）");
+            log.info("用户表创建成功（Duplicate模型）: table={}, colocateGroup={}", tableName, colocateGroup);
         } catch (Exception e) {
-            log.error("创建用户表失败", e);
+            log.error("创建用户表失败: table={}", tableName, e);
             throw new RuntimeException("创建用户表失败", e);
         }
     }
@@ -74,8 +162,22 @@ public class DorisTableService {
      * 这是Doris相比ClickHouse的核心优势之一
      */
     public void createOrderTable() {
+        if (colocationEnabled) {
+            createOrderTable("orders", colocationBuckets, colocationGroup);
+        } else {
+            createOrderTable("orders", partitionBuckets, null);
+        }
+    }
+
+    /**
+     * @param colocateGroup 为空时按 order_id 分桶；否则按 user_id 分桶并加入 Colocation Group，
+     *                      Unique 模型的分桶列必须是 Key 列，因此 Key 为 (order_id, user_id)
+     */
+    public void createOrderTable(String tableName, int buckets, String colocateGroup) {
+        String keyColumns = colocateGroup == null ? "order_id" : "order_id, user_id";
+        String bucketColumn = colocateGroup == null ? "order_id" : "user_id";
         String sql = """
-            CREATE TABLE IF NOT EXISTS orders (
+            CREATE TABLE IF NOT EXISTS %s (
                 order_id BIGINT NOT NULL,
                 user_id BIGINT,
                 product_name VARCHAR(100),
@@ -84,24 +186,22 @@ public class DorisTableService {
                 order_time DATETIME,
                 update_time DATETIME
             ) ENGINE=OLAP
-            UNIQUE KEY(order_id)
-            PARTITION BY RANGE(order_time) (
-                PARTITION p202401 VALUES [("2024-01-01"), ("2024-02-01")),
-                PARTITION p202402 VALUES [("2024-02-01"), ("2024-03-01")),
-                PARTITION p202403 VALUES [("2024-03-01"), ("2024-04-01"))
-            )
-            DISTRIBUTED BY HASH(order_id) BUCKETS 10
+            UNIQUE KEY(%s)
+            PARTITION BY RANGE(order_time) ()
+            DISTRIBUTED BY HASH(%s) BUCKETS %d
             PROPERTIES (
                 "replication_num" = "1",
-                "enable_unique_key_merge_on_write" = "true"
+                "enable_unique_key_merge_on_write" = "true",%s
+            %s
             )
-            """;
+            """.formatted(tableName, keyColumns, bucketColumn, buckets,
+                colocateProperty(colocateGroup), dynamicPartitionProperties(true, true, buckets));
         
         try {
             jdbcTemplate.execute(sql);
-            log.info("订单表创建成功（Unique模型，支持实时更新）");
+            log.info("订单表创建成功（Unique模型，支持实时更新）: table={}, colocateGroup={}", tableName, colocateGroup);
         } catch (Exception e) {
-            log.error("创建订单表失败", e);
+            log.error("创建订单表失败: table={}", tableName, e);
             throw new RuntimeException("创建订单表失败", e);
         }
     }
@@ -124,16 +224,13 @@ public class DorisTableService {
                 avg_amount DECIMAL(10, 2) REPLACE_IF_NOT_NULL
             ) ENGINE=OLAP
             AGGREGATE KEY(user_id, order_date)
-            PARTITION BY RANGE(order_date) (
-                PARTITION p202401 VALUES [("2024-01-01"), ("2024-02-01")),
-                PARTITION p202402 VALUES [("2024-02-01"), ("2024-03-01")),
-                PARTITION p202403 VALUES [("2024-03-01"), ("2024-04-01"))
-            )
-            DISTRIBUTED BY HASH(user_id) BUCKETS 10
+            PARTITION BY RANGE(order_date) ()
+            DISTRIBUTED BY HASH(user_id) BUCKETS %d
             PROPERTIES (
-                "replication_num" = "1"
+                "replication_num" = "1",
+            %s
             )
-            """;
+            """.formatted(partitionBuckets, dynamicPartitionProperties(true, true, partitionBuckets));
         
         try {
             jdbcTemplate.execute(sql);
@@ -144,6 +241,71 @@ public class DorisTableService {
         }
     }
 
+    /**
+     * 创建CDC位点表（Unique模型）
+     * 
+     * 记录每个消费组在每个分区已写入 Doris 的位点，CDC 消费从该位点之后继续，
+     * 位点与数据都保存在 Doris 中，不依赖消息队列的位点提交
+     */
+    public void createCdcOffsetTable() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS cdc_offsets (
+                consumer_group VARCHAR(100) NOT NULL,
+                source VARCHAR(200) NOT NULL,
+                partition_id INT NOT NULL,
+                committed_offset BIGINT,
+                update_time DATETIME
+            ) ENGINE=OLAP
+            UNIQUE KEY(consumer_group, source, partition_id)
+            DISTRIBUTED BY HASH(consumer_group) BUCKETS 1
+            PROPERTIES (
+                "replication_num" = "1",
+                "enable_unique_key_merge_on_write" = "true"
+            )
+            """;
+        
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("CDC位点表创建成功");
+        } catch (Exception e) {
+            log.error("创建CDC位点表失败", e);
+            throw new RuntimeException("创建CDC位点表失败", e);
+        }
+    }
+
+    /**
+     * 创建CDC死信表（Unique模型）
+     * 
+     * 重试耗尽仍无法写入的消息、无法确定所在分区的变更保存在这里，按消息位点去重，修复后可重新投递
+     */
+    public void createCdcDeadLetterTable() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS cdc_dead_letters (
+                consumer_group VARCHAR(100) NOT NULL,
+                source VARCHAR(200) NOT NULL,
+                partition_id INT NOT NULL,
+                message_offset BIGINT NOT NULL,
+                payload STRING,
+                error STRING,
+                create_time DATETIME
+            ) ENGINE=OLAP
+            UNIQUE KEY(consumer_group, source, partition_id, message_offset)
+            DISTRIBUTED BY HASH(consumer_group) BUCKETS 1
+            PROPERTIES (
+                "replication_num" = "1",
+                "enable_unique_key_merge_on_write" = "true"
+            )
+            """;
+        
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("CDC死信表创建成功");
+        } catch (Exception e) {
+            log.error("创建CDC死信表失败", e);
+            throw new RuntimeException("创建CDC死信表失败", e);
+        }
+    }
+
     /**
      * 创建物化视图（多表物化视图）
      * 
@@ -151,6 +313,9 @@ public class DorisTableService {
      * - 支持多表物化视图
      * - 自动查询重写
      * - 提高复杂JOIN查询性能
+     * 
+     * 注意：同步物化视图（CREATE MATERIALIZED VIEW ... AS 不带 REFRESH）只支持单表，
+     * 多表 JOIN 的物化视图请使用异步物化视图（AsyncMaterializedViewManager）
      */
     public void createMaterializedView() {
         String sql = """
@@ -179,6 +344,192 @@ public class DorisTableService {
         }
     }
 
+    // ========== Colocation Group ==========
+
+    private static String colocateProperty(String colocateGroup) {
+        return colocateGroup == null ? "" : "\n    \"colocate_with\" = \"" + colocateGroup + "\",";
+    }
+
+    /**
+     * 把已有的 users/orders 重建为按 user_id 分桶的 Colocation 表
+     * 
+     * 订单表原先按 order_id 分桶，分桶列无法修改，只能新建表、复制数据后原子替换：
+     * - 新表 Key 为 (order_id, user_id)，同一订单的 user_id 不能变更
+     * - 替换后部分列更新和删除必须携带 user_id（部分列更新要求包含全部 Key 列），
+     *   CDC 写入会在启动后检测一次表结构，因此迁移前需关闭 CDC，迁移后再开启
+     * - 复制期间写入原表的数据不会进入新表，需在停写窗口执行
+     * - 替换后原表被删除
+     */
+    public Map<String, Object> migrateToColocated() {
+        if (cdcEnabled) {
+            throw new IllegalStateException("CDC同步运行中，请先关闭 doris.cdc.enabled 再迁移");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("group", colocationGroup);
+        result.put("buckets", colocationBuckets);
+        result.put("users", rebuildColocated("users", this::createUserTable));
+        result.put("orders", rebuildColocated("orders", this::createOrderTable));
+        return result;
+    }
+
+    private String rebuildColocated(String tableName, ColocatedTableFactory factory) {
+        if (colocationGroup.equals(getColocateGroup(tableName))) {
+            return "already colocated";
+        }
+        String newTable = tableName + "_colocated";
+        dropTable(newTable);
+        factory.create(newTable, colocationBuckets, colocationGroup);
+        try {
+            jdbcTemplate.execute("INSERT INTO " + newTable + " SELECT * FROM " + tableName);
+            jdbcTemplate.execute("ALTER TABLE " + tableName + " REPLACE WITH TABLE " + newTable
+                    + " PROPERTIES('swap' = 'false')");
+            log.info("表已重建为Colocation表: table={}, group={}", tableName, colocationGroup);
+            return "migrated";
+        } catch (Exception e) {
+            log.error("重建Colocation表失败: table={}", tableName, e);
+            throw new RuntimeException("重建Colocation表失败", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColocatedTableFactory {
+        void create(String tableName, int buckets, String colocateGroup);
+    }
+
+    /**
+     * 表所属的 Colocation Group，未加入时返回 null
+     */
+    public String getColocateGroup(String tableName) {
+        checkTableName(tableName);
+        Map<String, Object> row = jdbcTemplate.queryForMap("SHOW CREATE TABLE " + tableName);
+        Matcher matcher = COLOCATE_WITH.matcher(String.valueOf(row.get("Create Table")));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Colocation Group 状态（组内表、分桶数、副本分布是否稳定）
+     * 
+     * IsStable 为 false 时（副本修复或均衡中）Colocate Join 会退化为普通 Join
+     */
+    public List<Map<String, Object>> getColocationGroups() {
+        return jdbcTemplate.queryForList("SHOW PROC '/colocation_group'");
+    }
+
+    // ========== 动态分区 ==========
+
+    /**
+     * 动态分区属性
+     * 
+     * 分区名为 p + 时间（MONTH 为 p202401），与原先手工创建的月分区命名一致，
+     * 已有表开启动态分区后原分区保留，由 Doris 调度线程补建缺失的分区
+     * @param buckets 新分区的分桶数（Colocation Group 内的表必须与组的分桶数一致）
+     * @param createTable 建表时为 true，同时补建保留期内的历史分区（create_history_partition 只在建表时生效）
+     * @param expire 事实表为 true：超过保留期的分区自动删除、到期的热分区降冷；
+     *               维度表为 false：不设置 start（默认不删除），只提前创建未来分区
+     */
+    private String dynamicPartitionProperties(boolean createTable, boolean expire, int buckets) {
+        String timeUnit = partitionTimeUnit.toUpperCase();
+        List<String> properties = new ArrayList<>();
+        properties.add("\"dynamic_partition.enable\" = \"true\"");
+        properties.add("\"dynamic_partition.time_unit\" = \"" + timeUnit + "\"");
+        if (expire) {
+            properties.add("\"dynamic_partition.start\" = \"-" + retentionPartitions + "\"");
+        }
+        properties.add("\"dynamic_partition.end\" = \"" + futurePartitions + "\"");
+        properties.add("\"dynamic_partition.prefix\" = \"p\"");
+        properties.add("\"dynamic_partition.buckets\" = \"" + buckets + "\"");
+        if (createTable && expire) {
+            properties.add("\"dynamic_partition.create_history_partition\" = \"true\"");
+        }
+        if ("MONTH".equals(timeUnit)) {
+            properties.add("\"dynamic_partition.start_day_of_month\" = \"1\"");
+        }
+        if (expire && hotPartitions > 0) {
+            properties.add("\"dynamic_partition.hot_partition_num\" = \"" + hotPartitions + "\"");
+        }
+        return "    " + String.join(",\n    ", properties);
+    }
+
+    /**
+     * 当前分区周期的起始日期（按 Doris 服务端日期），即动态分区创建的第一个分区的下界
+     */
+    private LocalDate currentPeriodStart() {
+        LocalDate today = jdbcTemplate.queryForObject("SELECT CURDATE()", LocalDate.class);
+        return switch (partitionTimeUnit.toUpperCase()) {
+            case "WEEK" -> today.with(DayOfWeek.MONDAY);
+            case "MONTH" -> today.withDayOfMonth(1);
+            default -> today;
+        };
+    }
+
+    /**
+     * 为已有表开启动态分区（原先使用固定分区创建的表）
+     * 
+     * 开启后 Doris 按配置自动创建未来分区、删除超过保留期的分区，写入超出原固定分区范围的数据不再失败；
+     * 维度表（users）只创建未来分区，原有分区保留，原分区与当前周期之间缺少的分区需手动补建
+     */
+    public void enableDynamicPartition(String tableName) {
+        checkTableName(tableName);
+        boolean expire = !DIMENSION_TABLES.contains(tableName);
+        String sql = "ALTER TABLE " + tableName + " SET (\n"
+                + dynamicPartitionProperties(false, expire, partitionBuckets) + "\n)";
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("动态分区开启成功: table={}", tableName);
+        } catch (Exception e) {
+            log.error("开启动态分区失败: table={}", tableName, e);
+            throw new RuntimeException("开启动态分区失败", e);
+        }
+    }
+
+    /**
+     * 调整动态分区新建分区的分桶数（已有分区不变）；Colocation 表不允许调整
+     */
+    public void setDynamicPartitionBuckets(String tableName, int buckets) {
+        String group = getColocateGroup(tableName);
+        if (group != null) {
+            throw new IllegalStateException("表 " + tableName + " 属于 Colocation Group " + group + "，分桶数必须与组一致");
+        }
+        String sql = "ALTER TABLE " + tableName + " SET (\"dynamic_partition.buckets\" = \"" + buckets + "\")";
+        try {
+            jdbcTemplate.execute(sql);
+            log.info("动态分区分桶数调整成功: table={}, buckets={}", tableName, buckets);
+        } catch (Exception e) {
+            log.error("调整动态分区分桶数失败: table={}", tableName, e);
+            throw new RuntimeException("调整动态分区分桶数失败", e);
+        }
+    }
+
+    /**
+     * 表是否已开启动态分区
+     */
+    public boolean isDynamicPartitionEnabled(String tableName) {
+        return getDynamicPartitionTables().stream()
+                .anyMatch(row -> tableName.equals(row.get("TableName"))
+                        && "true".equalsIgnoreCase(String.valueOf(row.get("Enable"))));
+    }
+
+    /**
+     * 动态分区调度状态（最近一次调度时间、创建/删除分区的错误信息等）
+     */
+    public List<Map<String, Object>> getDynamicPartitionTables() {
+        return jdbcTemplate.queryForList("SHOW DYNAMIC PARTITION TABLES");
+    }
+
+    /**
+     * 表的分区信息（分区名、范围、分桶数、存储介质、数据量等）
+     */
+    public List<Map<String, Object>> getPartitions(String tableName) {
+        checkTableName(tableName);
+        return jdbcTemplate.queryForList("SHOW PARTITIONS FROM " + tableName);
+    }
+
+    private static void checkTableName(String tableName) {
+        if (tableName == null || !tableName.matches("[A-Za-z0-9_]+")) {
+            throw new IllegalArgumentException("非法的表名: " + tableName);
+        }
+    }
+
     /**
      * 删除表
      */
@@ -0,0 +1,111 @@
+package com.example.doris.service;
+
+import com.example.doris.model.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * 导入方式对比测试
+ *
+ * 预先生成 rows 条订单，按 batchSize 一批依次用两种方式写入 orders 表：
+ * - jdbc：batchInsertOrders（rewriteBatchedStatements 合并为多值 INSERT）
+ * - streamLoad：streamLoadOrders（HTTP 推送 CSV/JSON 数据流）
+ * 两种方式各写一份不同 order_id 的数据（各自生成，互不覆盖），统计 rows/s。
+ * 测试订单的 product_name 为 bench_product，order_time 落在最近 30 天内（随当前时间滚动，
+ * 始终在动态分区保留期内：默认保留 36 个分区，分区粒度为 DAY 时也能覆盖），
+ * 测试后可执行 DELETE FROM orders WHERE product_name = 'bench_product' 清理。
+ */
+@Slf4j
+@Service
+public class StreamLoadBenchmarkService {
+
+    private static final String[] STATUSES = {"pending", "paid", "shipped", "completed", "cancelled"};
+    private static final int RANGE_DAYS = 30;
+
+    @Autowired
+    private DorisDataService dataService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Map<String, Object> compare(int rows, int batchSize) {
+        if (rows <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("rows和batchSize必须大于0: rows=" + rows + ", batchSize=" + batchSize);
+        }
+        // order_id 从当前最大值之后开始，避免覆盖已有订单
+        Long maxOrderId = jdbcTemplate.queryForObject("SELECT MAX(order_id) FROM orders", Long.class);
+        long nextOrderId = (maxOrderId != null ? maxOrderId : 0) + 1;
+
+        List<Order> warmup = generate(nextOrderId, Math.min(batchSize, 1000));
+        nextOrderId += warmup.size();
+        List<List<Order>> jdbcBatches = new ArrayList<>();
+        List<List<Order>> streamLoadBatches = new ArrayList<>();
+        for (int i = 0; i < rows; i += batchSize) {
+            int size = Math.min(batchSize, rows - i);
+            jdbcBatches.add(generate(nextOrderId, size));
+            nextOrderId += size;
+            streamLoadBatches.add(generate(nextOrderId, size));
+            nextOrderId += size;
+        }
+
+        Map<String, Object> jdbc = run(jdbcBatches, warmup, dataService::batchInsertOrders);
+        Map<String, Object> streamLoad = run(streamLoadBatches, warmup,
+                batch -> dataService.streamLoadOrders(batch, null));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);
+        result.put("batchSize", batchSize);
+        result.put("jdbc", jdbc);
+        result.put("streamLoad", streamLoad);
+        result.put("speedup", (double) ((Long) streamLoad.get("rowsPerSecond"))
+                / Math.max((Long) jdbc.get("rowsPerSecond"), 1));
+        log.info("导入方式对比: rows={}, batchSize={}, jdbc={}, streamLoad={}", rows, batchSize, jdbc, streamLoad);
+        return result;
+    }
+
+    private Map<String, Object> run(List<List<Order>> batches, List<Order> warmup, Consumer<List<Order>> insert) {
+        insert.accept(warmup);
+        long rows = batches.stream().mapToLong(List::size).sum();
+        long start = System.nanoTime();
+        for (List<Order> batch : batches) {
+            insert.accept(batch);
+        }
+        long nanos = System.nanoTime() - start;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("elapsedMillis", nanos / 1_000_000);
+        result.put("rowsPerSecond", rows * 1_000_000_000L / Math.max(nanos, 1));
+        return result;
+    }
+
+    private List<Order> generate(long firstOrderId, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime rangeStart = LocalDate.now().minusDays(RANGE_DAYS).atStartOfDay();
+        int rangeSeconds = RANGE_DAYS * 24 * 3600;
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime orderTime = rangeStart.plusSeconds(random.nextInt(rangeSeconds));
+            orders.add(new Order(
+                    firstOrderId + i,
+                    (long) random.nextInt(1, 100_001),
+                    "bench_product",
+                    BigDecimal.valueOf(random.nextInt(100, 100_000), 2),
+                    STATUSES[random.nextInt(STATUSES.length)],
+                    orderTime,
+                    orderTime));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.doris.streamload;
+
+import com.example.doris.model.Order;
+import com.example.doris.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stream Load 攒批写入
+ *
+ * 每次 Stream Load 都是一个导入事务，会生成一个新的数据版本；高频小批量导入会导致版本堆积、
+ * compaction 跟不上（-235 错误）。这里把零散写入按表缓冲，攒够 batch-size 行或等待 linger-millis 后
+ * 由单个后台线程合并为一次 Stream Load。
+ *
+ * 生产环境要点：
+ * - 每个表同一时刻只有一个导入在执行，批次大小与导入频率可通过 batch-size / linger-millis 权衡
+ * - 批次 label = 前缀_表名_实例ID_序号，失败重试复用同一 label，不会重复导入
+ * - 缓冲行数超过 max-pending-rows 时拒绝写入（背压），避免 Doris 不可用时内存无限增长
+ * - 重试耗尽的批次记入 failedRows 并丢弃，需要可靠投递时由上游（如消息队列）负责重放
+ * - 应用关闭时把缓冲区中剩余数据导入完再退出
+ */
+@Slf4j
+@Component
+public class StreamLoadBatcher {
+
+    @Value("${doris.stream-load.batch-size:50000}")
+    private int batchSize;
+
+    @Value("${doris.stream-load.linger-millis:1000}")
+    private long lingerMillis;
+
+    @Value("${doris.stream-load.max-pending-rows:500000}")
+    private int maxPendingRows;
+
+    @Value("${doris.stream-load.label-prefix:doris_example}")
+    private String labelPrefix;
+
+    @Autowired
+    private StreamLoadClient client;
+
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final Buffer<User> users = new Buffer<>(StreamLoadTable.USERS);
+    private final Buffer<Order> orders = new Buffer<>(StreamLoadTable.ORDERS);
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "doris-stream-load-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(lingerMillis / 4, 10);
+        flusher.scheduleWithFixedDelay(() -> flushDue(false), interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Stream Load攒批初始化完成: batchSize={}, lingerMillis={}, maxPendingRows={}",
+                batchSize, lingerMillis, maxPendingRows);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(60, TimeUnit.SECONDS);
+        flushDue(true);
+    }
+
+    public int addUsers(List<User> rows) {
+        return add(users, rows);
+    }
+
+    public int addOrders(List<Order> rows) {
+        return add(orders, rows);
+    }
+
+    private <T> int add(Buffer<T> buffer, List<T> rows) {
+        int pending = buffer.add(rows);
+        if (pending >= batchSize) {
+            flusher.execute(() -> flushDue(false));
+        }
+        return pending;
+    }
+
+    /**
+     * 导入所有满批或已超过 linger 的缓冲；force 为 true 时导入全部剩余数据
+     */
+    private void flushDue(boolean force) {
+        flush(users, force);
+        flush(orders, force);
+    }
+
+    private <T> void flush(Buffer<T> buffer, boolean force) {
+        List<T> batch;
+        while ((batch = buffer.drain(force)) != null) {
+            String label = labelPrefix + "_" + buffer.table.getName() + "_" + instanceId + "_"
+                    + buffer.sequence.incrementAndGet();
+            try {
+                StreamLoadResult result = client.load(buffer.table, batch, label);
+                buffer.loadedRows.add(batch.size());
+                buffer.batches.increment();
+                log.debug("攒批导入完成: table={}, rows={}, label={}, loadTimeMs={}", buffer.table.getName(),
+                        batch.size(), label, result.loadTimeMs());
+            } catch (Exception e) {
+                buffer.failedRows.add(batch.size());
+                buffer.lastError = e.getMessage();
+                log.error("攒批导入失败，丢弃该批数据: table={}, rows={}, label={}", buffer.table.getName(),
+                        batch.size(), label, e);
+            }
+        }
+    }
+
+    /**
+     * 各表缓冲行数、已导入批次和行数、失败行数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batchSize", batchSize);
+        stats.put("lingerMillis", lingerMillis);
+        stats.put("maxPendingRows", maxPendingRows);
+        stats.put("users", users.stats());
+        stats.put("orders", orders.stats());
+        return stats;
+    }
+
+    private class Buffer<T> {
+
+        private final StreamLoadTable<T> table;
+        private final AtomicLong sequence = new AtomicLong();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder loadedRows = new LongAdder();
+        private final LongAdder failedRows = new LongAdder();
+        private volatile String lastError;
+
+        private List<T> pending = new ArrayList<>();
+        private long firstRowNanos;
+
+        Buffer(StreamLoadTable<T> table) {
+            this.table = table;
+        }
+
+        synchronized int add(List<T> rows) {
+            if (pending.size() + rows.size() > maxPendingRows) {
+                throw new IllegalStateException("Stream Load缓冲区已满: table=" + table.getName()
+                        + ", pending=" + pending.size() + ", maxPendingRows=" + maxPendingRows);
+            }
+            if (pending.isEmpty()) {
+                firstRowNanos = System.nanoTime();
+            }
+            pending.addAll(rows);
+            return pending.size();
+        }
+
+        /**
+         * 取出一批待导入数据，未满批且未超过 linger 时返回 null
+         */
+        synchronized List<T> drain(boolean force) {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            boolean lingered = System.nanoTime() - firstRowNanos >= TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            if (!force && !lingered && pending.size() < batchSize) {
+                return null;
+            }
+            if (pending.size() <= batchSize) {
+                List<T> batch = pending;
+                pending = new ArrayList<>();
+                return batch;
+            }
+            List<T> batch = new ArrayList<>(pending.subList(0, batchSize));
+            pending = new ArrayList<>(pending.subList(batchSize, pending.size()));
+            return batch;
+        }
+
+        synchronized Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("pendingRows", pending.size());
+            stats.put("batches", batches.sum());
+            stats.put("loadedRows", loadedRows.sum());
+            stats.put("failedRows", failedRows.sum());
+            stats.put("lastError", lastError);
+            return stats;
+        }
+    }
+}
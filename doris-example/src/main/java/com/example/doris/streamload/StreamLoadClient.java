@@ -0,0 +1,273 @@
+package com.example.doris.streamload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stream Load HTTP 导入客户端
+ *
+ * JDBC 批量 INSERT 要经过 SQL 解析和规划，每批一个事务；Stream Load 直接把 CSV/JSON 数据流推给 BE，
+ * 省去 SQL 层开销，是 Doris 推荐的大批量导入方式。
+ *
+ * 生产环境要点：
+ * - 请求体按需编码、chunked 发送，不在内存中拼出整批数据
+ * - 请求发往 FE 时，FE 以 307 重定向到某个 BE；这里不自动跟随重定向，而是带上 Expect: 100-continue
+ *   先拿到重定向地址，再把请求体发给 BE，避免请求体在 FE 上传一次
+ * - FE 返回的 BE 地址可能是容器内地址，此时配置 be-url 直接发给 BE
+ * - 每批使用唯一 label，网络超时等失败后用同一个 label 重试：
+ *   label 已存在且前一次已完成（FINISHED）说明数据已经写入，直接视为成功，不会重复导入；
+ *   前一次仍在执行（RUNNING）则等待后再查；数据质量错误（过滤行超过 max_filter_ratio）不重试
+ * - Publish Timeout 表示事务已提交、只是版本生效较慢，数据最终可见，视为成功
+ * - group-commit（Doris 2.1+）由 BE 把多个小批次合并为一次提交，适合高频小批量写入；
+ *   group commit 不能与 label 同时使用，开启后请求不带 label、失败不自动重试（无法判断是否已写入）
+ */
+@Slf4j
+@Component
+public class StreamLoadClient {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Value("${doris.stream-load.fe-url:http://localhost:8030}")
+    private String feUrl;
+
+    /**
+     * 直连 BE 的地址（可选），配置后不再经过 FE 重定向
+     */
+    @Value("${doris.stream-load.be-url:}")
+    private String beUrl;
+
+    @Value("${doris.database:demo}")
+    private String database;
+
+    @Value("${doris.username:root}")
+    private String username;
+
+    @Value("${doris.password:}")
+    private String password;
+
+    @Value("${doris.stream-load.format:csv}")
+    private String format;
+
+    /**
+     * off / async_mode / sync_mode
+     */
+    @Value("${doris.stream-load.group-commit:off}")
+    private String groupCommit;
+
+    @Value("${doris.stream-load.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${doris.stream-load.retry-backoff-millis:500}")
+    private long retryBackoffMillis;
+
+    @Value("${doris.stream-load.timeout-seconds:600}")
+    private int timeoutSeconds;
+
+    @Value("${doris.stream-load.max-filter-ratio:0}")
+    private double maxFilterRatio;
+
+    private HttpClient httpClient;
+    private StreamLoadFormat loadFormat;
+    private String authorization;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadedRows = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        loadFormat = StreamLoadFormat.of(format);
+        if (!isGroupCommit() && !"off".equalsIgnoreCase(groupCommit)) {
+            throw new IllegalStateException("doris.stream-load.group-commit 只能是 off / async_mode / sync_mode");
+        }
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        log.info("Stream Load初始化完成: url={}, format={}, groupCommit={}",
+                beUrl.isBlank() ? feUrl : beUrl, loadFormat, groupCommit);
+    }
+
+    public boolean isGroupCommit() {
+        return "async_mode".equalsIgnoreCase(groupCommit) || "sync_mode".equalsIgnoreCase(groupCommit);
+    }
+
+    /**
+     * 生成批次 label：前缀_表名_随机串，label 在数据库内唯一，重试同一批次时必须复用
+     */
+    public static String newLabel(String prefix, String table) {
+        return prefix + "_" + table + "_" + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * 导入一批数据，失败时用同一个 label 重试
+     * @param label 批次 label，为空时自动生成；开启 group commit 时忽略
+     */
+    public <T> StreamLoadResult load(StreamLoadTable<T> table, List<T> rows, String label) {
+        return load(table, rows, label, Map.of());
+    }
+
+    /**
+     * 导入一批数据，附加额外的导入参数（如 partial_columns、merge_type）
+     */
+    public <T> StreamLoadResult load(StreamLoadTable<T> table, List<T> rows, String label,
+                                     Map<String, String> headers) {
+        if (isGroupCommit()) {
+            label = null;
+        } else if (label == null || label.isBlank()) {
+            label = newLabel("stream_load", table.getName());
+        }
+        long start = System.nanoTime();
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            StreamLoadResult result;
+            try {
+                result = send(table, rows, label, headers);
+            } catch (IOException e) {
+                result = null;
+                if (isGroupCommit() || attempt > maxRetries) {
+                    failures.increment();
+                    throw new IllegalStateException("Stream Load请求失败: table=" + table.getName()
+                            + ", label=" + label, e);
+                }
+                log.warn("Stream Load请求失败，{}ms后重试: label={}, error={}", backoff(attempt), label,
+                        e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Stream Load被中断: label=" + label, e);
+            }
+
+            if (result != null) {
+                if (result.isCommitted()) {
+                    record(result.loadedRows(), start);
+                    return result.withAttempts(attempt, false);
+                }
+                if (StreamLoadResult.LABEL_ALREADY_EXISTS.equals(result.status())
+                        && isFinished(result.existingJobStatus())) {
+                    duplicates.increment();
+                    record(0, start);
+                    log.info("label已导入完成，跳过重复导入: label={}, existingJobStatus={}", label,
+                            result.existingJobStatus());
+                    return result.withAttempts(attempt, true);
+                }
+                boolean dataError = result.filteredRows() > 0 || result.errorUrl() != null;
+                if (dataError || isGroupCommit() || attempt > maxRetries) {
+                    failures.increment();
+                    throw new IllegalStateException("Stream Load失败: table=" + table.getName() + ", label=" + label
+                            + ", status=" + result.status() + ", message=" + result.message()
+                            + (result.errorUrl() != null ? ", errorUrl=" + result.errorUrl() : ""));
+                }
+                // 同一 label 的前一次请求仍在执行（RUNNING）时也在这里等待，之后再查询其结果
+                log.warn("Stream Load未成功，{}ms后重试: label={}, status={}, existingJobStatus={}, message={}",
+                        backoff(attempt), label, result.status(), result.existingJobStatus(), result.message());
+            }
+            retries.increment();
+            try {
+                Thread.sleep(backoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Stream Load重试等待被中断: label=" + label, e);
+            }
+        }
+    }
+
+    private <T> StreamLoadResult send(StreamLoadTable<T> table, List<T> rows, String label,
+                                      Map<String, String> headers) throws IOException, InterruptedException {
+        String path = "/api/" + database + "/" + table.getName() + "/_stream_load";
+        URI uri = URI.create((beUrl.isBlank() ? feUrl : beUrl) + path);
+        HttpResponse<String> response = httpClient.send(request(uri, table, rows, label, headers),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 307) {
+            // FE 在收到请求体之前就返回重定向（Expect: 100-continue），请求体只发给 BE
+            String location = response.headers().firstValue("Location")
+                    .orElseThrow(() -> new IOException("FE返回307但没有Location"));
+            response = httpClient.send(request(uri.resolve(location), table, rows, label, headers),
+                    HttpResponse.BodyHandlers.ofString());
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Stream Load HTTP " + response.statusCode() + ": " + response.body());
+        }
+        JsonNode json = OBJECT_MAPPER.readTree(response.body());
+        return StreamLoadResult.parse(json);
+    }
+
+    private <T> HttpRequest request(URI uri, StreamLoadTable<T> table, List<T> rows, String label,
+                                    Map<String, String> headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(timeoutSeconds + 30L))
+                .expectContinue(true)
+                .header("Authorization", authorization)
+                .header("columns", String.join(",", table.getColumns()))
+                .header("timeout", String.valueOf(timeoutSeconds))
+                .header("max_filter_ratio", String.valueOf(maxFilterRatio))
+                // 长度未知的 InputStream 请求体以 chunked 方式发送
+                .PUT(HttpRequest.BodyPublishers.ofInputStream(
+                        () -> new StreamLoadInputStream<>(table, loadFormat, rows)));
+        loadFormat.getHeaders().forEach(builder::header);
+        headers.forEach(builder::header);
+        if (label != null) {
+            builder.header("label", label);
+        }
+        if (isGroupCommit()) {
+            builder.header("group_commit", groupCommit.toLowerCase());
+        }
+        return builder.build();
+    }
+
+    private static boolean isFinished(String existingJobStatus) {
+        return "FINISHED".equals(existingJobStatus) || "VISIBLE".equals(existingJobStatus)
+                || "COMMITTED".equals(existingJobStatus);
+    }
+
+    private long backoff(int attempt) {
+        return retryBackoffMillis << Math.min(attempt - 1, 10);
+    }
+
+    private void record(long rows, long start) {
+        loads.increment();
+        loadedRows.add(rows);
+        loadNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * 累计导入批次、行数、耗时、重试、重复 label 和失败次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("url", beUrl.isBlank() ? feUrl : beUrl);
+        stats.put("format", loadFormat.name().toLowerCase());
+        stats.put("groupCommit", groupCommit);
+        stats.put("loads", loads.sum());
+        stats.put("loadedRows", loadedRows.sum());
+        stats.put("loadMillis", loadNanos.sum() / 1_000_000);
+        stats.put("retries", retries.sum());
+        stats.put("duplicateLabels", duplicates.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+}
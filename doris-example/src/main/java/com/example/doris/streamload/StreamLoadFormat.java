@@ -0,0 +1,37 @@
+package com.example.doris.streamload;
+
+import java.util.Map;
+
+/**
+ * Stream Load 数据格式
+ *
+ * - CSV：列分隔符 \x01、行分隔符 \x02（业务数据中不会出现，无需转义），NULL 写作 \N；体积小、解析快
+ * - JSON：每行一个 JSON 对象（read_json_by_line），按字段名对应列，字段内容无需考虑分隔符
+ */
+public enum StreamLoadFormat {
+
+    CSV(Map.of("format", "csv", "column_separator", "\\x01", "line_delimiter", "\\x02")),
+    JSON(Map.of("format", "json", "read_json_by_line", "true"));
+
+    private final Map<String, String> headers;
+
+    StreamLoadFormat(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * 描述数据格式的请求头
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public static StreamLoadFormat of(String value) {
+        for (StreamLoadFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的Stream Load格式: " + value + "（csv / json）");
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.doris.streamload;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 按需编码的请求体：HTTP 客户端读取时才把下一批行编码进 64KB 缓冲区，
+ * 内存占用与批次大小无关，请求体长度未知，以 chunked 方式发送。
+ */
+class StreamLoadInputStream<T> extends InputStream {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final byte COLUMN_SEPARATOR = 0x01;
+    private static final byte LINE_DELIMITER = 0x02;
+    private static final byte[] CSV_NULL = "\\N".getBytes(StandardCharsets.UTF_8);
+
+    private final StreamLoadTable<T> table;
+    private final StreamLoadFormat format;
+    private final Iterator<T> rows;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(CHUNK_BYTES + 1024);
+    private byte[] chunk = new byte[0];
+    private int position;
+
+    StreamLoadInputStream(StreamLoadTable<T> table, StreamLoadFormat format, List<T> rows) {
+        this.table = table;
+        this.format = format;
+        this.rows = rows.iterator();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        if (position < chunk.length) {
+            return true;
+        }
+        if (!rows.hasNext()) {
+            return false;
+        }
+        buffer.reset();
+        while (rows.hasNext() && buffer.size() < CHUNK_BYTES) {
+            Object[] values = table.values(rows.next());
+            if (format == StreamLoadFormat.CSV) {
+                writeCsv(values);
+            } else {
+                writeJson(values);
+            }
+        }
+        chunk = buffer.toByteArray();
+        position = 0;
+        return true;
+    }
+
+    private void writeCsv(Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.write(COLUMN_SEPARATOR);
+            }
+            if (values[i] == null) {
+                buffer.writeBytes(CSV_NULL);
+            } else {
+                buffer.writeBytes(text(values[i]).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        buffer.write(LINE_DELIMITER);
+    }
+
+    private void writeJson(Object[] values) throws IOException {
+        List<String> columns = table.getColumns();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    generator.writeNullField(columns.get(i));
+                } else if (value instanceof Number && !(value instanceof BigDecimal)) {
+                    generator.writeNumberField(columns.get(i), ((Number) value).longValue());
+                } else {
+                    generator.writeStringField(columns.get(i), text(value));
+                }
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.write('\n');
+    }
+
+    private static String text(Object value) {
+        if (value instanceof LocalDateTime time) {
+            return time.format(DATE_TIME_FORMATTER);
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+}
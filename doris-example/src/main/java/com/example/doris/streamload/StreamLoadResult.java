@@ -0,0 +1,64 @@
+package com.example.doris.streamload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stream Load 返回结果（Doris 返回的 JSON 中与导入结果相关的字段）
+ *
+ * duplicate 为 true 表示该 label 已经导入过（重试时前一次请求其实已成功），本次没有重复写入数据。
+ */
+public record StreamLoadResult(String status, String label, long txnId, String existingJobStatus,
+                               long totalRows, long loadedRows, long filteredRows, long loadTimeMs,
+                               String message, String errorUrl, boolean duplicate, int attempts) {
+
+    public static final String SUCCESS = "Success";
+    public static final String PUBLISH_TIMEOUT = "Publish Timeout";
+    public static final String LABEL_ALREADY_EXISTS = "Label Already Exists";
+
+    static StreamLoadResult parse(JsonNode json) {
+        return new StreamLoadResult(
+                json.path("Status").asText(),
+                json.path("Label").asText(null),
+                json.path("TxnId").asLong(),
+                json.path("ExistingJobStatus").asText(null),
+                json.path("NumberTotalRows").asLong(),
+                json.path("NumberLoadedRows").asLong(),
+                json.path("NumberFilteredRows").asLong(),
+                json.path("LoadTimeMs").asLong(),
+                json.path("Message").asText(null),
+                json.path("ErrorURL").asText(null),
+                false, 1);
+    }
+
+    /**
+     * 数据已提交：Publish Timeout 表示事务已提交、只是版本生效稍慢，数据最终可见，不能重试
+     */
+    public boolean isCommitted() {
+        return SUCCESS.equals(status) || PUBLISH_TIMEOUT.equals(status);
+    }
+
+    StreamLoadResult withAttempts(int attempts, boolean duplicate) {
+        return new StreamLoadResult(status, label, txnId, existingJobStatus, totalRows, loadedRows, filteredRows,
+                loadTimeMs, message, errorUrl, duplicate, attempts);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("status", status);
+        map.put("label", label);
+        map.put("txnId", txnId);
+        map.put("duplicate", duplicate);
+        map.put("attempts", attempts);
+        map.put("totalRows", totalRows);
+        map.put("loadedRows", loadedRows);
+        map.put("filteredRows", filteredRows);
+        map.put("loadTimeMs", loadTimeMs);
+        if (errorUrl != null) {
+            map.put("errorUrl", errorUrl);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.doris.streamload;
+
+import com.example.doris.model.Order;
+import com.example.doris.model.User;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Stream Load 目标表：表名、列顺序以及从实体取出各列值的方式
+ *
+ * 列顺序通过 columns 请求头告诉 Doris，CSV 按位置、JSON 按字段名对应。
+ */
+public final class StreamLoadTable<T> {
+
+    public static final StreamLoadTable<User> USERS = new StreamLoadTable<>("users",
+            List.of("user_id", "username", "email", "city", "country", "register_time", "age", "gender"),
+            user -> new Object[]{user.getUserId(), user.getUsername(), user.getEmail(), user.getCity(),
+                    user.getCountry(), user.getRegisterTime(), user.getAge(), user.getGender()});
+
+    public static final StreamLoadTable<Order> ORDERS = new StreamLoadTable<>("orders",
+            List.of("order_id", "user_id", "product_name", "amount", "status", "order_time", "update_time"),
+            order -> new Object[]{order.getOrderId(), order.getUserId(), order.getProductName(), order.getAmount(),
+                    order.getStatus(), order.getOrderTime(), order.getUpdateTime()});
+
+    private final String name;
+    private final List<String> columns;
+    private final Function<T, Object[]> values;
+
+    private StreamLoadTable(String name, List<String> columns, Function<T, Object[]> values) {
+        this.name = name;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * 自定义列集合（如部分列更新只导入部分列）
+     */
+    public static <T> StreamLoadTable<T> of(String name, List<String> columns, Function<T, Object[]> values) {
+        return new StreamLoadTable<>(name, List.copyOf(columns), values);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 按 columns 顺序取出一行的值
+     */
+    public Object[] values(T row) {
+        return values.apply(row);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.doris.streamload;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用 JDK HttpServer 模拟 FE/BE 的 Stream Load 接口，验证导入、label 重试去重和 307 重定向
+ */
+class StreamLoadClientTest {
+
+    private static final String PATH = "/api/demo/orders/_stream_load";
+
+    private static final StreamLoadTable<Row> TABLE = StreamLoadTable.of("orders",
+            List.of("order_id", "status"), row -> new Object[]{row.orderId(), row.status()});
+
+    private StandIn fe;
+    private StandIn be;
+    private StreamLoadClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fe = new StandIn();
+        be = new StandIn();
+        client = new StreamLoadClient();
+        ReflectionTestUtils.setField(client, "feUrl", fe.url());
+        ReflectionTestUtils.setField(client, "beUrl", "");
+        ReflectionTestUtils.setField(client, "database", "demo");
+        ReflectionTestUtils.setField(client, "username", "root");
+        ReflectionTestUtils.setField(client, "password", "");
+        ReflectionTestUtils.setField(client, "format", "csv");
+        ReflectionTestUtils.setField(client, "groupCommit", "off");
+        ReflectionTestUtils.setField(client, "maxRetries", 3);
+        ReflectionTestUtils.setField(client, "retryBackoffMillis", 10L);
+        ReflectionTestUtils.setField(client, "timeoutSeconds", 10);
+        ReflectionTestUtils.setField(client, "maxFilterRatio", 0.0);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fe.stop();
+        be.stop();
+    }
+
+    @Test
+    void loadsRowsAsChunkedCsv() {
+        fe.reply(200, """
+                {"Status": "Success", "Label": "orders_001", "TxnId": 7,
+                 "NumberTotalRows": 2, "NumberLoadedRows": 2, "NumberFilteredRows": 0}
+                """);
+
+        StreamLoadResult result = client.load(TABLE, List.of(new Row(1, "paid"), new Row(2, null)), "orders_001");
+
+        assertThat(result.isCommitted()).isTrue();
+        assertThat(result.duplicate()).isFalse();
+        assertThat(result.attempts()).isEqualTo(1);
+        assertThat(result.loadedRows()).isEqualTo(2);
+
+        assertThat(fe.requests).hasSize(1);
+        Request request = fe.requests.get(0);
+        assertThat(request.method()).isEqualTo("PUT");
+        assertThat(request.header("label")).isEqualTo("orders_001");
+        assertThat(request.header("columns")).isEqualTo("order_id,status");
+        assertThat(request.header("format")).isEqualTo("csv");
+        assertThat(request.header("Transfer-encoding")).isEqualTo("chunked");
+        assertThat(request.body()).isEqualTo("1\u0001paid\u00022\u0001\\N\u0002");
+    }
+
+    @Test
+    void retriesWithSameLabelAndTreatsFinishedLabelAsDuplicate() {
+        // 第一次请求超时/失败，实际已在 Doris 上完成；重试时 Doris 返回 label 已存在
+        fe.reply(500, "internal error");
+        fe.reply(200, """
+                {"Status": "Label Already Exists", "Label": "orders_002", "ExistingJobStatus": "FINISHED",
+                 "Message": "Label [orders_002] has already been used"}
+                """);
+
+        StreamLoadResult result = client.load(TABLE, List.of(new Row(1, "paid")), "orders_002");
+
+        assertThat(result.duplicate()).isTrue();
+        assertThat(result.attempts()).isEqualTo(2);
+        assertThat(fe.requests).extracting(request -> request.header("label"))
+                .containsExactly("orders_002", "orders_002");
+        Map<String, Object> stats = client.stats();
+        assertThat(stats.get("retries")).isEqualTo(1L);
+        assertThat(stats.get("duplicateLabels")).isEqualTo(1L);
+        assertThat(stats.get("failures")).isEqualTo(0L);
+    }
+
+    @Test
+    void followsRedirectFromFeToBe() {
+        fe.redirect(be.url() + PATH);
+        be.reply(200, """
+                {"Status": "Success", "Label": "orders_003", "NumberTotalRows": 1, "NumberLoadedRows": 1}
+                """);
+
+        StreamLoadResult result = client.load(TABLE, List.of(new Row(3, "shipped")), "orders_003");
+
+        assertThat(result.isCommitted()).isTrue();
+        assertThat(fe.requests).hasSize(1);
+        assertThat(be.requests).hasSize(1);
+        Request request = be.requests.get(0);
+        assertThat(request.header("label")).isEqualTo("orders_003");
+        assertThat(request.header("Authorization")).startsWith("Basic ");
+        assertThat(request.body()).isEqualTo("3\u0001shipped\u0002");
+    }
+
+    @Test
+    void encodesLargeBatchInChunksWithoutLosingRows() {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            rows.add(new Row(i, "status_" + i));
+        }
+        fe.reply(200, """
+                {"Status": "Success", "Label": "orders_004", "NumberTotalRows": 20000, "NumberLoadedRows": 20000}
+                """);
+
+        client.load(TABLE, rows, "orders_004");
+
+        String body = fe.requests.get(0).body();
+        assertThat(body.length()).isGreaterThan(64 * 1024);
+        String[] lines = body.split("\u0002");
+        assertThat(lines).hasSize(20_000);
+        assertThat(lines[19_999]).isEqualTo("19999\u0001status_19999");
+    }
+
+    private record Row(long orderId, String status) {
+    }
+
+    private record Request(String method, Headers headers, String body) {
+
+        String header(String name) {
+            return headers.getFirst(name);
+        }
+    }
+
+    private record Reply(int status, String body, String location) {
+    }
+
+    /**
+     * Stream Load 兼容的 HTTP 替身：按顺序返回预设的响应，记录收到的请求
+     */
+    private static final class StandIn {
+
+        private final HttpServer server;
+        private final Deque<Reply> replies = new ConcurrentLinkedDeque<>();
+        private final List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+
+        StandIn() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext(PATH, this::handle);
+            server.start();
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+
+        void reply(int status, String body) {
+            replies.add(new Reply(status, body, null));
+        }
+
+        void redirect(String location) {
+            replies.add(new Reply(307, null, location));
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(new Request(exchange.getRequestMethod(), exchange.getRequestHeaders(), body));
+            Reply reply = replies.poll();
+            if (reply == null) {
+                reply = new Reply(500, "no reply configured", null);
+            }
+            if (reply.location() != null) {
+                exchange.getResponseHeaders().add("Location", reply.location());
+                exchange.sendResponseHeaders(reply.status(), -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(reply.status(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
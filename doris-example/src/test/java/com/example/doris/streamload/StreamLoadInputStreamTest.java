@@ -0,0 +1,53 @@
+package com.example.doris.streamload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamLoadInputStreamTest {
+
+    @Test
+    void encodesRowsOnlyWhenRead() throws IOException {
+        AtomicInteger encoded = new AtomicInteger();
+        StreamLoadTable<Integer> table = StreamLoadTable.of("orders", List.of("order_id", "product_name"), id -> {
+            encoded.incrementAndGet();
+            return new Object[]{id, "product_with_a_reasonably_long_name_" + id};
+        });
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            rows.add(i);
+        }
+
+        try (StreamLoadInputStream<Integer> in = new StreamLoadInputStream<>(table, StreamLoadFormat.CSV, rows)) {
+            assertThat(encoded.get()).isZero();
+            assertThat(in.read()).isEqualTo('0');
+            // 只编码了第一个 64KB 缓冲区
+            assertThat(encoded.get()).isGreaterThan(0).isLessThan(rows.size());
+
+            in.readAllBytes();
+            assertThat(encoded.get()).isEqualTo(rows.size());
+            assertThat(in.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void writesJsonLinesWithNullsAndFormattedValues() throws IOException {
+        StreamLoadTable<Object[]> table = StreamLoadTable.of("orders",
+                List.of("order_id", "amount", "order_time", "status"), row -> row);
+        List<Object[]> rows = List.<Object[]>of(
+                new Object[]{1L, new BigDecimal("9.90"), LocalDateTime.of(2024, 1, 2, 3, 4, 5), null});
+
+        try (StreamLoadInputStream<Object[]> in = new StreamLoadInputStream<>(table, StreamLoadFormat.JSON, rows)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(
+                    "{\"order_id\":1,\"amount\":\"9.90\",\"order_time\":\"2024-01-02 03:04:05\",\"status\":null}\n");
+        }
+    }
+}
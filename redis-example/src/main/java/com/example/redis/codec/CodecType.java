@@ -0,0 +1,34 @@
+package com.example.redis.codec;
+
+/**
+ * RedissonUtil 值编码类型
+ */
+public enum CodecType {
+
+    /**
+     * 沿用 RedissonClient 的默认编码
+     */
+    DEFAULT,
+
+    /**
+     * JDK 序列化（体积最大，仅用于兼容）
+     */
+    JDK,
+
+    /**
+     * Jackson JSON（可读性好，带类型信息）
+     */
+    JSON,
+
+    /**
+     * Kryo 紧凑二进制编码
+     */
+    KRYO;
+
+    public static CodecType of(String name) {
+        if (name == null || name.isBlank()) {
+            return DEFAULT;
+        }
+        return CodecType.valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.redis.codec;
+
+/**
+ * 值压缩算法
+ */
+public enum CompressionType {
+
+    /**
+     * 不压缩
+     */
+    NONE,
+
+    /**
+     * LZ4：压缩/解压速度最快，适合热点读写
+     */
+    LZ4,
+
+    /**
+     * Zstd：压缩率更高，适合大对象和冷数据
+     */
+    ZSTD;
+
+    public static CompressionType of(String name) {
+        if (name == null || name.isBlank()) {
+            return NONE;
+        }
+        return CompressionType.valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.redis.codec;
+
+import io.netty.buffer.ByteBuf;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hash 字段名编码器
+ *
+ * 字段名按纯 UTF-8 字符串存储（不带类型头），Redis 端字段更短，小 Hash 可保持 listpack 编码；
+ * 读取时对字段名做本地驻留，同一字段名在 JVM 中只保留一份 String 实例。
+ * 驻留池有上限，超过后不再驻留，防止动态字段名撑爆内存。
+ */
+public class InternedStringCodec extends BaseCodec {
+
+    private final int maxEntries;
+    private final ConcurrentMap<String, String> pool = new ConcurrentHashMap<>();
+
+    private final Decoder<Object> decoder = (buf, state) -> {
+        String value = buf.toString(StandardCharsets.UTF_8);
+        buf.readerIndex(buf.writerIndex());
+        return intern(value);
+    };
+
+    public InternedStringCodec(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    private String intern(String value) {
+        String canonical = pool.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (pool.size() >= maxEntries) {
+            return value;
+        }
+        String previous = pool.putIfAbsent(value, value);
+        return previous != null ? previous : value;
+    }
+
+    /**
+     * 当前驻留的字段名数量
+     */
+    public int size() {
+        return pool.size();
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return StringCodec.INSTANCE.getValueEncoder();
+    }
+}
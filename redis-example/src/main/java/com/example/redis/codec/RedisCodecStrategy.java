@@ -0,0 +1,70 @@
+package com.example.redis.codec;
+
+import lombok.Getter;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.CompositeCodec;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.codec.Kryo5Codec;
+import org.redisson.codec.SerializationCodec;
+
+/**
+ * RedissonUtil 编解码策略
+ *
+ * valueCodec 用于 Bucket / List / Set 的元素以及 Hash 的值；
+ * mapCodec 在 valueCodec 基础上可选地把 Hash 字段名换成驻留字符串编码。
+ */
+@Getter
+public class RedisCodecStrategy {
+
+    private static final int INTERN_POOL_SIZE = 10000;
+
+    private final CodecType codecType;
+    private final CompressionType compressionType;
+    private final int compressionThreshold;
+    private final Codec valueCodec;
+    private final Codec mapCodec;
+
+    private RedisCodecStrategy(CodecType codecType, CompressionType compressionType, int compressionThreshold,
+                               Codec valueCodec, Codec mapCodec) {
+        this.codecType = codecType;
+        this.compressionType = compressionType;
+        this.compressionThreshold = compressionThreshold;
+        this.valueCodec = valueCodec;
+        this.mapCodec = mapCodec;
+    }
+
+    /**
+     * 创建编解码策略
+     * @param codecType 值编码类型
+     * @param compressionType 压缩算法
+     * @param compressionThreshold 压缩阈值（字节），编码结果小于该值不压缩
+     * @param internHashFields Hash 字段名是否使用驻留字符串编码
+     * @param defaultCodec RedissonClient 的默认编码
+     */
+    public static RedisCodecStrategy create(CodecType codecType, CompressionType compressionType,
+                                            int compressionThreshold, boolean internHashFields,
+                                            Codec defaultCodec) {
+        Codec valueCodec = buildValueCodec(codecType, compressionType, compressionThreshold, defaultCodec);
+        Codec mapCodec = internHashFields
+                ? new CompositeCodec(new InternedStringCodec(INTERN_POOL_SIZE), valueCodec, valueCodec)
+                : valueCodec;
+        return new RedisCodecStrategy(codecType, compressionType, compressionThreshold, valueCodec, mapCodec);
+    }
+
+    /**
+     * 构建值编码器
+     */
+    public static Codec buildValueCodec(CodecType codecType, CompressionType compressionType,
+                                        int compressionThreshold, Codec defaultCodec) {
+        Codec base = switch (codecType) {
+            case JDK -> new SerializationCodec();
+            case JSON -> new JsonJacksonCodec();
+            case KRYO -> new Kryo5Codec();
+            default -> defaultCodec;
+        };
+        if (compressionType == CompressionType.NONE) {
+            return base;
+        }
+        return new ThresholdCompressionCodec(base, compressionType, compressionThreshold);
+    }
+}
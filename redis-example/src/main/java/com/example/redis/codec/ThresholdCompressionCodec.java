@@ -0,0 +1,116 @@
+package com.example.redis.codec;
+
+import com.github.luben.zstd.Zstd;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.handler.State;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+import java.io.IOException;
+
+/**
+ * 阈值压缩编码器
+ *
+ * 包装任意 Codec：编码结果超过阈值时才压缩，小对象保持原样，避免压缩头和 CPU 开销。
+ * 存储格式：1 字节标记（0=原始，1=LZ4，2=Zstd），压缩时再跟 4 字节原始长度。
+ *
+ * 注意：该格式与未包装的 Codec 不兼容，切换前需要清理或迁移旧数据。
+ */
+public class ThresholdCompressionCodec extends BaseCodec {
+
+    private static final byte RAW = 0;
+    private static final byte LZ4 = 1;
+    private static final byte ZSTD = 2;
+
+    private static final int ZSTD_LEVEL = 3;
+
+    private final Codec innerCodec;
+    private final CompressionType compressionType;
+    private final int threshold;
+
+    private final LZ4Compressor lz4Compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor lz4Decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final Encoder encoder = this::encode;
+    private final Decoder<Object> decoder = this::decode;
+
+    public ThresholdCompressionCodec(Codec innerCodec, CompressionType compressionType, int threshold) {
+        this.innerCodec = innerCodec;
+        this.compressionType = compressionType;
+        this.threshold = threshold;
+    }
+
+    private ByteBuf encode(Object in) throws IOException {
+        ByteBuf encoded = innerCodec.getValueEncoder().encode(in);
+        try {
+            int length = encoded.readableBytes();
+            if (compressionType != CompressionType.NONE && length >= threshold) {
+                byte[] raw = new byte[length];
+                encoded.getBytes(encoded.readerIndex(), raw);
+                byte[] compressed = compressionType == CompressionType.LZ4
+                        ? lz4Compressor.compress(raw)
+                        : Zstd.compress(raw, ZSTD_LEVEL);
+                // 压缩收益不足时仍按原始格式存储
+                if (compressed.length + 4 < length) {
+                    ByteBuf out = ByteBufAllocator.DEFAULT.buffer(5 + compressed.length);
+                    out.writeByte(compressionType == CompressionType.LZ4 ? LZ4 : ZSTD);
+                    out.writeInt(length);
+                    out.writeBytes(compressed);
+                    return out;
+                }
+            }
+            ByteBuf out = ByteBufAllocator.DEFAULT.buffer(1 + length);
+            out.writeByte(RAW);
+            out.writeBytes(encoded);
+            return out;
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private Object decode(ByteBuf buf, State state) throws IOException {
+        byte marker = buf.readByte();
+        if (marker == RAW) {
+            return innerCodec.getValueDecoder().decode(buf, state);
+        }
+        int length = buf.readInt();
+        byte[] compressed = new byte[buf.readableBytes()];
+        buf.readBytes(compressed);
+        byte[] raw = marker == LZ4
+                ? lz4Decompressor.decompress(compressed, length)
+                : Zstd.decompress(compressed, length);
+        ByteBuf rawBuf = Unpooled.wrappedBuffer(raw);
+        try {
+            return innerCodec.getValueDecoder().decode(rawBuf, state);
+        } finally {
+            rawBuf.release();
+        }
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return innerCodec.getClassLoader();
+    }
+
+    @Override
+    public String toString() {
+        return innerCodec.getClass().getSimpleName() + "+" + compressionType + "(>=" + threshold + "B)";
+    }
+}
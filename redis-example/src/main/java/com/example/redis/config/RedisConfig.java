@@ -1,14 +1,24 @@
 package com.example.redis.config;
 
+import com.example.redis.codec.CodecType;
+import com.example.redis.codec.CompressionType;
+import com.example.redis.codec.RedisCodecStrategy;
+import com.example.redis.metrics.RedisClientMetrics;
+import com.example.redis.pool.InstrumentedJedisFactory;
+import com.example.redis.pool.ValidationMode;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
+import java.time.Duration;
+
 /**
  * Redis配置类
  * 同时配置Redisson和Jedis连接池
@@ -28,6 +38,45 @@ public class RedisConfig {
     @Value("${spring.redis.database:0}")
     private int database;
 
+    @Value("${redis.codec.type:default}")
+    private String codecType;
+
+    @Value("${redis.codec.compression:none}")
+    private String compression;
+
+    @Value("${redis.codec.compression-threshold:1024}")
+    private int compressionThreshold;
+
+    @Value("${redis.codec.intern-hash-fields:false}")
+    private boolean internHashFields;
+
+    @Value("${redis.pool.jedis.max-total:10}")
+    private int jedisMaxTotal;
+
+    @Value("${redis.pool.jedis.max-idle:8}")
+    private int jedisMaxIdle;
+
+    @Value("${redis.pool.jedis.min-idle:2}")
+    private int jedisMinIdle;
+
+    @Value("${redis.pool.jedis.max-wait-millis:3000}")
+    private long jedisMaxWaitMillis;
+
+    @Value("${redis.pool.jedis.idle-check-interval-millis:30000}")
+    private long jedisIdleCheckIntervalMillis;
+
+    @Value("${redis.pool.validation-mode:adaptive}")
+    private String validationMode;
+
+    @Value("${redis.pool.redisson.connection-pool-size:10}")
+    private int redissonPoolSize;
+
+    @Value("${redis.pool.redisson.connection-minimum-idle-size:5}")
+    private int redissonMinIdle;
+
+    @Value("${redis.pool.redisson.ping-connection-interval-millis:30000}")
+    private int redissonPingInterval;
+
     /**
      * 配置RedissonClient
      */
@@ -48,8 +97,9 @@ public class RedisConfig {
         
         // 连接池配置
         config.useSingleServer()
-                .setConnectionPoolSize(10)        // 连接池大小
-                .setConnectionMinimumIdleSize(5)  // 最小空闲连接数
+                .setConnectionPoolSize(redissonPoolSize)        // 连接池大小
+                .setConnectionMinimumIdleSize(redissonMinIdle)  // 最小空闲连接数
+                .setPingConnectionInterval(redissonPingInterval) // 后台定期 PING 检测连接
                 .setConnectTimeout(3000)          // 连接超时时间（毫秒）
                 .setTimeout(3000)                 // 命令执行超时时间（毫秒）
                 .setRetryAttempts(3)              // 重试次数
@@ -58,25 +108,46 @@ public class RedisConfig {
         return Redisson.create(config);
     }
 
+    /**
+     * 配置RedissonUtil编解码策略
+     * 默认沿用RedissonClient的编码，可切换为紧凑二进制（kryo）并对大对象启用LZ4/Zstd压缩
+     */
+    @Bean
+    public RedisCodecStrategy redisCodecStrategy(RedissonClient redissonClient) {
+        return RedisCodecStrategy.create(
+                CodecType.of(codecType),
+                CompressionType.of(compression),
+                compressionThreshold,
+                internHashFields,
+                redissonClient.getConfig().getCodec());
+    }
+
     /**
      * 配置Jedis连接池
+     * 连接工厂会记录每次校验（PING）的耗时；校验策略由 redis.pool.validation-mode 决定：
+     * always 借出/归还都校验，idle 和 adaptive 只由后台线程检测空闲连接（adaptive 出现连接异常时临时开启借出校验）
      */
     @Bean(destroyMethod = "close")
-    public JedisPool jedisPool() {
+    public JedisPool jedisPool(RedisClientMetrics clientMetrics) {
         JedisPoolConfig poolConfig = new JedisPoolConfig();
-        poolConfig.setMaxTotal(10);              // 最大连接数
-        poolConfig.setMaxIdle(8);                // 最大空闲连接数
-        poolConfig.setMinIdle(2);                // 最小空闲连接数
-        poolConfig.setTestOnBorrow(true);        // 获取连接时测试
-        poolConfig.setTestOnReturn(true);        // 归还连接时测试
+        poolConfig.setMaxTotal(jedisMaxTotal);   // 最大连接数
+        poolConfig.setMaxIdle(jedisMaxIdle);     // 最大空闲连接数
+        poolConfig.setMinIdle(jedisMinIdle);     // 最小空闲连接数
+        boolean validateEveryUse = ValidationMode.of(validationMode) == ValidationMode.ALWAYS;
+        poolConfig.setTestOnBorrow(validateEveryUse);  // 获取连接时测试
+        poolConfig.setTestOnReturn(validateEveryUse);  // 归还连接时测试
         poolConfig.setTestWhileIdle(true);       // 空闲时测试
-        poolConfig.setMaxWait(java.time.Duration.ofMillis(3000));  // 最大等待时间
+        poolConfig.setTimeBetweenEvictionRuns(Duration.ofMillis(jedisIdleCheckIntervalMillis));  // 空闲检测间隔
+        poolConfig.setMaxWait(Duration.ofMillis(jedisMaxWaitMillis));  // 最大等待时间
 
+        DefaultJedisClientConfig.Builder clientConfig = DefaultJedisClientConfig.builder()
+                .connectionTimeoutMillis(3000)
+                .socketTimeoutMillis(3000)
+                .database(database);
         if (redisPassword != null && !redisPassword.isEmpty()) {
-            return new JedisPool(poolConfig, redisHost, redisPort, 3000, redisPassword, database);
-        } else {
-            return new JedisPool(poolConfig, redisHost, redisPort, 3000, null, database);
+            clientConfig.password(redisPassword);
         }
+        return new JedisPool(poolConfig, new InstrumentedJedisFactory(
+                new HostAndPort(redisHost, redisPort), clientConfig.build(), clientMetrics));
     }
 }
-
@@ -1,11 +1,25 @@
 package com.example.redis.controller;
 
+import com.example.redis.eventbus.RedisEventBus;
+import com.example.redis.hotkey.HotKeyDetector;
+import com.example.redis.pool.RedisPoolMonitor;
+import com.example.redis.leaderboard.LeaderboardEntry;
+import com.example.redis.service.EventBusBenchmarkService;
+import com.example.redis.service.LeaderboardBenchmarkService;
+import com.example.redis.service.LettuceReactiveBenchmarkService;
+import com.example.redis.service.ProbabilisticReportService;
+import com.example.redis.service.RedisCodecReportService;
+import com.example.redis.service.StreamQueueExampleService;
 import com.example.redis.util.JedisUtil;
+import com.example.redis.util.LettuceReactiveUtil;
 import com.example.redis.util.LettuceUtil;
 import com.example.redis.util.RedissonUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -25,9 +39,39 @@ public class RedisUtilController {
     @Autowired
     private LettuceUtil lettuceUtil;
 
+    @Autowired
+    private LettuceReactiveUtil lettuceReactiveUtil;
+
+    @Autowired
+    private LettuceReactiveBenchmarkService lettuceReactiveBenchmarkService;
+
     @Autowired
     private RedissonUtil redissonUtil;
 
+    @Autowired
+    private RedisCodecReportService codecReportService;
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Autowired
+    private StreamQueueExampleService streamQueueExampleService;
+
+    @Autowired
+    private RedisPoolMonitor redisPoolMonitor;
+
+    @Autowired
+    private ProbabilisticReportService probabilisticReportService;
+
+    @Autowired
+    private LeaderboardBenchmarkService leaderboardBenchmarkService;
+
+    @Autowired
+    private RedisEventBus redisEventBus;
+
+    @Autowired
+    private EventBusBenchmarkService eventBusBenchmarkService;
+
     // ==================== JedisUtil 示例 ====================
 
     @GetMapping("/jedis/set")
@@ -129,6 +173,26 @@ public class RedisUtilController {
         return "LettuceUtil 分布式锁: 获取失败";
     }
 
+    @GetMapping("/lettuce/reactive/get")
+    public Mono<String> lettuceReactiveGet(@RequestParam String key) {
+        return lettuceReactiveUtil.get(key)
+                .map(value -> "LettuceReactiveUtil 获取值: " + key + " = " + value)
+                .defaultIfEmpty("LettuceReactiveUtil 获取值: " + key + " = null");
+    }
+
+    @GetMapping(value = "/lettuce/reactive/scan", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<String> lettuceReactiveScan(@RequestParam(defaultValue = "*") String match,
+                                            @RequestParam(defaultValue = "100") long count) {
+        return lettuceReactiveUtil.scan(match, count);
+    }
+
+    @GetMapping("/lettuce/reactive/benchmark")
+    public Map<String, Object> lettuceReactiveBenchmark(@RequestParam(defaultValue = "100000") int requests,
+                                                        @RequestParam(defaultValue = "200") int concurrency)
+            throws InterruptedException {
+        return lettuceReactiveBenchmarkService.compare(requests, concurrency);
+    }
+
     // ==================== RedissonUtil 示例 ====================
 
     @GetMapping("/redisson/set")
@@ -186,6 +250,119 @@ public class RedisUtilController {
         return "RedissonUtil 原子递增: " + key + " = " + value;
     }
 
+    @GetMapping("/redisson/memory")
+    public Map<String, Long> redissonMemory(@RequestParam String[] keys) {
+        return redissonUtil.memoryUsageReport(keys);
+    }
+
+    @GetMapping("/redisson/codec/report")
+    public Map<String, Object> redissonCodecReport(@RequestParam(defaultValue = "10000") int iterations) {
+        return codecReportService.report(iterations);
+    }
+
+    @GetMapping("/redisson/probabilistic/report")
+    public Map<String, Object> redissonProbabilisticReport(@RequestParam(defaultValue = "100000") int distinct,
+                                                           @RequestParam(defaultValue = "1000000") int events) {
+        return probabilisticReportService.report(distinct, events);
+    }
+
+    // ==================== 排行榜 ====================
+
+    @GetMapping("/leaderboard/incr")
+    public double leaderboardIncrement(@RequestParam String key, @RequestParam String member,
+                                       @RequestParam(defaultValue = "1") double delta) {
+        return redissonUtil.getLeaderboard(key, 0).increment(member, delta);
+    }
+
+    @GetMapping("/leaderboard/page")
+    public java.util.List<LeaderboardEntry> leaderboardPage(@RequestParam String key,
+                                                            @RequestParam(defaultValue = "1") int page,
+                                                            @RequestParam(defaultValue = "20") int size) {
+        return redissonUtil.getLeaderboard(key, 0).page(page, size);
+    }
+
+    @GetMapping("/leaderboard/rank")
+    public LeaderboardEntry leaderboardRank(@RequestParam String key, @RequestParam String member) {
+        return redissonUtil.getLeaderboard(key, 0).rankOf(member);
+    }
+
+    @GetMapping("/leaderboard/benchmark")
+    public Map<String, Object> leaderboardBenchmark(@RequestParam(defaultValue = "1000000") int members,
+                                                    @RequestParam(defaultValue = "100000") int updates,
+                                                    @RequestParam(defaultValue = "50") int pageSize) {
+        return leaderboardBenchmarkService.run(members, updates, pageSize);
+    }
+
+    // ==================== 事件总线 ====================
+
+    @GetMapping("/eventbus/publish")
+    public Long eventBusPublish(@RequestParam String channel, @RequestParam String message) {
+        return redisEventBus.publish(channel, message);
+    }
+
+    @GetMapping("/eventbus/stats")
+    public Map<String, Object> eventBusStats() {
+        return redisEventBus.stats();
+    }
+
+    @GetMapping("/eventbus/benchmark")
+    public Map<String, Object> eventBusBenchmark(@RequestParam(defaultValue = "1000") int listeners,
+                                                 @RequestParam(defaultValue = "1000") int messages) {
+        return eventBusBenchmarkService.fanOut(listeners, messages);
+    }
+
+    // ==================== 热点 Key 探测 ====================
+
+    @GetMapping("/hotkeys")
+    public Map<String, Object> hotKeys() {
+        return hotKeyDetector.stats();
+    }
+
+    @GetMapping("/hotkeys/benchmark")
+    public Map<String, Object> hotKeysBenchmark(@RequestParam(defaultValue = "1000000") int iterations,
+                                                @RequestParam(defaultValue = "100000") int keySpace) {
+        return hotKeyDetector.benchmark(iterations, keySpace);
+    }
+
+    // ==================== Stream 工作队列 ====================
+
+    @GetMapping("/stream/produce")
+    public String streamProduce(@RequestParam(defaultValue = "1000") int count) {
+        streamQueueExampleService.produce(count);
+        return "Stream队列写入消息: " + count + " 条";
+    }
+
+    @GetMapping("/stream/consumers/start")
+    public String streamStartConsumers(@RequestParam(defaultValue = "4") int consumers,
+                                       @RequestParam(defaultValue = "0") int failEvery) {
+        streamQueueExampleService.startConsumers(consumers, failEvery);
+        return "已启动 " + consumers + " 个Stream消费者";
+    }
+
+    @GetMapping("/stream/consumers/stop")
+    public String streamStopConsumers() {
+        streamQueueExampleService.stopConsumers();
+        return "Stream消费者已停止";
+    }
+
+    @GetMapping("/stream/stats")
+    public Map<String, Object> streamStats() {
+        return streamQueueExampleService.stats();
+    }
+
+    // ==================== 连接池与命令延迟 ====================
+
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        return redisPoolMonitor.report();
+    }
+
+    @GetMapping("/metrics/reset")
+    public String resetMetrics() {
+        redisPoolMonitor.reset();
+        return "指标已重置";
+    }
+
     // ==================== 工具类对比 ====================
 
     @GetMapping("/compare/set")
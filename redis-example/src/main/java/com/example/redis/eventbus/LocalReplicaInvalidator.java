@@ -0,0 +1,44 @@
+package com.example.redis.eventbus;
+
+import com.example.redis.hotkey.HotKeyDetector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 用键空间通知失效热点 Key 本地副本
+ *
+ * 工具类只能失效本进程写入的 key；开启后订阅所有键的键空间通知，其他实例或其他客户端修改 key 时
+ * 也会清除本地副本，把读到旧值的窗口从副本 TTL 缩短到通知延迟。
+ * 需要服务端 notify-keyspace-events 至少包含 K 和对应命令类别（如 Kg$hx），
+ * 键空间通知会推送每一次写，写入量大的实例上注意事件总线的丢弃计数。
+ */
+@Slf4j
+@Component
+public class LocalReplicaInvalidator {
+
+    @Value("${redis.eventbus.invalidate-local-replicas:false}")
+    private boolean enabled;
+
+    @Autowired
+    private RedisEventBus eventBus;
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        eventBus.subscribeKeyspace("*", events -> {
+            for (RedisEvent event : events) {
+                hotKeyDetector.invalidate(event.getKey());
+            }
+        });
+        log.info("已开启基于键空间通知的本地副本失效");
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.redis.eventbus;
+
+import lombok.Getter;
+
+/**
+ * 事件总线收到的一条消息
+ *
+ * 普通频道消息只有 channel / message；模式订阅另带 pattern。
+ * 键空间通知会解析出 key 和 event：
+ * - __keyspace@0__:user:1  消息为 set  → key = user:1, event = set
+ * - __keyevent@0__:expired 消息为 user:1 → key = user:1, event = expired
+ */
+@Getter
+public class RedisEvent {
+
+    private static final String KEYSPACE_PREFIX = "__keyspace@";
+    private static final String KEYEVENT_PREFIX = "__keyevent@";
+
+    private final String channel;
+
+    /**
+     * 命中的订阅模式，直接订阅频道时为 null
+     */
+    private final String pattern;
+
+    private final String message;
+
+    /**
+     * 收到消息时的 System.nanoTime()，用于统计分发延迟
+     */
+    private final long receivedNanos;
+
+    private final String key;
+
+    private final String event;
+
+    public RedisEvent(String channel, String pattern, String message, long receivedNanos) {
+        this.channel = channel;
+        this.pattern = pattern;
+        this.message = message;
+        this.receivedNanos = receivedNanos;
+        if (channel.startsWith(KEYSPACE_PREFIX)) {
+            this.key = channel.substring(channel.indexOf("__:") + 3);
+            this.event = message;
+        } else if (channel.startsWith(KEYEVENT_PREFIX)) {
+            this.key = message;
+            this.event = channel.substring(channel.indexOf("__:") + 3);
+        } else {
+            this.key = null;
+            this.event = null;
+        }
+    }
+
+    /**
+     * 是否为键空间 / 键事件通知
+     */
+    public boolean isKeyNotification() {
+        return key != null;
+    }
+
+    /**
+     * 订阅标识：模式订阅为 pattern，直接订阅为 channel
+     */
+    String subscription() {
+        return pattern != null ? RedisEventBus.PATTERN_PREFIX + pattern : RedisEventBus.CHANNEL_PREFIX + channel;
+    }
+
+    @Override
+    public String toString() {
+        return "RedisEvent{channel=" + channel + ", pattern=" + pattern + ", message=" + message + "}";
+    }
+}
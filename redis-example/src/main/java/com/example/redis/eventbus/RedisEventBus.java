@@ -0,0 +1,518 @@
+package com.example.redis.eventbus;
+
+import com.example.redis.metrics.LatencyHistogram;
+import com.example.redis.util.LettuceUtil;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 Redis 发布订阅的本地事件总线
+ *
+ * - 所有订阅共用一个 Lettuce 发布订阅连接，同一频道 / 模式只向 Redis 订阅一次，本地多个监听器共享
+ * - 支持频道订阅、模式订阅，以及键空间（__keyspace@db__:key）和键事件（__keyevent@db__:event）通知
+ * - Lettuce I/O 线程只把消息放入有界队列（满了丢弃并计数），不执行业务代码
+ * - 分发线程每次攒够 batch-size 条或等待 linger-millis 后成批分发，同一订阅的事件合并为一次回调
+ * - 监听器按注册顺序轮流分配到 dispatch-threads 个单线程分区，同一监听器的事件保证有序；
+ *   分区队列满时分发线程阻塞等待，背压最终体现为入口队列丢弃
+ * - 断线后 Lettuce 自动重连并重新订阅；看门狗定期补订未确认的订阅，连接被关闭时重建连接
+ */
+@Slf4j
+@Component
+public class RedisEventBus {
+
+    static final String CHANNEL_PREFIX = "channel:";
+    static final String PATTERN_PREFIX = "pattern:";
+
+    private static final Duration SUBSCRIBE_TIMEOUT = Duration.ofSeconds(2);
+    private static final int PARTITION_QUEUE_CAPACITY = 1024;
+
+    @Value("${redis.eventbus.enabled:true}")
+    private boolean enabled;
+
+    @Value("${redis.eventbus.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    @Value("${redis.eventbus.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${redis.eventbus.batch-size:256}")
+    private int batchSize;
+
+    @Value("${redis.eventbus.linger-millis:2}")
+    private long lingerMillis;
+
+    @Value("${redis.eventbus.watchdog-interval-millis:1000}")
+    private long watchdogIntervalMillis;
+
+    @Value("${redis.eventbus.reconnect-timeout-millis:10000}")
+    private long reconnectTimeoutMillis;
+
+    @Value("${redis.eventbus.keyspace-events:}")
+    private String keyspaceEvents;
+
+    @Value("${spring.redis.database:0}")
+    private int database;
+
+    @Autowired
+    private LettuceUtil lettuceUtil;
+
+    /**
+     * 订阅标识 → 监听器，订阅标识为 channel:频道 或 pattern:模式
+     */
+    private final Map<String, List<Registration>> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Redis 已确认的订阅标识
+     */
+    private final Set<String> confirmed = ConcurrentHashMap.newKeySet();
+
+    private final Object subscribeLock = new Object();
+    private final AtomicInteger nextPartition = new AtomicInteger();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder resubscribes = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+    private volatile StatefulRedisPubSubConnection<String, String> connection;
+    private volatile boolean running;
+    private volatile long closedSinceMillis;
+    private BlockingQueue<RedisEvent> queue;
+    private ThreadPoolExecutor[] partitions;
+    private Thread dispatcher;
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Redis事件总线未启用");
+            return;
+        }
+        configureKeyspaceEvents();
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        partitions = new ThreadPoolExecutor[Math.max(dispatchThreads, 1)];
+        for (int i = 0; i < partitions.length; i++) {
+            String threadName = "redis-eventbus-dispatch-" + i;
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(PARTITION_QUEUE_CAPACITY),
+                    r -> {
+                        Thread thread = new Thread(r, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    RedisEventBus::blockUntilQueued);
+        }
+        running = true;
+        connection = connect();
+        dispatcher = new Thread(this::dispatchLoop, "redis-eventbus-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-eventbus-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::checkConnection, watchdogIntervalMillis, watchdogIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Redis事件总线初始化完成, 分发线程={}, 队列容量={}, 批大小={}, 攒批等待={}ms",
+                partitions.length, queueCapacity, batchSize, lingerMillis);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        if (partitions != null) {
+            for (ThreadPoolExecutor partition : partitions) {
+                partition.shutdownNow();
+            }
+        }
+        log.info("Redis事件总线已关闭");
+    }
+
+    // ==================== 订阅 ====================
+
+    /**
+     * 订阅频道
+     */
+    public Subscription subscribe(String channel, RedisEventListener listener) {
+        return register(CHANNEL_PREFIX + channel, listener);
+    }
+
+    /**
+     * 按模式订阅频道（PSUBSCRIBE 语法，如 news.*）
+     */
+    public Subscription psubscribe(String pattern, RedisEventListener listener) {
+        return register(PATTERN_PREFIX + pattern, listener);
+    }
+
+    /**
+     * 订阅键空间通知，事件的 key 为被修改的键、event 为命令名（set、del、expire 等）
+     * 需要服务端 notify-keyspace-events 包含 K，可通过 redis.eventbus.keyspace-events 在启动时设置
+     * @param keyPattern 键的匹配模式，如 user:*
+     */
+    public Subscription subscribeKeyspace(String keyPattern, RedisEventListener listener) {
+        return psubscribe("__keyspace@" + database + "__:" + keyPattern, listener);
+    }
+
+    /**
+     * 订阅键事件通知，如 expired、evicted、del
+     * 需要服务端 notify-keyspace-events 包含 E
+     */
+    public Subscription subscribeKeyevent(String event, RedisEventListener listener) {
+        return psubscribe("__keyevent@" + database + "__:" + event, listener);
+    }
+
+    /**
+     * 发布消息（走 Lettuce 共享连接），返回收到消息的订阅者数（按连接计）
+     */
+    public Long publish(String channel, String message) {
+        return lettuceUtil.publish(channel, message);
+    }
+
+    private Subscription register(String subscription, RedisEventListener listener) {
+        if (!enabled) {
+            throw new IllegalStateException("Redis事件总线未启用 (redis.eventbus.enabled=false)");
+        }
+        Registration registration = new Registration(listener,
+                Math.floorMod(nextPartition.getAndIncrement(), partitions.length));
+        synchronized (subscribeLock) {
+            List<Registration> listeners = registrations.computeIfAbsent(subscription, k -> new CopyOnWriteArrayList<>());
+            listeners.add(registration);
+            if (listeners.size() == 1) {
+                sendSubscribe(connection, subscription);
+            }
+        }
+        return new Subscription(subscription, registration);
+    }
+
+    private void unregister(String subscription, Registration registration) {
+        synchronized (subscribeLock) {
+            List<Registration> listeners = registrations.get(subscription);
+            if (listeners == null || !listeners.remove(registration) || !listeners.isEmpty()) {
+                return;
+            }
+            registrations.remove(subscription);
+            try {
+                RedisFuture<Void> future = subscription.startsWith(PATTERN_PREFIX)
+                        ? connection.async().punsubscribe(subscription.substring(PATTERN_PREFIX.length()))
+                        : connection.async().unsubscribe(subscription.substring(CHANNEL_PREFIX.length()));
+                LettuceFutures.awaitAll(SUBSCRIBE_TIMEOUT, future);
+            } catch (Exception e) {
+                log.warn("取消订阅失败: {}", subscription, e);
+            }
+            confirmed.remove(subscription);
+        }
+    }
+
+    /**
+     * 发送 SUBSCRIBE / PSUBSCRIBE 并等待确认；失败时只记录日志，由看门狗补订
+     */
+    private void sendSubscribe(StatefulRedisPubSubConnection<String, String> target, String subscription) {
+        try {
+            RedisFuture<Void> future = subscription.startsWith(PATTERN_PREFIX)
+                    ? target.async().psubscribe(subscription.substring(PATTERN_PREFIX.length()))
+                    : target.async().subscribe(subscription.substring(CHANNEL_PREFIX.length()));
+            if (!LettuceFutures.awaitAll(SUBSCRIBE_TIMEOUT, future)) {
+                log.warn("订阅超时，稍后重试: {}", subscription);
+            }
+        } catch (Exception e) {
+            log.warn("订阅失败，稍后重试: {}", subscription, e);
+        }
+    }
+
+    // ==================== 接收与分发 ====================
+
+    private StatefulRedisPubSubConnection<String, String> connect() {
+        StatefulRedisPubSubConnection<String, String> pubSub = lettuceUtil.connectPubSub();
+        pubSub.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                enqueue(new RedisEvent(channel, null, message, System.nanoTime()));
+            }
+
+            @Override
+            public void message(String pattern, String channel, String message) {
+                enqueue(new RedisEvent(channel, pattern, message, System.nanoTime()));
+            }
+
+            @Override
+            public void subscribed(String channel, long count) {
+                onConfirmed(CHANNEL_PREFIX + channel);
+            }
+
+            @Override
+            public void psubscribed(String pattern, long count) {
+                onConfirmed(PATTERN_PREFIX + pattern);
+            }
+        });
+        return pubSub;
+    }
+
+    /**
+     * 已确认的订阅再次收到确认，说明 Lettuce 在重连后自动重新订阅了
+     */
+    private void onConfirmed(String subscription) {
+        if (!confirmed.add(subscription)) {
+            resubscribes.increment();
+        }
+    }
+
+    /**
+     * 运行在 Lettuce I/O 线程上，只做入队
+     */
+    private void enqueue(RedisEvent event) {
+        received.increment();
+        if (!queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 攒批：取到第一条后继续收集，直到满 batchSize 条或超过 lingerMillis
+     */
+    private void dispatchLoop() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (running) {
+            try {
+                RedisEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<RedisEvent> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    RedisEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                errors.increment();
+                log.error("Redis事件分发失败", e);
+            }
+        }
+    }
+
+    /**
+     * 按订阅分组后，每个分区一次提交该分区上所有监听器的回调
+     */
+    private void dispatch(List<RedisEvent> batch) {
+        batches.increment();
+        Map<String, List<RedisEvent>> bySubscription = new LinkedHashMap<>();
+        for (RedisEvent event : batch) {
+            bySubscription.computeIfAbsent(event.subscription(), k -> new ArrayList<>()).add(event);
+        }
+
+        List<List<Runnable>> perPartition = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            perPartition.add(new ArrayList<>());
+        }
+        bySubscription.forEach((subscription, events) -> {
+            List<Registration> listeners = registrations.get(subscription);
+            if (listeners == null) {
+                return;
+            }
+            List<RedisEvent> readOnly = Collections.unmodifiableList(events);
+            for (Registration registration : listeners) {
+                perPartition.get(registration.partition).add(() -> invoke(registration.listener, readOnly));
+            }
+        });
+
+        for (int i = 0; i < partitions.length; i++) {
+            List<Runnable> calls = perPartition.get(i);
+            if (!calls.isEmpty()) {
+                partitions[i].execute(() -> calls.forEach(Runnable::run));
+            }
+        }
+    }
+
+    private void invoke(RedisEventListener listener, List<RedisEvent> events) {
+        // 以批内最早的事件计，即这一批的最大排队延迟
+        dispatchLatency.record(System.nanoTime() - events.get(0).getReceivedNanos());
+        try {
+            listener.onEvents(events);
+            deliveries.add(events.size());
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("Redis事件监听器执行异常, channel={}", events.get(0).getChannel(), e);
+        }
+    }
+
+    /**
+     * 分区队列满时阻塞分发线程，不改变同一监听器的回调顺序
+     */
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== 重连与补订 ====================
+
+    private void checkConnection() {
+        try {
+            StatefulRedisPubSubConnection<String, String> current = connection;
+            if (current.isOpen()) {
+                closedSinceMillis = 0;
+                resubscribeMissing(current);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (closedSinceMillis == 0) {
+                closedSinceMillis = now;
+                return;
+            }
+            if (now - closedSinceMillis < reconnectTimeoutMillis) {
+                return;
+            }
+            // 自动重连在超时内没有恢复（或连接已被关闭），重建连接并重新订阅
+            log.warn("Redis事件总线连接断开超过 {}ms，重建连接", reconnectTimeoutMillis);
+            current.close();
+            synchronized (subscribeLock) {
+                connection = connect();
+                confirmed.clear();
+            }
+            closedSinceMillis = 0;
+            reconnects.increment();
+            resubscribeMissing(connection);
+        } catch (Exception e) {
+            log.warn("Redis事件总线连接检查失败", e);
+        }
+    }
+
+    private void resubscribeMissing(StatefulRedisPubSubConnection<String, String> target) {
+        synchronized (subscribeLock) {
+            for (String subscription : registrations.keySet()) {
+                if (!confirmed.contains(subscription)) {
+                    sendSubscribe(target, subscription);
+                }
+            }
+        }
+    }
+
+    private void configureKeyspaceEvents() {
+        if (keyspaceEvents == null || keyspaceEvents.isEmpty()) {
+            return;
+        }
+        try {
+            lettuceUtil.getConnection().sync().configSet("notify-keyspace-events", keyspaceEvents);
+            log.info("已设置 notify-keyspace-events={}", keyspaceEvents);
+        } catch (Exception e) {
+            // 托管 Redis 常禁用 CONFIG 命令，需要在服务端配置
+            log.warn("设置 notify-keyspace-events 失败，请在服务端配置: {}", e.getMessage());
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    /**
+     * 统计信息：订阅数、监听器数、接收 / 丢弃 / 投递计数、重订阅与重建次数、分发延迟
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("connected", connection.isOpen());
+        stats.put("subscriptions", registrations.size());
+        stats.put("confirmedSubscriptions", confirmed.size());
+        stats.put("listeners", registrations.values().stream().mapToInt(List::size).sum());
+        stats.put("received", received.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("queued", queue.size());
+        stats.put("batches", batches.sum());
+        stats.put("deliveries", deliveries.sum());
+        stats.put("listenerErrors", errors.sum());
+        stats.put("resubscribes", resubscribes.sum());
+        stats.put("reconnects", reconnects.sum());
+        stats.put("dispatchLatency", dispatchLatency.summary());
+        return stats;
+    }
+
+    public void resetStats() {
+        received.reset();
+        dropped.reset();
+        batches.reset();
+        deliveries.reset();
+        errors.reset();
+        resubscribes.reset();
+        reconnects.reset();
+        dispatchLatency.reset();
+    }
+
+    private record Registration(RedisEventListener listener, int partition) {
+    }
+
+    /**
+     * 订阅句柄，最后一个监听器取消后向 Redis 取消订阅
+     */
+    public class Subscription {
+
+        private final String subscription;
+        private final Registration registration;
+
+        private Subscription(String subscription, Registration registration) {
+            this.subscription = subscription;
+            this.registration = registration;
+        }
+
+        public void unsubscribe() {
+            unregister(subscription, registration);
+        }
+    }
+}
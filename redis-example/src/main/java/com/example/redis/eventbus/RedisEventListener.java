@@ -0,0 +1,13 @@
+package com.example.redis.eventbus;
+
+import java.util.List;
+
+/**
+ * 事件监听器
+ * 在事件总线的分发线程池中回调，一次收到同一订阅下攒批的多条事件（按到达顺序）
+ */
+@FunctionalInterface
+public interface RedisEventListener {
+
+    void onEvents(List<RedisEvent> events);
+}
@@ -0,0 +1,71 @@
+package com.example.redis.hotkey;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch
+ *
+ * 固定内存（depth × width 个计数器）估算每个 key 的访问次数，估计值只会偏大不会偏小。
+ * 计数器使用 AtomicLongArray，多线程无锁累加。
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x27D4EB2F165667C5L, 0x94D049BB133111EBL
+    };
+
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param depth 哈希函数个数（最多 8）
+     * @param width 每行计数器个数，会向上取整为 2 的幂
+     */
+    public CountMinSketch(int depth, int width) {
+        this.depth = Math.min(depth, SEEDS.length);
+        this.width = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.counters = new AtomicLongArray(this.depth * this.width);
+    }
+
+    /**
+     * 累加并返回累加后的估计值
+     */
+    public long add(String key, long delta) {
+        int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            long value = counters.addAndGet(index(i, hash), delta);
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    /**
+     * 估计访问次数
+     */
+    public long estimate(String key) {
+        int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.get(index(i, hash)));
+        }
+        return min;
+    }
+
+    /**
+     * 清零（窗口切换时调用）
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int index(int row, int hash) {
+        long h = (hash ^ SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return row * width + (int) (h & (width - 1));
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.redis.hotkey;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 热点 Key 探测器
+ *
+ * 挂在各工具类的 get / hget 前面：
+ * 1. 按采样率抽样读请求，用 Count-Min Sketch 估算每个 key 在当前窗口的访问次数
+ * 2. 用 Top-K 小顶堆保留访问最多的 K 个 key
+ * 3. 每个窗口结束时，估算访问次数（按采样率还原）超过晋升阈值的 key 晋升为本地副本，
+ *    已晋升但低于降级阈值的 key 降级并清除本地副本
+ * 4. 已晋升 key 的读请求优先命中短 TTL 的本地副本，过期后回源 Redis 刷新
+ *
+ * 本地副本默认关闭，开启后同一 key 在 TTL 内可能读到旧值；经工具类写入的 key 会立即失效本地副本。
+ */
+@Slf4j
+@Component
+public class HotKeyDetector {
+
+    @Value("${redis.hotkey.enabled:true}")
+    private boolean enabled;
+
+    @Value("${redis.hotkey.sample-rate:0.1}")
+    private double sampleRate;
+
+    @Value("${redis.hotkey.window-seconds:10}")
+    private int windowSeconds;
+
+    @Value("${redis.hotkey.top-k:20}")
+    private int topK;
+
+    @Value("${redis.hotkey.local-replica.enabled:false}")
+    private boolean localReplicaEnabled;
+
+    @Value("${redis.hotkey.local-replica.promote-threshold:1000}")
+    private long promoteThreshold;
+
+    @Value("${redis.hotkey.local-replica.demote-threshold:200}")
+    private long demoteThreshold;
+
+    @Value("${redis.hotkey.local-replica.ttl-millis:1000}")
+    private long localTtlMillis;
+
+    private CountMinSketch sketch;
+    private TopKHeap heap;
+    private ScheduledExecutorService scheduler;
+
+    private final Set<String> promotedKeys = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, LocalEntry>> localReplica = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> lastWindowHotKeys = Map.of();
+
+    private final LongAdder totalReads = new LongAdder();
+    private final LongAdder sampledReads = new LongAdder();
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder detectNanos = new LongAdder();
+
+    private record LocalEntry(Object value, long expireAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        sketch = new CountMinSketch(4, 2048);
+        heap = new TopKHeap(topK);
+        if (!enabled) {
+            log.info("热点Key探测未启用");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hotkey-window");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::rotateWindow, windowSeconds, windowSeconds, TimeUnit.SECONDS);
+        log.info("热点Key探测已启用: sampleRate={}, window={}s, topK={}, localReplica={}",
+                sampleRate, windowSeconds, topK, localReplicaEnabled);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 经过探测器读取
+     * @param redisKey Redis 键（探测粒度）
+     * @param replicaField 本地副本中的子键（区分客户端和 Hash 字段）
+     * @param loader 回源 Redis 的读取逻辑
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String redisKey, String replicaField, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        record(redisKey);
+
+        if (!localReplicaEnabled || !promotedKeys.contains(redisKey)) {
+            return loader.get();
+        }
+        Map<String, LocalEntry> entries = localReplica.computeIfAbsent(redisKey, k -> new ConcurrentHashMap<>());
+        LocalEntry entry = entries.get(replicaField);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.expireAt() > now) {
+            localHits.increment();
+            return (T) entry.value();
+        }
+        T value = loader.get();
+        if (value != null) {
+            entries.put(replicaField, new LocalEntry(value, now + localTtlMillis));
+        } else {
+            entries.remove(replicaField);
+        }
+        return value;
+    }
+
+    /**
+     * 经过探测器读取（反应式），采样和本地副本逻辑与 read 相同，订阅时才记录访问
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> readReactive(String redisKey, String replicaField, Supplier<Mono<T>> loader) {
+        return Mono.defer(() -> {
+            if (!enabled) {
+                return loader.get();
+            }
+            record(redisKey);
+
+            if (!localReplicaEnabled || !promotedKeys.contains(redisKey)) {
+                return loader.get();
+            }
+            Map<String, LocalEntry> entries = localReplica.computeIfAbsent(redisKey, k -> new ConcurrentHashMap<>());
+            LocalEntry entry = entries.get(replicaField);
+            if (entry != null && entry.expireAt() > System.currentTimeMillis()) {
+                localHits.increment();
+                return Mono.just((T) entry.value());
+            }
+            return loader.get()
+                    .doOnNext(value -> entries.put(replicaField,
+                            new LocalEntry(value, System.currentTimeMillis() + localTtlMillis)))
+                    .switchIfEmpty(Mono.fromRunnable(() -> entries.remove(replicaField)));
+        });
+    }
+
+    /**
+     * 写入或删除 key 后调用，清除该 key 的本地副本
+     */
+    public void invalidate(String redisKey) {
+        localReplica.remove(redisKey);
+    }
+
+    /**
+     * 采样并记录一次访问
+     */
+    private void record(String redisKey) {
+        long start = System.nanoTime();
+        totalReads.increment();
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sampledReads.increment();
+            long estimate = sketch.add(redisKey, 1);
+            heap.offer(redisKey, estimate);
+        }
+        detectNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * 窗口切换：计算晋升/降级，重置计数
+     */
+    private void rotateWindow() {
+        try {
+            Map<String, Long> snapshot = new LinkedHashMap<>();
+            heap.snapshot().forEach((key, sampled) -> snapshot.put(key, scale(sampled)));
+            lastWindowHotKeys = snapshot;
+
+            if (localReplicaEnabled) {
+                for (String key : promotedKeys) {
+                    if (snapshot.getOrDefault(key, 0L) < demoteThreshold) {
+                        promotedKeys.remove(key);
+                        localReplica.remove(key);
+                        log.info("热点Key降级: key={}", key);
+                    }
+                }
+                snapshot.forEach((key, estimated) -> {
+                    if (estimated >= promoteThreshold && promotedKeys.add(key)) {
+                        log.info("热点Key晋升为本地副本: key={}, 估算访问次数={}", key, estimated);
+                    }
+                });
+            }
+
+            sketch.clear();
+            heap.clear();
+        } catch (Exception e) {
+            log.error("热点Key窗口切换失败", e);
+        }
+    }
+
+    private long scale(long sampled) {
+        return sampleRate >= 1.0 ? sampled : Math.round(sampled / sampleRate);
+    }
+
+    /**
+     * 当前探测状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long reads = totalReads.sum();
+        stats.put("enabled", enabled);
+        stats.put("sampleRate", sampleRate);
+        stats.put("windowSeconds", windowSeconds);
+        stats.put("currentWindowTopK", scaleAll(heap.snapshot()));
+        stats.put("lastWindowHotKeys", lastWindowHotKeys);
+        stats.put("promotedKeys", Set.copyOf(promotedKeys));
+        stats.put("totalReads", reads);
+        stats.put("sampledReads", sampledReads.sum());
+        stats.put("localHits", localHits.sum());
+        stats.put("detectNanosAvg", reads == 0 ? 0 : detectNanos.sum() / reads);
+        return stats;
+    }
+
+    private Map<String, Long> scaleAll(Map<String, Long> sampled) {
+        Map<String, Long> scaled = new LinkedHashMap<>();
+        sampled.forEach((key, count) -> scaled.put(key, scale(count)));
+        return scaled;
+    }
+
+    /**
+     * 探测开销基准：用偏斜分布的 key 模拟读请求，测量单次记录的平均耗时
+     * 使用独立的 Sketch 和堆，不影响线上统计
+     */
+    public Map<String, Object> benchmark(int iterations, int keySpace) {
+        CountMinSketch benchSketch = new CountMinSketch(4, 2048);
+        TopKHeap benchHeap = new TopKHeap(topK);
+        String[] keys = new String[keySpace];
+        for (int i = 0; i < keySpace; i++) {
+            keys[i] = "bench:key:" + i;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            // 偏斜分布：约 80% 的请求落在前 1% 的 key 上
+            int index = random.nextInt(10) < 8 ? random.nextInt(Math.max(keySpace / 100, 1)) : random.nextInt(keySpace);
+            sink += keys[index].length();
+        }
+        long baselineNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            int index = random.nextInt(10) < 8 ? random.nextInt(Math.max(keySpace / 100, 1)) : random.nextInt(keySpace);
+            if (random.nextDouble() < sampleRate) {
+                benchHeap.offer(keys[index], benchSketch.add(keys[index], 1));
+            }
+        }
+        long detectorNanos = System.nanoTime() - start;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("iterations", iterations);
+        result.put("keySpace", keySpace);
+        result.put("sampleRate", sampleRate);
+        result.put("baselineNanosPerOp", baselineNanos / (double) iterations);
+        result.put("detectorNanosPerOp", detectorNanos / (double) iterations);
+        result.put("overheadNanosPerOp", (detectorNanos - baselineNanos) / (double) iterations);
+        result.put("topKeys", scaleAll(benchHeap.snapshot()));
+        result.put("sink", sink);
+        return result;
+    }
+}
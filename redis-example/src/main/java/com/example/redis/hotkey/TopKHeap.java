@@ -0,0 +1,69 @@
+package com.example.redis.hotkey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Top-K 小顶堆
+ *
+ * 保存估计访问次数最高的 K 个 key；新 key 的计数超过堆顶时替换堆顶。
+ * 只在采样命中时调用，使用简单的同步即可。
+ */
+public class TopKHeap {
+
+    private final int k;
+    private final Map<String, Long> counts = new HashMap<>();
+    private final PriorityQueue<String> heap;
+
+    public TopKHeap(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(Comparator.comparingLong(counts::get));
+    }
+
+    /**
+     * 提交 key 的最新估计值
+     */
+    public synchronized void offer(String key, long count) {
+        if (counts.containsKey(key)) {
+            heap.remove(key);
+            counts.put(key, count);
+            heap.offer(key);
+            return;
+        }
+        if (heap.size() < k) {
+            counts.put(key, count);
+            heap.offer(key);
+            return;
+        }
+        String smallest = heap.peek();
+        if (smallest != null && counts.get(smallest) < count) {
+            heap.poll();
+            counts.remove(smallest);
+            counts.put(key, count);
+            heap.offer(key);
+        }
+    }
+
+    /**
+     * 按计数从高到低返回快照
+     */
+    public synchronized Map<String, Long> snapshot() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        heap.clear();
+        counts.clear();
+    }
+}
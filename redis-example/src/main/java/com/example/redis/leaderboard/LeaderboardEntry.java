@@ -0,0 +1,23 @@
+package com.example.redis.leaderboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 排行榜条目
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntry {
+
+    /**
+     * 名次，从 1 开始，分数从高到低
+     */
+    private long rank;
+
+    private String member;
+
+    private double score;
+}
@@ -0,0 +1,193 @@
+package com.example.redis.leaderboard;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 ZSET 的排行榜
+ *
+ * - 成员以纯字符串存储，分数从高到低排名，名次从 1 开始
+ * - 批量加分按 BATCH_SIZE 条一批通过 RBatch 管道发送 ZINCRBY，每批一次往返
+ * - maxSize 大于 0 时自动裁剪，只保留前 maxSize 名：批量写入后立即裁剪，单条写入每 TRIM_EVERY 次裁剪一次
+ * - ZINCRBY / ZREVRANK / ZREVRANGE 均为 O(log N)（范围读取另加返回条数），百万级成员下单次操作仍是微秒级
+ */
+public class RedisLeaderboard {
+
+    static final int BATCH_SIZE = 10000;
+    private static final int TRIM_EVERY = 1000;
+
+    private final RedissonClient redissonClient;
+    private final String key;
+    private final int maxSize;
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * @param maxSize 保留的最大名次数，0 表示不裁剪
+     */
+    public RedisLeaderboard(RedissonClient redissonClient, String key, int maxSize) {
+        this.redissonClient = redissonClient;
+        this.key = key;
+        this.maxSize = maxSize;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 加分（ZINCRBY），返回新分数
+     */
+    public double increment(String member, double delta) {
+        Double score = zset().addScore(member, delta);
+        if (maxSize > 0 && writes.incrementAndGet() % TRIM_EVERY == 0) {
+            trim();
+        }
+        return score;
+    }
+
+    /**
+     * 批量加分（管道 ZINCRBY）
+     */
+    public void incrementAll(Map<String, ? extends Number> deltas) {
+        List<Map.Entry<String, ? extends Number>> entries = new ArrayList<>(deltas.entrySet());
+        for (int start = 0; start < entries.size(); start += BATCH_SIZE) {
+            RBatch batch = redissonClient.createBatch();
+            RScoredSortedSetAsync<String> async = batch.getScoredSortedSet(key, StringCodec.INSTANCE);
+            for (Map.Entry<String, ? extends Number> entry : entries.subList(start, Math.min(start + BATCH_SIZE, entries.size()))) {
+                async.addScoreAsync(entry.getKey(), entry.getValue());
+            }
+            batch.execute();
+        }
+        if (maxSize > 0) {
+            trim();
+        }
+    }
+
+    /**
+     * 设置分数（ZADD，覆盖旧分数）
+     */
+    public void setScore(String member, double score) {
+        zset().add(score, member);
+    }
+
+    /**
+     * 分页读取
+     * @param page 页码，从 1 开始
+     * @param size 每页条数
+     */
+    public List<LeaderboardEntry> page(int page, int size) {
+        if (page <= 0 || size <= 0) {
+            throw new IllegalArgumentException("page和size必须大于0: page=" + page + ", size=" + size);
+        }
+        long end = (long) page * size - 1;
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("分页超出范围: page=" + page + ", size=" + size);
+        }
+        return range((int) end - size + 1, (int) end);
+    }
+
+    /**
+     * 前 n 名
+     */
+    public List<LeaderboardEntry> top(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n必须大于0: " + n);
+        }
+        return range(0, n - 1);
+    }
+
+    /**
+     * 成员名次和分数（ZREVRANK + ZSCORE 一次往返），不在榜上返回 null
+     */
+    public LeaderboardEntry rankOf(String member) {
+        return ranksOf(List.of(member)).get(member);
+    }
+
+    /**
+     * 批量查询名次和分数（管道），不在榜上的成员不出现在结果中
+     */
+    public Map<String, LeaderboardEntry> ranksOf(Collection<String> members) {
+        RBatch batch = redissonClient.createBatch();
+        RScoredSortedSetAsync<String> async = batch.getScoredSortedSet(key, StringCodec.INSTANCE);
+        Map<String, RFuture<Integer>> ranks = new LinkedHashMap<>();
+        Map<String, RFuture<Double>> scores = new LinkedHashMap<>();
+        for (String member : members) {
+            ranks.put(member, async.revRankAsync(member));
+            scores.put(member, async.getScoreAsync(member));
+        }
+        batch.execute();
+
+        Map<String, LeaderboardEntry> result = new LinkedHashMap<>();
+        ranks.forEach((member, rank) -> {
+            Integer value = rank.toCompletableFuture().join();
+            if (value != null) {
+                result.put(member, new LeaderboardEntry(value + 1, member, scores.get(member).toCompletableFuture().join()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 成员前后各 radius 名（含自身），不在榜上返回空列表
+     */
+    public List<LeaderboardEntry> around(String member, int radius) {
+        Integer rank = zset().revRank(member);
+        if (rank == null) {
+            return List.of();
+        }
+        return range(Math.max(rank - radius, 0), rank + radius);
+    }
+
+    public int size() {
+        return zset().size();
+    }
+
+    public boolean remove(String member) {
+        return zset().remove(member);
+    }
+
+    /**
+     * 裁剪到 maxSize，返回删除的成员数
+     */
+    public int trim() {
+        return maxSize > 0 ? zset().removeRangeByRank(0, -(maxSize + 1)) : 0;
+    }
+
+    public long sizeInMemory() {
+        return zset().sizeInMemory();
+    }
+
+    public void delete() {
+        zset().delete();
+    }
+
+    private List<LeaderboardEntry> range(int start, int end) {
+        Collection<ScoredEntry<String>> entries = zset().entryRangeReversed(start, end);
+        List<LeaderboardEntry> result = new ArrayList<>(entries.size());
+        long rank = start + 1;
+        for (ScoredEntry<String> entry : entries) {
+            result.add(new LeaderboardEntry(rank++, entry.getValue(), entry.getScore()));
+        }
+        return result;
+    }
+
+    private RScoredSortedSet<String> zset() {
+        return redissonClient.getScoredSortedSet(key, StringCodec.INSTANCE);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.redis.leaderboard;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按时间分桶的滑动窗口排行榜
+ *
+ * 每个时间桶一个 ZSET（{name}:bucket:<桶起始秒>），写入只落在事件所属的桶：
+ * - 自动裁剪：桶键在首次写入时设置过期时间（保留桶数 + 1 个桶长），过期后 Redis 自动删除；
+ *   bucketMaxSize 大于 0 时每次批量写入后把桶裁剪到前 bucketMaxSize 名，控制长尾成员的内存
+ * - 窗口查询：ZUNIONSTORE 最近 N 个桶到 {name}:window:<N>，结果缓存 cacheMillis 毫秒，窗口内的分页、名次都在该键上完成
+ * - 早于保留范围的事件直接丢弃
+ *
+ * 裁剪桶会丢弃长尾成员的分数，窗口 Top-N 在 N 远小于 bucketMaxSize 时仍然准确。
+ */
+public class TimeWindowLeaderboard {
+
+    /**
+     * 窗口缓存不存在时合并各桶并设置过期时间，两步在同一脚本内完成，不会留下没有 TTL 的窗口键
+     * KEYS[1] 窗口键，KEYS[2..] 桶键；ARGV[1] 缓存毫秒数
+     */
+    private static final String WINDOW_SCRIPT = "if redis.call('exists', KEYS[1]) == 0 then " +
+            "redis.call('zunionstore', KEYS[1], #KEYS - 1, unpack(KEYS, 2)) " +
+            "redis.call('pexpire', KEYS[1], ARGV[1]) " +
+            "end " +
+            "return 1";
+
+    private final RedissonClient redissonClient;
+    private final String name;
+    private final long bucketMillis;
+    private final int retentionBuckets;
+    private final int bucketMaxSize;
+    private final long cacheMillis;
+
+    private volatile long expiredBucket = -1;
+
+    /**
+     * @param bucket 桶长
+     * @param retentionBuckets 保留的桶数（可查询的最长窗口 = bucket × retentionBuckets）
+     * @param bucketMaxSize 每个桶保留的最大成员数，0 表示不裁剪
+     * @param cacheMillis 窗口合并结果的缓存时间
+     */
+    public TimeWindowLeaderboard(RedissonClient redissonClient, String name, Duration bucket,
+                                 int retentionBuckets, int bucketMaxSize, long cacheMillis) {
+        this.redissonClient = redissonClient;
+        this.name = name;
+        this.bucketMillis = bucket.toMillis();
+        this.retentionBuckets = retentionBuckets;
+        this.bucketMaxSize = bucketMaxSize;
+        this.cacheMillis = cacheMillis;
+    }
+
+    /**
+     * 当前时间加分
+     */
+    public void increment(String member, double delta) {
+        incrementAll(Map.of(member, delta), System.currentTimeMillis());
+    }
+
+    /**
+     * 当前时间批量加分
+     */
+    public void incrementAll(Map<String, ? extends Number> deltas) {
+        incrementAll(deltas, System.currentTimeMillis());
+    }
+
+    /**
+     * 按事件时间批量加分（管道 ZINCRBY），超出保留范围的事件丢弃
+     */
+    public void incrementAll(Map<String, ? extends Number> deltas, long timestampMillis) {
+        long bucketStart = bucketStart(timestampMillis);
+        if (bucketStart <= bucketStart(System.currentTimeMillis()) - retentionBuckets * bucketMillis) {
+            return;
+        }
+        String bucketKey = bucketKey(bucketStart);
+        List<Map.Entry<String, ? extends Number>> entries = new ArrayList<>(deltas.entrySet());
+        for (int start = 0; start < entries.size(); start += RedisLeaderboard.BATCH_SIZE) {
+            RBatch batch = redissonClient.createBatch();
+            RScoredSortedSetAsync<String> bucket = batch.getScoredSortedSet(bucketKey, StringCodec.INSTANCE);
+            List<Map.Entry<String, ? extends Number>> chunk =
+                    entries.subList(start, Math.min(start + RedisLeaderboard.BATCH_SIZE, entries.size()));
+            for (Map.Entry<String, ? extends Number> entry : chunk) {
+                bucket.addScoreAsync(entry.getKey(), entry.getValue());
+            }
+            boolean lastChunk = start + RedisLeaderboard.BATCH_SIZE >= entries.size();
+            if (lastChunk && bucketMaxSize > 0) {
+                bucket.removeRangeByRankAsync(0, -(bucketMaxSize + 1));
+            }
+            // 每个进程对每个桶只设置一次过期时间，补写旧桶时也会设置
+            if (lastChunk && bucketStart != expiredBucket) {
+                bucket.expireAsync(Duration.ofMillis(bucketStart + (retentionBuckets + 1) * bucketMillis
+                        - System.currentTimeMillis()));
+                if (bucketStart > expiredBucket) {
+                    expiredBucket = bucketStart;
+                }
+            }
+            batch.execute();
+        }
+    }
+
+    /**
+     * 最近 window 内的分页排行
+     * @param page 页码，从 1 开始
+     */
+    public List<LeaderboardEntry> page(Duration window, int page, int size) {
+        return new RedisLeaderboard(redissonClient, windowKey(window), 0).page(page, size);
+    }
+
+    /**
+     * 最近 window 内的前 n 名
+     */
+    public List<LeaderboardEntry> top(Duration window, int n) {
+        return page(window, 1, n);
+    }
+
+    /**
+     * 成员在最近 window 内的名次和分数，不在榜上返回 null
+     */
+    public LeaderboardEntry rankOf(String member, Duration window) {
+        return new RedisLeaderboard(redissonClient, windowKey(window), 0).rankOf(member);
+    }
+
+    /**
+     * 成员在最近 window 内的总分（管道读取各桶分数后求和，不需要合并窗口）
+     */
+    public double score(String member, Duration window) {
+        RBatch batch = redissonClient.createBatch();
+        List<RFuture<Double>> scores = new ArrayList<>();
+        for (String bucketKey : bucketKeys(window)) {
+            scores.add(batch.<String>getScoredSortedSet(bucketKey, StringCodec.INSTANCE).getScoreAsync(member));
+        }
+        batch.execute();
+        double total = 0;
+        for (RFuture<Double> score : scores) {
+            Double value = score.toCompletableFuture().join();
+            if (value != null) {
+                total += value;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 各桶成员数（按桶起始时间排序）
+     */
+    public Map<Long, Integer> bucketSizes() {
+        Map<Long, Integer> sizes = new TreeMap<>();
+        long current = bucketStart(System.currentTimeMillis());
+        for (int i = 0; i < retentionBuckets; i++) {
+            long start = current - i * bucketMillis;
+            int size = redissonClient.getScoredSortedSet(bucketKey(start), StringCodec.INSTANCE).size();
+            if (size > 0) {
+                sizes.put(start, size);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * 合并最近 window 覆盖的桶，结果缓存 cacheMillis 毫秒
+     */
+    private String windowKey(Duration window) {
+        List<String> bucketKeys = bucketKeys(window);
+        String windowKey = "{" + name + "}:window:" + bucketKeys.size();
+        List<Object> keys = new ArrayList<>(bucketKeys.size() + 1);
+        keys.add(windowKey);
+        keys.addAll(bucketKeys);
+        redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, WINDOW_SCRIPT,
+                RScript.ReturnType.INTEGER, keys, String.valueOf(Math.max(cacheMillis, 1)));
+        return windowKey;
+    }
+
+    private List<String> bucketKeys(Duration window) {
+        int buckets = (int) Math.min(Math.max((window.toMillis() + bucketMillis - 1) / bucketMillis, 1), retentionBuckets);
+        long current = bucketStart(System.currentTimeMillis());
+        List<String> keys = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            keys.add(bucketKey(current - i * bucketMillis));
+        }
+        Collections.reverse(keys);
+        return keys;
+    }
+
+    private long bucketStart(long timestampMillis) {
+        return timestampMillis - Math.floorMod(timestampMillis, bucketMillis);
+    }
+
+    private String bucketKey(long bucketStart) {
+        return "{" + name + "}:bucket:" + bucketStart / 1000;
+    }
+
+    /**
+     * 删除所有桶和窗口缓存
+     */
+    public void delete() {
+        redissonClient.getKeys().deleteByPattern("{" + name + "}:*");
+    }
+}
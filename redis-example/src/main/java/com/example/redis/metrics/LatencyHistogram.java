@@ -0,0 +1,113 @@
+package com.example.redis.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁延迟直方图
+ *
+ * 按微秒取 2 的幂分桶（第 i 个桶覆盖 [2^i, 2^(i+1)) 微秒，第 0 个桶包含 1 微秒以下），
+ * 记录一次只做一次 LongAdder 累加，适合放在命令热路径上；分位数取所在桶的上界，误差不超过 2 倍。
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 32;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时（纳秒）
+     */
+    public void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 1);
+        int bucket = Math.min(63 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        counts[bucket].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder adder : counts) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * 分位数（微秒，取桶上界）
+     * @param quantile 0 ~ 1
+     */
+    public long percentileMicros(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return 1L << (i + 1);
+            }
+        }
+        return 1L << BUCKETS;
+    }
+
+    /**
+     * 汇总：次数、均值、分位数、最大值
+     */
+    public Map<String, Object> summary() {
+        long count = count();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("meanMicros", count == 0 ? 0 : totalNanos.sum() / count / 1000);
+        summary.put("p50Micros", percentileMicros(0.50));
+        summary.put("p90Micros", percentileMicros(0.90));
+        summary.put("p99Micros", percentileMicros(0.99));
+        summary.put("p999Micros", percentileMicros(0.999));
+        summary.put("maxMicros", maxNanos.get() / 1000);
+        return summary;
+    }
+
+    /**
+     * 非空桶分布，键为桶上界
+     */
+    public Map<String, Long> buckets() {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts[i].sum();
+            if (count > 0) {
+                buckets.put("<" + (1L << (i + 1)) + "us", count);
+            }
+        }
+        return buckets;
+    }
+
+    public void reset() {
+        for (LongAdder adder : counts) {
+            adder.reset();
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
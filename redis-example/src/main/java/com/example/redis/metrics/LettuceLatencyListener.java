@@ -0,0 +1,35 @@
+package com.example.redis.metrics;
+
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.event.command.CommandFailedEvent;
+import io.lettuce.core.event.command.CommandListener;
+import io.lettuce.core.event.command.CommandSucceededEvent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lettuce 命令延迟监听器
+ * 在 I/O 线程上回调，同步、异步、反应式 API 的命令都会经过这里；回调中只做直方图累加
+ */
+public class LettuceLatencyListener implements CommandListener {
+
+    private final RedisClientMetrics metrics;
+
+    public LettuceLatencyListener(RedisClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        metrics.record(RedisClientMetrics.LETTUCE, event.getCommand().getType().name(),
+                event.getDuration(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        metrics.recordError(RedisClientMetrics.LETTUCE, event.getCommand().getType().name());
+        if (event.getCause() instanceof RedisConnectionException) {
+            metrics.recordConnectionError(RedisClientMetrics.LETTUCE);
+        }
+    }
+}
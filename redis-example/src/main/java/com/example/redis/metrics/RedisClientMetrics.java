@@ -0,0 +1,169 @@
+package com.example.redis.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Redis 客户端指标
+ *
+ * 三个客户端共用：
+ * - 按客户端 + 命令记录延迟直方图（Jedis / Redisson 在工具类中计时，Lettuce 通过 CommandListener 计时）
+ * - 按客户端记录借连接等待时间
+ * - 连接校验（PING）的次数、耗时和失败次数
+ * - 命令失败次数与连接类异常次数（自适应校验据此切换）
+ */
+@Component
+public class RedisClientMetrics {
+
+    public static final String JEDIS = "jedis";
+    public static final String LETTUCE = "lettuce";
+    public static final String REDISSON = "redisson";
+
+    private final Map<String, Map<String, LatencyHistogram>> commandLatency = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> poolWait = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> connectionErrors = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram validation = new LatencyHistogram();
+    private final LongAdder validationFailures = new LongAdder();
+
+    private volatile long windowStartMillis = System.currentTimeMillis();
+
+    /**
+     * 记录一次命令耗时
+     */
+    public void record(String client, String command, long nanos) {
+        commandLatency.computeIfAbsent(client, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(command, c -> new LatencyHistogram())
+                .record(nanos);
+    }
+
+    /**
+     * 计时执行一次命令
+     */
+    public <T> T time(String client, String command, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            recordError(client, command);
+            throw e;
+        } finally {
+            record(client, command, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 计时执行一次无返回值的命令
+     */
+    public void time(String client, String command, Runnable action) {
+        time(client, command, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 记录一次借连接等待时间
+     */
+    public void recordPoolWait(String client, long nanos) {
+        poolWait.computeIfAbsent(client, c -> new LatencyHistogram()).record(nanos);
+    }
+
+    public void recordError(String client, String command) {
+        errors.computeIfAbsent(client + ":" + command, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 记录连接类异常（连接断开、超时等）
+     */
+    public void recordConnectionError(String client) {
+        connectionErrors.computeIfAbsent(client, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 记录一次连接校验
+     */
+    public void recordValidation(long nanos, boolean valid) {
+        validation.record(nanos);
+        if (!valid) {
+            validationFailures.increment();
+        }
+    }
+
+    public long connectionErrors(String client) {
+        LongAdder adder = connectionErrors.get(client);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public long validationFailures() {
+        return validationFailures.sum();
+    }
+
+    public LatencyHistogram validation() {
+        return validation;
+    }
+
+    public LatencyHistogram poolWait(String client) {
+        return poolWait.get(client);
+    }
+
+    /**
+     * 客户端所有命令的总次数和总耗时
+     * @return [次数, 纳秒]
+     */
+    public long[] totals(String client) {
+        long count = 0;
+        long nanos = 0;
+        for (LatencyHistogram histogram : commandLatency.getOrDefault(client, Map.of()).values()) {
+            count += histogram.count();
+            nanos += histogram.totalNanos();
+        }
+        return new long[]{count, nanos};
+    }
+
+    /**
+     * 客户端各命令延迟汇总（按命令名排序）
+     */
+    public Map<String, Object> commandSummary(String client) {
+        Map<String, Object> summary = new TreeMap<>();
+        commandLatency.getOrDefault(client, Map.of())
+                .forEach((command, histogram) -> summary.put(command, histogram.summary()));
+        return summary;
+    }
+
+    /**
+     * 失败次数（键为 客户端:命令）
+     */
+    public Map<String, Long> errorSummary() {
+        Map<String, Long> summary = new TreeMap<>();
+        errors.forEach((key, adder) -> summary.put(key, adder.sum()));
+        connectionErrors.forEach((client, adder) -> summary.put(client + ":<connection>", adder.sum()));
+        return summary;
+    }
+
+    /**
+     * 统计窗口起点（上次重置时间）
+     */
+    public long windowStartMillis() {
+        return windowStartMillis;
+    }
+
+    /**
+     * 清空全部指标，开始新的统计窗口
+     */
+    public void reset() {
+        commandLatency.clear();
+        poolWait.clear();
+        errors.clear();
+        connectionErrors.clear();
+        validation.reset();
+        validationFailures.reset();
+        windowStartMillis = System.currentTimeMillis();
+    }
+}
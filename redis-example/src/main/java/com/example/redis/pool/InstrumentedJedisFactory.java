@@ -0,0 +1,31 @@
+package com.example.redis.pool;
+
+import com.example.redis.metrics.RedisClientMetrics;
+import org.apache.commons.pool2.PooledObject;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisFactory;
+
+/**
+ * 记录校验开销的 Jedis 连接工厂
+ * 借出、归还、空闲检测触发的每次 PING 校验都会计入 RedisClientMetrics
+ */
+public class InstrumentedJedisFactory extends JedisFactory {
+
+    private final RedisClientMetrics metrics;
+
+    public InstrumentedJedisFactory(HostAndPort hostAndPort, JedisClientConfig clientConfig,
+                                    RedisClientMetrics metrics) {
+        super(hostAndPort, clientConfig);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean validateObject(PooledObject<Jedis> pooledJedis) {
+        long start = System.nanoTime();
+        boolean valid = super.validateObject(pooledJedis);
+        metrics.recordValidation(System.nanoTime() - start, valid);
+        return valid;
+    }
+}
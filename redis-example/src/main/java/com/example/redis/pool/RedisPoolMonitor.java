@@ -0,0 +1,233 @@
+package com.example.redis.pool;
+
+import com.example.redis.metrics.LatencyHistogram;
+import com.example.redis.metrics.RedisClientMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPool;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 连接池监控
+ *
+ * 1. 汇总三个客户端的命令延迟、借连接等待、校验开销，并按利特尔法则给出连接池大小建议：
+ *    平均占用连接数 ≈ 每秒命令数 × 单次占用时长
+ * 2. 自适应校验（redis.pool.validation-mode=adaptive）：定期检查连接异常和空闲校验失败次数，
+ *    有新增时临时打开 testOnBorrow，冷却期内无新增后关闭，平时只靠后台空闲检测
+ */
+@Slf4j
+@Component
+public class RedisPoolMonitor {
+
+    @Autowired
+    private JedisPool jedisPool;
+
+    @Autowired
+    private RedisClientMetrics metrics;
+
+    @Value("${redis.pool.validation-mode:adaptive}")
+    private String validationMode;
+
+    @Value("${redis.pool.adaptive.check-interval-seconds:5}")
+    private int checkIntervalSeconds;
+
+    @Value("${redis.pool.adaptive.cooldown-seconds:60}")
+    private int cooldownSeconds;
+
+    @Value("${redis.pool.redisson.connection-pool-size:10}")
+    private int redissonPoolSize;
+
+    @Value("${redis.pool.redisson.connection-minimum-idle-size:5}")
+    private int redissonMinIdle;
+
+    @Value("${redis.pool.redisson.ping-connection-interval-millis:30000}")
+    private int redissonPingInterval;
+
+    private ValidationMode mode;
+    private ScheduledExecutorService scheduler;
+
+    private long lastFailures;
+    private volatile long strictUntilMillis;
+    private volatile int strictSwitches;
+
+    @PostConstruct
+    public void init() {
+        mode = ValidationMode.of(validationMode);
+        if (mode != ValidationMode.ADAPTIVE) {
+            log.info("Jedis连接池校验模式: {}", mode);
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-pool-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::adaptValidation, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Jedis连接池校验模式: ADAPTIVE, 检查间隔={}s, 冷却={}s", checkIntervalSeconds, cooldownSeconds);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 根据新增的连接异常切换借出校验
+     */
+    private void adaptValidation() {
+        try {
+            long failures = metrics.connectionErrors(RedisClientMetrics.JEDIS) + metrics.validationFailures();
+            // 指标被重置后计数会变小，此时以当前值作为新增量
+            long delta = failures >= lastFailures ? failures - lastFailures : failures;
+            lastFailures = failures;
+
+            long now = System.currentTimeMillis();
+            if (delta > 0) {
+                strictUntilMillis = now + cooldownSeconds * 1000L;
+                if (!jedisPool.getTestOnBorrow()) {
+                    jedisPool.setTestOnBorrow(true);
+                    strictSwitches++;
+                    log.warn("检测到 {} 次Jedis连接异常，临时开启借出校验 {}s", delta, cooldownSeconds);
+                }
+            } else if (jedisPool.getTestOnBorrow() && now >= strictUntilMillis) {
+                jedisPool.setTestOnBorrow(false);
+                log.info("Jedis连接恢复稳定，关闭借出校验");
+            }
+        } catch (Exception e) {
+            log.error("Jedis连接池自适应校验失败", e);
+        }
+    }
+
+    /**
+     * 完整报告
+     */
+    public Map<String, Object> report() {
+        double windowSeconds = Math.max((System.currentTimeMillis() - metrics.windowStartMillis()) / 1000.0, 0.001);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("windowSeconds", Math.round(windowSeconds));
+        report.put("jedis", jedisReport(windowSeconds));
+        report.put("lettuce", lettuceReport(windowSeconds));
+        report.put("redisson", redissonReport(windowSeconds));
+        report.put("errors", metrics.errorSummary());
+        return report;
+    }
+
+    private Map<String, Object> jedisReport(double windowSeconds) {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("maxTotal", jedisPool.getMaxTotal());
+        pool.put("maxIdle", jedisPool.getMaxIdle());
+        pool.put("minIdle", jedisPool.getMinIdle());
+        pool.put("active", jedisPool.getNumActive());
+        pool.put("idle", jedisPool.getNumIdle());
+        pool.put("waiters", jedisPool.getNumWaiters());
+        pool.put("borrowed", jedisPool.getBorrowedCount());
+        pool.put("returned", jedisPool.getReturnedCount());
+        pool.put("created", jedisPool.getCreatedCount());
+        pool.put("destroyed", jedisPool.getDestroyedCount());
+        pool.put("destroyedByBorrowValidation", jedisPool.getDestroyedByBorrowValidationCount());
+        pool.put("destroyedByEvictor", jedisPool.getDestroyedByEvictorCount());
+        pool.put("meanBorrowWaitMicros", jedisPool.getMeanBorrowWaitDuration().toNanos() / 1000);
+        pool.put("maxBorrowWaitMicros", jedisPool.getMaxBorrowWaitDuration().toNanos() / 1000);
+        pool.put("meanActiveMicros", jedisPool.getMeanActiveDuration().toNanos() / 1000);
+
+        Map<String, Object> validation = new LinkedHashMap<>();
+        validation.put("mode", mode);
+        validation.put("testOnBorrow", jedisPool.getTestOnBorrow());
+        validation.put("testOnReturn", jedisPool.getTestOnReturn());
+        validation.put("testWhileIdle", jedisPool.getTestWhileIdle());
+        validation.put("adaptiveSwitches", strictSwitches);
+        LatencyHistogram pings = metrics.validation();
+        long[] totals = metrics.totals(RedisClientMetrics.JEDIS);
+        validation.put("validations", pings.summary());
+        validation.put("failures", metrics.validationFailures());
+        validation.put("validationsPerCommand", totals[0] == 0 ? 0 : round(pings.count() / (double) totals[0]));
+        // 校验耗时占命令耗时的比例，即每条命令因校验多付出的时间
+        validation.put("overheadPercent", totals[1] == 0 ? 0 : round(pings.totalNanos() * 100.0 / totals[1]));
+
+        Map<String, Object> jedis = new LinkedHashMap<>();
+        jedis.put("pool", pool);
+        jedis.put("poolWait", summary(metrics.poolWait(RedisClientMetrics.JEDIS)));
+        jedis.put("validation", validation);
+        jedis.put("sizing", sizing(totals, windowSeconds, jedisPool.getMaxTotal(), jedisPool.getNumWaiters(),
+                jedisPool.getMaxBorrowWaitDuration().toMillis()));
+        jedis.put("commands", metrics.commandSummary(RedisClientMetrics.JEDIS));
+        return jedis;
+    }
+
+    private Map<String, Object> lettuceReport(double windowSeconds) {
+        long[] totals = metrics.totals(RedisClientMetrics.LETTUCE);
+        Map<String, Object> lettuce = new LinkedHashMap<>();
+        // Lettuce 共享单个多路复用连接，无连接池和借连接等待
+        lettuce.put("connections", 1);
+        lettuce.put("opsPerSecond", Math.round(totals[0] / windowSeconds));
+        lettuce.put("commands", metrics.commandSummary(RedisClientMetrics.LETTUCE));
+        return lettuce;
+    }
+
+    private Map<String, Object> redissonReport(double windowSeconds) {
+        long[] totals = metrics.totals(RedisClientMetrics.REDISSON);
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("connectionPoolSize", redissonPoolSize);
+        pool.put("connectionMinimumIdleSize", redissonMinIdle);
+        pool.put("pingConnectionIntervalMillis", redissonPingInterval);
+
+        Map<String, Object> redisson = new LinkedHashMap<>();
+        redisson.put("pool", pool);
+        // Redisson 不暴露借连接等待，命令耗时已包含内部获取连接的时间
+        redisson.put("sizing", sizing(totals, windowSeconds, redissonPoolSize, 0, 0));
+        redisson.put("commands", metrics.commandSummary(RedisClientMetrics.REDISSON));
+        return redisson;
+    }
+
+    /**
+     * 连接池大小建议
+     * 平均占用连接数 = 每秒命令数 × 平均占用时长；建议值在此基础上留一倍余量，且不低于 2
+     */
+    private Map<String, Object> sizing(long[] totals, double windowSeconds, int currentSize,
+                                       int waiters, long maxBorrowWaitMillis) {
+        double opsPerSecond = totals[0] / windowSeconds;
+        double meanHoldSeconds = totals[0] == 0 ? 0 : totals[1] / (double) totals[0] / 1_000_000_000.0;
+        double averageInUse = opsPerSecond * meanHoldSeconds;
+        int recommended = Math.max((int) Math.ceil(averageInUse * 2), 2);
+
+        Map<String, Object> sizing = new LinkedHashMap<>();
+        sizing.put("currentSize", currentSize);
+        sizing.put("opsPerSecond", Math.round(opsPerSecond));
+        sizing.put("averageConnectionsInUse", round(averageInUse));
+        sizing.put("recommendedSize", recommended);
+        if (waiters > 0 || maxBorrowWaitMillis > 10) {
+            sizing.put("advice", "存在借连接等待，建议调大连接池");
+        } else if (recommended < currentSize / 2) {
+            sizing.put("advice", "连接池利用率低，可以调小");
+        } else {
+            sizing.put("advice", "当前大小合适");
+        }
+        return sizing;
+    }
+
+    private Map<String, Object> summary(LatencyHistogram histogram) {
+        return histogram == null ? Map.of() : histogram.summary();
+    }
+
+    private double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * 重置客户端指标，开始新的统计窗口（Jedis 连接池自身的借出/归还计数从启动起累计，不随之重置）
+     */
+    public void reset() {
+        metrics.reset();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.redis.pool;
+
+/**
+ * Jedis 连接池校验模式
+ */
+public enum ValidationMode {
+
+    /**
+     * 借出和归还时都 PING 一次（每条命令额外两次往返），外加空闲检测
+     */
+    ALWAYS,
+
+    /**
+     * 只由后台驱逐线程检测空闲连接，借出/归还不校验
+     */
+    IDLE,
+
+    /**
+     * 平时同 IDLE；检测到连接异常或空闲校验失败时临时开启借出校验，冷却期内无异常后关闭
+     */
+    ADAPTIVE;
+
+    public static ValidationMode of(String name) {
+        if (name == null || name.isBlank()) {
+            return ADAPTIVE;
+        }
+        return ValidationMode.valueOf(name.trim().toUpperCase());
+    }
+}
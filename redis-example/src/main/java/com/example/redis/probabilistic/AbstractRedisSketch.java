@@ -0,0 +1,127 @@
+package com.example.redis.probabilistic;
+
+import org.redisson.api.BatchResult;
+import org.redisson.api.RBatch;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RScriptAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 Lua 脚本的概率数据结构基类
+ *
+ * - 数据键统一为 {name}:xxx，保证同一结构的多个键落在同一个槽，脚本可以在集群下执行
+ * - 结构参数保存在 {name}:config，首次创建时写入，之后以 Redis 中保存的参数为准，避免不同实例参数不一致导致数据错乱
+ * - 批量操作按 chunkSize 切块，每块一次脚本调用，多块通过 RBatch 管道一次发送
+ */
+public abstract class AbstractRedisSketch {
+
+    protected static final int CHUNK_SIZE = 256;
+
+    protected final RedissonClient redissonClient;
+    protected final String name;
+
+    protected AbstractRedisSketch(RedissonClient redissonClient, String name) {
+        this.redissonClient = redissonClient;
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 结构内部键
+     */
+    protected String key(String suffix) {
+        return "{" + name + "}:" + suffix;
+    }
+
+    /**
+     * 读取结构参数，不存在时写入 defaults
+     */
+    protected Map<String, Integer> loadOrInitConfig(Map<String, Integer> defaults) {
+        RMap<String, String> config = redissonClient.getMap(key("config"), StringCodec.INSTANCE);
+        defaults.forEach((field, value) -> config.fastPutIfAbsent(field, String.valueOf(value)));
+        Map<String, Integer> stored = new LinkedHashMap<>();
+        config.readAllMap().forEach((field, value) -> stored.put(field, Integer.parseInt(value)));
+        return stored;
+    }
+
+    /**
+     * 执行脚本，多块参数通过管道一次发送，结果按块顺序拼接
+     * @param argsPerChunk 每块的 ARGV
+     */
+    protected List<Object> evalPipelined(String script, List<Object> keys, List<Object[]> argsPerChunk) {
+        if (argsPerChunk.isEmpty()) {
+            return List.of();
+        }
+        if (argsPerChunk.size() == 1) {
+            List<Object> result = redissonClient.getScript(StringCodec.INSTANCE)
+                    .eval(RScript.Mode.READ_WRITE, script, RScript.ReturnType.MULTI, keys, argsPerChunk.get(0));
+            return result;
+        }
+        RBatch batch = redissonClient.createBatch();
+        RScriptAsync scriptAsync = batch.getScript(StringCodec.INSTANCE);
+        for (Object[] args : argsPerChunk) {
+            scriptAsync.evalAsync(RScript.Mode.READ_WRITE, script, RScript.ReturnType.MULTI, keys, args);
+        }
+        BatchResult<?> batchResult = batch.execute();
+        List<Object> result = new ArrayList<>();
+        for (Object response : batchResult.getResponses()) {
+            result.addAll((List<?>) response);
+        }
+        return result;
+    }
+
+    /**
+     * 把逐元素参数按块组装成 ARGV，每块前面加上公共前缀参数
+     */
+    protected List<Object[]> chunk(List<Object[]> perItemArgs, Object... prefix) {
+        List<Object[]> chunks = new ArrayList<>();
+        for (int start = 0; start < perItemArgs.size(); start += CHUNK_SIZE) {
+            List<Object> args = new ArrayList<>(Arrays.asList(prefix));
+            for (Object[] itemArgs : perItemArgs.subList(start, Math.min(start + CHUNK_SIZE, perItemArgs.size()))) {
+                args.addAll(Arrays.asList(itemArgs));
+            }
+            chunks.add(args.toArray());
+        }
+        return chunks;
+    }
+
+    protected static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(String.valueOf(value));
+    }
+
+    /**
+     * 结构占用的内存（各键 MEMORY USAGE 之和，字节）
+     */
+    public long sizeInMemory() {
+        long total = 0;
+        for (String key : dataKeys()) {
+            total += redissonClient.getBucket(key).sizeInMemory();
+        }
+        return total;
+    }
+
+    /**
+     * 删除结构（含参数）
+     */
+    public void delete() {
+        List<String> keys = new ArrayList<>(dataKeys());
+        keys.add(key("config"));
+        redissonClient.getKeys().delete(keys.toArray(new String[0]));
+    }
+
+    /**
+     * 数据键（不含参数键）
+     */
+    protected abstract List<String> dataKeys();
+}
@@ -0,0 +1,47 @@
+package com.example.redis.probabilistic;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 概率数据结构使用的 64 位哈希
+ * FNV-1a 累加 UTF-8 字节后再做一次 MurmurHash3 fmix64 混合，保证高低 32 位都分布均匀；
+ * 同一元素在所有客户端实例上得到相同结果，下标在客户端计算，服务端脚本只负责计数和存取
+ */
+final class ProbabilisticHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ProbabilisticHash() {
+    }
+
+    static long hash64(String item) {
+        long hash = FNV_OFFSET;
+        for (byte b : item.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * 双重哈希（Kirsch-Mitzenmacher）得到 depth 行计数器的下标
+     * 第 r 行下标为 r * width + (h1 + r * h2) mod width
+     */
+    static long[] positions(String item, int width, int depth) {
+        long hash = hash64(item);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long[] positions = new long[depth];
+        for (int row = 0; row < depth; row++) {
+            int combined = (h1 + row * h2) & Integer.MAX_VALUE;
+            positions[row] = (long) row * width + combined % width;
+        }
+        return positions;
+    }
+}
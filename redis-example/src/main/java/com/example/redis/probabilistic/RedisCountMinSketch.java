@@ -0,0 +1,170 @@
+package com.example.redis.probabilistic;
+
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count-Min Sketch（频率估计）
+ *
+ * depth 行 × width 列的 u32 计数器存放在一个字符串键中，用 BITFIELD 读写（饱和加法，不会溢出）。
+ * 估计值只会偏大不会偏小，误差上界约为 总计数 × e / width，置信度 1 - e^(-depth)。
+ * 内存固定为 width × depth × 4 字节，与元素个数无关。
+ */
+public class RedisCountMinSketch extends AbstractRedisSketch {
+
+    /**
+     * KEYS[1] 计数器；ARGV[1] depth，之后每个元素依次为 增量、depth 个下标；返回每个元素累加后的估计值
+     */
+    static final String INCRBY_SCRIPT =
+            "local depth = tonumber(ARGV[1]) " +
+            "local result = {} " +
+            "for i = 2, #ARGV, depth + 1 do " +
+            "  local args = {'OVERFLOW', 'SAT'} " +
+            "  for r = 1, depth do " +
+            "    args[#args + 1] = 'INCRBY'; args[#args + 1] = 'u32'; " +
+            "    args[#args + 1] = '#' .. ARGV[i + r]; args[#args + 1] = ARGV[i] " +
+            "  end " +
+            "  local values = redis.call('BITFIELD', KEYS[1], unpack(args)) " +
+            "  local min = values[1] " +
+            "  for r = 2, depth do if values[r] < min then min = values[r] end end " +
+            "  result[#result + 1] = min " +
+            "end " +
+            "return result";
+
+    /**
+     * KEYS[1] 计数器；ARGV[1] depth，之后每个元素 depth 个下标；返回每个元素的估计值
+     */
+    static final String QUERY_SCRIPT =
+            "local depth = tonumber(ARGV[1]) " +
+            "local result = {} " +
+            "for i = 2, #ARGV, depth do " +
+            "  local args = {} " +
+            "  for r = 0, depth - 1 do " +
+            "    args[#args + 1] = 'GET'; args[#args + 1] = 'u32'; args[#args + 1] = '#' .. ARGV[i + r] " +
+            "  end " +
+            "  local values = redis.call('BITFIELD', KEYS[1], unpack(args)) " +
+            "  local min = values[1] " +
+            "  for r = 2, depth do if values[r] < min then min = values[r] end end " +
+            "  result[#result + 1] = min " +
+            "end " +
+            "return result";
+
+    private final int width;
+    private final int depth;
+    private final String countersKey;
+
+    /**
+     * @param width 每行计数器个数，越大误差越小
+     * @param depth 行数（哈希函数个数），越大置信度越高
+     */
+    public RedisCountMinSketch(RedissonClient redissonClient, String name, int width, int depth) {
+        super(redissonClient, name);
+        Map<String, Integer> config = loadOrInitConfig(Map.of("width", width, "depth", depth));
+        this.width = config.get("width");
+        this.depth = config.get("depth");
+        this.countersKey = key("counters");
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 计数加 1，返回累加后的估计值
+     */
+    public long add(String item) {
+        return add(item, 1);
+    }
+
+    /**
+     * 计数加 increment，返回累加后的估计值
+     */
+    public long add(String item, long increment) {
+        return addAll(Map.of(item, increment)).get(item);
+    }
+
+    /**
+     * 批量计数，每个元素加 1（重复元素合并后一次累加）
+     */
+    public Map<String, Long> addAll(Collection<String> items) {
+        Map<String, Long> increments = new LinkedHashMap<>();
+        for (String item : items) {
+            increments.merge(item, 1L, Long::sum);
+        }
+        return addAll(increments);
+    }
+
+    /**
+     * 批量计数（管道），返回每个元素累加后的估计值
+     */
+    public Map<String, Long> addAll(Map<String, Long> increments) {
+        List<String> items = new ArrayList<>(increments.keySet());
+        List<Object[]> perItem = new ArrayList<>(items.size());
+        for (String item : items) {
+            Object[] args = new Object[depth + 1];
+            args[0] = increments.get(item);
+            long[] positions = ProbabilisticHash.positions(item, width, depth);
+            for (int r = 0; r < depth; r++) {
+                args[r + 1] = positions[r];
+            }
+            perItem.add(args);
+        }
+        List<Object> result = evalPipelined(INCRBY_SCRIPT, List.of(countersKey), chunk(perItem, depth));
+        return zip(items, result);
+    }
+
+    /**
+     * 估计元素出现次数
+     */
+    public long estimate(String item) {
+        return estimateAll(List.of(item)).get(item);
+    }
+
+    /**
+     * 批量估计（管道）
+     */
+    public Map<String, Long> estimateAll(Collection<String> items) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(items));
+        List<Object[]> perItem = new ArrayList<>(distinct.size());
+        for (String item : distinct) {
+            long[] positions = ProbabilisticHash.positions(item, width, depth);
+            Object[] args = new Object[depth];
+            for (int r = 0; r < depth; r++) {
+                args[r] = positions[r];
+            }
+            perItem.add(args);
+        }
+        List<Object> result = evalPipelined(QUERY_SCRIPT, List.of(countersKey), chunk(perItem, depth));
+        return zip(distinct, result);
+    }
+
+    private Map<String, Long> zip(List<String> items, List<Object> values) {
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            estimates.put(items.get(i), toLong(values.get(i)));
+        }
+        return estimates;
+    }
+
+    /**
+     * 清空计数（保留参数）
+     */
+    public void clear() {
+        redissonClient.getKeys().delete(countersKey);
+    }
+
+    @Override
+    protected List<String> dataKeys() {
+        return List.of(countersKey);
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.redis.probabilistic;
+
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 布谷鸟过滤器（支持删除的成员判断）
+ *
+ * 每个桶 4 个槽，每槽存 16 位指纹（0 表示空），整个表存放在一个字符串键中用 BITFIELD 读写。
+ * 元素的两个候选桶为 i1 = hash & mask、i2 = i1 ^ (fp × 0x5bd1e995 & mask)，由 i1 和指纹可互相推导，
+ * 两桶都满时随机踢出一个指纹到它的另一个桶，最多踢 MAX_KICKS 次，失败则回滚并返回 false。
+ *
+ * - 误判率约 8 / 2^16 ≈ 0.012%，不会漏判
+ * - 同一元素重复 add 会存入多个指纹，需要集合语义时先 contains；只能 remove 确实添加过的元素
+ * - 内存为 桶数 × 8 字节，桶数按容量 / 4 / 0.95 向上取 2 的幂
+ */
+public class RedisCuckooFilter extends AbstractRedisSketch {
+
+    private static final int SLOTS = 4;
+    private static final int MAX_KICKS = 500;
+    private static final int ALT_MULTIPLIER = 0x5bd1e995;
+
+    /**
+     * KEYS[1] 桶表，KEYS[2] 元素计数；ARGV[1] mask，ARGV[2] 最大踢出次数，之后每个元素 指纹、i1、i2
+     */
+    static final String ADD_SCRIPT =
+            "local mask = tonumber(ARGV[1]) " +
+            "local maxKicks = tonumber(ARGV[2]) " +
+            "local function put(b, fp) " +
+            "  local s = redis.call('BITFIELD', KEYS[1], 'GET', 'u16', '#' .. (b * 4), 'GET', 'u16', '#' .. (b * 4 + 1), " +
+            "    'GET', 'u16', '#' .. (b * 4 + 2), 'GET', 'u16', '#' .. (b * 4 + 3)) " +
+            "  for j = 1, 4 do " +
+            "    if s[j] == 0 then " +
+            "      redis.call('BITFIELD', KEYS[1], 'SET', 'u16', '#' .. (b * 4 + j - 1), fp) " +
+            "      return true " +
+            "    end " +
+            "  end " +
+            "  return false " +
+            "end " +
+            "local result = {} " +
+            "for i = 3, #ARGV, 3 do " +
+            "  local fp = tonumber(ARGV[i]) " +
+            "  local b = tonumber(ARGV[i + 1]) " +
+            "  local ok = put(b, fp) or put(tonumber(ARGV[i + 2]), fp) " +
+            "  if not ok then " +
+            "    local path = {} " +
+            "    if math.random(0, 1) == 1 then b = tonumber(ARGV[i + 2]) end " +
+            "    for k = 1, maxKicks do " +
+            "      local pos = '#' .. (b * 4 + math.random(0, 3)) " +
+            "      local victim = redis.call('BITFIELD', KEYS[1], 'GET', 'u16', pos)[1] " +
+            "      redis.call('BITFIELD', KEYS[1], 'SET', 'u16', pos, fp) " +
+            "      path[#path + 1] = {pos, victim} " +
+            "      fp = victim " +
+            "      b = bit.band(bit.bxor(b, bit.band(fp * " + ALT_MULTIPLIER + ", mask)), mask) " +
+            "      if put(b, fp) then ok = true break end " +
+            "    end " +
+            "    if not ok then " +
+            "      for k = #path, 1, -1 do " +
+            "        redis.call('BITFIELD', KEYS[1], 'SET', 'u16', path[k][1], path[k][2]) " +
+            "      end " +
+            "    end " +
+            "  end " +
+            "  if ok then redis.call('INCR', KEYS[2]) result[#result + 1] = 1 else result[#result + 1] = 0 end " +
+            "end " +
+            "return result";
+
+    /**
+     * KEYS[1] 桶表；之后每个元素 指纹、i1、i2；返回每个元素是否存在
+     */
+    static final String CONTAINS_SCRIPT =
+            "local result = {} " +
+            "for i = 1, #ARGV, 3 do " +
+            "  local fp = tonumber(ARGV[i]) " +
+            "  local b1 = tonumber(ARGV[i + 1]) * 4 " +
+            "  local b2 = tonumber(ARGV[i + 2]) * 4 " +
+            "  local s = redis.call('BITFIELD', KEYS[1], " +
+            "    'GET', 'u16', '#' .. b1, 'GET', 'u16', '#' .. (b1 + 1), 'GET', 'u16', '#' .. (b1 + 2), 'GET', 'u16', '#' .. (b1 + 3), " +
+            "    'GET', 'u16', '#' .. b2, 'GET', 'u16', '#' .. (b2 + 1), 'GET', 'u16', '#' .. (b2 + 2), 'GET', 'u16', '#' .. (b2 + 3)) " +
+            "  local found = 0 " +
+            "  for j = 1, 8 do if s[j] == fp then found = 1 break end end " +
+            "  result[#result + 1] = found " +
+            "end " +
+            "return result";
+
+    /**
+     * KEYS[1] 桶表，KEYS[2] 元素计数；之后每个元素 指纹、i1、i2；返回每个元素是否删除成功
+     */
+    static final String REMOVE_SCRIPT =
+            "local result = {} " +
+            "for i = 1, #ARGV, 3 do " +
+            "  local fp = tonumber(ARGV[i]) " +
+            "  local removed = 0 " +
+            "  for _, b in ipairs({tonumber(ARGV[i + 1]), tonumber(ARGV[i + 2])}) do " +
+            "    if removed == 0 then " +
+            "      local s = redis.call('BITFIELD', KEYS[1], 'GET', 'u16', '#' .. (b * 4), 'GET', 'u16', '#' .. (b * 4 + 1), " +
+            "        'GET', 'u16', '#' .. (b * 4 + 2), 'GET', 'u16', '#' .. (b * 4 + 3)) " +
+            "      for j = 1, 4 do " +
+            "        if s[j] == fp then " +
+            "          redis.call('BITFIELD', KEYS[1], 'SET', 'u16', '#' .. (b * 4 + j - 1), 0) " +
+            "          redis.call('DECR', KEYS[2]) " +
+            "          removed = 1 " +
+            "          break " +
+            "        end " +
+            "      end " +
+            "    end " +
+            "  end " +
+            "  result[#result + 1] = removed " +
+            "end " +
+            "return result";
+
+    private final int buckets;
+    private final int mask;
+    private final String bucketsKey;
+    private final String countKey;
+
+    /**
+     * @param capacity 预期元素个数
+     */
+    public RedisCuckooFilter(RedissonClient redissonClient, String name, long capacity) {
+        super(redissonClient, name);
+        Map<String, Integer> config = loadOrInitConfig(Map.of("buckets", bucketsFor(capacity)));
+        this.buckets = config.get("buckets");
+        this.mask = buckets - 1;
+        this.bucketsKey = key("buckets");
+        this.countKey = key("count");
+    }
+
+    private static int bucketsFor(long capacity) {
+        long needed = (long) Math.ceil(capacity / (SLOTS * 0.95));
+        long buckets = Long.highestOneBit(Math.max(needed - 1, 1)) << 1;
+        if (buckets > (1 << 30)) {
+            throw new IllegalArgumentException("布谷鸟过滤器容量过大: " + capacity);
+        }
+        return (int) buckets;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * 添加元素，过滤器已满（踢出失败）时返回 false
+     */
+    public boolean add(String item) {
+        return addAll(List.of(item)).get(item);
+    }
+
+    /**
+     * 批量添加（管道）
+     */
+    public Map<String, Boolean> addAll(Collection<String> items) {
+        List<String> list = new ArrayList<>(items);
+        List<Object> result = evalPipelined(ADD_SCRIPT, List.of(bucketsKey, countKey),
+                chunk(fingerprints(list), mask, MAX_KICKS));
+        return zip(list, result);
+    }
+
+    /**
+     * 判断元素是否可能存在（不存在时一定返回 false）
+     */
+    public boolean contains(String item) {
+        return containsAll(List.of(item)).get(item);
+    }
+
+    /**
+     * 批量判断（管道）
+     */
+    public Map<String, Boolean> containsAll(Collection<String> items) {
+        List<String> list = new ArrayList<>(items);
+        List<Object> result = evalPipelined(CONTAINS_SCRIPT, List.of(bucketsKey), chunk(fingerprints(list)));
+        return zip(list, result);
+    }
+
+    /**
+     * 删除元素（只能删除确实添加过的元素，否则可能误删其他元素的指纹）
+     */
+    public boolean remove(String item) {
+        return removeAll(List.of(item)).get(item);
+    }
+
+    /**
+     * 批量删除（管道）
+     */
+    public Map<String, Boolean> removeAll(Collection<String> items) {
+        List<String> list = new ArrayList<>(items);
+        List<Object> result = evalPipelined(REMOVE_SCRIPT, List.of(bucketsKey, countKey), chunk(fingerprints(list)));
+        return zip(list, result);
+    }
+
+    /**
+     * 当前元素个数
+     */
+    public long count() {
+        String value = redissonClient.<String>getBucket(countKey, StringCodec.INSTANCE).get();
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * 装载率（元素个数 / 槽数）
+     */
+    public double loadFactor() {
+        return count() / (double) ((long) buckets * SLOTS);
+    }
+
+    private List<Object[]> fingerprints(List<String> items) {
+        List<Object[]> perItem = new ArrayList<>(items.size());
+        for (String item : items) {
+            long hash = ProbabilisticHash.hash64(item);
+            int fingerprint = (int) (hash >>> 48);
+            if (fingerprint == 0) {
+                fingerprint = 1;
+            }
+            int index1 = (int) hash & mask;
+            perItem.add(new Object[]{fingerprint, index1, alternate(index1, fingerprint)});
+        }
+        return perItem;
+    }
+
+    /**
+     * 另一个候选桶，与脚本中的计算保持一致（取乘积低 32 位）
+     */
+    private int alternate(int index, int fingerprint) {
+        return (index ^ ((int) ((long) fingerprint * ALT_MULTIPLIER) & mask)) & mask;
+    }
+
+    private Map<String, Boolean> zip(List<String> items, List<Object> values) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            result.merge(items.get(i), toLong(values.get(i)) == 1, Boolean::logicalAnd);
+        }
+        return result;
+    }
+
+    @Override
+    protected List<String> dataKeys() {
+        return List.of(bucketsKey, countKey);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.redis.probabilistic;
+
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top-K（高频元素）
+ *
+ * 与本地热点探测相同的思路放到服务端：Count-Min Sketch 估算频率，大小为 k 的 ZSET 保留估计值最高的元素。
+ * 每次累加后把元素以估计值写入 ZSET，超过 k 个时删除分数最低的一个，整个过程在一个脚本内完成。
+ * 内存为 Sketch 的 width × depth × 4 字节加 k 个 ZSET 成员。
+ */
+public class RedisTopK extends AbstractRedisSketch {
+
+    /**
+     * KEYS[1] 计数器，KEYS[2] 排行 ZSET；ARGV[1] depth，ARGV[2] k，之后每个元素 元素、增量、depth 个下标；
+     * 返回每个元素累加后的估计值
+     */
+    static final String ADD_SCRIPT =
+            "local depth = tonumber(ARGV[1]) " +
+            "local k = tonumber(ARGV[2]) " +
+            "local result = {} " +
+            "for i = 3, #ARGV, depth + 2 do " +
+            "  local args = {'OVERFLOW', 'SAT'} " +
+            "  for r = 1, depth do " +
+            "    args[#args + 1] = 'INCRBY'; args[#args + 1] = 'u32'; " +
+            "    args[#args + 1] = '#' .. ARGV[i + 1 + r]; args[#args + 1] = ARGV[i + 1] " +
+            "  end " +
+            "  local values = redis.call('BITFIELD', KEYS[1], unpack(args)) " +
+            "  local min = values[1] " +
+            "  for r = 2, depth do if values[r] < min then min = values[r] end end " +
+            "  redis.call('ZADD', KEYS[2], min, ARGV[i]) " +
+            "  if redis.call('ZCARD', KEYS[2]) > k then redis.call('ZPOPMIN', KEYS[2]) end " +
+            "  result[#result + 1] = min " +
+            "end " +
+            "return result";
+
+    private final int k;
+    private final int width;
+    private final int depth;
+    private final String countersKey;
+    private final String rankKey;
+
+    /**
+     * @param k 保留的元素个数
+     * @param width Sketch 每行计数器个数
+     * @param depth Sketch 行数
+     */
+    public RedisTopK(RedissonClient redissonClient, String name, int k, int width, int depth) {
+        super(redissonClient, name);
+        Map<String, Integer> config = loadOrInitConfig(Map.of("k", k, "width", width, "depth", depth));
+        this.k = config.get("k");
+        this.width = config.get("width");
+        this.depth = config.get("depth");
+        this.countersKey = key("counters");
+        this.rankKey = key("rank");
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * 计数加 1，返回累加后的估计值
+     */
+    public long add(String item) {
+        return addAll(Map.of(item, 1L)).get(item);
+    }
+
+    /**
+     * 批量计数，每个元素加 1（重复元素合并后一次累加）
+     */
+    public Map<String, Long> addAll(Collection<String> items) {
+        Map<String, Long> increments = new LinkedHashMap<>();
+        for (String item : items) {
+            increments.merge(item, 1L, Long::sum);
+        }
+        return addAll(increments);
+    }
+
+    /**
+     * 批量计数（管道），返回每个元素累加后的估计值
+     */
+    public Map<String, Long> addAll(Map<String, Long> increments) {
+        List<String> items = new ArrayList<>(increments.keySet());
+        List<Object[]> perItem = new ArrayList<>(items.size());
+        for (String item : items) {
+            Object[] args = new Object[depth + 2];
+            args[0] = item;
+            args[1] = increments.get(item);
+            long[] positions = ProbabilisticHash.positions(item, width, depth);
+            for (int r = 0; r < depth; r++) {
+                args[r + 2] = positions[r];
+            }
+            perItem.add(args);
+        }
+        List<Object> result = evalPipelined(ADD_SCRIPT, List.of(countersKey, rankKey), chunk(perItem, depth, k));
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            estimates.put(items.get(i), toLong(result.get(i)));
+        }
+        return estimates;
+    }
+
+    /**
+     * 当前 Top-K，按估计值从高到低
+     */
+    public Map<String, Long> list() {
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (ScoredEntry<String> entry : rank().entryRangeReversed(0, -1)) {
+            top.put(entry.getValue(), entry.getScore().longValue());
+        }
+        return top;
+    }
+
+    /**
+     * 元素是否在 Top-K 中
+     */
+    public boolean query(String item) {
+        return rank().contains(item);
+    }
+
+    /**
+     * 开始新的统计周期（清空计数和排行）
+     */
+    public void clear() {
+        redissonClient.getKeys().delete(countersKey, rankKey);
+    }
+
+    private RScoredSortedSet<String> rank() {
+        return redissonClient.getScoredSortedSet(rankKey, StringCodec.INSTANCE);
+    }
+
+    @Override
+    protected List<String> dataKeys() {
+        return List.of(countersKey, rankKey);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.redis.service;
+
+import com.example.redis.eventbus.RedisEvent;
+import com.example.redis.eventbus.RedisEventBus;
+import com.example.redis.metrics.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件总线扇出测试
+ *
+ * 在同一个测试频道上注册 listeners 个本地监听器，发布 messages 条消息（消息体为发布时的 System.nanoTime()），
+ * 统计每次投递从发布到监听器收到的端到端延迟（含 Redis 往返、入队、攒批和分发）以及每秒投递数。
+ * 所有监听器共享一个 Redis 订阅，Redis 侧每条消息只推送一次。
+ */
+@Slf4j
+@Service
+public class EventBusBenchmarkService {
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    @Autowired
+    private RedisEventBus eventBus;
+
+    public Map<String, Object> fanOut(int listeners, int messages) {
+        String channel = "bench:eventbus:" + System.nanoTime();
+        LatencyHistogram latency = new LatencyHistogram();
+        CountDownLatch done = new CountDownLatch(listeners * messages);
+
+        List<RedisEventBus.Subscription> subscriptions = new ArrayList<>(listeners);
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < listeners; i++) {
+                subscriptions.add(eventBus.subscribe(channel, events -> {
+                    long now = System.nanoTime();
+                    for (RedisEvent event : events) {
+                        latency.record(now - Long.parseLong(event.getMessage()));
+                        done.countDown();
+                    }
+                }));
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                eventBus.publish(channel, Long.toString(System.nanoTime()));
+            }
+            long publishNanos = System.nanoTime() - start;
+            boolean completed = done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            long elapsedNanos = System.nanoTime() - start;
+
+            long expected = (long) listeners * messages;
+            long delivered = expected - done.getCount();
+            result.put("listeners", listeners);
+            result.put("messages", messages);
+            result.put("completed", completed);
+            result.put("expectedDeliveries", expected);
+            result.put("deliveries", delivered);
+            result.put("publishPerSecond", messages * 1_000_000_000L / Math.max(publishNanos, 1));
+            result.put("deliveriesPerSecond", delivered * 1_000_000_000L / Math.max(elapsedNanos, 1));
+            result.put("elapsedMillis", elapsedNanos / 1_000_000);
+            result.put("latency", latency.summary());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.put("interrupted", true);
+        } finally {
+            subscriptions.forEach(RedisEventBus.Subscription::unsubscribe);
+        }
+        result.put("eventBus", eventBus.stats());
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.redis.service;
+
+import com.example.redis.leaderboard.LeaderboardEntry;
+import com.example.redis.leaderboard.RedisLeaderboard;
+import com.example.redis.leaderboard.TimeWindowLeaderboard;
+import com.example.redis.util.RedissonUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 排行榜吞吐测试
+ *
+ * 在 members 个成员的排行榜上依次测量：
+ * 1. 初始化写入（管道 ZINCRBY）吞吐
+ * 2. 随机成员批量加分吞吐
+ * 3. 首页 / 中间页 / 末页分页读取平均延迟
+ * 4. 单个名次查询平均延迟与批量名次查询吞吐
+ * 5. 时间窗口排行榜合并（未命中缓存）与命中缓存的读取延迟
+ * 测试键在结束后删除。
+ */
+@Slf4j
+@Service
+public class LeaderboardBenchmarkService {
+
+    private static final String KEY = "bench:leaderboard";
+    private static final String WINDOW_KEY = "bench:leaderboard:window";
+    private static final int READ_REPEAT = 100;
+
+    @Autowired
+    private RedissonUtil redissonUtil;
+
+    /**
+     * @param members 成员数
+     * @param updates 随机加分次数
+     * @param pageSize 分页大小
+     */
+    public Map<String, Object> run(int members, int updates, int pageSize) {
+        RedisLeaderboard leaderboard = redissonUtil.getLeaderboard(KEY, 0);
+        TimeWindowLeaderboard window = redissonUtil.getTimeWindowLeaderboard(WINDOW_KEY, Duration.ofMinutes(1), 60, 0);
+        leaderboard.delete();
+        window.delete();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("members", members);
+        try {
+            Map<String, Double> initial = new HashMap<>(members * 2);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < members; i++) {
+                initial.put("player:" + i, (double) random.nextInt(1_000_000));
+            }
+            long start = System.nanoTime();
+            leaderboard.incrementAll(initial);
+            result.put("loadOpsPerSecond", perSecond(members, System.nanoTime() - start));
+
+            Map<String, Double> deltas = new HashMap<>();
+            for (int i = 0; i < updates; i++) {
+                deltas.merge("player:" + random.nextInt(members), (double) random.nextInt(100), Double::sum);
+            }
+            start = System.nanoTime();
+            leaderboard.incrementAll(deltas);
+            result.put("updateOpsPerSecond", perSecond(deltas.size(), System.nanoTime() - start));
+
+            int lastPage = Math.max((members + pageSize - 1) / pageSize, 1);
+            Map<String, Object> pages = new LinkedHashMap<>();
+            pages.put("firstPageMicros", averagePageMicros(leaderboard, 1, pageSize));
+            pages.put("middlePageMicros", averagePageMicros(leaderboard, Math.max(lastPage / 2, 1), pageSize));
+            pages.put("lastPageMicros", averagePageMicros(leaderboard, lastPage, pageSize));
+            result.put("pageSize", pageSize);
+            result.put("pageReads", pages);
+
+            start = System.nanoTime();
+            for (int i = 0; i < READ_REPEAT; i++) {
+                leaderboard.rankOf("player:" + random.nextInt(members));
+            }
+            result.put("rankLookupMicros", (System.nanoTime() - start) / READ_REPEAT / 1000);
+
+            List<String> lookups = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                lookups.add("player:" + random.nextInt(members));
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < lookups.size(); i += 1000) {
+                leaderboard.ranksOf(lookups.subList(i, Math.min(i + 1000, lookups.size())));
+            }
+            result.put("batchRankLookupsPerSecond", perSecond(lookups.size(), System.nanoTime() - start));
+            result.put("memoryBytes", leaderboard.sizeInMemory());
+
+            result.put("timeWindow", windowBenchmark(window, initial, pageSize));
+        } finally {
+            leaderboard.delete();
+            window.delete();
+        }
+        return result;
+    }
+
+    private Map<String, Object> windowBenchmark(TimeWindowLeaderboard window, Map<String, Double> scores, int pageSize) {
+        // 把分数分散到最近 10 个桶
+        long now = System.currentTimeMillis();
+        Map<Integer, Map<String, Double>> perBucket = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        scores.forEach((member, score) -> perBucket.computeIfAbsent(random.nextInt(10), b -> new HashMap<>()).put(member, score));
+        long start = System.nanoTime();
+        perBucket.forEach((bucket, deltas) -> window.incrementAll(deltas, now - bucket * 60_000L));
+        long loadNanos = System.nanoTime() - start;
+
+        Duration lastTenMinutes = Duration.ofMinutes(10);
+        start = System.nanoTime();
+        List<LeaderboardEntry> top = window.top(lastTenMinutes, pageSize);
+        long coldMicros = (System.nanoTime() - start) / 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < READ_REPEAT; i++) {
+            window.top(lastTenMinutes, pageSize);
+        }
+        long cachedMicros = (System.nanoTime() - start) / READ_REPEAT / 1000;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("buckets", window.bucketSizes().size());
+        result.put("loadOpsPerSecond", perSecond(scores.size(), loadNanos));
+        result.put("mergeMicros", coldMicros);
+        result.put("cachedTopMicros", cachedMicros);
+        result.put("top", top.subList(0, Math.min(3, top.size())));
+        return result;
+    }
+
+    private long averagePageMicros(RedisLeaderboard leaderboard, int page, int pageSize) {
+        long start = System.nanoTime();
+        for (int i = 0; i < READ_REPEAT; i++) {
+            leaderboard.page(page, pageSize);
+        }
+        return (System.nanoTime() - start) / READ_REPEAT / 1000;
+    }
+
+    private long perSecond(long count, long nanos) {
+        return count * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.redis.service;
 
+import com.example.redis.util.LettuceReactiveUtil;
 import com.example.redis.util.LettuceUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +22,9 @@ public class LettuceExampleService {
     @Autowired
     private LettuceUtil lettuceUtil;
 
+    @Autowired
+    private LettuceReactiveUtil lettuceReactiveUtil;
+
     /**
      * 同步操作示例 - String
      */
@@ -140,27 +144,20 @@ public class LettuceExampleService {
 
     /**
      * 反应式操作示例（基于Reactor）
-     * 注意：LettuceUtil 未封装反应式操作，这里保留注释说明
-     * 实际项目中如需使用反应式操作，可以直接使用 Lettuce 的 reactiveCommands
+     * 使用 LettuceReactiveUtil，整个链路不阻塞调用线程
      */
     public void reactiveOperations() {
         String key = "lettuce:reactive:test";
 
-        // 使用异步操作模拟反应式
-        CompletableFuture<String> setFuture = lettuceUtil.setAsync(key, "reactive_value");
-        
-        setFuture.thenCompose(result -> {
-            log.info("Lettuce异步设置完成: {}", result);
-            return lettuceUtil.getAsync(key);
-        }).thenAccept(value -> {
-            log.info("Lettuce异步获取值: {}", value);
-            log.info("Lettuce操作完成");
-        }).exceptionally(throwable -> {
-            log.error("Lettuce操作失败", throwable);
-            return null;
-        });
-        
-        log.info("Lettuce异步操作已提交");
+        lettuceReactiveUtil.set(key, "reactive_value")
+                .doOnNext(result -> log.info("Lettuce反应式设置完成: {}", result))
+                .then(lettuceReactiveUtil.get(key))
+                .subscribe(
+                        value -> log.info("Lettuce反应式获取值: {}", value),
+                        throwable -> log.error("Lettuce操作失败", throwable),
+                        () -> log.info("Lettuce操作完成"));
+
+        log.info("Lettuce反应式操作已提交");
     }
 
     /**
@@ -0,0 +1,134 @@
+package com.example.redis.service;
+
+import com.example.redis.util.LettuceReactiveUtil;
+import com.example.redis.util.LettuceUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lettuce 同步 vs 反应式对比
+ *
+ * 在相同的请求数和并发度下分别走 LettuceUtil（同步阻塞）和 LettuceReactiveUtil（非阻塞），
+ * 对比吞吐、调用方所需线程数，以及 Lettuce I/O 线程（EventLoop）的 CPU 利用率。
+ */
+@Slf4j
+@Service
+public class LettuceReactiveBenchmarkService {
+
+    private static final String KEY_PREFIX = "bench:reactive:";
+    private static final int KEY_SPACE = 1000;
+
+    @Autowired
+    private LettuceUtil lettuceUtil;
+
+    @Autowired
+    private LettuceReactiveUtil lettuceReactiveUtil;
+
+    /**
+     * 运行对比
+     * @param requests 总请求数
+     * @param concurrency 并发度（同步路径为线程数，反应式路径为在途请求数）
+     */
+    public Map<String, Object> compare(int requests, int concurrency) throws InterruptedException {
+        Map<String, String> data = new HashMap<>();
+        for (int i = 0; i < KEY_SPACE; i++) {
+            data.put(KEY_PREFIX + i, "value-" + i);
+        }
+        lettuceUtil.batchSet(data);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", requests);
+        result.put("concurrency", concurrency);
+        result.put("sync", runSync(requests, concurrency));
+        result.put("reactive", runReactive(requests, concurrency));
+        return result;
+    }
+
+    private Map<String, Object> runSync(int requests, int concurrency) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            CountDownLatch latch = new CountDownLatch(requests);
+            long cpuBefore = eventLoopCpuNanos();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                String key = KEY_PREFIX + (i % KEY_SPACE);
+                executor.execute(() -> {
+                    try {
+                        lettuceUtil.get(key);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+            long wallNanos = System.nanoTime() - start;
+            return summary(requests, wallNanos, eventLoopCpuNanos() - cpuBefore, concurrency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<String, Object> runReactive(int requests, int concurrency) {
+        long cpuBefore = eventLoopCpuNanos();
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> lettuceReactiveUtil.get(KEY_PREFIX + (i % KEY_SPACE)), concurrency)
+                .then()
+                .block(Duration.ofMinutes(5));
+        long wallNanos = System.nanoTime() - start;
+        return summary(requests, wallNanos, eventLoopCpuNanos() - cpuBefore, 1);
+    }
+
+    private Map<String, Object> summary(int requests, long wallNanos, long eventLoopCpuNanos, int callerThreads) {
+        int eventLoopThreads = Math.max(eventLoopThreadCount(), 1);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("callerThreads", callerThreads);
+        summary.put("wallMillis", wallNanos / 1_000_000);
+        summary.put("opsPerSecond", requests * 1_000_000_000L / Math.max(wallNanos, 1));
+        summary.put("eventLoopThreads", eventLoopThreads);
+        summary.put("eventLoopCpuMillis", eventLoopCpuNanos / 1_000_000);
+        summary.put("eventLoopUtilization",
+                String.format("%.1f%%", eventLoopCpuNanos * 100.0 / ((double) wallNanos * eventLoopThreads)));
+        return summary;
+    }
+
+    private long eventLoopCpuNanos() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (isEventLoop(thread)) {
+                long cpu = threadMXBean.getThreadCpuTime(thread.threadId());
+                if (cpu > 0) {
+                    total += cpu;
+                }
+            }
+        }
+        return total;
+    }
+
+    private int eventLoopThreadCount() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (isEventLoop(thread)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isEventLoop(Thread thread) {
+        return thread.getName().startsWith("lettuce-") && thread.getName().contains("EventLoop");
+    }
+}
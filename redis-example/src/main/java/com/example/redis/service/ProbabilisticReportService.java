@@ -0,0 +1,235 @@
+package com.example.redis.service;
+
+import com.example.redis.probabilistic.RedisCountMinSketch;
+import com.example.redis.probabilistic.RedisCuckooFilter;
+import com.example.redis.probabilistic.RedisTopK;
+import com.example.redis.util.RedissonUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RHyperLogLog;
+import org.redisson.api.RMap;
+import org.redisson.api.RSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 概率数据结构精度 / 内存报告
+ *
+ * 用 Zipf 分布（第 r 个元素出现次数 ∝ 1/r）构造数据集，精确结果在本地计算，
+ * 分别写入 HyperLogLog、Count-Min Sketch、布谷鸟过滤器、布隆过滤器和 Top-K，
+ * 对比误差、MEMORY USAGE、批量写入吞吐，并给出同样数据用精确结构（SET / HASH）存储的内存作为参照。
+ */
+@Slf4j
+@Service
+public class ProbabilisticReportService {
+
+    private static final String KEY_PREFIX = "prob:report:";
+    private static final int CHUNK = 10000;
+
+    @Autowired
+    private RedissonUtil redissonUtil;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    /**
+     * 生成报告，结束后删除所有测试键
+     * @param distinct 不同元素个数
+     * @param totalEvents 总事件数（按 Zipf 分布分给各元素，每个元素至少 1 次）
+     */
+    public Map<String, Object> report(int distinct, int totalEvents) {
+        List<String> items = new ArrayList<>(distinct);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        double harmonic = 0;
+        for (int r = 1; r <= distinct; r++) {
+            harmonic += 1.0 / r;
+        }
+        long events = 0;
+        for (int r = 1; r <= distinct; r++) {
+            String item = "item:" + r;
+            long count = Math.max(1, Math.round(totalEvents / (harmonic * r)));
+            items.add(item);
+            counts.put(item, count);
+            events += count;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> dataset = new LinkedHashMap<>();
+        dataset.put("distinct", distinct);
+        dataset.put("events", events);
+        result.put("dataset", dataset);
+        try {
+            result.put("hyperLogLog", hyperLogLog(items));
+            result.put("countMinSketch", countMinSketch(items, counts));
+            result.put("membership", membership(items));
+            result.put("topK", topK(counts));
+        } finally {
+            redissonClient.getKeys().deleteByPattern(KEY_PREFIX + "*");
+            redissonClient.getKeys().deleteByPattern("{" + KEY_PREFIX + "*");
+        }
+        return result;
+    }
+
+    private Map<String, Object> hyperLogLog(List<String> items) {
+        RHyperLogLog<String> hll = redissonUtil.getHyperLogLog(KEY_PREFIX + "hll");
+        long start = System.nanoTime();
+        for (int i = 0; i < items.size(); i += CHUNK) {
+            hll.addAll(items.subList(i, Math.min(i + CHUNK, items.size())));
+        }
+        long elapsed = System.nanoTime() - start;
+        long estimate = hll.count();
+
+        RSet<String> exact = redissonClient.getSet(KEY_PREFIX + "set", StringCodec.INSTANCE);
+        for (int i = 0; i < items.size(); i += CHUNK) {
+            exact.addAll(items.subList(i, Math.min(i + CHUNK, items.size())));
+        }
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("exact", items.size());
+        row.put("estimate", estimate);
+        row.put("errorPercent", percent(Math.abs(estimate - items.size()), items.size()));
+        row.put("memoryBytes", redissonUtil.memoryUsage(KEY_PREFIX + "hll"));
+        row.put("exactSetMemoryBytes", redissonUtil.memoryUsage(KEY_PREFIX + "set"));
+        row.put("addsPerSecond", perSecond(items.size(), elapsed));
+        return row;
+    }
+
+    private List<Map<String, Object>> countMinSketch(List<String> items, Map<String, Long> counts) {
+        RMap<String, String> exact = redissonClient.getMap(KEY_PREFIX + "hash", StringCodec.INSTANCE);
+        Map<String, String> exactValues = new HashMap<>();
+        counts.forEach((item, count) -> exactValues.put(item, String.valueOf(count)));
+        exact.putAll(exactValues, CHUNK);
+        long exactMemory = redissonUtil.memoryUsage(KEY_PREFIX + "hash");
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int width : new int[]{256, 2048, 16384}) {
+            RedisCountMinSketch sketch = redissonUtil.getCountMinSketch(KEY_PREFIX + "cms:" + width, width, 4);
+            long start = System.nanoTime();
+            sketch.addAll(counts);
+            long elapsed = System.nanoTime() - start;
+            Map<String, Long> estimates = sketch.estimateAll(items);
+
+            long totalError = 0;
+            long maxError = 0;
+            double topRelativeError = 0;
+            int top = Math.min(100, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                String item = items.get(i);
+                long error = estimates.get(item) - counts.get(item);
+                totalError += error;
+                maxError = Math.max(maxError, error);
+                if (i < top) {
+                    topRelativeError += error / (double) counts.get(item);
+                }
+            }
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("width", width);
+            row.put("depth", 4);
+            row.put("meanOverestimate", round(totalError / (double) items.size()));
+            row.put("maxOverestimate", maxError);
+            row.put("top100RelativeErrorPercent", round(topRelativeError * 100 / top));
+            row.put("memoryBytes", sketch.sizeInMemory());
+            row.put("exactHashMemoryBytes", exactMemory);
+            row.put("itemsPerSecond", perSecond(items.size(), elapsed));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private Map<String, Object> membership(List<String> items) {
+        int size = items.size();
+        List<String> absent = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            absent.add("absent:" + i);
+        }
+
+        RedisCuckooFilter cuckoo = redissonUtil.getCuckooFilter(KEY_PREFIX + "cuckoo", size);
+        long start = System.nanoTime();
+        long inserted = cuckoo.addAll(items).values().stream().filter(Boolean::booleanValue).count();
+        long elapsed = System.nanoTime() - start;
+        long cuckooFalsePositives = countTrue(cuckoo.containsAll(absent));
+
+        List<String> removed = items.subList(0, size / 2);
+        List<String> kept = items.subList(size / 2, size);
+        cuckoo.removeAll(removed);
+        long stillReported = countTrue(cuckoo.containsAll(removed));
+        long falseNegatives = kept.size() - countTrue(cuckoo.containsAll(kept));
+
+        Map<String, Object> cuckooRow = new LinkedHashMap<>();
+        cuckooRow.put("buckets", cuckoo.getBuckets());
+        cuckooRow.put("inserted", inserted);
+        cuckooRow.put("falsePositiveRatePercent", percent(cuckooFalsePositives, size));
+        cuckooRow.put("removedStillReported", stillReported);
+        cuckooRow.put("falseNegativesAfterRemove", falseNegatives);
+        cuckooRow.put("memoryBytes", cuckoo.sizeInMemory());
+        cuckooRow.put("addsPerSecond", perSecond(size, elapsed));
+
+        // 相同误判率下的布隆过滤器作为对照（不支持删除）
+        RBloomFilter<String> bloom = redissonUtil.getBloomFilter(KEY_PREFIX + "bloom");
+        bloom.tryInit(size, 8.0 / 65536);
+        start = System.nanoTime();
+        for (int i = 0; i < size; i += CHUNK) {
+            bloom.add(items.subList(i, Math.min(i + CHUNK, size)));
+        }
+        elapsed = System.nanoTime() - start;
+        long bloomFalsePositives = bloom.contains(absent);
+
+        Map<String, Object> bloomRow = new LinkedHashMap<>();
+        bloomRow.put("bits", bloom.getSize());
+        bloomRow.put("hashIterations", bloom.getHashIterations());
+        bloomRow.put("falsePositiveRatePercent", percent(bloomFalsePositives, size));
+        bloomRow.put("memoryBytes", redissonUtil.memoryUsage(KEY_PREFIX + "bloom"));
+        bloomRow.put("addsPerSecond", perSecond(size, elapsed));
+
+        Map<String, Object> membership = new LinkedHashMap<>();
+        membership.put("cuckooFilter", cuckooRow);
+        membership.put("bloomFilter", bloomRow);
+        return membership;
+    }
+
+    private Map<String, Object> topK(Map<String, Long> counts) {
+        int k = 10;
+        RedisTopK topK = redissonUtil.getTopK(KEY_PREFIX + "topk", k, 2048, 4);
+        long start = System.nanoTime();
+        topK.addAll(counts);
+        long elapsed = System.nanoTime() - start;
+        Map<String, Long> reported = topK.list();
+
+        // 数据集按出现次数降序构造，前 k 个即为精确 Top-K
+        List<String> exact = new ArrayList<>(counts.keySet()).subList(0, Math.min(k, counts.size()));
+        long hits = exact.stream().filter(reported::containsKey).count();
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("k", k);
+        row.put("precisionPercent", percent(hits, exact.size()));
+        row.put("reported", reported);
+        row.put("memoryBytes", topK.sizeInMemory());
+        row.put("itemsPerSecond", perSecond(counts.size(), elapsed));
+        return row;
+    }
+
+    private long countTrue(Map<String, Boolean> results) {
+        return results.values().stream().filter(Boolean::booleanValue).count();
+    }
+
+    private double percent(long part, long total) {
+        return total == 0 ? 0 : round(part * 100.0 / total);
+    }
+
+    private long perSecond(long count, long nanos) {
+        return count * 1_000_000_000L / Math.max(nanos, 1);
+    }
+
+    private double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.redis.service;
+
+import com.example.redis.codec.CodecType;
+import com.example.redis.codec.CompressionType;
+import com.example.redis.codec.RedisCodecStrategy;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编解码对比报告
+ *
+ * 对几种典型对象形态，分别用不同 Codec 测量：
+ * - 编码后字节数
+ * - 写入 Redis 后的 MEMORY USAGE
+ * - 平均序列化 / 反序列化耗时（预热后取均值）
+ *
+ * 这是进程内的粗粒度测量，用于选型对比，不替代专门的基准测试。
+ */
+@Slf4j
+@Service
+public class RedisCodecReportService {
+
+    private static final String REPORT_KEY_PREFIX = "codec:report:";
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private RedisCodecStrategy codecStrategy;
+
+    /**
+     * 生成编解码对比报告
+     * @param iterations 每个 Codec × 对象形态的测量次数
+     */
+    public Map<String, Object> report(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations必须大于0: " + iterations);
+        }
+        Map<String, Codec> codecs = candidateCodecs();
+        Map<String, Object> shapes = sampleShapes();
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map.Entry<String, Codec> codec : codecs.entrySet()) {
+            for (Map.Entry<String, Object> shape : shapes.entrySet()) {
+                try {
+                    rows.add(measure(codec.getKey(), codec.getValue(), shape.getKey(), shape.getValue(), iterations));
+                } catch (Exception e) {
+                    log.warn("编解码测量失败: codec={}, shape={}", codec.getKey(), shape.getKey(), e);
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("currentStrategy", codecStrategy.getValueCodec().toString());
+        result.put("iterations", iterations);
+        result.put("rows", rows);
+        return result;
+    }
+
+    private Map<String, Object> measure(String codecName, Codec codec, String shapeName, Object value,
+                                        int iterations) throws Exception {
+        int warmup = Math.max(iterations / 10, 100);
+        for (int i = 0; i < warmup; i++) {
+            ByteBuf buf = codec.getValueEncoder().encode(value);
+            codec.getValueDecoder().decode(buf, null);
+            buf.release();
+        }
+
+        long start = System.nanoTime();
+        int encodedBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            ByteBuf buf = codec.getValueEncoder().encode(value);
+            encodedBytes = buf.readableBytes();
+            buf.release();
+        }
+        long serNanos = (System.nanoTime() - start) / iterations;
+
+        ByteBuf encoded = codec.getValueEncoder().encode(value);
+        try {
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                codec.getValueDecoder().decode(encoded.duplicate(), null);
+            }
+        } finally {
+            encoded.release();
+        }
+        long deserNanos = (System.nanoTime() - start) / iterations;
+
+        String key = REPORT_KEY_PREFIX + codecName + ":" + shapeName;
+        RBucket<Object> bucket = redissonClient.getBucket(key, codec);
+        bucket.set(value);
+        long memoryUsage = bucket.sizeInMemory();
+        bucket.delete();
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("codec", codecName);
+        row.put("shape", shapeName);
+        row.put("encodedBytes", encodedBytes);
+        row.put("memoryUsageBytes", memoryUsage);
+        row.put("serNanosAvg", serNanos);
+        row.put("deserNanosAvg", deserNanos);
+        return row;
+    }
+
+    private Map<String, Codec> candidateCodecs() {
+        Codec defaultCodec = redissonClient.getConfig().getCodec();
+        int threshold = codecStrategy.getCompressionThreshold();
+
+        Map<String, Codec> codecs = new LinkedHashMap<>();
+        codecs.put("default", defaultCodec);
+        codecs.put("jdk", RedisCodecStrategy.buildValueCodec(CodecType.JDK, CompressionType.NONE, threshold, defaultCodec));
+        codecs.put("json", RedisCodecStrategy.buildValueCodec(CodecType.JSON, CompressionType.NONE, threshold, defaultCodec));
+        codecs.put("kryo", RedisCodecStrategy.buildValueCodec(CodecType.KRYO, CompressionType.NONE, threshold, defaultCodec));
+        codecs.put("kryo+lz4", RedisCodecStrategy.buildValueCodec(CodecType.KRYO, CompressionType.LZ4, threshold, defaultCodec));
+        codecs.put("kryo+zstd", RedisCodecStrategy.buildValueCodec(CodecType.KRYO, CompressionType.ZSTD, threshold, defaultCodec));
+        return codecs;
+    }
+
+    /**
+     * 典型对象形态：扁平记录、嵌套订单、长文本
+     */
+    private Map<String, Object> sampleShapes() {
+        Map<String, Object> shapes = new LinkedHashMap<>();
+        shapes.put("flat-record", sampleUser(1001));
+
+        LinkedHashMap<String, Object> order = new LinkedHashMap<>();
+        order.put("orderId", 202400001L);
+        order.put("status", "paid");
+        order.put("buyer", sampleUser(1001));
+        ArrayList<Object> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            LinkedHashMap<String, Object> item = new LinkedHashMap<>();
+            item.put("sku", "SKU-" + (10000 + i));
+            item.put("name", "商品" + i);
+            item.put("price", 19.9 + i);
+            item.put("quantity", i % 3 + 1);
+            items.add(item);
+        }
+        order.put("items", items);
+        shapes.put("nested-order", order);
+
+        LinkedHashMap<String, Object> article = new LinkedHashMap<>();
+        article.put("id", 42L);
+        article.put("title", "Redis 编解码选型");
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            body.append("Redis 中存储的值越小，内存占用和网络带宽越低。");
+        }
+        article.put("body", body.toString());
+        ArrayList<String> tags = new ArrayList<>(List.of("redis", "codec", "kryo", "lz4", "zstd"));
+        article.put("tags", tags);
+        shapes.put("text-heavy", article);
+        return shapes;
+    }
+
+    private LinkedHashMap<String, Object> sampleUser(long userId) {
+        LinkedHashMap<String, Object> user = new LinkedHashMap<>();
+        user.put("userId", userId);
+        user.put("name", "张三");
+        user.put("email", "zhangsan@example.com");
+        user.put("city", "北京");
+        user.put("age", 28);
+        user.put("vip", true);
+        user.put("balance", 1024.5);
+        user.put("registerTime", 1704067200000L);
+        return user;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.redis.service;
+
+import com.example.redis.stream.RedisStreamQueue;
+import com.example.redis.stream.StreamQueueOptions;
+import com.example.redis.util.RedissonUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis Stream 工作队列示例
+ * 演示多消费者并行消费、批量确认和失效消息认领
+ */
+@Slf4j
+@Service
+public class StreamQueueExampleService {
+
+    private static final String QUEUE_KEY = "stream:queue:orders";
+    private static final String GROUP = "order-workers";
+
+    @Autowired
+    private RedissonUtil redissonUtil;
+
+    private RedisStreamQueue<String> queue;
+
+    @PostConstruct
+    public void init() {
+        StreamQueueOptions options = new StreamQueueOptions();
+        options.setMaxLen(100000);
+        options.setMaxAge(Duration.ofDays(1));
+        options.setBatchSize(100);
+        options.setClaimMinIdle(Duration.ofSeconds(30));
+        queue = redissonUtil.getStreamQueue(QUEUE_KEY, GROUP, options);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        queue.shutdown();
+    }
+
+    /**
+     * 批量写入 count 条订单消息
+     */
+    public int produce(int count) {
+        List<String> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add("order-" + System.currentTimeMillis() + "-" + i);
+        }
+        queue.offerAll(messages);
+        log.info("Stream队列写入消息: {} 条", count);
+        return count;
+    }
+
+    /**
+     * 启动 consumers 个并行消费者（同一消费者组）
+     * failEvery 大于 0 时每 failEvery 条消息模拟一次处理失败，用于观察重试
+     */
+    public void startConsumers(int consumers, int failEvery) {
+        for (int i = 1; i <= consumers; i++) {
+            String consumer = "worker-" + i;
+            queue.startConsumer(consumer, message -> {
+                if (failEvery > 0 && Math.abs(message.hashCode()) % failEvery == 0) {
+                    throw new IllegalStateException("模拟处理失败: " + message);
+                }
+                log.debug("{} 处理消息: {}", consumer, message);
+            });
+        }
+    }
+
+    /**
+     * 停止全部消费者
+     */
+    public void stopConsumers() {
+        queue.shutdown();
+    }
+
+    /**
+     * 队列和消费者统计
+     */
+    public Map<String, Object> stats() {
+        return queue.stats();
+    }
+}
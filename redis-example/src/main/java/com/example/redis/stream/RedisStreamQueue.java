@@ -0,0 +1,346 @@
+package com.example.redis.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.AutoClaimResult;
+import org.redisson.api.BatchResult;
+import org.redisson.api.PendingEntry;
+import org.redisson.api.PendingResult;
+import org.redisson.api.RBatch;
+import org.redisson.api.RStream;
+import org.redisson.api.RStreamAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamCreateGroupArgs;
+import org.redisson.api.stream.StreamReadGroupArgs;
+import org.redisson.api.stream.StreamTrimArgs;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.CompositeCodec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis Stream 的工作队列
+ *
+ * 相比 RQueue / RBlockingQueue（普通 List）：
+ * - 消费者组：同一组内多个消费者并行消费，每条消息只投递给组内一个消费者
+ * - 确认机制：处理成功后 XACK，处理失败或消费者宕机时消息留在 pending 列表，不会丢失
+ * - 重试：pending 超过 claimMinIdle 的消息由存活的消费者通过 XAUTOCLAIM 认领重试
+ * - 死信：投递次数超过 maxDeliveries 的消息转入死信流
+ * - 裁剪：写入时按 MAXLEN ~ 近似裁剪，维护任务按 MINID 裁剪过期消息
+ *
+ * 注意：裁剪会删除尚未确认的旧消息，maxLen / maxAge 需大于正常积压量。
+ */
+@Slf4j
+public class RedisStreamQueue<V> {
+
+    private static final String PAYLOAD = "payload";
+    private static final StreamMessageId START = new StreamMessageId(0, 0);
+
+    private final RedissonClient redissonClient;
+    private final String name;
+    private final String group;
+    private final Codec codec;
+    private final StreamQueueOptions options;
+    private final RStream<String, V> stream;
+    private final RStream<String, V> deadLetterStream;
+
+    private final Map<String, ConsumerMetrics> metrics = new ConcurrentHashMap<>();
+    private final Map<String, Thread> workers = new ConcurrentHashMap<>();
+
+    /**
+     * 各消费者 XAUTOCLAIM 的扫描游标，返回 0-0 表示 pending 列表已扫描完，下次从头开始
+     */
+    private final Map<String, StreamMessageId> claimCursors = new ConcurrentHashMap<>();
+
+    public RedisStreamQueue(RedissonClient redissonClient, String name, String group,
+                            Codec valueCodec, StreamQueueOptions options) {
+        this.redissonClient = redissonClient;
+        this.name = name;
+        this.group = group;
+        this.codec = new CompositeCodec(StringCodec.INSTANCE, valueCodec, valueCodec);
+        this.options = options;
+        this.stream = redissonClient.getStream(name, codec);
+        this.deadLetterStream = redissonClient.getStream(name + ":dlq", codec);
+        createGroupIfAbsent();
+    }
+
+    private void createGroupIfAbsent() {
+        try {
+            stream.createGroup(StreamCreateGroupArgs.name(group).id(START).makeStream());
+            log.info("创建消费者组: stream={}, group={}", name, group);
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    // ==================== 生产 ====================
+
+    /**
+     * 写入一条消息（XADD，按 maxLen 近似裁剪）
+     */
+    public StreamMessageId offer(V value) {
+        return stream.add(addArgs(value));
+    }
+
+    /**
+     * 批量写入（一次网络往返发送全部 XADD）
+     */
+    public List<StreamMessageId> offerAll(Collection<V> values) {
+        RBatch batch = redissonClient.createBatch();
+        RStreamAsync<String, V> batchStream = batch.getStream(name, codec);
+        for (V value : values) {
+            batchStream.addAsync(addArgs(value));
+        }
+        BatchResult<?> result = batch.execute();
+        List<StreamMessageId> ids = new ArrayList<>(values.size());
+        for (Object response : result.getResponses()) {
+            ids.add((StreamMessageId) response);
+        }
+        return ids;
+    }
+
+    private StreamAddArgs<String, V> addArgs(V value) {
+        StreamAddArgs<String, V> args = StreamAddArgs.entry(PAYLOAD, value);
+        if (options.getMaxLen() > 0) {
+            args = args.trimNonStrict().maxLen(options.getMaxLen()).noLimit();
+        }
+        return args;
+    }
+
+    // ==================== 消费 ====================
+
+    /**
+     * 批量读取从未投递过的消息（XREADGROUP ... >），最多阻塞 blockTimeout
+     */
+    public Map<StreamMessageId, V> poll(String consumer) {
+        Map<StreamMessageId, Map<String, V>> messages = stream.readGroup(group, consumer,
+                StreamReadGroupArgs.neverDelivered()
+                        .count(options.getBatchSize())
+                        .timeout(options.getBlockTimeout()));
+        metrics(consumer).delivered.add(messages.size());
+        return payloads(messages);
+    }
+
+    /**
+     * 批量确认（XACK）
+     */
+    public long ack(String consumer, Collection<StreamMessageId> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        long acked = stream.ack(group, ids.toArray(new StreamMessageId[0]));
+        metrics(consumer).acked.add(acked);
+        return acked;
+    }
+
+    /**
+     * 认领失效消费者的 pending 消息（XAUTOCLAIM），投递次数超限的消息先转入死信流
+     * 
+     * 每次最多扫描 batchSize 条，从上次返回的游标继续，直到游标回到 0-0 才从头扫描，
+     * 避免 pending 消息多于 batchSize 时只处理前面一段
+     */
+    public Map<StreamMessageId, V> reclaim(String consumer) {
+        long minIdle = options.getClaimMinIdle().toMillis();
+        StreamMessageId cursor = claimCursors.getOrDefault(consumer, START);
+        List<PendingEntry> pending = stream.listPending(group, cursor, StreamMessageId.MAX,
+                minIdle, TimeUnit.MILLISECONDS, options.getBatchSize());
+        for (PendingEntry entry : pending) {
+            if (entry.getLastTimeDelivered() >= options.getMaxDeliveries()) {
+                deadLetter(consumer, entry);
+            }
+        }
+
+        AutoClaimResult<String, V> result = stream.autoClaim(group, consumer, minIdle, TimeUnit.MILLISECONDS,
+                cursor, options.getBatchSize());
+        claimCursors.put(consumer, result.getNextId());
+        metrics(consumer).claimed.add(result.getMessages().size());
+        return payloads(result.getMessages());
+    }
+
+    private void deadLetter(String consumer, PendingEntry entry) {
+        Map<StreamMessageId, Map<String, V>> message = stream.range(entry.getId(), entry.getId());
+        for (Map<String, V> fields : message.values()) {
+            deadLetterStream.add(StreamAddArgs.entries(fields));
+        }
+        stream.ack(group, entry.getId());
+        metrics(consumer).deadLettered.increment();
+        log.warn("消息超过最大投递次数，转入死信流: stream={}, id={}, deliveries={}",
+                name, entry.getId(), entry.getLastTimeDelivered());
+    }
+
+    /**
+     * 按 maxLen / maxAge 裁剪，返回删除的条数
+     */
+    public long trim() {
+        long removed = 0;
+        if (options.getMaxLen() > 0) {
+            removed += stream.trim(StreamTrimArgs.maxLen(options.getMaxLen()).noLimit());
+        }
+        if (options.getMaxAge() != null) {
+            long minTimestamp = System.currentTimeMillis() - options.getMaxAge().toMillis();
+            removed += stream.trim(StreamTrimArgs.minId(new StreamMessageId(minTimestamp, 0)).noLimit());
+        }
+        return removed;
+    }
+
+    // ==================== 消费者线程 ====================
+
+    /**
+     * 启动一个消费者线程：循环批量读取 → 处理 → 批量确认，并定期认领失效消息、裁剪
+     * handler 抛出异常时消息不确认，等待 claimMinIdle 后重新投递
+     */
+    public void startConsumer(String consumer, Consumer<V> handler) {
+        Thread thread = new Thread(() -> runConsumer(consumer, handler), "stream-" + name + "-" + consumer);
+        thread.setDaemon(true);
+        // 先登记再启动，线程启动后 runConsumer 一定能看到自己的登记
+        if (workers.putIfAbsent(consumer, thread) != null) {
+            return;
+        }
+        thread.start();
+        log.info("启动Stream消费者: stream={}, group={}, consumer={}", name, group, consumer);
+    }
+
+    /**
+     * 停止消费者线程（未确认的消息会在 claimMinIdle 后被其他消费者认领）
+     */
+    public void stopConsumer(String consumer) {
+        Thread thread = workers.remove(consumer);
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 停止全部消费者线程
+     */
+    public void shutdown() {
+        new ArrayList<>(workers.keySet()).forEach(this::stopConsumer);
+    }
+
+    private void runConsumer(String consumer, Consumer<V> handler) {
+        long nextMaintenance = 0;
+        // 只认自己的登记：同名消费者停止后又重新启动时，旧线程看到登记已换成新线程就退出
+        while (!Thread.currentThread().isInterrupted() && workers.get(consumer) == Thread.currentThread()) {
+            try {
+                if (System.currentTimeMillis() >= nextMaintenance) {
+                    handle(consumer, reclaim(consumer), handler);
+                    trim();
+                    // 游标未回到 0-0 说明还有未扫描的 pending 消息，下一轮继续认领
+                    nextMaintenance = START.equals(claimCursors.get(consumer)) ? System.currentTimeMillis()
+                            + options.getMaintenanceInterval().toMillis() : 0;
+                }
+                handle(consumer, poll(consumer), handler);
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                log.error("Stream消费异常: stream={}, consumer={}", name, consumer, e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        log.info("Stream消费者已停止: stream={}, consumer={}", name, consumer);
+    }
+
+    private void handle(String consumer, Map<StreamMessageId, V> messages, Consumer<V> handler) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        ConsumerMetrics consumerMetrics = metrics(consumer);
+        List<StreamMessageId> succeeded = new ArrayList<>(messages.size());
+        long start = System.nanoTime();
+        for (Map.Entry<StreamMessageId, V> message : messages.entrySet()) {
+            try {
+                handler.accept(message.getValue());
+                succeeded.add(message.getKey());
+            } catch (Exception e) {
+                consumerMetrics.failed.increment();
+                log.warn("消息处理失败，等待重试: stream={}, id={}", name, message.getKey(), e);
+            }
+        }
+        consumerMetrics.processingNanos.add(System.nanoTime() - start);
+        ack(consumer, succeeded);
+    }
+
+    // ==================== 监控 ====================
+
+    /**
+     * 队列状态：长度、pending 总数、各消费者 pending 数及本地吞吐统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stream", name);
+        stats.put("group", group);
+        stats.put("length", stream.size());
+        stats.put("deadLetterLength", deadLetterStream.size());
+        PendingResult pending = stream.getPendingInfo(group);
+        stats.put("pendingTotal", pending.getTotal());
+        stats.put("pendingByConsumer", pending.getConsumerNames());
+
+        Map<String, Object> consumers = new LinkedHashMap<>();
+        metrics.forEach((consumer, m) -> consumers.put(consumer, m.snapshot()));
+        stats.put("consumers", consumers);
+        return stats;
+    }
+
+    private ConsumerMetrics metrics(String consumer) {
+        return metrics.computeIfAbsent(consumer, c -> new ConsumerMetrics());
+    }
+
+    private Map<StreamMessageId, V> payloads(Map<StreamMessageId, Map<String, V>> messages) {
+        Map<StreamMessageId, V> result = new LinkedHashMap<>();
+        messages.forEach((id, fields) -> result.put(id, fields.get(PAYLOAD)));
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * 单个消费者的本地统计
+     */
+    private static class ConsumerMetrics {
+        private final long startNanos = System.nanoTime();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder acked = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder claimed = new LongAdder();
+        private final LongAdder deadLettered = new LongAdder();
+        private final LongAdder processingNanos = new LongAdder();
+
+        Map<String, Object> snapshot() {
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+            long ackedCount = acked.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("delivered", delivered.sum());
+            snapshot.put("acked", ackedCount);
+            snapshot.put("failed", failed.sum());
+            snapshot.put("claimed", claimed.sum());
+            snapshot.put("deadLettered", deadLettered.sum());
+            snapshot.put("ackedPerSecond", Math.round(ackedCount / seconds));
+            snapshot.put("avgProcessingMicros", ackedCount == 0 ? 0 : processingNanos.sum() / 1000 / ackedCount);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.redis.stream;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Redis Stream 队列参数
+ */
+@Data
+public class StreamQueueOptions {
+
+    /**
+     * 写入时近似裁剪到的最大长度（XADD MAXLEN ~），0 表示不按长度裁剪
+     */
+    private int maxLen = 100000;
+
+    /**
+     * 消息最长保留时间（按消息 ID 的时间戳裁剪，XTRIM MINID），null 表示不按时间裁剪
+     */
+    private Duration maxAge;
+
+    /**
+     * 每次 XREADGROUP / XAUTOCLAIM 读取的最大条数
+     */
+    private int batchSize = 100;
+
+    /**
+     * XREADGROUP 阻塞等待时间
+     */
+    private Duration blockTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 消息 pending 超过该时间视为消费者已失效，由其他消费者认领重试
+     */
+    private Duration claimMinIdle = Duration.ofSeconds(60);
+
+    /**
+     * 认领、死信与裁剪检查的间隔
+     */
+    private Duration maintenanceInterval = Duration.ofSeconds(30);
+
+    /**
+     * 最大投递次数，超过后转入死信流（队列名 + ":dlq"）
+     */
+    private int maxDeliveries = 5;
+}
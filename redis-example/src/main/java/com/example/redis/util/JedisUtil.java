@@ -1,15 +1,20 @@
 package com.example.redis.util;
 
+import com.example.redis.hotkey.HotKeyDetector;
+import com.example.redis.metrics.RedisClientMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.Tuple;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Jedis 工具类
@@ -22,11 +27,45 @@ public class JedisUtil {
     @Autowired
     private JedisPool jedisPool;
 
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Autowired
+    private RedisClientMetrics clientMetrics;
+
     /**
-     * 获取 Jedis 连接（使用后需要关闭）
+     * 获取 Jedis 连接（使用后需要关闭），记录借连接等待时间
      */
     public Jedis getJedis() {
-        return jedisPool.getResource();
+        long start = System.nanoTime();
+        try {
+            return jedisPool.getResource();
+        } catch (JedisConnectionException e) {
+            clientMetrics.recordConnectionError(RedisClientMetrics.JEDIS);
+            throw e;
+        } finally {
+            clientMetrics.recordPoolWait(RedisClientMetrics.JEDIS, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 借连接执行一条命令，记录命令耗时（不含借连接等待）和失败次数
+     */
+    private <T> T execute(String command, Function<Jedis, T> action) {
+        try (Jedis jedis = getJedis()) {
+            long start = System.nanoTime();
+            try {
+                return action.apply(jedis);
+            } catch (JedisConnectionException e) {
+                clientMetrics.recordConnectionError(RedisClientMetrics.JEDIS);
+                throw e;
+            } catch (RuntimeException e) {
+                clientMetrics.recordError(RedisClientMetrics.JEDIS, command);
+                throw e;
+            } finally {
+                clientMetrics.record(RedisClientMetrics.JEDIS, command, System.nanoTime() - start);
+            }
+        }
     }
 
     // ==================== String 操作 ====================
@@ -35,8 +74,10 @@ public class JedisUtil {
      * 设置键值对
      */
     public String set(String key, String value) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.set(key, value);
+        try {
+            return execute("SET", jedis -> jedis.set(key, value));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -44,10 +85,12 @@ public class JedisUtil {
      * 设置键值对，带过期时间（秒）
      */
     public String set(String key, String value, int expireSeconds) {
-        try (Jedis jedis = getJedis()) {
+        try {
             SetParams params = new SetParams();
             params.ex(expireSeconds);
-            return jedis.set(key, value, params);
+            return execute("SET", jedis -> jedis.set(key, value, params));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -55,17 +98,17 @@ public class JedisUtil {
      * 获取值
      */
     public String get(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.get(key);
-        }
+        return hotKeyDetector.read(key, "jedis", () -> execute("GET", jedis -> jedis.get(key)));
     }
 
     /**
      * 删除键
      */
     public Long delete(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.del(key);
+        try {
+            return execute("DEL", jedis -> jedis.del(key));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -73,26 +116,24 @@ public class JedisUtil {
      * 判断键是否存在
      */
     public Boolean exists(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.exists(key);
-        }
+        return execute("EXISTS", jedis -> jedis.exists(key));
     }
 
     /**
      * 设置过期时间（秒）
      */
     public Long expire(String key, int seconds) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.expire(key, seconds);
-        }
+        return execute("EXPIRE", jedis -> jedis.expire(key, seconds));
     }
 
     /**
      * 递增
      */
     public Long increment(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.incr(key);
+        try {
+            return execute("INCR", jedis -> jedis.incr(key));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -100,8 +141,10 @@ public class JedisUtil {
      * 递增指定值
      */
     public Long incrementBy(String key, long increment) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.incrBy(key, increment);
+        try {
+            return execute("INCRBY", jedis -> jedis.incrBy(key, increment));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -109,8 +152,10 @@ public class JedisUtil {
      * 递减
      */
     public Long decrement(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.decr(key);
+        try {
+            return execute("DECR", jedis -> jedis.decr(key));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -120,8 +165,10 @@ public class JedisUtil {
      * 设置 Hash 字段
      */
     public Long hset(String key, String field, String value) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.hset(key, field, value);
+        try {
+            return execute("HSET", jedis -> jedis.hset(key, field, value));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -129,26 +176,24 @@ public class JedisUtil {
      * 获取 Hash 字段值
      */
     public String hget(String key, String field) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.hget(key, field);
-        }
+        return hotKeyDetector.read(key, "jedis#" + field, () -> execute("HGET", jedis -> jedis.hget(key, field)));
     }
 
     /**
      * 获取所有 Hash 字段和值
      */
     public Map<String, String> hgetAll(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.hgetAll(key);
-        }
+        return execute("HGETALL", jedis -> jedis.hgetAll(key));
     }
 
     /**
      * 删除 Hash 字段
      */
     public Long hdel(String key, String... fields) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.hdel(key, fields);
+        try {
+            return execute("HDEL", jedis -> jedis.hdel(key, fields));
+        } finally {
+            hotKeyDetector.invalidate(key);
         }
     }
 
@@ -156,27 +201,21 @@ public class JedisUtil {
      * 判断 Hash 字段是否存在
      */
     public Boolean hexists(String key, String field) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.hexists(key, field);
-        }
+        return execute("HEXISTS", jedis -> jedis.hexists(key, field));
     }
 
     /**
      * 获取 Hash 所有字段
      */
     public Set<String> hkeys(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.hkeys(key);
-        }
+        return execute("HKEYS", jedis -> jedis.hkeys(key));
     }
 
     /**
      * 获取 Hash 所有值
      */
     public List<String> hvals(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.hvals(key);
-        }
+        return execute("HVALS", jedis -> jedis.hvals(key));
     }
 
     // ==================== List 操作 ====================
@@ -185,54 +224,42 @@ public class JedisUtil {
      * 从左侧推入元素
      */
     public Long lpush(String key, String... values) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.lpush(key, values);
-        }
+        return execute("LPUSH", jedis -> jedis.lpush(key, values));
     }
 
     /**
      * 从右侧推入元素
      */
     public Long rpush(String key, String... values) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.rpush(key, values);
-        }
+        return execute("RPUSH", jedis -> jedis.rpush(key, values));
     }
 
     /**
      * 从左侧弹出元素
      */
     public String lpop(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.lpop(key);
-        }
+        return execute("LPOP", jedis -> jedis.lpop(key));
     }
 
     /**
      * 从右侧弹出元素
      */
     public String rpop(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.rpop(key);
-        }
+        return execute("RPOP", jedis -> jedis.rpop(key));
     }
 
     /**
      * 获取 List 长度
      */
     public Long llen(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.llen(key);
-        }
+        return execute("LLEN", jedis -> jedis.llen(key));
     }
 
     /**
      * 获取 List 指定范围的元素
      */
     public List<String> lrange(String key, long start, long end) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.lrange(key, start, end);
-        }
+        return execute("LRANGE", jedis -> jedis.lrange(key, start, end));
     }
 
     /**
@@ -248,45 +275,86 @@ public class JedisUtil {
      * 添加元素到 Set
      */
     public Long sadd(String key, String... members) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.sadd(key, members);
-        }
+        return execute("SADD", jedis -> jedis.sadd(key, members));
     }
 
     /**
      * 从 Set 移除元素
      */
     public Long srem(String key, String... members) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.srem(key, members);
-        }
+        return execute("SREM", jedis -> jedis.srem(key, members));
     }
 
     /**
      * 判断元素是否在 Set 中
      */
     public Boolean sismember(String key, String member) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.sismember(key, member);
-        }
+        return execute("SISMEMBER", jedis -> jedis.sismember(key, member));
     }
 
     /**
      * 获取 Set 所有成员
      */
     public Set<String> smembers(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.smembers(key);
-        }
+        return execute("SMEMBERS", jedis -> jedis.smembers(key));
     }
 
     /**
      * 获取 Set 大小
      */
     public Long scard(String key) {
-        try (Jedis jedis = getJedis()) {
-            return jedis.scard(key);
-        }
+        return execute("SCARD", jedis -> jedis.scard(key));
+    }
+
+    // ==================== Sorted Set 操作 ====================
+
+    /**
+     * 添加成员（已存在则覆盖分数）
+     */
+    public Long zadd(String key, double score, String member) {
+        return execute("ZADD", jedis -> jedis.zadd(key, score, member));
+    }
+
+    /**
+     * 成员加分，返回新分数
+     */
+    public Double zincrby(String key, double increment, String member) {
+        return execute("ZINCRBY", jedis -> jedis.zincrby(key, increment, member));
+    }
+
+    /**
+     * 获取成员分数
+     */
+    public Double zscore(String key, String member) {
+        return execute("ZSCORE", jedis -> jedis.zscore(key, member));
+    }
+
+    /**
+     * 获取成员名次（分数从高到低，从 0 开始），不存在返回 null
+     */
+    public Long zrevrank(String key, String member) {
+        return execute("ZREVRANK", jedis -> jedis.zrevrank(key, member));
+    }
+
+    /**
+     * 按分数从高到低读取 [start, end] 名次范围的成员和分数
+     */
+    public List<Tuple> zrevrangeWithScores(String key, long start, long end) {
+        return execute("ZREVRANGE", jedis -> jedis.zrevrangeWithScores(key, start, end));
+    }
+
+    /**
+     * 获取 Sorted Set 大小
+     */
+    public Long zcard(String key) {
+        return execute("ZCARD", jedis -> jedis.zcard(key));
+    }
+
+    /**
+     * 移除成员
+     */
+    public Long zrem(String key, String... members) {
+        return execute("ZREM", jedis -> jedis.zrem(key, members));
     }
 
     // ==================== 分布式锁 ====================
@@ -299,13 +367,11 @@ public class JedisUtil {
      * @return 是否获取成功
      */
     public boolean tryLock(String lockKey, String lockValue, int expireSeconds) {
-        try (Jedis jedis = getJedis()) {
-            SetParams params = new SetParams();
-            params.nx(); // 只在键不存在时设置
-            params.ex(expireSeconds); // 设置过期时间
-            String result = jedis.set(lockKey, lockValue, params);
-            return "OK".equals(result);
-        }
+        SetParams params = new SetParams();
+        params.nx(); // 只在键不存在时设置
+        params.ex(expireSeconds); // 设置过期时间
+        String result = execute("SET", jedis -> jedis.set(lockKey, lockValue, params));
+        return "OK".equals(result);
     }
 
     /**
@@ -315,15 +381,13 @@ public class JedisUtil {
      * @return 是否释放成功
      */
     public boolean releaseLock(String lockKey, String lockValue) {
-        try (Jedis jedis = getJedis()) {
-            String luaScript = "if redis.call('get', KEYS[1]) == ARGV[1] then " +
-                              "return redis.call('del', KEYS[1]) " +
-                              "else return 0 end";
-            Long result = (Long) jedis.eval(luaScript,
-                                          java.util.Collections.singletonList(lockKey),
-                                          java.util.Collections.singletonList(lockValue));
-            return result != null && result == 1;
-        }
+        String luaScript = "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                          "return redis.call('del', KEYS[1]) " +
+                          "else return 0 end";
+        Long result = (Long) execute("EVAL", jedis -> jedis.eval(luaScript,
+                                      java.util.Collections.singletonList(lockKey),
+                                      java.util.Collections.singletonList(lockValue)));
+        return result != null && result == 1;
     }
 
     // ==================== 批量操作 ====================
@@ -332,23 +396,40 @@ public class JedisUtil {
      * 批量设置键值对（使用管道）
      */
     public void batchSet(Map<String, String> keyValues) {
-        try (Jedis jedis = getJedis()) {
+        try {
+            execute("PIPELINE_SET", jedis -> {
+                redis.clients.jedis.Pipeline pipeline = jedis.pipelined();
+                keyValues.forEach(pipeline::set);
+                pipeline.sync();
+                return null;
+            });
+        } finally {
+            keyValues.keySet().forEach(hotKeyDetector::invalidate);
+        }
+    }
+
+    /**
+     * 批量加分（使用管道 ZINCRBY）
+     */
+    public void batchZincrby(String key, Map<String, Double> increments) {
+        execute("PIPELINE_ZINCRBY", jedis -> {
             redis.clients.jedis.Pipeline pipeline = jedis.pipelined();
-            keyValues.forEach(pipeline::set);
+            increments.forEach((member, increment) -> pipeline.zincrby(key, increment, member));
             pipeline.sync();
-        }
+            return null;
+        });
     }
 
     /**
      * 批量获取值（使用管道）
      */
     public List<Object> batchGet(String... keys) {
-        try (Jedis jedis = getJedis()) {
+        return execute("PIPELINE_GET", jedis -> {
             redis.clients.jedis.Pipeline pipeline = jedis.pipelined();
             for (String key : keys) {
                 pipeline.get(key);
             }
             return pipeline.syncAndReturnAll();
-        }
+        });
     }
 }
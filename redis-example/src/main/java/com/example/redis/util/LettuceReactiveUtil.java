@@ -0,0 +1,328 @@
+package com.example.redis.util;
+
+import com.example.redis.hotkey.HotKeyDetector;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanStream;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Lettuce 反应式工具类
+ * 与 LettuceUtil 共用同一个连接，提供 Mono / Flux 形式的非阻塞 API，供 WebFlux 等反应式调用方使用
+ *
+ * 注意：
+ * - 结果默认在 Lettuce 的 I/O 线程上发出，下游有耗时处理时请先 publishOn 切换线程
+ * - scan / hscan / sscan / mget / lrangeStream 按下游请求量分批拉取，不会一次性加载全部数据
+ */
+@Slf4j
+@Component
+public class LettuceReactiveUtil {
+
+    private static final String RELEASE_LOCK_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('del', KEYS[1]) " +
+            "else return 0 end";
+
+    @Autowired
+    private LettuceUtil lettuceUtil;
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    private RedisReactiveCommands<String, String> reactiveCommands;
+
+    @PostConstruct
+    public void init() {
+        reactiveCommands = lettuceUtil.getConnection().reactive();
+        log.info("LettuceReactiveUtil 初始化完成");
+    }
+
+    // ==================== String 操作 ====================
+
+    /**
+     * 设置键值对
+     */
+    public Mono<String> set(String key, String value) {
+        return reactiveCommands.set(key, value)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    /**
+     * 设置键值对，带过期时间（秒）
+     */
+    public Mono<String> setex(String key, int seconds, String value) {
+        return reactiveCommands.setex(key, seconds, value)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    /**
+     * 获取值，键不存在时为空 Mono
+     */
+    public Mono<String> get(String key) {
+        // 与 LettuceUtil 共用连接，本地副本子键也相同
+        return hotKeyDetector.readReactive(key, "lettuce", () -> reactiveCommands.get(key));
+    }
+
+    /**
+     * 删除键
+     */
+    public Mono<Long> delete(String key) {
+        return reactiveCommands.del(key)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    /**
+     * 判断键是否存在
+     */
+    public Mono<Boolean> exists(String key) {
+        return reactiveCommands.exists(key).map(count -> count > 0);
+    }
+
+    /**
+     * 设置过期时间（秒）
+     */
+    public Mono<Boolean> expire(String key, int seconds) {
+        return reactiveCommands.expire(key, Duration.ofSeconds(seconds));
+    }
+
+    /**
+     * 递增
+     */
+    public Mono<Long> increment(String key) {
+        return reactiveCommands.incr(key)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    /**
+     * 递增指定值
+     */
+    public Mono<Long> incrementBy(String key, long increment) {
+        return reactiveCommands.incrby(key, increment)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    /**
+     * 递减
+     */
+    public Mono<Long> decrement(String key) {
+        return reactiveCommands.decr(key)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    // ==================== Hash 操作 ====================
+
+    /**
+     * 设置 Hash 字段
+     */
+    public Mono<Boolean> hset(String key, String field, String value) {
+        return reactiveCommands.hset(key, field, value)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    /**
+     * 获取 Hash 字段值
+     */
+    public Mono<String> hget(String key, String field) {
+        return hotKeyDetector.readReactive(key, "lettuce#" + field, () -> reactiveCommands.hget(key, field));
+    }
+
+    /**
+     * 获取所有 Hash 字段和值（小 Hash 使用，大 Hash 请用 hscan）
+     */
+    public Flux<KeyValue<String, String>> hgetAll(String key) {
+        return reactiveCommands.hgetall(key);
+    }
+
+    /**
+     * 删除 Hash 字段
+     */
+    public Mono<Long> hdel(String key, String... fields) {
+        return reactiveCommands.hdel(key, fields)
+                .doOnSuccess(result -> hotKeyDetector.invalidate(key));
+    }
+
+    /**
+     * 判断 Hash 字段是否存在
+     */
+    public Mono<Boolean> hexists(String key, String field) {
+        return reactiveCommands.hexists(key, field);
+    }
+
+    /**
+     * 获取 Hash 所有字段
+     */
+    public Flux<String> hkeys(String key) {
+        return reactiveCommands.hkeys(key);
+    }
+
+    /**
+     * 获取 Hash 所有值
+     */
+    public Flux<String> hvals(String key) {
+        return reactiveCommands.hvals(key);
+    }
+
+    /**
+     * 流式遍历 Hash（HSCAN），按下游需求逐批拉取
+     */
+    public Flux<KeyValue<String, String>> hscan(String key, String match, long count) {
+        return ScanStream.hscan(reactiveCommands, key, scanArgs(match, count));
+    }
+
+    // ==================== List 操作 ====================
+
+    /**
+     * 从左侧推入元素
+     */
+    public Mono<Long> lpush(String key, String... values) {
+        return reactiveCommands.lpush(key, values);
+    }
+
+    /**
+     * 从右侧推入元素
+     */
+    public Mono<Long> rpush(String key, String... values) {
+        return reactiveCommands.rpush(key, values);
+    }
+
+    /**
+     * 从左侧弹出元素
+     */
+    public Mono<String> lpop(String key) {
+        return reactiveCommands.lpop(key);
+    }
+
+    /**
+     * 从右侧弹出元素
+     */
+    public Mono<String> rpop(String key) {
+        return reactiveCommands.rpop(key);
+    }
+
+    /**
+     * 获取 List 长度
+     */
+    public Mono<Long> llen(String key) {
+        return reactiveCommands.llen(key);
+    }
+
+    /**
+     * 获取 List 指定范围的元素
+     */
+    public Flux<String> lrange(String key, long start, long end) {
+        return reactiveCommands.lrange(key, start, end);
+    }
+
+    /**
+     * 分页流式读取整个 List，每页 pageSize 个元素，下一页在下游消费完当前页后才会请求
+     */
+    public Flux<String> lrangeStream(String key, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize必须大于0: " + pageSize);
+        }
+        return reactiveCommands.llen(key)
+                .flatMapMany(length -> Flux.range(0, (int) ((length + pageSize - 1) / pageSize)))
+                .concatMap(page -> reactiveCommands.lrange(key,
+                        (long) page * pageSize, (long) (page + 1) * pageSize - 1), 1);
+    }
+
+    // ==================== Set 操作 ====================
+
+    /**
+     * 添加元素到 Set
+     */
+    public Mono<Long> sadd(String key, String... members) {
+        return reactiveCommands.sadd(key, members);
+    }
+
+    /**
+     * 从 Set 移除元素
+     */
+    public Mono<Long> srem(String key, String... members) {
+        return reactiveCommands.srem(key, members);
+    }
+
+    /**
+     * 判断元素是否在 Set 中
+     */
+    public Mono<Boolean> sismember(String key, String member) {
+        return reactiveCommands.sismember(key, member);
+    }
+
+    /**
+     * 获取 Set 所有成员（小 Set 使用，大 Set 请用 sscan）
+     */
+    public Flux<String> smembers(String key) {
+        return reactiveCommands.smembers(key);
+    }
+
+    /**
+     * 获取 Set 大小
+     */
+    public Mono<Long> scard(String key) {
+        return reactiveCommands.scard(key);
+    }
+
+    /**
+     * 流式遍历 Set（SSCAN），按下游需求逐批拉取
+     */
+    public Flux<String> sscan(String key, String match, long count) {
+        return ScanStream.sscan(reactiveCommands, key, scanArgs(match, count));
+    }
+
+    // ==================== 键扫描与批量读取 ====================
+
+    /**
+     * 流式扫描键（SCAN），下游请求更多元素时才发送下一次 SCAN
+     */
+    public Flux<String> scan(String match, long count) {
+        return ScanStream.scan(reactiveCommands, scanArgs(match, count));
+    }
+
+    /**
+     * 批量读取：按 batchSize 分组发送 MGET，同时最多 concurrency 批在途
+     */
+    public Flux<KeyValue<String, String>> mget(Flux<String> keys, int batchSize, int concurrency) {
+        return keys.buffer(batchSize)
+                .flatMapSequential(batch -> reactiveCommands.mget(batch.toArray(new String[0])), concurrency);
+    }
+
+    // ==================== 分布式锁 ====================
+
+    /**
+     * 尝试获取分布式锁
+     */
+    public Mono<Boolean> tryLock(String lockKey, String lockValue, int expireSeconds) {
+        return reactiveCommands.set(lockKey, lockValue, SetArgs.Builder.nx().ex(Duration.ofSeconds(expireSeconds)))
+                .map("OK"::equals)
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * 释放分布式锁（使用 Lua 脚本）
+     */
+    public Mono<Boolean> releaseLock(String lockKey, String lockValue) {
+        return reactiveCommands.<Long>eval(RELEASE_LOCK_SCRIPT, ScriptOutputType.INTEGER,
+                        new String[]{lockKey}, lockValue)
+                .next()
+                .map(result -> result == 1)
+                .defaultIfEmpty(false);
+    }
+
+    private ScanArgs scanArgs(String match, long count) {
+        ScanArgs args = ScanArgs.Builder.limit(count);
+        if (match != null && !match.isEmpty()) {
+            args.match(match);
+        }
+        return args;
+    }
+}
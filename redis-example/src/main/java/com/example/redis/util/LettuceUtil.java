@@ -1,17 +1,26 @@
 package com.example.redis.util;
 
+import com.example.redis.hotkey.HotKeyDetector;
+import com.example.redis.metrics.LettuceLatencyListener;
+import com.example.redis.metrics.RedisClientMetrics;
+import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScoredValue;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +43,12 @@ public class LettuceUtil {
     @Value("${spring.redis.password:}")
     private String redisPassword;
 
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Autowired
+    private RedisClientMetrics clientMetrics;
+
     private RedisClient redisClient;
     private StatefulRedisConnection<String, String> connection;
     private RedisCommands<String, String> syncCommands;
@@ -51,6 +66,8 @@ public class LettuceUtil {
         
         RedisURI redisUri = uriBuilder.build();
         redisClient = RedisClient.create(redisUri);
+        // 记录每条命令的延迟（同步、异步、反应式共用）
+        redisClient.addListener(new LettuceLatencyListener(clientMetrics));
         connection = redisClient.connect();
         syncCommands = connection.sync();
         asyncCommands = connection.async();
@@ -69,34 +86,62 @@ public class LettuceUtil {
         log.info("LettuceUtil 已关闭");
     }
 
+    /**
+     * 获取共享连接（供反应式工具类复用，不要关闭）
+     */
+    public StatefulRedisConnection<String, String> getConnection() {
+        return connection;
+    }
+
+    /**
+     * 新建一个发布订阅连接（订阅状态下不能执行普通命令，所以不与共享连接复用；调用方负责关闭）
+     * 与共享连接使用同一个客户端和 I/O 线程，断线后由 Lettuce 自动重连并重新订阅
+     */
+    public StatefulRedisPubSubConnection<String, String> connectPubSub() {
+        return redisClient.connectPubSub();
+    }
+
+    /**
+     * 发布消息，返回收到消息的订阅者数
+     */
+    public Long publish(String channel, String message) {
+        return syncCommands.publish(channel, message);
+    }
+
     // ==================== String 操作（同步）====================
 
     /**
      * 设置键值对
      */
     public String set(String key, String value) {
-        return syncCommands.set(key, value);
+        String result = syncCommands.set(key, value);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     /**
      * 设置键值对，带过期时间（秒）
      */
     public String setex(String key, int seconds, String value) {
-        return syncCommands.setex(key, seconds, value);
+        String result = syncCommands.setex(key, seconds, value);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     /**
      * 获取值
      */
     public String get(String key) {
-        return syncCommands.get(key);
+        return hotKeyDetector.read(key, "lettuce", () -> syncCommands.get(key));
     }
 
     /**
      * 删除键
      */
     public Long delete(String key) {
-        return syncCommands.del(key);
+        Long result = syncCommands.del(key);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     /**
@@ -117,21 +162,27 @@ public class LettuceUtil {
      * 递增
      */
     public Long increment(String key) {
-        return syncCommands.incr(key);
+        Long result = syncCommands.incr(key);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     /**
      * 递增指定值
      */
     public Long incrementBy(String key, long increment) {
-        return syncCommands.incrby(key, increment);
+        Long result = syncCommands.incrby(key, increment);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     /**
      * 递减
      */
     public Long decrement(String key) {
-        return syncCommands.decr(key);
+        Long result = syncCommands.decr(key);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     // ==================== Hash 操作（同步）====================
@@ -140,14 +191,16 @@ public class LettuceUtil {
      * 设置 Hash 字段
      */
     public Boolean hset(String key, String field, String value) {
-        return syncCommands.hset(key, field, value);
+        Boolean result = syncCommands.hset(key, field, value);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     /**
      * 获取 Hash 字段值
      */
     public String hget(String key, String field) {
-        return syncCommands.hget(key, field);
+        return hotKeyDetector.read(key, "lettuce#" + field, () -> syncCommands.hget(key, field));
     }
 
     /**
@@ -161,7 +214,9 @@ public class LettuceUtil {
      * 删除 Hash 字段
      */
     public Long hdel(String key, String... fields) {
-        return syncCommands.hdel(key, fields);
+        Long result = syncCommands.hdel(key, fields);
+        hotKeyDetector.invalidate(key);
+        return result;
     }
 
     /**
@@ -273,13 +328,65 @@ public class LettuceUtil {
         return syncCommands.scard(key);
     }
 
+    // ==================== Sorted Set 操作（同步）====================
+
+    /**
+     * 添加成员（已存在则覆盖分数）
+     */
+    public Long zadd(String key, double score, String member) {
+        return syncCommands.zadd(key, score, member);
+    }
+
+    /**
+     * 成员加分，返回新分数
+     */
+    public Double zincrby(String key, double increment, String member) {
+        return syncCommands.zincrby(key, increment, member);
+    }
+
+    /**
+     * 获取成员分数
+     */
+    public Double zscore(String key, String member) {
+        return syncCommands.zscore(key, member);
+    }
+
+    /**
+     * 获取成员名次（分数从高到低，从 0 开始），不存在返回 null
+     */
+    public Long zrevrank(String key, String member) {
+        return syncCommands.zrevrank(key, member);
+    }
+
+    /**
+     * 按分数从高到低读取 [start, end] 名次范围的成员和分数
+     */
+    public List<ScoredValue<String>> zrevrangeWithScores(String key, long start, long end) {
+        return syncCommands.zrevrangeWithScores(key, start, end);
+    }
+
+    /**
+     * 获取 Sorted Set 大小
+     */
+    public Long zcard(String key) {
+        return syncCommands.zcard(key);
+    }
+
+    /**
+     * 移除成员
+     */
+    public Long zrem(String key, String... members) {
+        return syncCommands.zrem(key, members);
+    }
+
     // ==================== 异步操作 ====================
 
     /**
      * 异步设置键值对
      */
     public CompletableFuture<String> setAsync(String key, String value) {
-        return asyncCommands.set(key, value).toCompletableFuture();
+        return asyncCommands.set(key, value).toCompletableFuture()
+                .whenComplete((result, e) -> hotKeyDetector.invalidate(key));
     }
 
     /**
@@ -293,7 +400,8 @@ public class LettuceUtil {
      * 异步删除键
      */
     public CompletableFuture<Long> deleteAsync(String key) {
-        return asyncCommands.del(key).toCompletableFuture();
+        return asyncCommands.del(key).toCompletableFuture()
+                .whenComplete((result, e) -> hotKeyDetector.invalidate(key));
     }
 
     // ==================== 分布式锁 ====================
@@ -327,11 +435,21 @@ public class LettuceUtil {
     // ==================== 批量操作 ====================
 
     /**
-     * 批量设置（使用管道）
+     * 批量加分（异步命令连续写出形成管道，不关闭共享连接的自动刷新）
+     */
+    public void batchZincrby(String key, Map<String, Double> increments) {
+        List<RedisFuture<Double>> futures = new ArrayList<>(increments.size());
+        increments.forEach((member, increment) -> futures.add(asyncCommands.zincrby(key, increment, member)));
+        LettuceFutures.awaitAll(Duration.ofSeconds(30), futures.toArray(new RedisFuture<?>[0]));
+    }
+
+    /**
+     * 批量设置（使用管道），每个 key 写入完成后清除本地副本
      */
     public void batchSet(Map<String, String> keyValues) {
         asyncCommands.setAutoFlushCommands(false);
-        keyValues.forEach((key, value) -> asyncCommands.set(key, value));
+        keyValues.forEach((key, value) -> asyncCommands.set(key, value)
+                .whenComplete((result, e) -> hotKeyDetector.invalidate(key)));
         asyncCommands.flushCommands();
         asyncCommands.setAutoFlushCommands(true);
     }
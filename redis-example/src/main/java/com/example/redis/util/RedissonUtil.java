@@ -1,12 +1,30 @@
 package com.example.redis.util;
 
+import com.example.redis.codec.RedisCodecStrategy;
+import com.example.redis.hotkey.HotKeyDetector;
+import com.example.redis.leaderboard.RedisLeaderboard;
+import com.example.redis.leaderboard.TimeWindowLeaderboard;
+import com.example.redis.metrics.RedisClientMetrics;
+import com.example.redis.probabilistic.RedisCountMinSketch;
+import com.example.redis.probabilistic.RedisCuckooFilter;
+import com.example.redis.probabilistic.RedisTopK;
+import com.example.redis.stream.RedisStreamQueue;
+import com.example.redis.stream.StreamQueueOptions;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.*;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,23 +38,49 @@ public class RedissonUtil {
     @Autowired
     private RedissonClient redissonClient;
 
+    @Autowired
+    private RedisCodecStrategy codecStrategy;
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Autowired
+    private RedisClientMetrics clientMetrics;
+
+    /**
+     * 缓存的排行榜实例数上限（key 来自请求参数，不能无限增长）
+     */
+    @Value("${redis.leaderboard.max-instances:1000}")
+    private int maxLeaderboards;
+
+    /**
+     * 排行榜实例按 key 复用，单条写入的裁剪计数保存在实例上
+     */
+    private final Map<String, RedisLeaderboard> leaderboards = new ConcurrentHashMap<>();
+
     // ==================== Bucket (String) 操作 ====================
 
     /**
      * 设置键值对
      */
     public <T> void set(String key, T value) {
-        RBucket<T> bucket = redissonClient.getBucket(key);
-        bucket.set(value);
+        clientMetrics.time(RedisClientMetrics.REDISSON, "SET", () -> {
+            RBucket<T> bucket = redissonClient.getBucket(key, codecStrategy.getValueCodec());
+            bucket.set(value);
+            hotKeyDetector.invalidate(key);
+        });
     }
 
     /**
      * 设置键值对，带过期时间
      */
     public <T> void set(String key, T value, long time, TimeUnit timeUnit) {
-        RBucket<T> bucket = redissonClient.getBucket(key);
-        bucket.set(value);
-        bucket.expire(time, timeUnit);
+        clientMetrics.time(RedisClientMetrics.REDISSON, "SETEX", () -> {
+            RBucket<T> bucket = redissonClient.getBucket(key, codecStrategy.getValueCodec());
+            bucket.set(value);
+            bucket.expire(time, timeUnit);
+            hotKeyDetector.invalidate(key);
+        });
     }
 
     /**
@@ -44,29 +88,53 @@ public class RedissonUtil {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key) {
-        RBucket<T> bucket = redissonClient.getBucket(key);
-        return bucket.get();
+        return hotKeyDetector.read(key, "redisson", () -> clientMetrics.time(RedisClientMetrics.REDISSON, "GET", () -> {
+            RBucket<T> bucket = redissonClient.getBucket(key, codecStrategy.getValueCodec());
+            return bucket.get();
+        }));
     }
 
     /**
      * 删除键
      */
     public boolean delete(String key) {
-        return redissonClient.getBucket(key).delete();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "DEL", () -> {
+            boolean deleted = redissonClient.getBucket(key).delete();
+            hotKeyDetector.invalidate(key);
+            return deleted;
+        });
     }
 
     /**
      * 判断键是否存在
      */
     public boolean exists(String key) {
-        return redissonClient.getBucket(key).isExists();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "EXISTS", () -> redissonClient.getBucket(key).isExists());
     }
 
     /**
      * 设置过期时间
      */
     public boolean expire(String key, long time, TimeUnit timeUnit) {
-        return redissonClient.getBucket(key).expire(time, timeUnit);
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "EXPIRE", () -> redissonClient.getBucket(key).expire(time, timeUnit));
+    }
+
+    /**
+     * 获取键占用的内存（MEMORY USAGE），键不存在时返回 0
+     */
+    public long memoryUsage(String key) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "MEMORY_USAGE", () -> redissonClient.getBucket(key).sizeInMemory());
+    }
+
+    /**
+     * 批量获取键占用的内存（MEMORY USAGE）
+     */
+    public Map<String, Long> memoryUsageReport(String... keys) {
+        Map<String, Long> report = new LinkedHashMap<>();
+        for (String key : keys) {
+            report.put(key, memoryUsage(key));
+        }
+        return report;
     }
 
     // ==================== Map (Hash) 操作 ====================
@@ -75,8 +143,11 @@ public class RedissonUtil {
      * 设置 Hash 字段
      */
     public <K, V> void hset(String key, K field, V value) {
-        RMap<K, V> map = redissonClient.getMap(key);
-        map.put(field, value);
+        clientMetrics.time(RedisClientMetrics.REDISSON, "HSET", () -> {
+            RMap<K, V> map = redissonClient.getMap(key, codecStrategy.getMapCodec());
+            map.put(field, value);
+            hotKeyDetector.invalidate(key);
+        });
     }
 
     /**
@@ -84,33 +155,43 @@ public class RedissonUtil {
      */
     @SuppressWarnings("unchecked")
     public <K, V> V hget(String key, K field) {
-        RMap<K, V> map = redissonClient.getMap(key);
-        return map.get(field);
+        return hotKeyDetector.read(key, "redisson#" + field, () -> clientMetrics.time(RedisClientMetrics.REDISSON, "HGET", () -> {
+            RMap<K, V> map = redissonClient.getMap(key, codecStrategy.getMapCodec());
+            return map.get(field);
+        }));
     }
 
     /**
      * 获取所有 Hash 字段和值
      */
     @SuppressWarnings("unchecked")
-    public <K, V> java.util.Map<K, V> hgetAll(String key) {
-        RMap<K, V> map = redissonClient.getMap(key);
-        return map.readAllMap();
+    public <K, V> Map<K, V> hgetAll(String key) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "HGETALL", () -> {
+            RMap<K, V> map = redissonClient.getMap(key, codecStrategy.getMapCodec());
+            return map.readAllMap();
+        });
     }
 
     /**
      * 删除 Hash 字段
      */
     public <K> boolean hdel(String key, K field) {
-        RMap<Object, Object> map = redissonClient.getMap(key);
-        return map.remove(field) != null;
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "HDEL", () -> {
+            RMap<Object, Object> map = redissonClient.getMap(key, codecStrategy.getMapCodec());
+            boolean removed = map.remove(field) != null;
+            hotKeyDetector.invalidate(key);
+            return removed;
+        });
     }
 
     /**
      * 判断 Hash 字段是否存在
      */
     public <K> boolean hexists(String key, K field) {
-        RMap<Object, Object> map = redissonClient.getMap(key);
-        return map.containsKey(field);
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "HEXISTS", () -> {
+            RMap<Object, Object> map = redissonClient.getMap(key, codecStrategy.getMapCodec());
+            return map.containsKey(field);
+        });
     }
 
     /**
@@ -118,8 +199,10 @@ public class RedissonUtil {
      */
     @SuppressWarnings("unchecked")
     public <K> Set<K> hkeys(String key) {
-        RMap<K, Object> map = redissonClient.getMap(key);
-        return map.readAllKeySet();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "HKEYS", () -> {
+            RMap<K, Object> map = redissonClient.getMap(key, codecStrategy.getMapCodec());
+            return map.readAllKeySet();
+        });
     }
 
     /**
@@ -127,8 +210,10 @@ public class RedissonUtil {
      */
     @SuppressWarnings("unchecked")
     public <V> List<V> hvals(String key) {
-        RMap<Object, V> map = redissonClient.getMap(key);
-        return (List<V>) map.readAllValues();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "HVALS", () -> {
+            RMap<Object, V> map = redissonClient.getMap(key, codecStrategy.getMapCodec());
+            return (List<V>) map.readAllValues();
+        });
     }
 
     // ==================== List 操作 ====================
@@ -137,50 +222,60 @@ public class RedissonUtil {
      * 从左侧推入元素
      */
     public <T> void lpush(String key, T... values) {
-        RList<T> list = redissonClient.getList(key);
-        for (T value : values) {
-            list.add(0, value);
-        }
+        clientMetrics.time(RedisClientMetrics.REDISSON, "LPUSH", () -> {
+            RList<T> list = redissonClient.getList(key, codecStrategy.getValueCodec());
+            for (T value : values) {
+                list.add(0, value);
+            }
+        });
     }
 
     /**
      * 从右侧推入元素
      */
     public <T> void rpush(String key, T... values) {
-        RList<T> list = redissonClient.getList(key);
-        for (T value : values) {
-            list.add(value);
-        }
+        clientMetrics.time(RedisClientMetrics.REDISSON, "RPUSH", () -> {
+            RList<T> list = redissonClient.getList(key, codecStrategy.getValueCodec());
+            for (T value : values) {
+                list.add(value);
+            }
+        });
     }
 
     /**
      * 从左侧弹出元素
      */
     public <T> T lpop(String key) {
-        RList<T> list = redissonClient.getList(key);
-        if (list.isEmpty()) {
-            return null;
-        }
-        return list.remove(0);
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "LPOP", () -> {
+            RList<T> list = redissonClient.getList(key, codecStrategy.getValueCodec());
+            if (list.isEmpty()) {
+                return null;
+            }
+            return list.remove(0);
+        });
     }
 
     /**
      * 从右侧弹出元素
      */
     public <T> T rpop(String key) {
-        RList<T> list = redissonClient.getList(key);
-        if (list.isEmpty()) {
-            return null;
-        }
-        return list.remove(list.size() - 1);
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "RPOP", () -> {
+            RList<T> list = redissonClient.getList(key, codecStrategy.getValueCodec());
+            if (list.isEmpty()) {
+                return null;
+            }
+            return list.remove(list.size() - 1);
+        });
     }
 
     /**
      * 获取 List 长度
      */
     public int llen(String key) {
-        RList<Object> list = redissonClient.getList(key);
-        return list.size();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "LLEN", () -> {
+            RList<Object> list = redissonClient.getList(key, codecStrategy.getValueCodec());
+            return list.size();
+        });
     }
 
     /**
@@ -188,8 +283,10 @@ public class RedissonUtil {
      */
     @SuppressWarnings("unchecked")
     public <T> List<T> lrangeAll(String key) {
-        RList<T> list = redissonClient.getList(key);
-        return list.readAll();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "LRANGE", () -> {
+            RList<T> list = redissonClient.getList(key, codecStrategy.getValueCodec());
+            return list.readAll();
+        });
     }
 
     // ==================== Set 操作 ====================
@@ -198,26 +295,32 @@ public class RedissonUtil {
      * 添加元素到 Set
      */
     public <T> void sadd(String key, T... members) {
-        RSet<T> set = redissonClient.getSet(key);
-        for (T member : members) {
-            set.add(member);
-        }
+        clientMetrics.time(RedisClientMetrics.REDISSON, "SADD", () -> {
+            RSet<T> set = redissonClient.getSet(key, codecStrategy.getValueCodec());
+            for (T member : members) {
+                set.add(member);
+            }
+        });
     }
 
     /**
      * 从 Set 移除元素
      */
     public <T> boolean srem(String key, T member) {
-        RSet<T> set = redissonClient.getSet(key);
-        return set.remove(member);
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "SREM", () -> {
+            RSet<T> set = redissonClient.getSet(key, codecStrategy.getValueCodec());
+            return set.remove(member);
+        });
     }
 
     /**
      * 判断元素是否在 Set 中
      */
     public <T> boolean sismember(String key, T member) {
-        RSet<T> set = redissonClient.getSet(key);
-        return set.contains(member);
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "SISMEMBER", () -> {
+            RSet<T> set = redissonClient.getSet(key, codecStrategy.getValueCodec());
+            return set.contains(member);
+        });
     }
 
     /**
@@ -225,16 +328,108 @@ public class RedissonUtil {
      */
     @SuppressWarnings("unchecked")
     public <T> Set<T> smembers(String key) {
-        RSet<T> set = redissonClient.getSet(key);
-        return set.readAll();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "SMEMBERS", () -> {
+            RSet<T> set = redissonClient.getSet(key, codecStrategy.getValueCodec());
+            return set.readAll();
+        });
     }
 
     /**
      * 获取 Set 大小
      */
     public int scard(String key) {
-        RSet<Object> set = redissonClient.getSet(key);
-        return set.size();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "SCARD", () -> {
+            RSet<Object> set = redissonClient.getSet(key, codecStrategy.getValueCodec());
+            return set.size();
+        });
+    }
+
+    // ==================== Sorted Set 操作 ====================
+
+    /**
+     * 添加成员（已存在则覆盖分数）
+     */
+    public boolean zadd(String key, double score, String member) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "ZADD",
+                () -> redissonClient.<String>getScoredSortedSet(key, StringCodec.INSTANCE).add(score, member));
+    }
+
+    /**
+     * 成员加分，返回新分数
+     */
+    public Double zincrby(String key, double increment, String member) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "ZINCRBY",
+                () -> redissonClient.<String>getScoredSortedSet(key, StringCodec.INSTANCE).addScore(member, increment));
+    }
+
+    /**
+     * 获取成员分数
+     */
+    public Double zscore(String key, String member) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "ZSCORE",
+                () -> redissonClient.<String>getScoredSortedSet(key, StringCodec.INSTANCE).getScore(member));
+    }
+
+    /**
+     * 获取成员名次（分数从高到低，从 0 开始），不存在返回 null
+     */
+    public Integer zrevrank(String key, String member) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "ZREVRANK",
+                () -> redissonClient.<String>getScoredSortedSet(key, StringCodec.INSTANCE).revRank(member));
+    }
+
+    /**
+     * 按分数从高到低读取 [start, end] 名次范围的成员和分数
+     */
+    public Collection<ScoredEntry<String>> zrevrangeWithScores(String key, int start, int end) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "ZREVRANGE",
+                () -> redissonClient.<String>getScoredSortedSet(key, StringCodec.INSTANCE).entryRangeReversed(start, end));
+    }
+
+    /**
+     * 获取 Sorted Set 大小
+     */
+    public int zcard(String key) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "ZCARD",
+                () -> redissonClient.getScoredSortedSet(key, StringCodec.INSTANCE).size());
+    }
+
+    /**
+     * 移除成员
+     */
+    public boolean zrem(String key, String member) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "ZREM",
+                () -> redissonClient.<String>getScoredSortedSet(key, StringCodec.INSTANCE).remove(member));
+    }
+
+    /**
+     * 获取排行榜（批量加分、分页、名次查询、自动裁剪）
+     * @param maxSize 保留的最大名次数，0 表示不裁剪
+     */
+    public RedisLeaderboard getLeaderboard(String key, int maxSize) {
+        RedisLeaderboard leaderboard = leaderboards.get(key);
+        if (leaderboard == null) {
+            if (leaderboards.size() >= maxLeaderboards) {
+                throw new IllegalStateException("排行榜实例数已达上限: " + maxLeaderboards);
+            }
+            leaderboard = leaderboards.computeIfAbsent(key, k -> new RedisLeaderboard(redissonClient, key, maxSize));
+        }
+        if (leaderboard.getMaxSize() != maxSize) {
+            throw new IllegalArgumentException("排行榜 " + key + " 的maxSize为" + leaderboard.getMaxSize()
+                    + "，不能以" + maxSize + "重新打开");
+        }
+        return leaderboard;
+    }
+
+    /**
+     * 获取按时间分桶的滑动窗口排行榜
+     * @param bucket 桶长
+     * @param retentionBuckets 保留桶数
+     * @param bucketMaxSize 每个桶保留的最大成员数，0 表示不裁剪
+     */
+    public TimeWindowLeaderboard getTimeWindowLeaderboard(String key, Duration bucket, int retentionBuckets,
+                                                          int bucketMaxSize) {
+        return new TimeWindowLeaderboard(redissonClient, key, bucket, retentionBuckets, bucketMaxSize, 1000);
     }
 
     // ==================== 分布式锁 ====================
@@ -301,24 +496,30 @@ public class RedissonUtil {
      * 原子递增
      */
     public long increment(String key) {
-        RAtomicLong atomicLong = redissonClient.getAtomicLong(key);
-        return atomicLong.incrementAndGet();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "INCR", () -> {
+            RAtomicLong atomicLong = redissonClient.getAtomicLong(key);
+            return atomicLong.incrementAndGet();
+        });
     }
 
     /**
      * 原子递增指定值
      */
     public long incrementBy(String key, long increment) {
-        RAtomicLong atomicLong = redissonClient.getAtomicLong(key);
-        return atomicLong.addAndGet(increment);
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "INCRBY", () -> {
+            RAtomicLong atomicLong = redissonClient.getAtomicLong(key);
+            return atomicLong.addAndGet(increment);
+        });
     }
 
     /**
      * 原子递减
      */
     public long decrement(String key) {
-        RAtomicLong atomicLong = redissonClient.getAtomicLong(key);
-        return atomicLong.decrementAndGet();
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "DECR", () -> {
+            RAtomicLong atomicLong = redissonClient.getAtomicLong(key);
+            return atomicLong.decrementAndGet();
+        });
     }
 
     // ==================== 高级功能 ====================
@@ -330,6 +531,66 @@ public class RedissonUtil {
         return redissonClient.getBloomFilter(key);
     }
 
+    /**
+     * 获取 HyperLogLog（基数估计，单键最多约 12KB，标准误差 0.81%）
+     */
+    public <T> RHyperLogLog<T> getHyperLogLog(String key) {
+        return redissonClient.getHyperLogLog(key, codecStrategy.getValueCodec());
+    }
+
+    /**
+     * 批量写入多个 HyperLogLog（管道，每个键一次 PFADD）
+     */
+    public <T> void hyperLogLogAddAll(Map<String, ? extends Collection<T>> itemsByKey) {
+        clientMetrics.time(RedisClientMetrics.REDISSON, "PFADD", () -> {
+            RBatch batch = redissonClient.createBatch();
+            itemsByKey.forEach((key, items) ->
+                    batch.<T>getHyperLogLog(key, codecStrategy.getValueCodec()).addAllAsync(items));
+            batch.execute();
+        });
+    }
+
+    /**
+     * 批量读取多个 HyperLogLog 的基数（管道）
+     */
+    public Map<String, Long> hyperLogLogCounts(String... keys) {
+        return clientMetrics.time(RedisClientMetrics.REDISSON, "PFCOUNT", () -> {
+            RBatch batch = redissonClient.createBatch();
+            Map<String, RFuture<Long>> futures = new LinkedHashMap<>();
+            for (String key : keys) {
+                futures.put(key, batch.getHyperLogLog(key, codecStrategy.getValueCodec()).countAsync());
+            }
+            batch.execute();
+            Map<String, Long> counts = new LinkedHashMap<>();
+            futures.forEach((key, future) -> counts.put(key, future.toCompletableFuture().join()));
+            return counts;
+        });
+    }
+
+    /**
+     * 获取 Count-Min Sketch（频率估计），结构参数以首次创建时为准
+     * @param width 每行计数器个数，误差约为 总计数 × 2.72 / width
+     * @param depth 行数，误差超出上界的概率约为 e^(-depth)
+     */
+    public RedisCountMinSketch getCountMinSketch(String key, int width, int depth) {
+        return new RedisCountMinSketch(redissonClient, key, width, depth);
+    }
+
+    /**
+     * 获取布谷鸟过滤器（支持删除的成员判断），结构参数以首次创建时为准
+     * @param capacity 预期元素个数
+     */
+    public RedisCuckooFilter getCuckooFilter(String key, long capacity) {
+        return new RedisCuckooFilter(redissonClient, key, capacity);
+    }
+
+    /**
+     * 获取 Top-K（高频元素），结构参数以首次创建时为准
+     */
+    public RedisTopK getTopK(String key, int k, int width, int depth) {
+        return new RedisTopK(redissonClient, key, k, width, depth);
+    }
+
     /**
      * 获取信号量（限流）
      */
@@ -346,8 +607,19 @@ public class RedissonUtil {
 
     /**
      * 获取阻塞队列
+     * 注意：基于 List，无确认与重试，消费者宕机会丢消息；需要可靠消费请使用 getStreamQueue
      */
     public <T> RBlockingQueue<T> getBlockingQueue(String key) {
         return redissonClient.getBlockingQueue(key);
     }
+
+    /**
+     * 获取基于 Redis Stream 的工作队列（消费者组、确认、失效认领、死信、裁剪）
+     * @param key Stream 键
+     * @param group 消费者组名，不存在时自动创建
+     * @param options 队列参数
+     */
+    public <T> RedisStreamQueue<T> getStreamQueue(String key, String group, StreamQueueOptions options) {
+        return new RedisStreamQueue<>(redissonClient, key, group, codecStrategy.getValueCodec(), options);
+    }
 }